@@ -0,0 +1,95 @@
+package jam.data;
+
+import java.awt.Polygon;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Testing events against gates, as sort routines do for every event, with
+ * about a third of the events inside.
+ */
+@State(Scope.Thread)
+public class GateBenchmark {// NOPMD
+
+	private static final int EVENTS = 1 << 16;
+
+	private static final int SIZE = 1024;
+
+	private transient Gate gate1d;
+
+	private transient Gate gate2d;
+
+	private transient final int[] channelsX = new int[EVENTS];
+
+	private transient final int[] channelsY = new int[EVENTS];
+
+	/**
+	 * Creates a 1d gate and a banana gate, and the channels to test.
+	 */
+	@Setup
+	public void setUp() {
+		final Group group = Factory.createGroup("benchmark", Group.Type.TEMP);
+		gate1d = new Gate("one", Factory.createHistogram(group,
+				new int[SIZE], "one"));
+		gate1d.setLimits(SIZE / 3, 2 * SIZE / 3);
+		gate2d = new Gate("two", Factory.createHistogram(group,
+				new int[SIZE][SIZE], "two"));
+		final Polygon banana = new Polygon();
+		final int points = 32;
+		for (int i = 0; i <= points; i++) {
+			final double angle = Math.PI * i / points;
+			banana.addPoint((int) (SIZE * (0.5 + 0.45 * Math.cos(angle))),
+					(int) (SIZE * (0.1 + 0.8 * Math.sin(angle))));
+		}
+		for (int i = points; i >= 0; i--) {
+			final double angle = Math.PI * i / points;
+			banana.addPoint((int) (SIZE * (0.5 + 0.3 * Math.cos(angle))),
+					(int) (SIZE * (0.1 + 0.5 * Math.sin(angle))));
+		}
+		gate2d.setLimits(banana);
+		final Random random = new Random(0);
+		for (int i = 0; i < EVENTS; i++) {
+			channelsX[i] = random.nextInt(SIZE);
+			channelsY[i] = random.nextInt(SIZE);
+		}
+	}
+
+	/**
+	 * Tests channels against a 1d gate.
+	 *
+	 * @return number of channels inside
+	 */
+	@Benchmark
+	@OperationsPerInvocation(EVENTS)
+	public int inGate1d() {
+		int rval = 0;
+		for (int i = 0; i < EVENTS; i++) {
+			if (gate1d.inGate(channelsX[i])) {
+				rval++;
+			}
+		}
+		return rval;
+	}
+
+	/**
+	 * Tests channel pairs against a banana gate.
+	 *
+	 * @return number of channel pairs inside
+	 */
+	@Benchmark
+	@OperationsPerInvocation(EVENTS)
+	public int inGate2d() {
+		int rval = 0;
+		for (int i = 0; i < EVENTS; i++) {
+			if (gate2d.inGate(channelsX[i], channelsY[i])) {
+				rval++;
+			}
+		}
+		return rval;
+	}
+}
@@ -0,0 +1,73 @@
+package jam.data;
+
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Incrementing histograms, as sort routines do for every event, with
+ * channels spread over the whole histogram.
+ */
+@State(Scope.Thread)
+public class HistogramBenchmark {// NOPMD
+
+	private static final int EVENTS = 1 << 16;
+
+	/**
+	 * channels on each axis of the 2d histogram
+	 */
+	@Param( { "256", "1024" })
+	public int size2d;// NOPMD
+
+	private transient HistInt1D hist1d;
+
+	private transient HistInt2D hist2d;
+
+	private transient final int[] channelsX = new int[EVENTS];
+
+	private transient final int[] channelsY = new int[EVENTS];
+
+	/**
+	 * Creates the histograms and the channels to increment.
+	 */
+	@Setup
+	public void setUp() {
+		final Group group = Factory.createGroup("benchmark", Group.Type.TEMP);
+		hist1d = (HistInt1D) Factory.createHistogram(group, new int[8192],
+				"one");
+		hist2d = (HistInt2D) Factory.createHistogram(group,
+				new int[size2d][size2d], "two");
+		final Random random = new Random(0);
+		for (int i = 0; i < EVENTS; i++) {
+			channelsX[i] = random.nextInt(8192);
+			channelsY[i] = random.nextInt(size2d);
+		}
+	}
+
+	/**
+	 * Increments a 1d histogram.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(EVENTS)
+	public void inc1d() {
+		for (int i = 0; i < EVENTS; i++) {
+			hist1d.inc(channelsX[i]);
+		}
+	}
+
+	/**
+	 * Increments a 2d histogram.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(EVENTS)
+	public void inc2d() {
+		for (int i = 0; i < EVENTS; i++) {
+			hist2d.inc(channelsX[i] % size2d, channelsY[i]);
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package jam.data.peaks;
+
+import java.util.List;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Searching a synthetic 8k gamma-ray spectrum, with 60 peaks of increasing
+ * width on an exponential background, for peaks.
+ */
+@State(Scope.Thread)
+public class PeakFinderBenchmark {// NOPMD
+
+	private static final int SIZE = 8192;
+
+	private static final int PEAKS = 60;
+
+	private static final double SENSITIVITY = 3.0;
+
+	private static final double WIDTH = 6.0;
+
+	private transient final double[] spectrum = new double[SIZE];
+
+	/**
+	 * Generates the spectrum, with counting statistics.
+	 */
+	@Setup
+	public void setUp() {
+		final Random random = new Random(0);
+		for (int i = 0; i < SIZE; i++) {
+			spectrum[i] = 200.0 * Math.exp(-i / 3000.0);
+		}
+		for (int peak = 0; peak < PEAKS; peak++) {
+			final double centroid = 50.0 + random.nextDouble() * (SIZE - 100);
+			final double area = 1000.0 * Math.pow(100.0, random.nextDouble());
+			final double sigma = (4.0 + 0.001 * centroid)
+					/ GaussianConstants.SIG_TO_FWHM;
+			final int low = Math.max(0, (int) (centroid - 5 * sigma));
+			final int high = Math.min(SIZE - 1, (int) (centroid + 5 * sigma));
+			for (int i = low; i <= high; i++) {
+				final double diff = (i - centroid) / sigma;
+				spectrum[i] += area / (sigma * Math.sqrt(2.0 * Math.PI))
+						* Math.exp(-0.5 * diff * diff);
+			}
+		}
+		for (int i = 0; i < SIZE; i++) {
+			spectrum[i] = Math.max(0.0, Math.rint(spectrum[i]
+					+ Math.sqrt(spectrum[i]) * random.nextGaussian()));
+		}
+	}
+
+	/**
+	 * Finds the peak centroids.
+	 *
+	 * @return centroids found
+	 */
+	@Benchmark
+	public List<Double> getCentroids() {
+		return PeakFinder.getInstance().getCentroids(spectrum, SENSITIVITY,
+				WIDTH);
+	}
+
+	/**
+	 * Finds the peaks grouped into multiplets.
+	 *
+	 * @return multiplets found
+	 */
+	@Benchmark
+	public List<Multiplet> getMultiplets() {
+		return PeakFinder.getInstance().getMultiplets(spectrum, SENSITIVITY,
+				WIDTH);
+	}
+}
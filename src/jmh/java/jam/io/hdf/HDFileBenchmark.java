@@ -0,0 +1,121 @@
+package jam.io.hdf;
+
+import injection.GuiceInjector;
+import jam.data.Factory;
+import jam.data.Group;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Reading all the data objects of an HDF file with
+ * <code>HDFile.readFile()</code>, for the small sample file and for a
+ * synthetic file the size of a typical experiment's, 64 1d histograms of 8k
+ * channels and 8 2d histograms of 512x512 channels. In package
+ * <code>jam.io.hdf</code> to clear the data objects between reads.
+ */
+@State(Scope.Thread)
+public class HDFileBenchmark {// NOPMD
+
+	private static final String SAMPLE = "sampledata/exampleGates1.hdf";
+
+	private static final long TIMEOUT_MILLIS = 60000L;
+
+	/**
+	 * file to read
+	 */
+	@Param( { "sample", "synthetic" })
+	public String file;// NOPMD
+
+	private transient File input;
+
+	private transient File directory;
+
+	/**
+	 * Finds the sample file or writes the synthetic one.
+	 *
+	 * @throws IOException
+	 *             if the synthetic file isn't written in time
+	 * @throws InterruptedException
+	 *             if interrupted while writing
+	 */
+	@Setup
+	public void setUp() throws IOException, InterruptedException {
+		if ("sample".equals(file)) {
+			input = new File(SAMPLE);
+		} else {
+			directory = Files.createTempDirectory("hdfbench").toFile();
+			input = new File(directory, "synthetic.hdf");
+			writeSynthetic(input);
+		}
+	}
+
+	private static void writeSynthetic(final File out) throws IOException,
+			InterruptedException {
+		final Group group = Factory.createGroup("synthetic", Group.Type.TEMP);
+		final Random random = new Random(0);
+		for (int i = 0; i < 64; i++) {
+			final int[] counts = new int[8192];
+			for (int j = 0; j < counts.length; j++) {
+				counts[j] = random.nextInt(1000);
+			}
+			Factory.createHistogram(group, counts, "one" + i);
+		}
+		for (int i = 0; i < 8; i++) {
+			final int[][] counts = new int[512][512];
+			for (int[] row : counts) {
+				for (int j = 0; j < row.length; j++) {
+					row[j] = random.nextInt(100);
+				}
+			}
+			Factory.createHistogram(group, counts, "two" + i);
+		}
+		try {
+			GuiceInjector.getObjectInstance(HDFIO.class).writeSnapshot(out,
+					group).get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+		} catch (ExecutionException | TimeoutException e) {
+			throw new IOException("Couldn't write " + out, e);
+		}
+	}
+
+	/**
+	 * Reads the file.
+	 *
+	 * @throws IOException
+	 *             if the file can't be read
+	 * @throws HDFException
+	 *             if the file is corrupt
+	 */
+	@Benchmark
+	public void readFile() throws IOException, HDFException {
+		AbstractData.clearAll();
+		try (HDFile hdf = new HDFile(input, "r")) {
+			hdf.readFile();
+		} finally {
+			AbstractData.clearAll();
+		}
+	}
+
+	/**
+	 * Deletes the synthetic file.
+	 */
+	@TearDown
+	public void tearDown() {
+		if (directory != null) {
+			input.delete();
+			directory.delete();
+		}
+	}
+}
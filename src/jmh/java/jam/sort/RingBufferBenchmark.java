@@ -0,0 +1,85 @@
+package jam.sort;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Passing buffers through the ring buffer implementations, alone and with a
+ * concurrent producer and consumer as between <code>NetDaemon</code> and
+ * <code>SortDaemon</code>. In package <code>jam.sort</code> to construct the
+ * implementations directly.
+ */
+@State(Scope.Group)
+public class RingBufferBenchmark {// NOPMD
+
+	/**
+	 * implementation to measure
+	 */
+	@Param( { "simple", "deque" })
+	public String implementation;// NOPMD
+
+	private transient RingBuffer ring;
+
+	private transient final byte[] produced = new byte[RingBuffer.BUFFER_SIZE];
+
+	private transient final byte[] consumed = new byte[RingBuffer.BUFFER_SIZE];
+
+	/**
+	 * Creates an empty ring.
+	 */
+	@Setup
+	public void setUp() {
+		ring = "simple".equals(implementation) ? new SimpleRingBuffer(false)
+				: new LinkedBlockingDequeRingBuffer(false);
+		produced[0] = 1;
+	}
+
+	/**
+	 * Puts and gets one buffer on a single thread.
+	 *
+	 * @return a byte of the buffer taken out
+	 * @throws InterruptedException
+	 *             never
+	 */
+	@Benchmark
+	public byte putGet() throws InterruptedException {
+		ring.tryPutBuffer(produced);
+		ring.getBuffer(consumed);
+		return consumed[0];
+	}
+
+	/**
+	 * Producer side, like <code>NetDaemon.receiveLoop()</code>.
+	 *
+	 * @return whether the buffer fit in the ring
+	 */
+	@Benchmark
+	@Group("pipe")
+	@GroupThreads(1)
+	public boolean put() {
+		return ring.tryPutBuffer(produced);
+	}
+
+	/**
+	 * Consumer side, like <code>SortDaemon.sortOnline()</code>, but not
+	 * blocking when the ring is empty, so iterations can end.
+	 *
+	 * @return a byte of the buffer taken out
+	 * @throws InterruptedException
+	 *             never
+	 */
+	@Benchmark
+	@Group("pipe")
+	@GroupThreads(1)
+	public byte get() throws InterruptedException {
+		if (!ring.isEmpty()) {
+			ring.getBuffer(consumed);
+		}
+		return consumed[0];
+	}
+}
@@ -0,0 +1,144 @@
+package jam.sort.stream;
+
+import jam.sort.RingBuffer;
+import jam.sort.stream.AbstractEventInputStream.EventInputStatus;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Reading every event of an in-memory event file with
+ * <code>readEvent()</code>, as offline sorting does. The files are the L002
+ * sample file, and synthetic L002 and Yale CAEN files of 1024 full buffers.
+ */
+@State(Scope.Thread)
+public class EventStreamBenchmark {// NOPMD
+
+	private static final String SAMPLE = "sampledata/example.evn";
+
+	private static final int BUFFERS = 1024;
+
+	private static final int EVENT_SIZE = 16;
+
+	/**
+	 * file to read
+	 */
+	@Param( { "L002-sample", "L002-synthetic", "YaleCAEN-synthetic" })
+	public String file;// NOPMD
+
+	private transient byte[] data;
+
+	private transient int[] event;
+
+	/**
+	 * Loads or generates the file.
+	 *
+	 * @throws IOException
+	 *             if the sample file can't be read
+	 */
+	@Setup
+	public void setUp() throws IOException {
+		final Random random = new Random(0);
+		if ("L002-sample".equals(file)) {
+			data = Files.readAllBytes(Paths.get(SAMPLE));
+		} else if ("L002-synthetic".equals(file)) {
+			data = createL002(random);
+		} else {
+			data = createYaleCAEN(random);
+		}
+		event = new int[CAEN_StreamFields.NUM_CHANNELS];
+	}
+
+	private static byte[] createL002(final Random random) throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream(BUFFERS
+				* RingBuffer.BUFFER_SIZE);
+		final DataOutputStream out = new DataOutputStream(bytes);
+		final int eventBytes = 4 * EVENT_SIZE + 2;
+		for (int buffer = 0; buffer < BUFFERS; buffer++) {
+			int used = 0;
+			while (used + eventBytes < RingBuffer.BUFFER_SIZE) {
+				for (int param = 1; param <= EVENT_SIZE; param++) {
+					out.writeShort(0x8000 | param);
+					out.writeShort(random.nextInt(1 << 13));
+				}
+				out.writeShort(0xffff);// end of event
+				used += eventBytes;
+			}
+			for (; used < RingBuffer.BUFFER_SIZE; used += 2) {
+				out.writeShort(0xfff0);// end of buffer
+			}
+		}
+		out.writeShort(0xff03);// end of run
+		return bytes.toByteArray();
+	}
+
+	private static byte[] createYaleCAEN(final Random random)
+			throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream(BUFFERS
+				* RingBuffer.BUFFER_SIZE);
+		final DataOutputStream out = new DataOutputStream(bytes);
+		final int slot = 2;
+		final int eventBytes = 4 * (EVENT_SIZE + 2);
+		int eventNumber = 0;
+		for (int buffer = 0; buffer < BUFFERS; buffer++) {
+			int used = 0;
+			while (used + eventBytes < RingBuffer.BUFFER_SIZE) {
+				out.writeInt(slot << 27 | 0x2000000);// header
+				for (int channel = 0; channel < EVENT_SIZE; channel++) {
+					out.writeInt(channel << 16 | random.nextInt(1 << 12));
+				}
+				out.writeInt(0x4000000 | eventNumber);// end of block
+				eventNumber = (eventNumber + 1) & 0xffffff;
+				used += eventBytes;
+			}
+			for (; used < RingBuffer.BUFFER_SIZE - 4; used += 4) {
+				out.writeInt(CAEN_StreamFields.BUFFER_PAD);
+			}
+			out.writeInt(CAEN_StreamFields.BUFFER_END);
+		}
+		out.writeInt(CAEN_StreamFields.END_PAD);
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Reads all events.
+	 *
+	 * @return number of events read
+	 * @throws EventException
+	 *             if the stream is corrupt
+	 */
+	@Benchmark
+	public int readAll() throws EventException {
+		final AbstractEventInputStream stream = file.startsWith("L002") ? new L002InputStream(
+				true, EVENT_SIZE)
+				: new YaleCAEN_InputStream(true, EVENT_SIZE);
+		stream.setInputStream(new ByteArrayInputStream(data));
+		if ("L002-sample".equals(file)) {
+			stream.readHeader();
+		}
+		int count = 0;
+		EventInputStatus status = stream.readEvent(event);
+		while (status != EventInputStatus.END_RUN
+				&& status != EventInputStatus.END_FILE
+				&& status != EventInputStatus.UNKNOWN_WORD) {
+			if (status == EventInputStatus.EVENT) {
+				count++;
+				Arrays.fill(event, 0);
+			}
+			status = stream.readEvent(event);
+		}
+		return count;
+	}
+}
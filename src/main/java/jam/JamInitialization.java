@@ -1,6 +1,7 @@
 package jam;
 
 import com.google.inject.Inject;
+import com.google.inject.Provider;
 import com.google.inject.Singleton;
 import jam.commands.CommandManager;
 import jam.commands.CommandNames;
@@ -13,6 +14,8 @@ import java.awt.*;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.awt.event.WindowListener;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 /**
@@ -34,7 +37,16 @@ public final class JamInitialization {
 
 	private transient final JFrame frame;
 
+	/* what startup spent its time on, logged once the window shows */
+	private transient final StringBuilder startupTimes = new StringBuilder();
+
+	private transient long lapStart = System.nanoTime();
+
 	/**
+	 * Builds the main window. The menu bar, toolbar, panel and initial
+	 * histograms are got from providers rather than injected, so the time each
+	 * takes can be logged.
+	 * 
 	 * @param frame
 	 *            the GUI frame
 	 * @param status
@@ -43,15 +55,15 @@ public final class JamInitialization {
 	 *            accessor for Jam's properties files
 	 * @param broadcaster
 	 *            handles application-wide events
-	 * @param menuBar
-	 *            menu bar
+	 * @param menuBarProvider
+	 *            menu bar, with the commands in it
 	 * @param commandManager
 	 *            handles commands
-	 * @param jamToolBar
+	 * @param toolBarProvider
 	 *            iconic toolbar
-	 * @param sdPanel
+	 * @param sdPanelProvider
 	 *            selection and display
-	 * @param initHists
+	 * @param initHistsProvider
 	 *            initial histograms
 	 * @param aars
 	 *            AcquisitionAndRunState instance
@@ -61,12 +73,22 @@ public final class JamInitialization {
 	@Inject
 	public JamInitialization(final JFrame frame, final JamStatus status,
 			final JamProperties properties, final Broadcaster broadcaster,
-			final MenuBar menuBar, final CommandManager commandManager,
-			final ToolBar jamToolBar, final SelectionAndDisplayPanel sdPanel,
-			final InitialHistograms initHists,
+			final Provider<MenuBar> menuBarProvider,
+			final CommandManager commandManager,
+			final Provider<ToolBar> toolBarProvider,
+			final Provider<SelectionAndDisplayPanel> sdPanelProvider,
+			final Provider<InitialHistograms> initHistsProvider,
 			final AcquisitionAndRunState aars, final Version version) {
 		this.frame = frame;
 		this.properties = properties;
+		final MenuBar menuBar = menuBarProvider.get();
+		lap("menus and commands");
+		final ToolBar jamToolBar = toolBarProvider.get();
+		lap("toolbar");
+		final SelectionAndDisplayPanel sdPanel = sdPanelProvider.get();
+		lap("selection and display");
+		final InitialHistograms initHists = initHistsProvider.get();
+		lap("initial histograms");
 		broadcaster.addPropertyChangeListener(aars);
 		loadIcon();
 		final Container contents = this.frame.getContentPane();
@@ -85,6 +107,17 @@ public final class JamInitialization {
 		SelectionTree.setCurrentHistogram(initHists.getInitialHist());
 		broadcaster.broadcast(BroadcastEvent.Command.HISTOGRAM_SELECT,
 				initHists.getInitialHist());
+		lap("layout and data setup");
+	}
+
+	/* notes the time since the previous lap */
+	private void lap(final String name) {
+		final long now = System.nanoTime();
+		startupTimes.append(startupTimes.length() == 0 ? "" : ", ")
+				.append(name).append(' ')
+				.append(TimeUnit.NANOSECONDS.toMillis(now - lapStart))
+				.append(" ms");
+		lapStart = now;
 	}
 
 	private WindowListener createWindowListener(
@@ -135,6 +168,10 @@ public final class JamInitialization {
 		final Runnable showWindow = () -> {
             JamInitialization.this.frame.pack();
             JamInitialization.this.frame.setVisible(true);
+            lap("showing window");
+            LOGGER.info("Started in "
+                    + ManagementFactory.getRuntimeMXBean().getUptime()
+                    + " ms: " + startupTimes);
 
             /* print out where configuration files were read from */
             properties.outputMessages();
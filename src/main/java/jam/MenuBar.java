@@ -195,6 +195,10 @@ final class MenuBar implements PropertyChangeListener {
                 .getMenuItem(CommandNames.SHOW_GRADIENT));
         mPrefer.add(this.commandManager
                 .getMenuItem(PlotPreferences.ENABLE_SCROLLING));
+        mPrefer.add(this.commandManager
+                .getMenuItem(PlotPreferences.AUTO_REFRESH));
+        mPrefer.add(this.commandManager
+                .getMenuItem(PlotPreferences.REFRESH_RATE));
         mPrefer.add(this.commandManager
                 .getMenuItem(PlotPreferences.DISPLAY_LABELS));
         mPrefer.add(this.commandManager
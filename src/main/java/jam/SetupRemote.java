@@ -14,6 +14,8 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.ItemEvent;
 import java.awt.event.ItemListener;
+import java.io.IOException;
+import java.net.InetAddress;
 import java.rmi.Naming;
 import java.rmi.RemoteException;
 import java.rmi.UnknownHostException;
@@ -30,13 +32,21 @@ import javax.swing.JTextField;
 
 import com.google.inject.Inject;
 
+import jam.data.DataBase;
 import jam.global.JamException;
+import jam.global.JamProperties;
 import jam.global.JamStatus;
+import jam.global.PropertyKeys;
 import jam.global.SortMode;
+import jam.remote.HistogramClient;
+import jam.remote.HistogramServer;
+import jam.util.AbstractSwingWorker;
 
 /**
  * Class to make this process into a remote server for Jam or hook up to a
- * remote online acquisition that is a server.
+ * remote online acquisition that is a server. A server also streams its
+ * histograms to linked viewers, which keep local copies updated with only
+ * the channels that change.
  * 
  * @author Ken Swartz
  */
@@ -65,6 +75,12 @@ public class SetupRemote extends JDialog implements ActionListener,
 
 	private static final String DEFAULT_URL = "rmi://meitner.physics.yale.edu/jam";
 
+	private static final String DEFAULT_LINK = "meitner.physics.yale.edu:"
+			+ HistogramServer.DEFAULT_PORT;
+
+	/* milliseconds between updates of linked histograms */
+	private static final int LINK_INTERVAL = 1000;
+
 	private static final Logger LOGGER = Logger.getLogger(SetupRemote.class
 			.getPackage().getName());
 
@@ -82,6 +98,10 @@ public class SetupRemote extends JDialog implements ActionListener,
 
 	private transient Mode mode; // mode server, snap or link
 
+	private transient volatile HistogramServer histogramServer;
+
+	private transient volatile HistogramClient histogramClient;
+
 	private transient final JTextField textName;
 
 	/**
@@ -172,8 +192,8 @@ public class SetupRemote extends JDialog implements ActionListener,
 					LOGGER.info("Jam remote snapShot: " + name);
 				} else if (mode == Mode.LINK) {
 					LOGGER.info("Trying " + name);
-					remote.takeSnapshot(textName.getText().trim());
-					LOGGER.info("Jam remote link: " + name);
+					linkInBackground(name, "ok".equals(command));
+					return;
 				}
 
 				setActive(true);
@@ -190,6 +210,46 @@ public class SetupRemote extends JDialog implements ActionListener,
 		}
 	}
 
+	/*
+	 * non-javadoc: Links off the event dispatch thread, so that a slow or
+	 * absent server doesn't freeze the display.
+	 */
+	private void linkInBackground(final String name, final boolean close) {
+		bok.setEnabled(false);
+		bapply.setEnabled(false);
+		final AbstractSwingWorker worker = new AbstractSwingWorker() {
+			@Override
+			public Object construct() {
+				try {
+					link(name);
+					return null;
+				} catch (JamException je) {
+					return je;
+				}
+			}
+
+			@Override
+			public void finished() {
+				final Object error = getValue();
+				if (error == null) {
+					LOGGER.info("Jam remote link: " + name);
+					setActive(true);
+					lockFields(true);
+					if (close) {
+						dispose();
+					}
+				} else {
+					final JamException jamException = (JamException) error;
+					LOGGER.log(Level.SEVERE, jamException.getMessage(),
+							jamException);
+					bok.setEnabled(true);
+					bapply.setEnabled(true);
+				}
+			}
+		};
+		worker.start();
+	}
+
 	/**
 	 * What mode has been picked.
 	 */
@@ -205,8 +265,8 @@ public class SetupRemote extends JDialog implements ActionListener,
 			textName.setText(DEFAULT_URL);
 		} else if (clink.equals(item)) {
 			mode = Mode.LINK;
-			lname.setText("URL:");
-			textName.setText(DEFAULT_URL);
+			lname.setText("Host:");
+			textName.setText(DEFAULT_LINK);
 			// lock up state
 		} else if (checkLock.equals(item)) {
 			setActive(checkLock.isSelected());
@@ -238,10 +298,59 @@ public class SetupRemote extends JDialog implements ActionListener,
 	}
 
 	/**
-	 * Not sure what needs to be done here.
+	 * Closes any link to a remote server, and stops streaming histograms to
+	 * viewers. The linked histograms keep their last counts.
 	 */
 	public void reset() {
-		// nothing so far
+		if (histogramServer != null) {
+			try {
+				histogramServer.close();
+			} catch (IOException ioe) {
+				LOGGER.log(Level.WARNING, "Closing histogram stream server.",
+						ioe);
+			}
+			histogramServer = null;
+		}
+		if (histogramClient != null) {
+			try {
+				histogramClient.close();
+			} catch (IOException ioe) {
+				LOGGER.log(Level.WARNING, "Closing remote link.", ioe);
+			}
+			histogramClient = null;
+		}
+	}
+
+	/**
+	 * Link to a remote histogram server, replacing all data with local copies
+	 * of its histograms, kept current as they change. Waits on the network.
+	 * 
+	 * @param address
+	 *            <code>host:port</code>, or just the host for the default
+	 *            port
+	 * @exception JamException
+	 *                if the server can't be reached
+	 */
+	public void link(final String address) throws JamException {
+		final int colon = address.lastIndexOf(':');
+		final String host = colon < 0 ? address : address.substring(0, colon);
+		try {
+			final int port = colon < 0 ? HistogramServer.DEFAULT_PORT
+					: Integer.parseInt(address.substring(colon + 1));
+			if (!status.canSetup()) {
+				throw new JamException(
+						"Can't view remotely, sort mode locked [SetupRemote]");
+			}
+			reset();
+			DataBase.getInstance().clearAllLists();
+			histogramClient = new HistogramClient(host, port);
+			final int count = histogramClient.link(LINK_INTERVAL).size();
+			LOGGER.info("Linked to " + count + " histograms on " + host);
+		} catch (NumberFormatException nfe) {
+			throw new JamException("Remote link, bad port: " + address, nfe);
+		} catch (IOException ioe) {
+			throw new JamException("Remote link failed: " + address, ioe);
+		}
 	}
 
 	/**
@@ -257,6 +366,15 @@ public class SetupRemote extends JDialog implements ActionListener,
 		try {
 			final RemoteAccess remoteAccess = new RemoteAccess();
 			Naming.rebind(name, remoteAccess);
+			if (histogramServer == null) {
+				final InetAddress address = InetAddress.getByName(JamProperties
+						.getPropString(PropertyKeys.REMOTE_IP));
+				histogramServer = new HistogramServer(address,
+						HistogramServer.DEFAULT_PORT, JamProperties
+								.getPropInt(PropertyKeys.REMOTE_MAX_VIEWERS));
+				LOGGER.info("Streaming histograms on " + address + ", port "
+						+ histogramServer.getPort());
+			}
 			lockFields(true);
 		} catch (UnknownHostException unhe) {
 			throw new JamException(
@@ -268,6 +386,9 @@ public class SetupRemote extends JDialog implements ActionListener,
 		} catch (java.net.MalformedURLException mue) {
 			throw new JamException("Creating remote Server, malformed URL.",
 					mue);
+		} catch (IOException ioe) {
+			throw new JamException("Creating histogram stream server "
+					+ ioe.getMessage() + " [SetupRemote]", ioe);
 		}
 	}
 
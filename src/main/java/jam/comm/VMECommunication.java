@@ -49,6 +49,9 @@ final class VMECommunication extends GoodThread implements VmeSender {
 
     private transient int vmePort;
 
+    /* scaler values, reused for each packet by the receiving thread */
+    private transient int[] scalerValues = new int[8];
+
     private final transient PacketBuilder packetBuilder;
 
     /**
@@ -170,9 +173,8 @@ final class VMECommunication extends GoodThread implements VmeSender {
             final List<Integer> unpackedValues = new ArrayList<>(8);
             while (checkState()) { // loop forever receiving packets
                 try {
-                    synchronized (LOCK) {
-                        socketReceive.receive(packetIn);
-                    }
+                    /* not under LOCK, which would block isActive() until a packet arrives */
+                    socketReceive.receive(packetIn);
                     final ByteBuffer byteBuffer = ByteBuffer.wrap(packetIn
                             .getData());
                     final int status = byteBuffer.getInt();
@@ -194,8 +196,8 @@ final class VMECommunication extends GoodThread implements VmeSender {
             LOGGER.info(getClass().getName() + ": "
                     + unPackMessage(byteBuffer));
         } else if (status == PacketTypes.SCALER.intValue()) {
-            unPackCounters(byteBuffer, unpackedValues);
-            Scaler.update(unpackedValues);
+            final int count = unPackScalers(byteBuffer);
+            Scaler.update(scalerValues, count);
         } else if (status == PacketTypes.COUNTER.intValue()) {
             unPackCounters(byteBuffer, unpackedValues);
             broadcaster.broadcast(BroadcastEvent.Command.COUNTERS_UPDATE,
@@ -326,6 +328,24 @@ final class VMECommunication extends GoodThread implements VmeSender {
         }
     }
 
+    /**
+     * Unpacks scaler values from udp packet into <code>scalerValues</code>,
+     * in the same format as counters, without boxing them.
+     * @param buffer
+     *            message in readable form
+     * @return the number of scalers
+     */
+    private int unPackScalers(final ByteBuffer buffer) {
+        final int numScalers = buffer.getInt();
+        if (numScalers > scalerValues.length) {
+            scalerValues = new int[numScalers];
+        }
+        for (int i = 0; i < numScalers; i++) {
+            scalerValues[i] = buffer.getInt();
+        }
+        return numScalers;
+    }
+
     /**
      * Unpack a datagram with a message. Message packets have an ASCII character
      * array terminated with \0.
@@ -1,5 +1,7 @@
 package jam.commands;
 
+import java.util.function.Supplier;
+
 import javax.swing.JDialog;
 
 import jam.global.CommandListenerException;
@@ -7,7 +9,9 @@ import jam.global.CommandListenerException;
 /**
  * Commands that are for showing <code>JDialog</code>'s. Dialogs simply extend
  * this and assign a reference to
- * <code>dialog</code> in <code>initCommand()</code>.
+ * <code>dialog</code> in <code>initCommand()</code>. Dialogs which are costly
+ * to build, and often never shown, are instead given with
+ * <code>setDialogSupplier()</code>, and built when first shown.
  * 
  * @author Ken Swartz
  */
@@ -31,8 +35,25 @@ public class AbstractShowDialog extends AbstractCommand {
 	 */
 	protected transient JDialog dialog;
 
+	private transient Supplier<? extends JDialog> dialogSupplier;
+
+	/**
+	 * Sets how to build the dialog, which is done when it is first shown,
+	 * rather than at startup.
+	 * 
+	 * @param supplier
+	 *            builds the dialog to show
+	 */
+	protected final void setDialogSupplier(
+			final Supplier<? extends JDialog> supplier) {
+		dialogSupplier = supplier;
+	}
+
 	@Override
 	protected final void execute(final Object[] cmdParams) {
+		if (dialog == null && dialogSupplier != null) {
+			dialog = dialogSupplier.get();
+		}
 		dialog.setVisible(true);
 	}
 
@@ -51,7 +72,7 @@ public class AbstractShowDialog extends AbstractCommand {
 	@Override
 	public final void setEnabled(final boolean state) {
 		super.setEnabled(state);
-		if (!state) {
+		if (!state && dialog != null) {// not yet built if lazy
 			dialog.dispose();
 		}
 	}
@@ -0,0 +1,20 @@
+package jam.commands;
+
+import jam.plot.PlotPreferences;
+
+/**
+ * Automatically refresh plots as their histograms change.
+ */
+@SuppressWarnings("serial")
+public class SetAutoRefresh extends AbstractSetBooleanPreference {
+
+	SetAutoRefresh() {
+		super();
+		putValue(NAME, "Automatically Refresh Plots");
+		putValue(SHORT_DESCRIPTION,
+				"Redraws plots whose histograms change, e.g., while sorting.");
+		prefsNode = PlotPreferences.PREFS;
+		key = PlotPreferences.AUTO_REFRESH;
+		defaultState = false;
+	}
+}
@@ -0,0 +1,77 @@
+package jam.commands;
+
+import jam.global.CommandListenerException;
+import jam.plot.PlotPreferences;
+
+import javax.swing.JFrame;
+import javax.swing.JOptionPane;
+
+import com.google.inject.Inject;
+
+/**
+ * Sets the maximum number of automatic plot refreshes per second.
+ * @see PlotPreferences#REFRESH_RATE
+ * @see SetAutoRefresh
+ */
+@SuppressWarnings("serial")
+final class SetRefreshRate extends AbstractCommand {
+
+	private transient final JFrame frame;
+
+	@Inject
+	SetRefreshRate(final JFrame frame) {
+		super("Plot Refresh Rate\u2026");
+		this.frame = frame;
+		putValue(SHORT_DESCRIPTION,
+				"Sets how many times per second plots are refreshed, at most.");
+	}
+
+	/**
+	 * If there is at least one element, and it is an <code>Integer</code>,
+	 * sets the rate to it. Otherwise, asks for the rate.
+	 *
+	 * @see jam.commands.AbstractCommand#execute(java.lang.Object[])
+	 */
+	@Override
+	protected void execute(final Object[] cmdParams) {
+		if (cmdParams != null && cmdParams.length > 0
+				&& cmdParams[0] instanceof Integer) {
+			setRate((Integer) cmdParams[0]);
+		} else {
+			final Object input = JOptionPane.showInputDialog(frame,
+					"Refreshes per second, 1 to "
+							+ PlotPreferences.MAX_REFRESH_RATE + ":",
+					"Plot Refresh Rate", JOptionPane.QUESTION_MESSAGE, null,
+					null, PlotPreferences.PREFS.getInt(
+							PlotPreferences.REFRESH_RATE,
+							PlotPreferences.DEFAULT_REFRESH_RATE));
+			if (input != null) {
+				try {
+					setRate(Integer.parseInt(input.toString().trim()));
+				} catch (NumberFormatException nfe) {
+					LOGGER.severe("Not a whole number of refreshes: " + input);
+				}
+			}
+		}
+	}
+
+	private void setRate(final int rate) {
+		final int bounded = Math.max(1, Math.min(
+				PlotPreferences.MAX_REFRESH_RATE, rate));
+		PlotPreferences.PREFS.putInt(PlotPreferences.REFRESH_RATE, bounded);
+	}
+
+	@Override
+	protected void executeParse(final String[] cmdTokens)
+			throws CommandListenerException {
+		if (cmdTokens.length > 0) {
+			try {
+				execute(new Object[] {Integer.valueOf(cmdTokens[0]) });
+			} catch (NumberFormatException nfe) {
+				throw new CommandListenerException(nfe);
+			}
+		} else {
+			execute(null);
+		}
+	}
+}
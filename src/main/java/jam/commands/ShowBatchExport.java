@@ -7,6 +7,7 @@
 package jam.commands;
 
 import com.google.inject.Inject;
+import com.google.inject.Provider;
 
 import jam.io.BatchExport;
 
@@ -19,8 +20,8 @@ import jam.io.BatchExport;
 final class ShowBatchExport extends AbstractShowDialog {
 
 	@Inject
-	ShowBatchExport(final BatchExport batchExport) {
+	ShowBatchExport(final Provider<BatchExport> batchExport) {
 		super("Batch Export\u2026");
-		dialog = batchExport;
+		setDialogSupplier(batchExport::get);
 	}
 }
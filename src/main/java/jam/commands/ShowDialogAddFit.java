@@ -1,6 +1,7 @@
 package jam.commands;
 
 import com.google.inject.Inject;
+import com.google.inject.Provider;
 
 import jam.fit.LoadFit;
 import jam.global.CommandListenerException;
@@ -13,17 +14,22 @@ import jam.global.CommandListenerException;
 @SuppressWarnings("serial")
 final class ShowDialogAddFit extends AbstractCommand {
 
-	private transient final LoadFit loadFit;
+	/* finds the fit classes when first needed, not at startup */
+	private transient final Provider<LoadFit> loadFitProvider;
+
+	private transient LoadFit loadFit;
 
 	@Inject
-	ShowDialogAddFit(final LoadFit loadFit) {
+	ShowDialogAddFit(final Provider<LoadFit> loadFitProvider) {
 		super("Load Fit\u2026");
-		this.loadFit = loadFit;
+		this.loadFitProvider = loadFitProvider;
 	}
 
 	@Override
 	protected void execute(final Object[] cmdParams) {
-		// final LoadFit loadfit = new LoadFit();
+		if (loadFit == null) {
+			loadFit = loadFitProvider.get();
+		}
 		loadFit.showLoad();
 	}
 
@@ -4,6 +4,7 @@ import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 
 import com.google.inject.Inject;
+import com.google.inject.Provider;
 
 import jam.data.AbstractHistogram;
 import jam.data.control.CalibrationFit;
@@ -21,9 +22,9 @@ final class ShowDialogCalibrationFitCmd extends AbstractShowDialog implements
 		PropertyChangeListener {
 
 	@Inject
-	ShowDialogCalibrationFitCmd(final CalibrationFit calibrationFit) {
+	ShowDialogCalibrationFitCmd(final Provider<CalibrationFit> calibrationFit) {
 		super("Calibration\u2026");
-		dialog = calibrationFit;
+		setDialogSupplier(calibrationFit::get);
 		enable();
 	}
 
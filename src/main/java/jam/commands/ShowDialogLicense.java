@@ -1,6 +1,7 @@
 package jam.commands;
 
 import com.google.inject.Inject;
+import com.google.inject.Provider;
 
 import jam.Help;
 
@@ -13,8 +14,8 @@ import jam.Help;
 final class ShowDialogLicense extends AbstractShowDialog {
 
 	@Inject
-	ShowDialogLicense(final Help help) {
+	ShowDialogLicense(final Provider<Help> help) {
 		super("License\u2026");
-		dialog = help;
+		setDialogSupplier(help::get);
 	}
 }
@@ -1,6 +1,7 @@
 package jam.commands;
 
 import com.google.inject.Inject;
+import com.google.inject.Provider;
 
 /**
  * Show the scaler scan dialog.
@@ -10,8 +11,8 @@ import com.google.inject.Inject;
 final class ShowDialogScalerScan extends AbstractShowDialog {
 
     @Inject
-    ShowDialogScalerScan(final ScalerScan scalerScan) {
+    ShowDialogScalerScan(final Provider<ScalerScan> scalerScan) {
         super("Scan HDF files for scalers\u2026");
-        dialog = scalerScan.getDialog();
+        setDialogSupplier(() -> scalerScan.get().getDialog());
     }
 }
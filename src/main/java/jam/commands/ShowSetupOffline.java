@@ -7,6 +7,7 @@ import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 
 import com.google.inject.Inject;
+import com.google.inject.Provider;
 
 import injection.GuiceInjector;
 import jam.global.JamStatus;
@@ -22,9 +23,9 @@ import jam.sort.control.SetupSortOff;
 final class ShowSetupOffline extends AbstractShowDialog implements PropertyChangeListener {
 
     @Inject
-    ShowSetupOffline(final SetupSortOff setupSortOff) {
+    ShowSetupOffline(final Provider<SetupSortOff> setupSortOff) {
         super("Offline sorting\u2026");
-        dialog = setupSortOff.getDialog();
+        setDialogSupplier(() -> setupSortOff.get().getDialog());
         enable();
     }
 
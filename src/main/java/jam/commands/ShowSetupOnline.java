@@ -7,6 +7,7 @@ import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 
 import com.google.inject.Inject;
+import com.google.inject.Provider;
 
 import jam.global.JamStatus;
 import jam.global.QuerySortMode;
@@ -24,10 +25,11 @@ final class ShowSetupOnline extends AbstractShowDialog implements PropertyChange
 	private transient final JamStatus status;
 
 	@Inject
-	ShowSetupOnline(final SetupSortOn setup, final JamStatus status) {
+	ShowSetupOnline(final Provider<SetupSortOn> setup,
+			final JamStatus status) {
 		super("Online sorting\u2026");
 		this.status = status;
-		dialog = setup.getDialog();
+		setDialogSupplier(() -> setup.get().getDialog());
 		enable();
 	}
 
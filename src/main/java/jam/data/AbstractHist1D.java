@@ -90,6 +90,17 @@ public abstract class AbstractHist1D extends AbstractHistogram {
 	 */
 	protected abstract void getCounts(double[] array);
 
+	/**
+	 * Sums the counts in a range of channels, without copying the counts.
+	 * 
+	 * @param lower
+	 *            first channel summed
+	 * @param upper
+	 *            last channel summed
+	 * @return sum of counts in the range
+	 */
+	public abstract double getArea(int lower, int upper);
+
 	/**
 	 * Attempt to find gaussian peaks.
 	 * 
@@ -3,6 +3,8 @@
  */
 package jam.data;
 
+import java.util.Arrays;
+
 /**
  * The superclass of all 2-dimensional histograms.
  * 
@@ -10,6 +12,11 @@ package jam.data;
  */
 public abstract class AbstractHist2D extends AbstractHistogram {
 
+	/**
+	 * Modification count at the latest change to each row of constant x.
+	 */
+	private transient final long[] rowStamps;
+
 	/**
 	 * Called by implementing subclasses.
 	 * 
@@ -30,8 +37,91 @@ public abstract class AbstractHist2D extends AbstractHistogram {
 			final int sizeY, final String title, final String axisLabelX,
 			final String axisLabelY) {
 		super(type, sizeX, sizeY, title, axisLabelX, axisLabelY);
+		rowStamps = new long[sizeX];
+	}
+
+	/**
+	 * Records a change to the counts in the given row. Call while holding
+	 * this histogram's lock.
+	 * 
+	 * @param chX
+	 *            x-coordinate of the changed row
+	 */
+	protected final void rowChanged(final int chX) {
+		rowStamps[chX] = countsChanged();
+	}
+
+	/**
+	 * Records a change to all the counts. Call while holding this
+	 * histogram's lock.
+	 */
+	protected final void allRowsChanged() {
+		Arrays.fill(rowStamps, countsChanged());
+	}
+
+	/**
+	 * @param chX
+	 *            x-coordinate of row
+	 * @param since
+	 *            a modification count
+	 * @return whether the row has changed after the given modification count
+	 */
+	protected final boolean rowChangedSince(final int chX, final long since) {
+		return rowStamps[chX] > since;
+	}
+
+	/**
+	 * Marks those rows of constant x which have changed since the given
+	 * modification count, so that a remote view can be sent only those rows.
+	 * 
+	 * @param changed
+	 *            given whether each row has changed
+	 * @param since
+	 *            modification count at the previous check, or -1 to mark
+	 *            every row
+	 * @return the modification count as of this check
+	 */
+	public final long getChangedRows(final boolean[] changed, final long since) {
+		synchronized (this) {
+			final int maxX = Math.min(changed.length, rowStamps.length);
+			for (int x = 0; x < maxX; x++) {
+				changed[x] = rowStamps[x] > since;
+			}
+			return getModificationCount();
+		}
 	}
 
+	/**
+	 * Copies into the given array only those rows of constant x which have
+	 * changed since the given modification count, so that a display can keep
+	 * its copy current without copying the whole histogram.
+	 * 
+	 * @param array
+	 *            destination, the same size as this histogram
+	 * @param since
+	 *            modification count at the previous copy, or -1 to copy
+	 *            everything
+	 * @return the modification count as of this copy
+	 */
+	public abstract long copyCounts(double[][] array, long since);
+
+	/**
+	 * Sums the counts in the marked channels of those rows of constant x
+	 * which have changed since the given modification count, so that a gate's
+	 * area can be kept current without summing the whole histogram.
+	 * 
+	 * @param inside
+	 *            marks the channels summed
+	 * @param rowSums
+	 *            given the sum for each changed row
+	 * @param since
+	 *            modification count at the previous sum, or -1 to sum
+	 *            everything
+	 * @return the modification count as of this sum
+	 */
+	public abstract long sumRows(boolean[][] inside, double[] rowSums,
+			long since);
+
 	/**
 	 * Returns the number of counts in the given channel.
 	 * 
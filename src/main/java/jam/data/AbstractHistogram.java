@@ -54,6 +54,13 @@ public abstract class AbstractHistogram implements DataElement {
 
     private static final String Y_LABEL_2D = "Channels";
 
+    /* guards the events offered to and sorted by online sorting, in total */
+    private static final Object SAMPLING_LOCK = new Object();
+
+    private static long totalOffered = 0L;
+
+    private static long totalSampled = 0L;
+
     static {
         DIM_LIST.add(0, new ArrayList<>());
         DIM_LIST.add(1, new ArrayList<>());
@@ -188,11 +195,55 @@ public abstract class AbstractHistogram implements DataElement {
         }
     }
 
+    /**
+     * Allocates, for every histogram, the counts it will be filled into after
+     * the next rollover, so that the rollover itself only swaps references.
+     * @see #rolloverAll()
+     */
+    public static void prepareRolloverAll() {
+        for (AbstractHistogram histogram : getHistogramList()) {
+            histogram.prepareRollover();
+        }
+    }
+
+    /**
+     * Freezes the counts of every histogram, e.g., at the end of a run, and
+     * starts filling each from zero. Called by the sorting thread between
+     * events, so that all histograms freeze at the same event.
+     * @see #getFrozenCounts()
+     */
+    public static void rolloverAll() {
+        for (AbstractHistogram histogram : getHistogramList()) {
+            histogram.rollover();
+        }
+    }
+
+    /**
+     * Lets go of the frozen counts of every histogram, once they have been
+     * saved.
+     */
+    public static void releaseFrozenAll() {
+        for (AbstractHistogram histogram : getHistogramList()) {
+            histogram.releaseFrozen();
+        }
+    }
+
     /**
      * whether this histogram has been cleared to an unusable state
      */
     protected transient boolean clear = false;
 
+    /**
+     * incremented every time the counts change
+     */
+    private transient long modCount = 0L;
+
+    /* counts to be filled after the next rollover, and before the last */
+    private transient Object nextCounts, frozenCounts;
+
+    /* events offered to the sort routine, and sorted, since last zeroed */
+    private transient long offeredAtZero, sampledAtZero;
+
     /** Name of group histogram belongs to */
     private transient String groupName;
 
@@ -252,6 +303,7 @@ public abstract class AbstractHistogram implements DataElement {
         if (labelY == null) {
             labelY = oneD ? Y_LABEL_1D : Y_LABEL_2D;
         }
+        clearSampling();
         /* add to static lists */
         LIST.add(this);
         DIM_LIST.get(type.getDimensionality() - 1).add(this);
@@ -341,6 +393,67 @@ public abstract class AbstractHistogram implements DataElement {
 
     protected abstract void clearCounts();
 
+    /**
+     * @return a new, zeroed array of counts the size of this histogram
+     */
+    protected abstract Object createCounts();
+
+    /**
+     * Makes the given array the counts of this histogram. Called while
+     * holding this histogram's lock.
+     * @param replacement
+     *            array created by <code>createCounts()</code>
+     * @return the array of counts replaced
+     */
+    protected abstract Object exchangeCounts(Object replacement);
+
+    /**
+     * Allocates the counts this histogram will be filled into after the next
+     * rollover.
+     */
+    public final void prepareRollover() {
+        final Object fresh = createCounts();
+        synchronized (this) {
+            nextCounts = fresh;
+        }
+    }
+
+    /**
+     * Freezes the current counts, and starts filling this histogram from
+     * zero.
+     * @see #prepareRollover()
+     */
+    public final void rollover() {
+        synchronized (this) {
+            final Object fresh = nextCounts == null ? createCounts()
+                    : nextCounts;
+            nextCounts = null;
+            frozenCounts = exchangeCounts(fresh);
+            clearSampling();
+        }
+    }
+
+    /**
+     * Returns the counts frozen by the last rollover, which no longer
+     * change.
+     * @return array of the same type as <code>getCounts()</code>, or
+     *         <code>null</code> if not rolled over or already released
+     */
+    public final Object getFrozenCounts() {
+        synchronized (this) {
+            return frozenCounts;
+        }
+    }
+
+    /**
+     * Lets go of the counts frozen by the last rollover.
+     */
+    public final void releaseFrozen() {
+        synchronized (this) {
+            frozenCounts = null;
+        }
+    }
+
     private void clearInfo() {
         gates.clear();
         labelX = EMPTY_STRING;
@@ -464,6 +577,72 @@ public abstract class AbstractHistogram implements DataElement {
         return type;
     }
 
+    /**
+     * Returns a number which changes whenever the counts in this histogram
+     * change, so that displays may cheaply poll for updates.
+     * @return the modification count
+     */
+    public final long getModificationCount() {
+        synchronized (this) {
+            return modCount;
+        }
+    }
+
+    /**
+     * Records a change to the counts. Subclasses call this while holding
+     * this histogram's lock.
+     * @return the new modification count
+     */
+    protected final long countsChanged() {
+        modCount++;
+        return modCount;
+    }
+
+    /**
+     * Records how many events online sorting passed to the sort routine, out
+     * of how many received, for all histograms at once. Each histogram
+     * remembers the totals when it was last zeroed, so this costs the same
+     * however many histograms there are.
+     * @param offered
+     *            events received
+     * @param sampled
+     *            events sorted
+     * @see #getSampledFraction()
+     */
+    public static void addSampling(final long offered, final long sampled) {
+        synchronized (SAMPLING_LOCK) {
+            totalOffered += offered;
+            totalSampled += sampled;
+        }
+    }
+
+    /**
+     * Returns the fraction of events received that were sorted while this
+     * histogram was filled, since it was last zeroed. Dividing the counts by
+     * this gives the counts had every event been sorted.
+     * @return the fraction of events sorted, one if none were skipped
+     */
+    public final double getSampledFraction() {
+        synchronized (this) {
+            synchronized (SAMPLING_LOCK) {
+                final long offered = totalOffered - offeredAtZero;
+                return offered == 0L ? 1.0
+                        : (double) (totalSampled - sampledAtZero) / offered;
+            }
+        }
+    }
+
+    /**
+     * Forgets the sampling recorded so far. Subclasses call this from
+     * <code>setZero()</code> while holding this histogram's lock.
+     */
+    protected final void clearSampling() {
+        synchronized (SAMPLING_LOCK) {
+            offeredAtZero = totalOffered;
+            sampledAtZero = totalSampled;
+        }
+    }
+
     /**
      * @return whether clearCounts() has been called on this histogram
      */
@@ -142,6 +142,20 @@ public final class Gate implements DataElement {
 
     private transient int upperLimit; // upper limit for 1d gate
 
+    /*
+     * Area as of a modification count of the histogram, updated from only
+     * the rows changed since, so monitors may ask for it often.
+     */
+    private transient final Object areaLock = new Object();
+
+    private transient AbstractHistogram areaSource;
+
+    private transient long areaStamp = -1;
+
+    private transient double area1d;
+
+    private transient double[] rowAreas = new double[0];
+
     /**
      * Constructs a new gate with the given name, and belonging to the given
      * <code>Histogram</code>. Names will be adjusted to 12 characters if they
@@ -188,52 +202,43 @@ public final class Gate implements DataElement {
     }
 
     private double getArea1d() {
-        final AbstractHistogram histogram = AbstractHistogram
+        final AbstractHist1D histogram = (AbstractHist1D) AbstractHistogram
                 .getHistogram(histUniqueName);
-        final jam.data.HistogramType htype = histogram.getType();
-        double rval = 0.0;
-        if (htype == jam.data.HistogramType.ONE_D_DOUBLE) {
-            final double[] counts = ((HistDouble1D) histogram).getCounts();
-            for (int i = lowerLimit; i <= upperLimit; i++) {
-                rval += counts[i];
-            }
-        } else { // 1d int
-            final int[] counts = ((HistInt1D) histogram).getCounts();
-            for (int i = lowerLimit; i <= upperLimit; i++) {
-                rval += counts[i];
+        synchronized (areaLock) {
+            /* taken before summing, so a change while summing isn't missed */
+            final long stamp = histogram.getModificationCount();
+            if (histogram != areaSource || stamp != areaStamp) {
+                area1d = histogram.getArea(lowerLimit, upperLimit);
+                areaSource = histogram;
+                areaStamp = stamp;
             }
+            return area1d;
         }
-        return rval;
     }
 
     private double getArea2d() {
-        final AbstractHistogram histogram = AbstractHistogram
+        final AbstractHist2D histogram = (AbstractHist2D) AbstractHistogram
                 .getHistogram(histUniqueName);
-        final jam.data.HistogramType htype = histogram.getType();
-        double rval = 0.0;
-        if (htype == jam.data.HistogramType.TWO_DIM_INT) {
-            int intSum = 0;
-            final int[][] counts2d = ((HistInt2D) histogram).getCounts();
-            for (int i = 0; i < sizeX; i++) {
-                for (int j = 0; j < sizeY; j++) {
-                    if (insideGate[i][j]) {
-                        intSum += counts2d[i][j];
-                    }
-                }
+        synchronized (areaLock) {
+            if (histogram != areaSource || rowAreas.length != sizeX) {
+                rowAreas = new double[sizeX];
+                areaSource = histogram;
+                areaStamp = -1;
             }
-
-            rval = intSum;
-        } else { // 2d double
-            final double[][] counts2d = ((HistDouble2D) histogram).getCounts();
-            for (int i = 0; i < sizeX; i++) {
-                for (int j = 0; j < sizeY; j++) {
-                    if (insideGate[i][j]) {
-                        rval += counts2d[i][j];
-                    }
-                }
+            areaStamp = histogram.sumRows(insideGate, rowAreas, areaStamp);
+            double rval = 0.0;
+            for (double rowArea : rowAreas) {
+                rval += rowArea;
             }
+            return rval;
+        }
+    }
+
+    /* the limits changed, so sum everything next time */
+    private void forgetArea() {
+        synchronized (areaLock) {
+            areaStamp = -1;
         }
-        return rval;
     }
 
     /**
@@ -455,6 +460,7 @@ public final class Gate implements DataElement {
             upperLimit = lower;
         }
         isSet = true;
+        forgetArea();
     }
 
     /**
@@ -481,6 +487,7 @@ public final class Gate implements DataElement {
             }
         }
         isSet = true;
+        forgetArea();
     }
 
     /**
@@ -525,5 +532,6 @@ public final class Gate implements DataElement {
             insideGate = new boolean[sizeX][sizeY];
             bananaGate.reset();
         }
+        forgetArea();
     }
 }
@@ -47,6 +47,7 @@ public final class HistDouble1D extends AbstractHist1D {
 	public void setCounts(final int channel, final double counts) {
 		synchronized (this) {
 			countsDouble[channel] = counts;
+			countsChanged();
 		}
 	}
 
@@ -88,6 +89,7 @@ public final class HistDouble1D extends AbstractHist1D {
 			unsetErrors();
 			setCalibration(CalibrationFunctionCollection.NO_CALIBRATION);
 			clear = true;
+			countsChanged();
 		}
 	}
 
@@ -120,8 +122,12 @@ public final class HistDouble1D extends AbstractHist1D {
 	 */
 	@Override
 	public void setZero() {
-		Arrays.fill(countsDouble, 0);
-		unsetErrors();
+		synchronized (this) {
+			Arrays.fill(countsDouble, 0);
+			unsetErrors();
+			clearSampling();
+			countsChanged();
+		}
 	}
 
 	/*
@@ -136,8 +142,11 @@ public final class HistDouble1D extends AbstractHist1D {
 					+ getType());
 		}
         double[] doubles = (double[]) countsIn;
-        System.arraycopy(doubles, 0, countsDouble, 0, Math.min(doubles.length,
-				getSizeX()));
+		synchronized (this) {
+			System.arraycopy(doubles, 0, countsDouble, 0, Math.min(
+					doubles.length, getSizeX()));
+			countsChanged();
+		}
 	}
 
 	/*
@@ -161,6 +170,7 @@ public final class HistDouble1D extends AbstractHist1D {
 			for (int i = max; i >= 0; i--) {
 				countsDouble[i] += temp[i];
 			}
+			countsChanged();
 		}
 	}
 
@@ -179,4 +189,29 @@ public final class HistDouble1D extends AbstractHist1D {
 		return sum;
 	}
 
-}
\ No newline at end of file
+	@Override
+	public double getArea(final int lower, final int upper) {
+		synchronized (this) {
+			final int max = Math.min(upper, countsDouble.length - 1);
+			double sum = 0.0;
+			for (int i = Math.max(lower, 0); i <= max; i++) {
+				sum += countsDouble[i];
+			}
+			return sum;
+		}
+	}
+
+	@Override
+	protected Object createCounts() {
+		return new double[getSizeX()];
+	}
+
+	@Override
+	protected Object exchangeCounts(final Object replacement) {
+		final Object rval = countsDouble;
+		countsDouble = (double[]) replacement;
+		unsetErrors();
+		countsChanged();
+		return rval;
+	}
+}
@@ -48,6 +48,7 @@ public final class HistDouble2D extends AbstractHist2D {
 					counts2dD[x][y] += temp[x][y];
 				}
 			}
+			allRowsChanged();
 		}
 	}
 
@@ -63,6 +64,7 @@ public final class HistDouble2D extends AbstractHist2D {
 		synchronized (this) {
 			counts2dD = EMPTY;
 			clear = true;
+			countsChanged();
 		}
 	}
 
@@ -89,6 +91,49 @@ public final class HistDouble2D extends AbstractHist2D {
 		return getArea();
 	}
 
+	/**
+	 * Copies the counts in one row of constant x.
+	 * 
+	 * @param chX
+	 *            x-coordinate of the row
+	 * @param row
+	 *            given the counts, sized for the y-axis
+	 */
+	public void copyRow(final int chX, final double[] row) {
+		synchronized (this) {
+			if (chX < counts2dD.length) {
+				System.arraycopy(counts2dD[chX], 0, row, 0, Math.min(row.length,
+						counts2dD[chX].length));
+			} else { // cleared
+				Arrays.fill(row, 0);
+			}
+		}
+	}
+
+	/**
+	 * Sets the counts in one row of constant x.
+	 * 
+	 * @param chX
+	 *            x-coordinate of the row
+	 * @param row
+	 *            the counts, sized for the y-axis
+	 */
+	public void setRow(final int chX, final double[] row) {
+		synchronized (this) {
+			System.arraycopy(row, 0, counts2dD[chX], 0, Math.min(row.length,
+					counts2dD[chX].length));
+			rowChanged(chX);
+		}
+	}
+
+	/*
+	 * non-javadoc: The counts themselves, not a copy, for HistogramAlgebra.
+	 * Callers must hold this histogram's lock.
+	 */
+	double[][] getStorage() {
+		return counts2dD;
+	}
+
 	/**
 	 * @return a copy of this histograms counts.
 	 */
@@ -128,7 +173,48 @@ public final class HistDouble2D extends AbstractHist2D {
 	 */
 	@Override
 	public void setCounts(final int chX, final int chY, final double counts) {
-		counts2dD[chX][chY] = counts;
+		synchronized (this) {
+			counts2dD[chX][chY] = counts;
+			rowChanged(chX);
+		}
+	}
+
+	@Override
+	public long copyCounts(final double[][] array, final long since) {
+		synchronized (this) {
+			final int maxX = Math.min(array.length, counts2dD.length);
+			for (int x = 0; x < maxX; x++) {
+				if (rowChangedSince(x, since)) {
+					System.arraycopy(counts2dD[x], 0, array[x], 0, Math.min(
+							array[x].length, counts2dD[x].length));
+				}
+			}
+			return getModificationCount();
+		}
+	}
+
+	@Override
+	public long sumRows(final boolean[][] inside, final double[] rowSums,
+			final long since) {
+		synchronized (this) {
+			final int maxX = Math.min(Math.min(inside.length, rowSums.length),
+					counts2dD.length);
+			for (int x = 0; x < maxX; x++) {
+				if (rowChangedSince(x, since)) {
+					final double[] row = counts2dD[x];
+					final boolean[] marked = inside[x];
+					final int maxY = Math.min(marked.length, row.length);
+					double sum = 0.0;
+					for (int y = 0; y < maxY; y++) {
+						if (marked[y]) {
+							sum += row[y];
+						}
+					}
+					rowSums[x] = sum;
+				}
+			}
+			return getModificationCount();
+		}
 	}
 
 	/*
@@ -152,6 +238,7 @@ public final class HistDouble2D extends AbstractHist2D {
 				System.arraycopy(countsIn[i], 0, counts2dD[i], 0, Math.min(
 						countsIn[i].length, counts2dD[i].length));
 			}
+			allRowsChanged();
 		}
 	}
 
@@ -162,10 +249,26 @@ public final class HistDouble2D extends AbstractHist2D {
 	 */
 	@Override
 	public void setZero() {
-		final int size = getSizeX();
-		for (int i = 0; i < size; i++) {
-			Arrays.fill(counts2dD[i], 0);
+		synchronized (this) {
+			final int size = getSizeX();
+			for (int i = 0; i < size; i++) {
+				Arrays.fill(counts2dD[i], 0);
+			}
+			clearSampling();
+			allRowsChanged();
 		}
 	}
 
+	@Override
+	protected Object createCounts() {
+		return new double[getSizeX()][getSizeY()];
+	}
+
+	@Override
+	protected Object exchangeCounts(final Object replacement) {
+		final Object rval = counts2dD;
+		counts2dD = (double[][]) replacement;
+		allRowsChanged();
+		return rval;
+	}
 }
@@ -61,6 +61,7 @@ public final class HistInt1D extends AbstractHist1D {
 			for (int i = max; i >= 0; i--) {
 				counts[i] += temp[i];
 			}
+			countsChanged();
 		}
 	}
 
@@ -71,6 +72,7 @@ public final class HistInt1D extends AbstractHist1D {
 			unsetErrors();
 			setCalibration(CalibrationFunctionCollection.NO_CALIBRATION);
 			clear = true;
+			countsChanged();
 		}
 	}
 
@@ -91,6 +93,18 @@ public final class HistInt1D extends AbstractHist1D {
 		}
 	}
 
+	@Override
+	public double getArea(final int lower, final int upper) {
+		synchronized (this) {
+			final int max = Math.min(upper, counts.length - 1);
+			double sum = 0.0;
+			for (int i = Math.max(lower, 0); i <= max; i++) {
+				sum += counts[i];
+			}
+			return sum;
+		}
+	}
+
 	@Override
 	public double getCount() {
 		return getArea();
@@ -177,6 +191,7 @@ public final class HistInt1D extends AbstractHist1D {
 		}
 		synchronized (this) {
 			counts[incCh]++;
+			countsChanged();
 		}
 	}
 
@@ -198,6 +213,7 @@ public final class HistInt1D extends AbstractHist1D {
 	public void setCounts(final int channel, final double count) {
 		synchronized (this) {
 			counts[channel] = (int) Math.round(count);
+			countsChanged();
 		}
 	}
 
@@ -219,9 +235,24 @@ public final class HistInt1D extends AbstractHist1D {
 		synchronized (this) {
 			System.arraycopy(ints, 0, counts, 0, Math.min(ints.length,
 					getSizeX()));
+			countsChanged();
 		}
 	}
 
+	@Override
+	protected Object createCounts() {
+		return new int[getSizeX()];
+	}
+
+	@Override
+	protected Object exchangeCounts(final Object replacement) {
+		final Object rval = counts;
+		counts = (int[]) replacement;
+		unsetErrors();
+		countsChanged();
+		return rval;
+	}
+
 	/**
 	 * Zeroes all the counts in this histogram.
 	 */
@@ -230,6 +261,8 @@ public final class HistInt1D extends AbstractHist1D {
 		synchronized (this) {
 			Arrays.fill(counts, 0);
 			unsetErrors();
+			clearSampling();
+			countsChanged();
 		}
 	}
 
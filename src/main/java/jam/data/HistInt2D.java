@@ -72,7 +72,52 @@ public final class HistInt2D extends AbstractHist2D {
 	 */
 	@Override
 	public void setCounts(final int chX, final int chY, final double counts) {
-		counts2d[chX][chY] = (int) Math.round(counts);
+		synchronized (this) {
+			counts2d[chX][chY] = (int) Math.round(counts);
+			rowChanged(chX);
+		}
+	}
+
+	@Override
+	public long copyCounts(final double[][] array, final long since) {
+		synchronized (this) {
+			final int maxX = Math.min(array.length, counts2d.length);
+			for (int x = 0; x < maxX; x++) {
+				if (rowChangedSince(x, since)) {
+					final int[] source = counts2d[x];
+					final double[] dest = array[x];
+					final int maxY = Math.min(dest.length, source.length);
+					for (int y = 0; y < maxY; y++) {
+						dest[y] = source[y];
+					}
+				}
+			}
+			return getModificationCount();
+		}
+	}
+
+	@Override
+	public long sumRows(final boolean[][] inside, final double[] rowSums,
+			final long since) {
+		synchronized (this) {
+			final int maxX = Math.min(Math.min(inside.length, rowSums.length),
+					counts2d.length);
+			for (int x = 0; x < maxX; x++) {
+				if (rowChangedSince(x, since)) {
+					final int[] row = counts2d[x];
+					final boolean[] marked = inside[x];
+					final int maxY = Math.min(marked.length, row.length);
+					long sum = 0;
+					for (int y = 0; y < maxY; y++) {
+						if (marked[y]) {
+							sum += row[y];
+						}
+					}
+					rowSums[x] = sum;
+				}
+			}
+			return getModificationCount();
+		}
 	}
 
 	/*
@@ -85,9 +130,53 @@ public final class HistInt2D extends AbstractHist2D {
 		synchronized (this) {
 			counts2d = EMPTY;
 			clear = true;
+			countsChanged();
+		}
+	}
+
+	/**
+	 * Copies the counts in one row of constant x.
+	 * 
+	 * @param chX
+	 *            x-coordinate of the row
+	 * @param row
+	 *            given the counts, sized for the y-axis
+	 */
+	public void copyRow(final int chX, final int[] row) {
+		synchronized (this) {
+			if (chX < counts2d.length) {
+				System.arraycopy(counts2d[chX], 0, row, 0, Math.min(row.length,
+						counts2d[chX].length));
+			} else { // cleared
+				Arrays.fill(row, 0);
+			}
 		}
 	}
 
+	/**
+	 * Sets the counts in one row of constant x.
+	 * 
+	 * @param chX
+	 *            x-coordinate of the row
+	 * @param row
+	 *            the counts, sized for the y-axis
+	 */
+	public void setRow(final int chX, final int[] row) {
+		synchronized (this) {
+			System.arraycopy(row, 0, counts2d[chX], 0, Math.min(row.length,
+					counts2d[chX].length));
+			rowChanged(chX);
+		}
+	}
+
+	/*
+	 * non-javadoc: The counts themselves, not a copy, for HistogramAlgebra.
+	 * Callers must hold this histogram's lock.
+	 */
+	int[][] getStorage() {
+		return counts2d;
+	}
+
 	/**
 	 * Returns the counts in the histogram as an array of the appropriate type.
 	 * It is necessary to cast the returned array with <code>(int [][])</code>.
@@ -115,9 +204,13 @@ public final class HistInt2D extends AbstractHist2D {
 	 */
 	@Override
 	public void setZero() {
-		final int size = getSizeX();
-		for (int i = 0; i < size; i++) {
-			Arrays.fill(counts2d[i], 0);
+		synchronized (this) {
+			final int size = getSizeX();
+			for (int i = 0; i < size; i++) {
+				Arrays.fill(counts2d[i], 0);
+			}
+			clearSampling();
+			allRowsChanged();
 		}
 	}
 
@@ -183,6 +276,7 @@ public final class HistInt2D extends AbstractHist2D {
 				System.arraycopy(countsIn[i], 0, counts2d[i], 0, Math.min(
 						countsIn[i].length, counts2d[i].length));
 			}
+			allRowsChanged();
 		}
 	}
 
@@ -200,6 +294,7 @@ public final class HistInt2D extends AbstractHist2D {
 					counts2d[x][y] += temp[x][y];
 				}
 			}
+			allRowsChanged();
 		}
 	}
 
@@ -233,7 +328,20 @@ public final class HistInt2D extends AbstractHist2D {
 		}
 		synchronized (this) {
 			counts2d[incX][incY]++;
+			rowChanged(incX);
 		}
 	}
 
-}
\ No newline at end of file
+	@Override
+	protected Object createCounts() {
+		return new int[getSizeX()][getSizeY()];
+	}
+
+	@Override
+	protected Object exchangeCounts(final Object replacement) {
+		final Object rval = counts2d;
+		counts2d = (int[][]) replacement;
+		allRowsChanged();
+		return rval;
+	}
+}
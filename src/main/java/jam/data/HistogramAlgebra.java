@@ -0,0 +1,550 @@
+package jam.data;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Arithmetic, projections and gain shifts of histograms, independent of any
+ * user interface. The 1-d operations work on plain arrays of counts and
+ * errors, with simple loops the compiler can vectorize, and propagate the
+ * errors assuming the inputs are uncorrelated. Projections read the counts of
+ * 2-d histograms in place, without copying them, and large ones are split by
+ * rows among processors using fork/join.
+ *
+ * @see jam.data.control.Combine
+ * @see jam.data.control.Projections
+ * @see jam.data.control.GainShift
+ */
+public final class HistogramAlgebra {
+
+	/**
+	 * Operations combining two 1-d histograms.
+	 */
+	public enum Operation {
+		/**
+		 * a + b
+		 */
+		ADD,
+
+		/**
+		 * a - b
+		 */
+		SUBTRACT,
+
+		/**
+		 * a * b
+		 */
+		MULTIPLY,
+
+		/**
+		 * a / b, zero wherever b is zero
+		 */
+		DIVIDE
+	}
+
+	/**
+	 * Number of channels to sum above which a projection is split into
+	 * parallel tasks.
+	 */
+	static final int PARALLEL_THRESHOLD = 1 << 16;
+
+	private static final double BIN_CENTER_OFFSET = 0.5;
+
+	private HistogramAlgebra() {
+		// make no instances
+	}
+
+	/**
+	 * Combines two arrays of counts channel by channel, i.e.,
+	 * <code>out = (fac1 * counts1) op (fac2 * counts2)</code>. Only as many
+	 * channels as are in the shortest array are calculated.
+	 *
+	 * @param operation
+	 *            how to combine them
+	 * @param fac1
+	 *            factor for first array
+	 * @param counts1
+	 *            first array
+	 * @param errors1
+	 *            errors for first array
+	 * @param fac2
+	 *            factor for second array
+	 * @param counts2
+	 *            second array
+	 * @param errors2
+	 *            errors for second array
+	 * @param out
+	 *            gets the result
+	 * @param errOut
+	 *            gets the errors of the result
+	 */
+	public static void combine(final Operation operation, final double fac1,
+			final double[] counts1, final double[] errors1, final double fac2,
+			final double[] counts2, final double[] errors2,
+			final double[] out, final double[] errOut) {
+		final int len = Math.min(Math.min(counts1.length, counts2.length),
+				Math.min(out.length, errOut.length));
+		final double sq1 = fac1 * fac1;
+		final double sq2 = fac2 * fac2;
+		if (operation == Operation.ADD || operation == Operation.SUBTRACT) {
+			final double sign = operation == Operation.ADD ? fac2 : -fac2;
+			for (int i = 0; i < len; i++) {
+				out[i] = fac1 * counts1[i] + sign * counts2[i];
+				errOut[i] = Math.sqrt(sq1 * errors1[i] * errors1[i] + sq2
+						* errors2[i] * errors2[i]);
+			}
+		} else if (operation == Operation.MULTIPLY) {
+			final double product = fac1 * fac2;
+			for (int i = 0; i < len; i++) {
+				out[i] = product * counts1[i] * counts2[i];
+				errOut[i] = Math.abs(product)
+						* Math.sqrt(counts2[i] * counts2[i] * errors1[i]
+								* errors1[i] + counts1[i] * counts1[i]
+								* errors2[i] * errors2[i]);
+			}
+		} else {
+			final double ratio = fac1 / fac2;
+			for (int i = 0; i < len; i++) {
+				if (counts2[i] == 0.0) {
+					out[i] = 0.0;
+					errOut[i] = 0.0;
+				} else {
+					final double quotient = counts1[i] / counts2[i];
+					out[i] = ratio * quotient;
+					errOut[i] = Math.abs(ratio / counts2[i])
+							* Math.sqrt(errors1[i] * errors1[i] + quotient
+									* quotient * errors2[i] * errors2[i]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Multiplies an array of counts by a factor.
+	 *
+	 * @param fac
+	 *            factor
+	 * @param counts
+	 *            to scale
+	 * @param errors
+	 *            errors of counts
+	 * @param out
+	 *            gets the result
+	 * @param errOut
+	 *            gets the errors of the result
+	 */
+	public static void scale(final double fac, final double[] counts,
+			final double[] errors, final double[] out, final double[] errOut) {
+		final int len = Math.min(counts.length, Math.min(out.length,
+				errOut.length));
+		final double absFac = Math.abs(fac);
+		for (int i = 0; i < len; i++) {
+			out[i] = fac * counts[i];
+			errOut[i] = absFac * errors[i];
+		}
+	}
+
+	/**
+	 * Combines two 1-d histograms into a third.
+	 *
+	 * @param operation
+	 *            how to combine them
+	 * @param fac1
+	 *            factor for first histogram
+	 * @param hist1
+	 *            first histogram
+	 * @param fac2
+	 *            factor for second histogram
+	 * @param hist2
+	 *            second histogram
+	 * @param result
+	 *            gets the result, and its errors
+	 * @see #combine(Operation, double, double[], double[], double, double[],
+	 *      double[], double[], double[])
+	 */
+	public static void combine(final Operation operation, final double fac1,
+			final AbstractHist1D hist1, final double fac2,
+			final AbstractHist1D hist2, final AbstractHist1D result) {
+		final double[] out = new double[result.getSizeX()];
+		final double[] errOut = new double[out.length];
+		combine(operation, fac1, getCounts(hist1), hist1.getErrors(), fac2,
+				getCounts(hist2), hist2.getErrors(), out, errOut);
+		setCounts(result, out, errOut);
+	}
+
+	/**
+	 * Multiplies a 1-d histogram by a factor into another.
+	 *
+	 * @param fac
+	 *            factor
+	 * @param hist
+	 *            to scale
+	 * @param result
+	 *            gets the result, and its errors
+	 */
+	public static void scale(final double fac, final AbstractHist1D hist,
+			final AbstractHist1D result) {
+		final double[] out = new double[result.getSizeX()];
+		final double[] errOut = new double[out.length];
+		scale(fac, getCounts(hist), hist.getErrors(), out, errOut);
+		setCounts(result, out, errOut);
+	}
+
+	/**
+	 * @param hist
+	 *            1-d histogram
+	 * @return a copy of the histogram's counts as floating point values
+	 */
+	public static double[] getCounts(final AbstractHist1D hist) {
+		final double[] rval = new double[hist.getSizeX()];
+		hist.getCounts(rval);
+		return rval;
+	}
+
+	/**
+	 * Sets the counts and errors of a 1-d histogram, rounding the counts for
+	 * integer histograms.
+	 *
+	 * @param hist
+	 *            to set
+	 * @param counts
+	 *            new counts
+	 * @param errors
+	 *            new errors
+	 */
+	public static void setCounts(final AbstractHist1D hist,
+			final double[] counts, final double[] errors) {
+		hist.setErrors(errors);
+		if (hist.getType() == HistogramType.ONE_DIM_INT) {
+			final int[] ints = new int[counts.length];
+			for (int i = 0; i < ints.length; i++) {
+				ints[i] = (int) Math.round(counts[i]);
+			}
+			hist.setCounts(ints);
+		} else {
+			hist.setCounts(counts);
+		}
+	}
+
+	/**
+	 * Projects a 2-d histogram onto its x-axis, summing between the given y
+	 * channels.
+	 *
+	 * @param hist
+	 *            to project
+	 * @param lower
+	 *            lowest y channel to sum
+	 * @param upper
+	 *            highest y channel to sum
+	 * @param outLength
+	 *            size of the projection
+	 * @return the projection
+	 */
+	public static double[] projectX(final AbstractHist2D hist,
+			final int lower, final int upper, final int outLength) {
+		return project(hist, true, lower, upper, null, outLength);
+	}
+
+	/**
+	 * Projects a 2-d histogram onto its y-axis, summing between the given x
+	 * channels.
+	 *
+	 * @param hist
+	 *            to project
+	 * @param lower
+	 *            lowest x channel to sum
+	 * @param upper
+	 *            highest x channel to sum
+	 * @param outLength
+	 *            size of the projection
+	 * @return the projection
+	 */
+	public static double[] projectY(final AbstractHist2D hist,
+			final int lower, final int upper, final int outLength) {
+		return project(hist, false, lower, upper, null, outLength);
+	}
+
+	/**
+	 * Projects a 2-d histogram onto its x-axis, summing only the channels
+	 * inside a mask, e.g., from <code>Gate.getLimits2d()</code>.
+	 *
+	 * @param hist
+	 *            to project
+	 * @param mask
+	 *            <code>true</code> for channels to sum
+	 * @param outLength
+	 *            size of the projection
+	 * @return the projection
+	 */
+	public static double[] projectX(final AbstractHist2D hist,
+			final boolean[][] mask, final int outLength) {
+		return project(hist, true, 0, hist.getSizeY() - 1, mask, outLength);
+	}
+
+	/**
+	 * Projects a 2-d histogram onto its y-axis, summing only the channels
+	 * inside a mask, e.g., from <code>Gate.getLimits2d()</code>.
+	 *
+	 * @param hist
+	 *            to project
+	 * @param mask
+	 *            <code>true</code> for channels to sum
+	 * @param outLength
+	 *            size of the projection
+	 * @return the projection
+	 */
+	public static double[] projectY(final AbstractHist2D hist,
+			final boolean[][] mask, final int outLength) {
+		return project(hist, false, 0, hist.getSizeX() - 1, mask, outLength);
+	}
+
+	private static double[] project(final AbstractHist2D hist,
+			final boolean ontoX, final int lower, final int upper,
+			final boolean[][] mask, final int outLength) {
+		final double[] out = new double[outLength];
+		synchronized (hist) {
+			final Projection projection = hist instanceof HistInt2D ? new Projection(
+					((HistInt2D) hist).getStorage(), null, mask, ontoX, out)
+					: new Projection(null, ((HistDouble2D) hist).getStorage(),
+							mask, ontoX, out);
+			projection.setRange(0, Math.min(outLength, ontoX ? hist
+					.getSizeX() : hist.getSizeY()), Math.max(0, lower), Math
+					.min(upper, (ontoX ? hist.getSizeY() : hist.getSizeX()) - 1));
+			if (projection.size() > PARALLEL_THRESHOLD) {
+				ForkJoinPool.commonPool().invoke(projection);
+			} else {
+				projection.compute();
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Sums the channels of a 2-d array for a range of channels on the axis
+	 * projected onto, splitting the range in half while there's enough work.
+	 * Every task writes a different range of the output.
+	 */
+	@SuppressWarnings("serial")
+	private static final class Projection extends RecursiveAction {
+
+		private transient final int[][] ints;
+
+		private transient final double[][] doubles;
+
+		private transient final boolean[][] mask;
+
+		private transient final boolean ontoX;
+
+		private transient final double[] out;
+
+		/* range on the axis projected onto, exclusive upper */
+		private transient int from, to;
+
+		/* range summed over, inclusive */
+		private transient int lower, upper;
+
+		Projection(final int[][] ints, final double[][] doubles,
+				final boolean[][] mask, final boolean ontoX, final double[] out) {
+			super();
+			this.ints = ints;
+			this.doubles = doubles;
+			this.mask = mask;
+			this.ontoX = ontoX;
+			this.out = out;
+		}
+
+		void setRange(final int from, final int to, final int lower,
+				final int upper) {
+			this.from = from;
+			this.to = to;
+			this.lower = lower;
+			this.upper = upper;
+		}
+
+		long size() {
+			return (long) (to - from) * Math.max(0, upper - lower + 1);
+		}
+
+		@Override
+		protected void compute() {
+			if (size() > PARALLEL_THRESHOLD && to - from > 1) {
+				final int middle = (from + to) >>> 1;
+				final Projection left = new Projection(ints, doubles, mask,
+						ontoX, out);
+				left.setRange(from, middle, lower, upper);
+				final Projection right = new Projection(ints, doubles, mask,
+						ontoX, out);
+				right.setRange(middle, to, lower, upper);
+				invokeAll(left, right);
+			} else if (ontoX) {
+				for (int x = from; x < to; x++) {
+					out[x] += sumRow(x, lower, upper);
+				}
+			} else {
+				for (int x = lower; x <= upper; x++) {
+					addRow(x, from, to - 1);
+				}
+			}
+		}
+
+		private boolean inside(final int chX, final int chY) {
+			return mask == null
+					|| (chX < mask.length && chY < mask[chX].length && mask[chX][chY]);
+		}
+
+		private double sumRow(final int chX, final int yLow, final int yHigh) {
+			double sum = 0.0;
+			final int high = Math.min(yHigh, rowLength(chX) - 1);
+			if (ints == null) {
+				final double[] row = doubles[chX];
+				for (int y = yLow; y <= high; y++) {
+					if (inside(chX, y)) {
+						sum += row[y];
+					}
+				}
+			} else {
+				final int[] row = ints[chX];
+				for (int y = yLow; y <= high; y++) {
+					if (inside(chX, y)) {
+						sum += row[y];
+					}
+				}
+			}
+			return sum;
+		}
+
+		private void addRow(final int chX, final int yLow, final int yHigh) {
+			final int high = Math.min(yHigh, rowLength(chX) - 1);
+			if (ints == null) {
+				final double[] row = doubles[chX];
+				for (int y = yLow; y <= high; y++) {
+					if (inside(chX, y)) {
+						out[y] += row[y];
+					}
+				}
+			} else {
+				final int[] row = ints[chX];
+				for (int y = yLow; y <= high; y++) {
+					if (inside(chX, y)) {
+						out[y] += row[y];
+					}
+				}
+			}
+		}
+
+		private int rowLength(final int chX) {
+			return ints == null ? doubles[chX].length : ints[chX].length;
+		}
+	}
+
+	/**
+	 * Re-bins an array of counts for a new linear calibration, sharing each
+	 * input channel's counts among the output channels it overlaps in
+	 * proportion to the overlap. Counts beyond the output range pile up in
+	 * its end channels. Adapted from Fortran code written and used at the
+	 * Nuclear Physics Laboratory at University of Washington, Seattle.
+	 *
+	 * @param countsIn
+	 *            input array of counts
+	 * @param errorsIn
+	 *            errors of input counts
+	 * @param interceptIn
+	 *            constant calibration coefficient of countsIn
+	 * @param slopeIn
+	 *            linear calibration coefficient of countsIn
+	 * @param interceptOut
+	 *            constant calibration coefficient for output array
+	 * @param slopeOut
+	 *            linear calibration coefficient for output array
+	 * @param out
+	 *            gets the re-binned counts
+	 * @param errOut
+	 *            gets the errors of the re-binned counts
+	 * @throws DataException
+	 *             if the calibrations map channels in reverse order
+	 */
+	public static void gainShift(final double[] countsIn,
+			final double[] errorsIn, final double interceptIn,
+			final double slopeIn, final double interceptOut,
+			final double slopeOut, final double[] out, final double[] errOut)
+			throws DataException {
+		final int npts = Math.min(out.length, errOut.length);
+		Arrays.fill(out, 0.0);
+		/* accumulate the variance, then take the root */
+		Arrays.fill(errOut, 0.0);
+		for (int n = 0; n < countsIn.length; n++) {
+			/* energies at the edges of the input channel */
+			final double eLow = interceptIn + slopeIn
+					* (n - BIN_CENTER_OFFSET);
+			final double eHigh = interceptIn + slopeIn
+					* (n + BIN_CENTER_OFFSET);
+			/* corresponding fractional output channels */
+			final double xLow = (eLow - interceptOut) / slopeOut;
+			final double xHigh = (eHigh - interceptOut) / slopeOut;
+			final double width = xHigh - xLow;
+			final int mlo = Math.min(Math.max(
+					(int) (xLow + BIN_CENTER_OFFSET), 0), npts - 1);
+			final int mhi = Math.min(Math.max(
+					(int) (xHigh + BIN_CENTER_OFFSET), 0), npts - 1);
+			final double counts = countsIn[n];
+			final double variance = errorsIn[n] * errorsIn[n];
+			if (mhi == mlo) {
+				/* input channel fits within one output channel */
+				out[mlo] += counts;
+				errOut[mlo] += variance;
+			} else if (mhi > mlo) {
+				/* input channel covers several output channels */
+				final double fracLow = (mlo + BIN_CENTER_OFFSET - xLow) / width;
+				out[mlo] += counts * fracLow;
+				errOut[mlo] += variance * fracLow * fracLow;
+				final double fracInside = 1.0 / width;
+				for (int m = mlo + 1; m < mhi; m++) {
+					out[m] += counts * fracInside;
+					errOut[m] += variance * fracInside * fracInside;
+				}
+				final double fracHigh = (xHigh - mhi + BIN_CENTER_OFFSET)
+						/ width;
+				out[mhi] += counts * fracHigh;
+				errOut[mhi] += variance * fracHigh * fracHigh;
+			} else {
+				throw new DataException("Gain shift reverses channels: n = "
+						+ n + ", mlo = " + mlo + ", mhi = " + mhi);
+			}
+		}
+		for (int m = 0; m < npts; m++) {
+			errOut[m] = Math.sqrt(errOut[m]);
+		}
+	}
+
+	/**
+	 * Re-bins a 1-d histogram for a new linear calibration into another.
+	 *
+	 * @param hist
+	 *            to re-bin
+	 * @param interceptIn
+	 *            constant calibration coefficient of hist
+	 * @param slopeIn
+	 *            linear calibration coefficient of hist
+	 * @param interceptOut
+	 *            constant calibration coefficient of result
+	 * @param slopeOut
+	 *            linear calibration coefficient of result
+	 * @param result
+	 *            gets the re-binned counts, and their errors
+	 * @throws DataException
+	 *             if the calibrations map channels in reverse order
+	 * @see #gainShift(double[], double[], double, double, double, double,
+	 *      double[], double[])
+	 */
+	public static void gainShift(final AbstractHist1D hist,
+			final double interceptIn, final double slopeIn,
+			final double interceptOut, final double slopeOut,
+			final AbstractHist1D result) throws DataException {
+		final double[] out = new double[result.getSizeX()];
+		final double[] errOut = new double[out.length];
+		gainShift(getCounts(hist), hist.getErrors(), interceptIn, slopeIn,
+				interceptOut, slopeOut, out, errOut);
+		setCounts(result, out, errOut);
+	}
+}
@@ -1,6 +1,7 @@
 package jam.data;
 
 import java.util.*;
+import java.util.function.IntSupplier;
 
 import javax.sound.sampled.Clip;
 
@@ -16,9 +17,6 @@ import javax.sound.sampled.Clip;
  */
 public final class Monitor {
 
-	/** The update interval */
-	private static int interval;
-
 	/**
 	 * List of all monitors.
 	 */
@@ -39,17 +37,6 @@ public final class Monitor {
 		LIST.clear();
 	}
 
-	/**
-	 * Gets the interval in seconds at which updates occur.
-	 * 
-	 * @return interval in seconds
-	 */
-	public static int getInterval() {
-		synchronized (Monitor.class) {
-			return interval;
-		}
-	}
-
 	/**
 	 * Returns the list of monitors.
 	 * 
@@ -59,18 +46,6 @@ public final class Monitor {
 		return Collections.unmodifiableList(LIST);
 	}
 
-	/**
-	 * Set the interval in seconds at which updates occur.
-	 * 
-	 * @param intervalIn
-	 *            interval in seconds
-	 */
-	public static void setInterval(final int intervalIn) {
-		synchronized (Monitor.class) {
-			interval = intervalIn;
-		}
-	}
-
 	/**
 	 * Sets the list of monitor objects.
 	 * 
@@ -105,6 +80,12 @@ public final class Monitor {
 	// the previous value set
 	private transient double valueOld; // NOPMD
 
+	/* whether valueOld holds a value to take a rate from */
+	private transient boolean primed;
+
+	/* whether value holds a rate to smooth the next into */
+	private transient boolean hasRate;
+
 	/**
 	 * Constructs an object which monitors the rate of counts in a particular
 	 * <code>Gate</code>.
@@ -165,6 +146,27 @@ public final class Monitor {
 		addToCollections();
 	}
 
+	/**
+	 * Constructs an object which monitors the rate of increase of a count
+	 * kept outside the sort routine, e.g., of buffers lost on the way from
+	 * the front end.
+	 * 
+	 * @param monitorName
+	 *            name of the monitor for display in dialog
+	 * @param counter
+	 *            gives the current count
+	 */
+	public Monitor(final String monitorName, final IntSupplier counter) {
+		super();
+		name = monitorName;
+		source = counter;
+		if (source == null) {
+			throw new IllegalArgumentException("Monitor \"" + monitorName
+					+ "\": source must be non-null.");
+		}
+		addToCollections();
+	}
+
 	private void addToCollections() {
 		TABLE.put(name, this);
 		LIST.add(this);
@@ -248,16 +250,28 @@ public final class Monitor {
 	 */
 	public boolean isAcceptable() {
 		synchronized (this) {
-			return value > maximum || value < threshold;
+			return value >= threshold && value <= maximum;
 		}
 	}
 
 	/**
-	 * Sets this monitor's value to zero.
+	 * Sets this monitor's value to zero, and forgets the last value its rate
+	 * was taken from.
 	 */
 	public void reset() {
 		synchronized (this) {
 			value = 0;
+			primed = false;
+			hasRate = false;
+		}
+	}
+
+	/**
+	 * @return an unchanging copy of this monitor's state, for display
+	 */
+	public MonitorSnapshot snapshot() {
+		synchronized (this) {
+			return new MonitorSnapshot(name, value, threshold, maximum, alarm);
 		}
 	}
 
@@ -334,21 +348,42 @@ public final class Monitor {
 
 	/**
 	 * Updates this monitor, calculating the latest monitor values. Keeps the
-	 * most recent value, too, for rate determination.
+	 * most recent value, too, for rate determination. Rates are smoothed
+	 * exponentially, each new rate given the given weight; the first rate
+	 * after a reset is taken as it is.
+	 * 
+	 * @param seconds
+	 *            time since the last update, zero or less if there was none
+	 * @param weight
+	 *            between 0 and 1, where 1 means no smoothing
+	 * @see MonitorEngine
 	 */
-	public void update() {
+	public void update(final double seconds, final double weight) {
 		synchronized (this) {
+			if (source instanceof Sorter) {
+				value = ((Sorter) source).monitor(name);
+				return;
+			}
+			double rate = Double.NaN;
 			if (source instanceof Scaler) {
-				valueNew = ((Scaler) source).getValue();
-				value = (valueNew - valueOld) / interval;
-				valueOld = valueNew;
+				/* timed by the readouts themselves when there are two */
+				final Scaler scaler = (Scaler) source;
+				rate = scaler.getRate();
+				valueNew = scaler.getValue();
 			} else if (source instanceof Gate) {
 				valueNew = ((Gate) source).getArea();
-				value = (valueNew - valueOld) / interval;
-				valueOld = valueNew;
-			} else if (source instanceof Sorter) {
-				value = ((Sorter) source).monitor(name);
+			} else if (source instanceof IntSupplier) {
+				valueNew = ((IntSupplier) source).getAsInt();
+			}
+			if (Double.isNaN(rate) && primed && seconds > 0) {
+				rate = (valueNew - valueOld) / seconds;
+			}
+			if (!Double.isNaN(rate)) {
+				value = hasRate ? value + weight * (rate - value) : rate;
+				hasRate = true;
 			}
+			valueOld = valueNew;
+			primed = true;
 		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,191 @@
+package jam.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import jam.global.BroadcastEvent;
+import jam.global.Broadcaster;
+import jam.sort.ThreadPriorities;
+
+/**
+ * Evaluates all monitors at a fixed rate on its own thread, and publishes
+ * each round's results as an unchanging list of snapshots, so that displays
+ * and alarms never touch the monitors themselves. Gate areas are brought up
+ * to date from only the histogram rows changed since the last round, and
+ * scaler rates come from the readouts, so a round costs little even with
+ * hundreds of monitors. Rates are smoothed exponentially with a time
+ * constant, so that the smoothing doesn't depend on how often monitors are
+ * evaluated.
+ *
+ * @see Monitor#update(double, double)
+ */
+@Singleton
+public final class MonitorEngine {
+
+	private static final Logger LOGGER = Logger.getLogger(MonitorEngine.class
+			.getPackage().getName());
+
+	private transient final Broadcaster broadcaster;
+
+	private transient final ScheduledExecutorService executor;
+
+	private transient final List<Consumer<List<MonitorSnapshot>>> listeners = new CopyOnWriteArrayList<>();
+
+	private transient volatile List<MonitorSnapshot> latest = Collections
+			.emptyList();
+
+	private transient volatile double timeConstant;
+
+	/* used only on the engine's thread */
+	private transient long lastNanos;
+
+	private transient ScheduledFuture<?> task;
+
+	/**
+	 * @param broadcaster
+	 *            asks for scalers to be read after each round
+	 */
+	@Inject
+	public MonitorEngine(final Broadcaster broadcaster) {
+		super();
+		this.broadcaster = broadcaster;
+		executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			final Thread thread = new Thread(runnable, "Monitor Thread");
+			thread.setPriority(ThreadPriorities.MESSAGING);
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Starts evaluating the monitors, or changes how often, starting afresh
+	 * from the monitors' current values.
+	 *
+	 * @param periodMillis
+	 *            time between rounds
+	 * @param smoothingSeconds
+	 *            time constant of the smoothing of rates, zero for none
+	 */
+	public void start(final long periodMillis, final double smoothingSeconds) {
+		synchronized (this) {
+			cancel();
+			timeConstant = smoothingSeconds;
+			executor.execute(this::resetMonitors);
+			task = executor.scheduleAtFixedRate(this::evaluate, 0,
+					periodMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Stops evaluating the monitors, and publishes them reset to zero.
+	 */
+	public void stop() {
+		synchronized (this) {
+			cancel();
+			executor.execute(() -> {
+				resetMonitors();
+				publish();
+			});
+		}
+	}
+
+	/**
+	 * @return whether monitors are being evaluated
+	 */
+	public boolean isRunning() {
+		synchronized (this) {
+			return task != null;
+		}
+	}
+
+	private void cancel() {
+		if (task != null) {
+			task.cancel(false);
+			task = null; // NOPMD
+		}
+	}
+
+	private void resetMonitors() {
+		for (Monitor monitor : monitorArray()) {
+			monitor.reset();
+		}
+		lastNanos = 0L;
+	}
+
+	private static Monitor[] monitorArray() {
+		synchronized (Monitor.LIST) {
+			return Monitor.LIST.toArray(new Monitor[0]);
+		}
+	}
+
+	/**
+	 * @param listener
+	 *            given each round's snapshots, on the engine's thread
+	 */
+	public void addListener(final Consumer<List<MonitorSnapshot>> listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * @param listener
+	 *            no longer given snapshots
+	 */
+	public void removeListener(final Consumer<List<MonitorSnapshot>> listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * @return the snapshots from the latest round, in the order of
+	 *         <code>Monitor.getMonitorList()</code>
+	 */
+	public List<MonitorSnapshot> getSnapshots() {
+		return latest;
+	}
+
+	/* one round: update every monitor, then publish */
+	private void evaluate() {
+		try {
+			final long now = System.nanoTime();
+			final double seconds = lastNanos == 0L ? 0.0
+					: (now - lastNanos) * 1.0e-9;
+			lastNanos = now;
+			final double constant = timeConstant;
+			final double weight = constant > 0.0 ? 1.0 - Math.exp(-seconds
+					/ constant) : 1.0;
+			for (Monitor monitor : monitorArray()) {
+				monitor.update(seconds, weight);
+			}
+			publish();
+			/* the values read arrive in time for the next round */
+			broadcaster.broadcast(BroadcastEvent.Command.SCALERS_READ);
+		} catch (RuntimeException re) {
+			/* would otherwise silently end the scheduled rounds */
+			LOGGER.log(Level.SEVERE, "Error evaluating monitors.", re);
+		}
+	}
+
+	private void publish() {
+		final Monitor[] monitors = monitorArray();
+		final List<MonitorSnapshot> snapshots = new ArrayList<>(
+				monitors.length);
+		for (Monitor monitor : monitors) {
+			snapshots.add(monitor.snapshot());
+		}
+		latest = Collections.unmodifiableList(snapshots);
+		for (Consumer<List<MonitorSnapshot>> listener : listeners) {
+			listener.accept(latest);
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package jam.data;
+
+/**
+ * The state of a <code>Monitor</code> at one evaluation, which doesn't
+ * change afterwards, so that displays and alarms may read it on any thread
+ * without locking.
+ * 
+ * @see MonitorEngine
+ */
+public final class MonitorSnapshot {
+
+	private transient final String name;
+
+	private transient final double value;
+
+	private transient final double threshold;
+
+	private transient final double maximum;
+
+	private transient final boolean alarm;
+
+	/**
+	 * @param name
+	 *            of the monitor
+	 * @param value
+	 *            the monitor's value
+	 * @param threshold
+	 *            lowest acceptable value
+	 * @param maximum
+	 *            highest acceptable value
+	 * @param alarm
+	 *            whether an audible alarm is wanted
+	 */
+	public MonitorSnapshot(final String name, final double value,
+			final double threshold, final double maximum, final boolean alarm) {
+		super();
+		this.name = name;
+		this.value = value;
+		this.threshold = threshold;
+		this.maximum = maximum;
+		this.alarm = alarm;
+	}
+
+	/**
+	 * @return the monitor's name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the monitor's value
+	 */
+	public double getValue() {
+		return value;
+	}
+
+	/**
+	 * @return the lowest acceptable value
+	 */
+	public double getThreshold() {
+		return threshold;
+	}
+
+	/**
+	 * @return the highest acceptable value
+	 */
+	public double getMaximum() {
+		return maximum;
+	}
+
+	/**
+	 * @return whether an audible alarm is wanted
+	 */
+	public boolean isAlarmActivated() {
+		return alarm;
+	}
+
+	/**
+	 * @return whether the value is within the acceptable range
+	 */
+	public boolean isAcceptable() {
+		return value >= threshold && value <= maximum;
+	}
+}
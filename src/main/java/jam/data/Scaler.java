@@ -21,6 +21,17 @@ public final class Scaler implements DataElement {
     private static final List<Scaler> LIST = Collections
             .synchronizedList(new ArrayList<Scaler>());
 
+    private static final ScalerStore STORE = new ScalerStore();
+
+    /* copy of LIST for readouts, replaced whenever LIST changes */
+    private static volatile Scaler[] readoutList = new Scaler[0];
+
+    /* readouts may come from the network or from an event stream */
+    private static final Object READOUT_LOCK = new Object();
+
+    /* frozenValue when there is none */
+    private static final long NOT_FROZEN = Long.MIN_VALUE;
+
     /**
      * Limit on name length.
      */
@@ -33,8 +44,12 @@ public final class Scaler implements DataElement {
      * Clears the list of all scalers.
      */
     static void clearList() {
-        TABLE.clear();
-        LIST.clear();
+        synchronized (LIST) {
+            TABLE.clear();
+            LIST.clear();
+            readoutList = new Scaler[0];
+            STORE.clear();
+        }
     }
 
     /**
@@ -57,25 +72,62 @@ public final class Scaler implements DataElement {
 
     /**
      * Update all the scaler values. The value indices refer to the scaler
-     * number.
+     * number. Each update is kept in the scalers' histories, with the time it
+     * was made.
      * @param inValue
-     *            the list of all the new values for the scalers
+     *            the new values for the scalers
+     * @param count
+     *            the number of values given
      */
-    public static void update(final List<Integer> inValue) {
-        /* check we do not try to update mores scalers than there are */
-        final int numScalers = Math.min(inValue.size(), LIST.size());
-        for (int i = 0; i < numScalers; i++) {
-            final Scaler scaler = LIST.get(i);
-            scaler.setValue(inValue.get(scaler.getNumber()));
+    public static void update(final int[] inValue, final int count) {
+        synchronized (READOUT_LOCK) {
+            final Scaler[] scalers = readoutList;
+            final int position = STORE.startReadout();
+            /* check we do not try to update mores scalers than there are */
+            final int numScalers = Math.min(count, scalers.length);
+            for (int i = 0; i < scalers.length; i++) {
+                final Scaler scaler = scalers[i];
+                final boolean read = i < numScalers && scaler.number < count;
+                final long value = read ? inValue[scaler.number] : STORE
+                        .get(scaler.slot);
+                STORE.put(scaler.slot, position, value);
+            }
+            STORE.finishReadout(position, System.currentTimeMillis());
         }
         BROADCASTER.broadcast(BroadcastEvent.Command.SCALERS_UPDATE);
     }
 
+    /**
+     * Freezes the values of all scalers, e.g., at the end of a run rolled
+     * over, so that they can be saved while readouts for the next run come
+     * in. Called by the sorting thread at the end-of-run marker.
+     * @see #getFrozenValue()
+     */
+    public static void freezeAll() {
+        synchronized (READOUT_LOCK) {
+            for (Scaler scaler : readoutList) {
+                scaler.frozenValue = STORE.get(scaler.slot);
+            }
+        }
+    }
+
+    /**
+     * Lets go of the values of all scalers frozen by
+     * <code>freezeAll()</code>, once they have been saved.
+     */
+    public static void releaseFrozenAll() {
+        for (Scaler scaler : readoutList) {
+            scaler.frozenValue = NOT_FROZEN;
+        }
+    }
+
     private transient final String name; // name of scaler
 
     private transient final int number; // number in list
 
-    private int value; // value of scaler
+    private transient final int slot; // place in STORE
+
+    private transient volatile long frozenValue = NOT_FROZEN;
 
     /**
      * Creates a new scaler with an assigned name and number.
@@ -91,14 +143,16 @@ public final class Scaler implements DataElement {
         super();
         name = nameIn;
         number = idNum;
-        TABLE.put(uniqueName, this);
-        LIST.add(this);
+        synchronized (LIST) {
+            slot = STORE.register();
+            TABLE.put(uniqueName, this);
+            LIST.add(this);
+            readoutList = LIST.toArray(new Scaler[0]);
+        }
     }
 
     public double getCount() {
-        synchronized (this) {
-            return value;
-        }
+        return getValue();
     }
 
     public Type getElementType() {
@@ -127,9 +181,40 @@ public final class Scaler implements DataElement {
      * @return the value of this scaler
      */
     public int getValue() {
-        synchronized (this) {
-            return value;
-        }
+        return (int) STORE.get(slot);
+    }
+
+    /**
+     * Returns this scaler's value when last frozen.
+     * @return the frozen value, or the current value if not frozen
+     * @see #freezeAll()
+     */
+    public int getFrozenValue() {
+        final long value = frozenValue;
+        return value == NOT_FROZEN ? getValue() : (int) value;
+    }
+
+    /**
+     * Returns this scaler's rate of increase between the last two readouts.
+     * @return counts per second, or <code>NaN</code> if it hasn't been read
+     *         out twice
+     */
+    public double getRate() {
+        return STORE.getRate(slot);
+    }
+
+    /**
+     * Copies this scaler's most recent readouts, oldest first.
+     * @param millis
+     *            given the readout times, its length the most readouts
+     *            copied
+     * @param values
+     *            given the values read out
+     * @return the number of readouts copied, at most
+     *         <code>ScalerStore.HISTORY</code>
+     */
+    public int getHistory(final long[] millis, final long[] values) {
+        return STORE.getHistory(slot, millis, values);
     }
 
     /**
@@ -138,9 +223,7 @@ public final class Scaler implements DataElement {
      *            the new value for this scaler
      */
     public void setValue(final int valueIn) {
-        synchronized (this) {
-            value = valueIn;
-        }
+        STORE.set(slot, valueIn);
     }
 
     public int getDimensionality() {
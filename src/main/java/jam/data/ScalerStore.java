@@ -0,0 +1,227 @@
+package jam.data;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Holds the values of scalers as primitives, together with the last
+ * <code>HISTORY</code> readouts of each and when they were made, so that
+ * displays and monitors may read values and rates without locking or boxing.
+ * Each scaler has a slot, given out when it is registered.
+ * <p>
+ * Readouts are recorded by one thread at a time; any thread may read. A
+ * reader copying the history checks afterwards that no readout overwrote what
+ * it copied, and copies again if one did.
+ * </p>
+ * @see Scaler
+ */
+public final class ScalerStore {
+
+    /* one more than is read, for the readout being written */
+    private static final int RING = 64;
+
+    private static final int RING_MASK = RING - 1;
+
+    /**
+     * Number of readouts remembered for each scaler.
+     */
+    public static final int HISTORY = RING - 1;
+
+    /* replaced as a whole when slots are added, so readers see all or none */
+    private static final class Slots {
+        private transient final AtomicLongArray values;
+
+        /* reading of slot s at ring position p is at s * RING + p */
+        private transient final AtomicLongArray readings;
+
+        Slots(final int capacity) {
+            values = new AtomicLongArray(capacity);
+            readings = new AtomicLongArray(capacity * RING);
+        }
+
+        int capacity() {
+            return values.length();
+        }
+    }
+
+    private transient volatile Slots slots = new Slots(0);
+
+    private transient int registered = 0;
+
+    private transient final AtomicLongArray times = new AtomicLongArray(RING);
+
+    /* number of readouts ever finished, so the next goes at this mod RING */
+    private transient final AtomicLong readouts = new AtomicLong();
+
+    /**
+     * Gives out the next slot, making room for it.
+     * @return the slot for a new scaler
+     */
+    public int register() {
+        synchronized (this) {
+            final Slots current = slots;
+            if (registered == current.capacity()) {
+                final Slots larger = new Slots(Math.max(8,
+                        2 * current.capacity()));
+                for (int slot = 0; slot < registered; slot++) {
+                    larger.values.set(slot, current.values.get(slot));
+                    for (int pos = 0; pos < RING; pos++) {
+                        larger.readings.set(slot * RING + pos,
+                                current.readings.get(slot * RING + pos));
+                    }
+                }
+                slots = larger;
+            }
+            return registered++;
+        }
+    }
+
+    /**
+     * Forgets all slots and readouts.
+     */
+    public void clear() {
+        synchronized (this) {
+            slots = new Slots(0);
+            registered = 0;
+            readouts.set(0);
+        }
+    }
+
+    /**
+     * @param slot
+     *            of a scaler
+     * @return the scaler's current value
+     */
+    public long get(final int slot) {
+        final Slots current = slots;
+        return slot < current.capacity() ? current.values.get(slot) : 0;
+    }
+
+    /**
+     * Sets a scaler's value outside of a readout, e.g., when read from a
+     * file. Its history is unchanged.
+     * @param slot
+     *            of the scaler
+     * @param value
+     *            the new value
+     */
+    public void set(final int slot, final long value) {
+        final Slots current = slots;
+        if (slot < current.capacity()) {
+            current.values.set(slot, value);
+        }
+    }
+
+    /**
+     * @return the ring position of the next readout, to pass to
+     *         <code>put()</code> and <code>finishReadout()</code>
+     */
+    public int startReadout() {
+        return (int) (readouts.get() & RING_MASK);
+    }
+
+    /**
+     * Sets a scaler's value as part of a readout.
+     * @param slot
+     *            of the scaler
+     * @param position
+     *            from <code>startReadout()</code>
+     * @param value
+     *            the value read out
+     */
+    public void put(final int slot, final int position, final long value) {
+        final Slots current = slots;
+        if (slot < current.capacity()) {
+            current.values.set(slot, value);
+            current.readings.set(slot * RING + position, value);
+        }
+    }
+
+    /**
+     * Records the time of a readout, after all its values have been put,
+     * making them visible in the history.
+     * @param position
+     *            from <code>startReadout()</code>
+     * @param millis
+     *            when the scalers were read out
+     */
+    public void finishReadout(final int position, final long millis) {
+        times.set(position, millis);
+        readouts.incrementAndGet();
+    }
+
+    /**
+     * @return how many readouts are in the history, at most
+     *         <code>HISTORY</code>
+     */
+    public int getReadoutCount() {
+        return (int) Math.min(readouts.get(), HISTORY);
+    }
+
+    /**
+     * Copies the most recent readouts of a scaler, oldest first.
+     * @param slot
+     *            of the scaler
+     * @param millis
+     *            given the readout times, its length the most readouts
+     *            copied
+     * @param values
+     *            given the values read out, at least as long as
+     *            <code>millis</code>
+     * @return the number of readouts copied
+     */
+    public int getHistory(final int slot, final long[] millis,
+            final long[] values) {
+        while (true) {
+            final Slots current = slots;
+            if (slot >= current.capacity()) {
+                return 0;
+            }
+            final long end = readouts.get();
+            final int count = (int) Math.min(Math.min(end, HISTORY),
+                    millis.length);
+            for (int i = 0; i < count; i++) {
+                final int position = (int) ((end - count + i) & RING_MASK);
+                millis[i] = times.get(position);
+                values[i] = current.readings.get(slot * RING + position);
+            }
+            /* the oldest copied is overwritten by readout end + RING - count */
+            if (readouts.get() - end < RING - count) {
+                return count;
+            }
+        }
+    }
+
+    /**
+     * Rate of increase of a scaler between its last two readouts. A
+     * scaler that went down between them is taken to have been zeroed.
+     * @param slot
+     *            of the scaler
+     * @return counts per second, or <code>NaN</code> if there haven't been
+     *         two readouts
+     */
+    public double getRate(final int slot) {
+        final long[] millis = new long[2];
+        final long[] values = new long[2];
+        return getHistory(slot, millis, values) < 2 ? Double.NaN : rate(
+                millis[0], values[0], millis[1], values[1]);
+    }
+
+    /**
+     * @param millisBefore
+     *            time of the earlier readout
+     * @param before
+     *            value at the earlier readout
+     * @param millisAfter
+     *            time of the later readout
+     * @param after
+     *            value at the later readout
+     * @return counts per second between the readouts
+     */
+    public static double rate(final long millisBefore, final long before,
+            final long millisAfter, final long after) {
+        final long elapsed = millisAfter - millisBefore;
+        final long increase = after < before ? after : after - before;
+        return elapsed > 0 ? 1000.0 * increase / elapsed : 0.0;
+    }
+}
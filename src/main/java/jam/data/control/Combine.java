@@ -25,15 +25,13 @@ import jam.data.AbstractHist1D;
 import jam.data.AbstractHistogram;
 import jam.data.DataException;
 import jam.data.DataUtility;
-import jam.data.HistDouble1D;
-import jam.data.HistInt1D;
+import jam.data.HistogramAlgebra;
 import jam.data.HistogramType;
 import jam.global.BroadcastEvent;
 import jam.global.Broadcaster;
 import jam.global.JamStatus;
 import jam.ui.PanelOKApplyCancelButtons;
 import jam.ui.SelectionTree;
-import jam.util.NumberUtilities;
 
 /**
  * Combine histograms and also normalize a histogram
@@ -59,8 +57,6 @@ public class Combine extends AbstractManipulation implements PropertyChangeListe
 
 	private transient final JTextField ttextto, ttimes1, ttimes2;
 
-	private transient final NumberUtilities numberUtilities;
-
 	/**
 	 * Construct a new "manipulate histograms" dialog.
 	 * 
@@ -71,15 +67,12 @@ public class Combine extends AbstractManipulation implements PropertyChangeListe
 	 *            application status
 	 * @param broadcaster
 	 *            broadcasts state changes
-	 * @param numberUtilities
-	 *            number utilities
 	 * 
 	 */
 	@Inject
 	public Combine(final Frame frame, final JamStatus status,
-			final Broadcaster broadcaster, final NumberUtilities numberUtilities) {
+			final Broadcaster broadcaster) {
 		super(frame, "Manipulate 1-D Histograms", false, broadcaster);
-		this.numberUtilities = numberUtilities;
 		setResizable(false);
 		Dimension dim;
 		int meanCharWidth;
@@ -217,67 +210,38 @@ public class Combine extends AbstractManipulation implements PropertyChangeListe
 	 * non-javadoc: Does the work of manipulating histograms
 	 */
 	private void combine() throws DataException {
-		String operation = "";
 		validateFactors();
 		final AbstractHist1D hfrom1 = (AbstractHist1D) AbstractHistogram
 				.getHistogram((String) cfrom1.getSelectedItem());
-		AbstractHist1D hfrom2 = null;
-		double[] in1 = doubleCountsArray(hfrom1);
-		double[] err1 = hfrom1.getErrors();
-		double[] in2 = null;
-		double[] err2 = null;
-		if (cfrom2.isEnabled()) {
-			hfrom2 = (AbstractHist1D) AbstractHistogram
-					.getHistogram((String) cfrom2.getSelectedItem());
-			in2 = doubleCountsArray(hfrom2);
-			err2 = hfrom2.getErrors();
-		}
 		assignDestinationHistogram(hfrom1);
-		hto.setZero();
-		double[] out = doubleCountsArray(hto);
-		double[] errOut = hto.getErrors();
-		final int numChannels = getNumChannels(in1, in2, out);
-		// Do calculation
 		if (cnorm.isSelected()) {
-			operation = normalize(in1, err1, out, errOut, numChannels);
-		} else if (cplus.isSelected()) {
-			operation = add(in1, err1, in2, err2, out, errOut, numChannels);
-		} else if (cminus.isSelected()) {
-			operation = subtract(in1, err1, in2, err2, out, errOut, numChannels);
-		} else if (ctimes.isSelected()) {
-			operation = multiply(in1, err1, in2, err2, out, errOut, numChannels);
-		} else if (cdiv.isSelected()) {
-			operation = divide(in1, err1, in2, err2, out, errOut, numChannels);
-		}
-		hto.setErrors(errOut);
-
-		/* cast to int array if needed */
-		if (hto.getType() == HistogramType.ONE_DIM_INT) {
-			hto.setCounts(this.numberUtilities.doubleToIntArray(out));
-		} else {
-			hto.setCounts(out);
-		}
-
-		if (hfrom2 == null) {
+			HistogramAlgebra.scale(fac1, hfrom1, hto);
 			LOGGER.info("Normalize " + hfrom1.getFullName().trim() + " to "
 					+ hto.getFullName());
 		} else {
-			LOGGER.info("Combine " + hfrom1.getFullName().trim() + operation
+			final AbstractHist1D hfrom2 = (AbstractHist1D) AbstractHistogram
+					.getHistogram((String) cfrom2.getSelectedItem());
+			final HistogramAlgebra.Operation operation;
+			final String description;
+			if (cplus.isSelected()) {
+				operation = HistogramAlgebra.Operation.ADD;
+				description = " Added with ";
+			} else if (cminus.isSelected()) {
+				operation = HistogramAlgebra.Operation.SUBTRACT;
+				description = " Subtracted from ";
+			} else if (ctimes.isSelected()) {
+				operation = HistogramAlgebra.Operation.MULTIPLY;
+				description = " Multiplied with ";
+			} else {
+				operation = HistogramAlgebra.Operation.DIVIDE;
+				description = " Divided by ";
+			}
+			HistogramAlgebra.combine(operation, fac1, hfrom1, fac2, hfrom2, hto);
+			LOGGER.info("Combine " + hfrom1.getFullName().trim() + description
 					+ hfrom2.getFullName().trim() + " to " + hto.getFullName());
 		}
 	}
 
-	private int getNumChannels(final double[] in1, final double[] in2,
-			final double[] out) {
-		// Minimum size of both out an in1
-		int numChannels = Math.min(out.length, in1.length);
-		// Minimum size of all out an in1 and in2
-		if (!cnorm.isSelected()) {
-			numChannels = Math.min(numChannels, in2.length);
-		}
-		return numChannels;
-	}
-
 	private void assignDestinationHistogram(final AbstractHist1D hfrom1) {
 		// read in information for to histogram
 		final String name = (String) cto.getSelectedItem();
@@ -293,71 +257,6 @@ public class Combine extends AbstractManipulation implements PropertyChangeListe
 		}
 	}
 
-	private String divide(final double[] in1, final double[] err1,
-			final double[] in2, final double[] err2, final double[] out,
-			final double[] errOut, final int numChannels) {
-		String operation;
-		for (int i = 0; i < numChannels; i++) {
-			out[i] = fac1 * in1[i] / (fac2 * in2[i]);
-			errOut[i] = in1[i]
-					/ in2[i]
-					* Math.sqrt(fac1 * fac1 / (err1[i] * err1[i]) + fac2 * fac2
-							/ (err2[i] * err2[i]));
-		}
-		operation = " Divided by ";
-		return operation;
-	}
-
-	private String multiply(final double[] in1, final double[] err1,
-			final double[] in2, final double[] err2, final double[] out,
-			final double[] errOut, final int numChannels) {
-		String operation;
-		for (int i = 0; i < numChannels; i++) {
-			out[i] = fac1 * in1[i] * fac2 * in2[i];
-			errOut[i] = Math.sqrt(fac2 * fac2 * err1[i] * err1[i] + fac1 * fac1
-					* err2[i] * err2[i]);
-		}
-		operation = " Multiplied with ";
-		return operation;
-	}
-
-	private String subtract(final double[] in1, final double[] err1,
-			final double[] in2, final double[] err2, final double[] out,
-			final double[] errOut, final int numChannels) {
-		String operation;
-		for (int i = 0; i < numChannels; i++) {
-			out[i] = fac1 * in1[i] - fac2 * in2[i];
-			errOut[i] = Math.sqrt(fac1 * fac1 * err1[i] * err1[i] + fac2 * fac2
-					* err2[i] * err2[i]);
-		}
-		operation = " Subtracted from ";
-		return operation;
-	}
-
-	private String add(final double[] in1, final double[] err1,
-			final double[] in2, final double[] err2, final double[] out,
-			final double[] errOut, final int numChannels) {
-		String operation;
-		for (int i = 0; i < numChannels; i++) {
-			out[i] = fac1 * in1[i] + fac2 * in2[i];
-			errOut[i] = Math.sqrt(fac1 * fac1 * err1[i] * err1[i] + fac2 * fac2
-					* err2[i] * err2[i]);
-		}
-		operation = " Added with ";
-		return operation;
-	}
-
-	private String normalize(final double[] in1, final double[] err1,
-			final double[] out, final double[] errOut, final int numChannels) {
-		String operation;
-		for (int i = 0; i < numChannels; i++) {
-			out[i] = fac1 * in1[i];
-			errOut[i] = fac1 * err1[i];
-		}
-		operation = " Normalized ";
-		return operation;
-	}
-
 	/**
 	 * Loads the list of gates and set co-ordinates as x y if 2d or lower upper
 	 * if 1 d
@@ -387,17 +286,6 @@ public class Combine extends AbstractManipulation implements PropertyChangeListe
 		enableInputWith(!cnorm.isSelected());
 	}
 
-	private double[] doubleCountsArray(final AbstractHist1D hist) {
-		double[] dCounts;
-		if (hist.getType() == HistogramType.ONE_DIM_INT) {
-			dCounts = this.numberUtilities.intToDoubleArray(((HistInt1D) hist)
-					.getCounts());
-		} else {
-			dCounts = ((HistDouble1D) hist).getCounts();
-		}
-		return dCounts;
-	}
-
 	/*
 	 * non-javadoc: A second histogram is needed
 	 */
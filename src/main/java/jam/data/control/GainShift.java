@@ -29,13 +29,13 @@ import jam.data.AbstractHist1D;
 import jam.data.AbstractHistogram;
 import jam.data.DataException;
 import jam.data.DataUtility;
+import jam.data.HistogramAlgebra;
 import jam.data.HistogramType;
 import jam.global.BroadcastEvent;
 import jam.global.Broadcaster;
 import jam.global.JamStatus;
 import jam.ui.PanelOKApplyCancelButtons;
 import jam.ui.SelectionTree;
-import jam.util.NumberUtilities;
 
 /**
  * Class for adjusting the gain of 1d spectra.
@@ -46,8 +46,6 @@ import jam.util.NumberUtilities;
 @SuppressWarnings("serial")
 public class GainShift extends AbstractManipulation implements ItemListener {
 
-	private static final double BIN_CENTER_OFFSET = 0.5;
-
 	private final transient JCheckBox cchan, ccoeff;
 
 	private final transient JComboBox<Object> cfrom, cto;
@@ -64,14 +62,8 @@ public class GainShift extends AbstractManipulation implements ItemListener {
 
 	private final transient JLabel lname;
 
-	private transient int mlo, mhi;
-
 	private final transient JTextField text1, text2, text3, text4, ttextto;
 
-	private transient double x2lo, x2hi;
-
-	private final transient NumberUtilities numberUtilities;
-
 	/**
 	 * Constructs a gain shift dialog.
 	 * 
@@ -81,14 +73,11 @@ public class GainShift extends AbstractManipulation implements ItemListener {
 	 *            application status
 	 * @param broadcaster
 	 *            broadcasts state changes
-	 * @param numberUtilities
-	 *            number utility object
 	 */
 	@Inject
 	public GainShift(final Frame frame, final JamStatus status,
-			final Broadcaster broadcaster, final NumberUtilities numberUtilities) {
+			final Broadcaster broadcaster) {
 		super(frame, "Gain Shift 1-D Histogram", false, broadcaster);
-		this.numberUtilities = numberUtilities;
 		chan1i = 0.0;
 		chan2i = 1.0;
 		chan1f = 0.0;
@@ -246,40 +235,6 @@ public class GainShift extends AbstractManipulation implements ItemListener {
 
 	}
 
-	private void calculateCountsInsideRange(final double[] countsIn,
-			final double[] countsOut, final int index) {
-		for (int i = mlo + 1; i <= mhi - 1; i++) {
-			countsOut[i] = countsOut[i] + countsIn[index] / (x2hi - x2lo);
-		}
-		countsOut[mlo] = countsOut[mlo] + countsIn[index]
-				* (mlo + BIN_CENTER_OFFSET - x2lo) / (x2hi - x2lo);
-		countsOut[mhi] = countsOut[mhi] + countsIn[index]
-				* (x2hi - mhi + BIN_CENTER_OFFSET) / (x2hi - x2lo);
-	}
-
-	private void calculateIntermediateValues(final double interceptIn,
-			final double slopeIn, final double interceptOut,
-			final double slopeOut, final int npts2, final int index) {
-		// energy at lower edge of spec#1 channel
-		final double e1lo = interceptIn + slopeIn * (index - BIN_CENTER_OFFSET);
-
-        // energy at upper edge of spec#1 channel
-		final double e1hi = interceptIn + slopeIn * (index + BIN_CENTER_OFFSET);
-
-        // fractional chan#2 corresponding to e1lo
-		x2lo = (e1lo - interceptOut) / slopeOut;
-
-		// fractional chan#2 corresponding to e1hi
-		x2hi = (e1hi - interceptOut) / slopeOut;
-
-		mlo = (int) (x2lo + BIN_CENTER_OFFSET);
-		mhi = (int) (x2hi + BIN_CENTER_OFFSET);
-		mlo = Math.max(mlo, 0);
-		mhi = Math.max(mhi, 0);
-		mlo = Math.min(mlo, npts2 - 1);
-		mhi = Math.min(mhi, npts2 - 1);
-	}
-
 	/*
 	 * non-javadoc: Does the work of manipulating histograms
 	 */
@@ -291,29 +246,9 @@ public class GainShift extends AbstractManipulation implements ItemListener {
 		} else {
 			getCoefficients();
 		}
-		/* Get input histogram. */
-		final HistogramType oneDi = HistogramType.ONE_DIM_INT;
-		final boolean isOneD = hfrom.getType() == oneDi;
-		final double[] countsIn = isOneD ? this.numberUtilities
-				.intToDoubleArray(((jam.data.HistInt1D) hfrom).getCounts())
-				: ((jam.data.HistDouble1D) hfrom).getCounts();
-		final double[] errIn = hfrom.getErrors();
 		getOrCreateOutputHistogram();
-		hto.setZero();
-		final int countLen = hto.getType() == oneDi ? ((jam.data.HistInt1D) hto)
-				.getCounts().length
-				: ((jam.data.HistDouble1D) hto).getCounts().length;
-		final double[] out = gainShift(countsIn, intercept1, slope1,
-				intercept2, slope2, countLen);
-		final double[] errOut = errorGainShift(errIn, intercept1, slope1,
-				intercept2, slope2, hto.getErrors().length);
-		if (hto.getType() == oneDi) {
-			hto.setCounts(this.numberUtilities.doubleToIntArray(out));
-		} else {
-			hto.setCounts(out);
-		}
-		hto.setErrors(errOut);
-
+		HistogramAlgebra.gainShift(hfrom, intercept1, slope1, intercept2,
+				slope2, hto);
 		LOGGER.info("Gain shift " + hfrom.getFullName().trim() + " with gain: "
 				+ format(intercept1) + " + " + format(slope1) + " x ch; to "
 				+ hto.getFullName() + " with gain: " + format(intercept2)
@@ -348,66 +283,6 @@ public class GainShift extends AbstractManipulation implements ItemListener {
 		cfrom.setSelectedIndex(0);
 	}
 
-	/**
-	 * Error terms gain-shifting subroutine adapted from Fortran code written
-	 * and used at the Nuclear Physics Laboratory at University of Washington,
-	 * Seattle.
-	 * 
-	 * @param countsIn
-	 *            input array of counts
-	 * @param interceptIn
-	 *            constant calibration coefficient of countsIn
-	 * @param slopeIn
-	 *            linear calibration coefficient of countsIn
-	 * @param interceptOut
-	 *            constant calibration coefficient for output array
-	 * @param slopeOut
-	 *            linear calibration coefficient for output array
-	 * @param npts2
-	 *            desired size of output array
-	 * @return new array of size <code>npts</code> re-binned for new gain
-	 *         coefficients
-	 * @throws DataException
-	 *             if there's a problem
-	 */
-	private double[] errorGainShift(final double[] countsIn,
-			final double interceptIn, final double slopeIn,
-			final double interceptOut, final double slopeOut, final int npts2)
-			throws DataException {
-		final double[] countsOut = new double[npts2];
-		for (int n = 0; n < countsIn.length; n++) {
-			calculateIntermediateValues(interceptIn, slopeIn, interceptOut,
-					slopeOut, npts2, n);
-			if ((mlo >= 0) && (mhi < npts2)) {
-				calculateErrorContribution(countsIn, countsOut, n);
-			}
-		}
-		return countsOut;
-	}
-
-	private void calculateErrorContribution(final double[] countsIn,
-			double[] countsOut, final int inChannel) throws DataException {
-		if (mhi == mlo) {
-			/* spectrum #1 channel fits within one spectrum #2 channel */
-			countsOut[mlo] = countsOut[mlo] + countsIn[inChannel];
-		} else if (mhi == mlo + 1) {
-			/* spectrum #1 channel falls into two spectrum #2 channels */
-			countsOut[mlo] = Math.sqrt(countsOut[mlo]
-					* countsOut[mlo]
-					+ Math.pow(countsIn[inChannel]
-							* (mlo + BIN_CENTER_OFFSET - x2lo) / (x2hi - x2lo),
-							2.0));
-			countsOut[mhi] = countsOut[mhi] + countsIn[inChannel]
-					* (x2hi - mhi + BIN_CENTER_OFFSET) / (x2hi - x2lo);
-		} else if (mhi > mlo + 1) {
-			/* spectrum #1 channel covers several spectrum #2 channels */
-			calculateCountsInsideRange(countsIn, countsOut, inChannel);
-		} else {
-			throw new DataException("Something is wrong: n = " + inChannel
-					+ ", mlo = " + mlo + ", mhi = " + mhi);
-		}
-	}
-
 	/*
 	 * format a number
 	 */
@@ -426,67 +301,6 @@ public class GainShift extends AbstractManipulation implements ItemListener {
 		return fval.format(value);
 	}
 
-	/**
-	 * Gain-shifting subroutine adapted from Fortran code written and used at
-	 * the Nuclear Physics Laboratory at University of Washigton, Seattle.
-	 * 
-	 * @param countsIn
-	 *            input array of counts
-	 * @param interceptIn
-	 *            constant calibration coefficient of countsIn
-	 * @param slopeIn
-	 *            linear calibration coefficient of countsIn
-	 * @param interceptOut
-	 *            constant calibration coefficient for output array
-	 * @param slopeOut
-	 *            linear calibration coefficient for output array
-	 * @param npts2
-	 *            desired size of output array
-	 * @return new array of size <code>npts</code> re-binned for new gain
-	 *         coefficients
-	 * @throws DataException
-	 *             if there's a problem
-	 */
-	private double[] gainShift(final double[] countsIn,
-			final double interceptIn, final double slopeIn,
-			final double interceptOut, final double slopeOut, final int npts2)
-			throws DataException {
-		double[] countsOut = new double[npts2];// language specifies elements
-		// initialized to
-		// zero
-		// loop for each channel of original array
-		for (int n = 0; n < countsIn.length; n++) {
-			calculateIntermediateValues(interceptIn, slopeIn, interceptOut,
-					slopeOut, npts2, n);
-			// treat the 3 cases below
-			if ((mlo >= 0) && (mhi < npts2)) {
-				// sp#1 chan fits within one sp#2 chan
-				if (mhi == mlo) {
-					countsOut[mlo] = countsOut[mlo] + countsIn[n];
-					// sp#1 chan falls into two sp#2 chans
-				} else if (mhi == (mlo + 1)) {
-					countsOut[mlo] = countsOut[mlo] + countsIn[n]
-							* (mlo + BIN_CENTER_OFFSET - x2lo) / (x2hi - x2lo);
-					countsOut[mhi] = countsOut[mhi] + countsIn[n]
-							* (x2hi - mhi + BIN_CENTER_OFFSET) / (x2hi - x2lo);
-					// sp#1 chan covers several sp#2 chans
-				} else if (mhi > mlo + 1) {
-					calculateCountsInsideRange(countsIn, countsOut, n);
-				} else {
-					throw new DataException("Something is wrong: n = " + n
-							+ ", mlo = " + mlo + ", mhi = " + mhi);
-				}
-			}
-		}
-		// test debug
-		double sum = 0;
-		for (double aCountsOut : countsOut) {
-			sum = sum + aCountsOut;
-		}
-
-		return countsOut;
-	}
-
 	/*
 	 * non-javadoc: get the channels from the text fields
 	 */
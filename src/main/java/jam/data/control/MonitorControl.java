@@ -22,7 +22,6 @@ import javax.swing.JSpinner;
 import javax.swing.JTextField;
 import javax.swing.ScrollPaneConstants;
 import javax.swing.SpinnerNumberModel;
-import javax.swing.SwingUtilities;
 import javax.swing.border.Border;
 import javax.swing.border.EmptyBorder;
 
@@ -30,10 +29,11 @@ import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
 import jam.data.Monitor;
+import jam.data.MonitorEngine;
 import jam.global.BroadcastEvent;
 import jam.global.Broadcaster;
-import jam.global.GoodThread;
-import jam.sort.ThreadPriorities;
+import jam.global.JamProperties;
+import jam.global.PropertyKeys;
 import jam.ui.Canceller;
 import jam.ui.WindowCancelAction;
 
@@ -47,20 +47,12 @@ import jam.ui.WindowCancelAction;
  */
 @Singleton
 @SuppressWarnings("serial")
-public final class MonitorControl extends AbstractControl implements Runnable {
+public final class MonitorControl extends AbstractControl {
 
 	private static final int THRESHOLD_INDEX = 1;
 	private static final int MAX_VALUE_INDEX = 2;
 	private static final int CHECKBOX_INDEX = 3;
 
-	private class BroadcastMonitorUpdate implements Runnable {
-		public void run() {
-			broadcaster.broadcast(BroadcastEvent.Command.MONITORS_UPDATE);
-		}
-	}
-
-	private transient final BroadcastMonitorUpdate monitorUpdate = new BroadcastMonitorUpdate();
-
 	private static final int BORDER_HEIGHT = 5;
 
 	private transient boolean configured = false; // monitors have been
@@ -68,15 +60,17 @@ public final class MonitorControl extends AbstractControl implements Runnable {
 
 	private transient int interval; // update interval
 
-	private transient GoodThread loopThread; // loop to update monitors
+	private transient final MonitorEngine engine; // updates monitors
 
 	private transient final JPanel pMonitors;
 
 	private transient final JSpinner spinnerUpdate;
 
 	@Inject
-	MonitorControl(final Frame frame, final Broadcaster broadcaster) {
+	MonitorControl(final Frame frame, final Broadcaster broadcaster,
+			final MonitorEngine engine) {
 		super(frame, "Monitors Setup", false, broadcaster);
+		this.engine = engine;
 		setResizable(true);
 		setLocation(20, 50);
 		final Container cddisp = getContentPane();
@@ -138,9 +132,10 @@ public final class MonitorControl extends AbstractControl implements Runnable {
 		pbutton.add(bapply);
 		final Canceller canceller = () -> {
             configured = false;
-            /* stop monitor thread if running */
-            if (loopThread != null) {
-                loopThread.setState(GoodThread.State.STOP);
+            /* stop monitors if running */
+            if (engine.isRunning()) {
+                engine.stop();
+                broadcaster.broadcast(BroadcastEvent.Command.MONITORS_DISABLED);
             }
         };
 		final JButton bcancel = new JButton(new WindowCancelAction(canceller));
@@ -163,8 +158,6 @@ public final class MonitorControl extends AbstractControl implements Runnable {
 						"Update interval must be greater than 1");
 			}
 
-			Monitor.setInterval(interval);
-
 			/* get the Monitor parameters */
 			final List<Monitor> monitors = Monitor.getMonitorList();
 			for (int i = 0; i < monitors.size(); i++) {
@@ -218,17 +211,6 @@ public final class MonitorControl extends AbstractControl implements Runnable {
 
 	}
 
-	/**
-	 * Stop monitors interval updating loop
-	 */
-	private void loopThreadStopped() {
-		loopThread = null; // NOPMD
-		for (Monitor monitor : Monitor.getMonitorList()) {
-			monitor.reset();
-		}
-		broadcaster.broadcast(BroadcastEvent.Command.MONITORS_DISABLED);
-	}
-
 	/**
 	 * Recall the monitor's parameters and set the input fields.
 	 */
@@ -253,35 +235,14 @@ public final class MonitorControl extends AbstractControl implements Runnable {
 	}
 
 	/**
-	 * method to run and update monitors
-	 * 
-	 */
-	public void run() {
-		try {
-			while (loopThread.checkState()) { // loop until stopped
-				updatePeriodically();
-			} // loop until stopped
-		} catch (InterruptedException ie) {
-			LOGGER.log(Level.SEVERE, "Monitor Interupted", ie);
-		}
-		loopThreadStopped();
-	}
-
-	/**
-	 * Start monitors interval updating loop.
+	 * Start monitors interval updating, or change the interval.
 	 * 
 	 * @throws IllegalStateException
 	 *             if the monitors aren't configured yet
 	 */
 	private void startLoopThread() {
 		if (configured) {
-			if (loopThread == null) {
-				loopThread = new GoodThread(this);// defaults to RUN state
-				loopThread.setPriority(ThreadPriorities.MESSAGING);
-				loopThread.setName("Monitor Thread");
-				loopThread.setDaemon(true);
-				loopThread.start();
-			}
+			engine.start(interval * 1000L, getSmoothingSeconds());
 			broadcaster.broadcast(BroadcastEvent.Command.MONITORS_ENABLED);
 		} else {
 			throw new IllegalStateException(getClass().getName() + ".start(): "
@@ -315,21 +276,13 @@ public final class MonitorControl extends AbstractControl implements Runnable {
 		return pRow;
 	}
 
-	private void updatePeriodically() throws InterruptedException {
-		final int waitForResults = 500;
-		final int waitAfterRepaint = interval * 1000 - waitForResults;
-
-		/* read scalers and wait */
-		broadcaster.broadcast(BroadcastEvent.Command.SCALERS_READ);
-		Thread.sleep(waitForResults);
-
-		// loop for each monitor
-		for (Monitor monitor : Monitor.getMonitorList()) {
-			monitor.update();// update the monitor
-		} // end loop monitors
-
-		/* Broadcast event on UI thread */
-		SwingUtilities.invokeLater(monitorUpdate);
-		Thread.sleep(waitAfterRepaint);
+	private static double getSmoothingSeconds() {
+		try {
+			return Math.max(0.0, Double.parseDouble(JamProperties
+					.getPropString(PropertyKeys.MONITOR_SMOOTHING).trim()));
+		} catch (NumberFormatException nfe) {
+			LOGGER.log(Level.WARNING, "Monitor smoothing isn't a number.", nfe);
+			return 0.0;
+		}
 	}
 }
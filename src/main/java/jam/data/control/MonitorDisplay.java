@@ -8,6 +8,7 @@ import java.awt.Frame;
 import java.awt.GridLayout;
 import java.awt.Toolkit;
 import java.beans.PropertyChangeEvent;
+import java.util.ArrayList;
 import java.util.List;
 
 import javax.swing.JCheckBox;
@@ -17,11 +18,14 @@ import javax.swing.JScrollPane;
 import javax.swing.JToggleButton;
 import javax.swing.ScrollPaneConstants;
 import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
 import javax.swing.border.EmptyBorder;
 
 import com.google.inject.Inject;
 
 import jam.data.Monitor;
+import jam.data.MonitorEngine;
+import jam.data.MonitorSnapshot;
 import jam.global.AcquisitionStatus;
 import jam.global.BroadcastEvent;
 import jam.global.BroadcastEvent.Command;
@@ -45,6 +49,9 @@ public class MonitorDisplay extends AbstractControl {
 
 	private transient final AcquisitionStatus status;
 
+	/* in the order of the monitor list, as are the snapshots */
+	private transient final List<PlotBar> bars = new ArrayList<>();
+
 	/**
 	 * Constructs a new monitor display dialog.
 	 * 
@@ -55,12 +62,16 @@ public class MonitorDisplay extends AbstractControl {
 	 *            acquisition status
 	 * @param broadcaster
 	 *            broadcasts state changes
+	 * @param engine
+	 *            evaluates the monitors
 	 */
 	@Inject
 	public MonitorDisplay(final Frame frame, final AcquisitionStatus status,
-			final Broadcaster broadcaster) {
+			final Broadcaster broadcaster, final MonitorEngine engine) {
 		super(frame, "Monitors Disabled", false, broadcaster);
 		this.status = status;
+		engine.addListener(snapshots -> SwingUtilities
+				.invokeLater(() -> displayMonitors(snapshots)));
 		setResizable(true);
 		setLocation(20, 50);
 		final Container cddisp = this.getContentPane();
@@ -90,7 +101,8 @@ public class MonitorDisplay extends AbstractControl {
 		final JLabel labelDisp = new JLabel(monitor.getName(),
 				SwingConstants.RIGHT);
 		pMonitors.add(labelDisp);
-		final PlotBar plotBar = new PlotBar(monitor);
+		final PlotBar plotBar = new PlotBar(monitor.snapshot());
+		bars.add(plotBar);
 		pMonitors.add(plotBar);
 		return pMonitors;
 	}
@@ -100,15 +112,18 @@ public class MonitorDisplay extends AbstractControl {
 		pBars.repaint();
 	}
 
-	private void displayMonitors() {
-		// loop for each monitor check if we should sound alarm
-		for (Monitor monitor : Monitor.getMonitorList()) {
+	private void displayMonitors(final List<MonitorSnapshot> snapshots) {
+		boolean beep = false;
+		final int count = Math.min(snapshots.size(), bars.size());
+		for (int i = 0; i < count; i++) {
+			final MonitorSnapshot monitor = snapshots.get(i);
+			bars.get(i).setMonitor(monitor);
 			// If the audio on and are we taking data
-			if (checkAudio.isSelected() && this.status.isAcqOn()
-					&& monitor.isAlarmActivated() && (!monitor.isAcceptable())) {
-				Toolkit.getDefaultToolkit().beep();
-				break;
-			}
+			beep |= checkAudio.isSelected() && this.status.isAcqOn()
+					&& monitor.isAlarmActivated() && !monitor.isAcceptable();
+		}
+		if (beep) {
+			Toolkit.getDefaultToolkit().beep();
 		}
 		// display monitors
 		pBars.repaint();
@@ -123,6 +138,7 @@ public class MonitorDisplay extends AbstractControl {
 		final List<Monitor> mlist = Monitor.getMonitorList();
 		final int numberMonitors = mlist.size();
 		pBars.removeAll();
+		bars.clear();
 		for (Monitor monitor : mlist) {
 			monitorPanel = createPanel(monitor);
 		}
@@ -142,9 +158,7 @@ public class MonitorDisplay extends AbstractControl {
 	@Override
 	public void propertyChange(PropertyChangeEvent evt) {
 		final Command command = ((BroadcastEvent) evt).getCommand();
-		if (command == BroadcastEvent.Command.MONITORS_UPDATE) {
-			displayMonitors();
-		} else if (command == BroadcastEvent.Command.MONITORS_ENABLED) {
+		if (command == BroadcastEvent.Command.MONITORS_ENABLED) {
 			enableMonitors();
 		} else if (command == BroadcastEvent.Command.MONITORS_DISABLED) {
 			disableMonitors();
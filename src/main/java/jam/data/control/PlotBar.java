@@ -12,7 +12,7 @@ import java.awt.font.FontRenderContext;
 
 import javax.swing.JPanel;
 
-import jam.data.Monitor;
+import jam.data.MonitorSnapshot;
 
 /**
  * Class that is a bar graph used by monitors
@@ -42,7 +42,7 @@ public final class PlotBar extends JPanel {
 	 */
 	private static final int BAR_LENGTH = 200;
 
-	private Monitor monitor;
+	private MonitorSnapshot monitor;
 
 	static final private Dimension MIN_SIZE = new Dimension(BAR_LENGTH,
 			BAR_WIDTH);
@@ -51,9 +51,9 @@ public final class PlotBar extends JPanel {
 	 * Constructs a new bar widget for the given monitor.
 	 * 
 	 * @param inMon
-	 *            monitor to display status of
+	 *            monitor state to display
 	 */
-	public PlotBar(final Monitor inMon) {
+	public PlotBar(final MonitorSnapshot inMon) {
 		super();
 		setMonitor(inMon);
 		setBackground(SystemColor.control);
@@ -63,21 +63,21 @@ public final class PlotBar extends JPanel {
 	}
 
 	/**
-	 * Sets the monitor object which is observed by this PlotBar.
+	 * Sets the monitor state shown by this PlotBar.
 	 * 
 	 * @param inMon
-	 *            monitor object to observe
+	 *            latest state of the monitor
 	 */
-	public void setMonitor(final Monitor inMon) {
+	public void setMonitor(final MonitorSnapshot inMon) {
 		synchronized (this) {
 			monitor = inMon;
 		}
 	}
 
 	/**
-	 * @return the monitor that is plotted
+	 * @return the monitor state that is plotted
 	 */
-	public Monitor getMonitor() {
+	public MonitorSnapshot getMonitor() {
 		synchronized (this) {
 			return monitor;
 		}
@@ -26,13 +26,13 @@ import javax.swing.border.EmptyBorder;
 
 import com.google.inject.Inject;
 
+import jam.data.AbstractHist2D;
 import jam.data.AbstractHistogram;
 import jam.data.DataElement;
 import jam.data.DataException;
 import jam.data.DataUtility;
 import jam.data.Gate;
-import jam.data.HistDouble2D;
-import jam.data.HistInt2D;
+import jam.data.HistogramAlgebra;
 import jam.data.HistogramType;
 import jam.global.BroadcastEvent;
 import jam.global.Broadcaster;
@@ -310,33 +310,29 @@ public final class Projections extends AbstractManipulation implements
 	 * non-javadoc: Does the work of projecting a histogram
 	 */
 	private void project() throws DataException {
-		double[][] counts2d;
-		final AbstractHistogram hfrom = AbstractHistogram
+		final AbstractHist2D hfrom = (AbstractHist2D) AbstractHistogram
 				.getHistogram(hfromname);
-		counts2d = (hfrom.getType() == HistogramType.TWO_D_DOUBLE) ? ((HistDouble2D) hfrom)
-				.getCounts() : this.numberUtilities
-				.intToDouble2DArray(((HistInt2D) hfrom).getCounts());
 		final String name = (String) cto.getSelectedItem();
 		final Object selected = cchan.getSelectedItem();
 		final boolean between = BETWEEN.equals(selected);
 		final boolean full = FULL.equals(selected);
-		final int[] limits = setLimits(counts2d, between, full);
+		final int[] limits = setLimits(hfrom, between, full);
 		getDestinationHistogram(hfrom, name);
 		final boolean gateSelected = selected instanceof Gate;
 		final Gate gate = gateSelected ? (Gate) selected : null; // NOPMD
-		internalProject(counts2d, hfrom, limits, gateSelected, gate);
+		internalProject(hfrom, limits, gateSelected, gate);
 	}
 
-	private void internalProject(final double[][] counts2d,
-			final AbstractHistogram hfrom, final int[] limits,
-			final boolean gateSelected, final Gate gate) throws DataException {
+	private void internalProject(final AbstractHist2D hfrom,
+			final int[] limits, final boolean gateSelected, final Gate gate)
+			throws DataException {
 		double[] countsDouble;
 		final StringBuffer typeProj = new StringBuffer();
 		if (cdown.isSelected()) {
-			countsDouble = calculateXprojection(counts2d, limits, gateSelected,
+			countsDouble = calculateXprojection(hfrom, limits, gateSelected,
 					gate, typeProj);
 		} else { // cacross is true
-			countsDouble = calculateYprojection(counts2d, limits, gateSelected,
+			countsDouble = calculateYprojection(hfrom, limits, gateSelected,
 					gate, typeProj);
 		}
 		setProjectionCounts(countsDouble);
@@ -344,34 +340,36 @@ public final class Projections extends AbstractManipulation implements
 				+ hto.getFullName() + " " + typeProj);
 	}
 
-	private double[] calculateYprojection(final double[][] counts2d,
+	private double[] calculateYprojection(final AbstractHist2D hfrom,
 			final int[] limits, final boolean gateSelected, final Gate gate,
 			final StringBuffer typeProj) {
 		double[] countsDouble;
 		if (gateSelected) {
 			typeProj.append("using gate ").append(gate.getName());
-			countsDouble = projectY(counts2d, hto.getSizeX(), gate);
+			countsDouble = HistogramAlgebra.projectY(hfrom, gate.getLimits2d(),
+					hto.getSizeX());
 		} else {
 			typeProj.append("counts between X channels ").append(limits[0])
 					.append(" and ").append(limits[1]);
-			countsDouble = projectY(counts2d, hto.getSizeX(), limits[0],
-					limits[1]);
+			countsDouble = HistogramAlgebra.projectY(hfrom, limits[0],
+					limits[1], hto.getSizeX());
 		}
 		return countsDouble;
 	}
 
-	private double[] calculateXprojection(final double[][] counts2d,
+	private double[] calculateXprojection(final AbstractHist2D hfrom,
 			final int[] limits, final boolean gateSelected, final Gate gate,
 			final StringBuffer typeProj) {
 		double[] countsDouble;
 		if (gateSelected) {
 			typeProj.append("using gate ").append(gate.getName());
-			countsDouble = projectX(counts2d, hto.getSizeX(), gate);
+			countsDouble = HistogramAlgebra.projectX(hfrom, gate.getLimits2d(),
+					hto.getSizeX());
 		} else {
 			typeProj.append("counts between Y channels ").append(limits[0])
 					.append(" and ").append(limits[1]);
-			countsDouble = projectX(counts2d, hto.getSizeX(), limits[0],
-					limits[1]);
+			countsDouble = HistogramAlgebra.projectX(hfrom, limits[0],
+					limits[1], hto.getSizeX());
 		}
 		return countsDouble;
 	}
@@ -387,11 +385,11 @@ public final class Projections extends AbstractManipulation implements
 		}
 	}
 
-	private int[] setLimits(final double[][] counts2d, final boolean between,
+	private int[] setLimits(final AbstractHist2D hfrom, final boolean between,
 			final boolean full) throws DataException {
 		final int[] limits = between ? getLimits() : new int[2];
 		if (full) {
-			setLimitsFull(counts2d, limits);
+			setLimitsFull(hfrom, limits);
 		}
 		return limits;
 	}
@@ -411,67 +409,13 @@ public final class Projections extends AbstractManipulation implements
 		}
 	}
 
-	private void setLimitsFull(final double[][] counts2d, final int[] limits) {
+	private void setLimitsFull(final AbstractHist2D hfrom, final int[] limits) {
 		limits[0] = 0;
 		if (cdown.isSelected()) {
-			limits[1] = counts2d[0].length - 1;
+			limits[1] = hfrom.getSizeY() - 1;
 		} else {
-			limits[1] = counts2d.length - 1;
-		}
-	}
-
-	protected double[] projectX(final double[][] inArray, final int outLength,
-			final int _ll, final int _ul) {
-		final double[] out = new double[outLength];
-		final int lower = Math.max(0, _ll);
-		final int upper = Math.min(inArray[0].length - 1, _ul);
-		final int xul = Math.min(inArray.length, outLength);
-		for (int i = 0; i < xul; i++) {
-			for (int j = lower; j <= upper; j++) {
-				out[i] += inArray[i][j];
-			}
-		}
-		return out;
-	}
-
-	protected double[] projectY(final double[][] inArray, final int outLength,
-			final int _ll, final int _ul) {
-		double[] out = new double[outLength];
-		final int lower = Math.max(0, _ll);
-		final int upper = Math.min(inArray.length - 1, _ul);
-		final int yul = Math.min(inArray[0].length, outLength);
-		for (int i = lower; i <= upper; i++) {
-			for (int j = 0; j < yul; j++) {
-				out[j] += inArray[i][j];
-			}
-		}
-		return out;
-	}
-
-	private double[] projectX(final double[][] inArray, final int outLength,
-			final Gate gate) {
-		double[] out = new double[outLength];
-		for (int i = 0; i < inArray.length; i++) {
-			for (int j = 0; j < inArray[0].length; j++) {
-				if (gate.inGate(i, j) && i < out.length) {
-					out[i] += inArray[i][j];
-				}
-			}
-		}
-		return out;
-	}
-
-	private double[] projectY(final double[][] inArray, final int outLength,
-			final Gate gate) {
-		double[] out = new double[outLength];
-		for (int i = 0; i < inArray.length; i++) {
-			for (int j = 0; j < inArray[0].length; j++) {
-				if (gate.inGate(i, j) && j < out.length) {
-					out[j] += inArray[i][j];
-				}
-			}
+			limits[1] = hfrom.getSizeX() - 1;
 		}
-		return out;
 	}
 
 	private int[] getLimits() throws DataException {
@@ -30,6 +30,8 @@ import com.google.inject.Inject;
 import jam.data.DataBase;
 import jam.data.DataElement;
 import jam.data.Group;
+import jam.data.Scaler;
+import jam.data.ScalerStore;
 import jam.global.BroadcastEvent;
 import jam.global.BroadcastEvent.Command;
 import jam.global.BroadcastUtilities;
@@ -49,6 +51,9 @@ public final class ScalerDisplay extends AbstractControl {
 
 	private static final int BORDER_HEIGHT = 5;
 
+	/* rate history shown in tool tips */
+	private static final int RATES_SHOWN = 10;
+
 	private transient final JButton bupdate = new JButton("Read");
 
 	private transient final JButton bzero = new JButton("Zero");
@@ -64,6 +69,12 @@ public final class ScalerDisplay extends AbstractControl {
 
 	private transient final List<JTextField> textScaler = new ArrayList<>();
 
+	private transient final List<JTextField> textRate = new ArrayList<>();
+
+	private transient final long[] historyMillis = new long[RATES_SHOWN + 1];
+
+	private transient final long[] historyValues = new long[RATES_SHOWN + 1];
+
 	private transient final BroadcastUtilities broadcast;
 
 	/**
@@ -164,6 +175,44 @@ public final class ScalerDisplay extends AbstractControl {
 		return rval;
 	}
 
+	private JTextField createRateTextField() {
+		final JTextField rval = new JTextField("  ");
+		textRate.add(rval);
+		rval.setColumns(8);
+		rval.setEditable(false);
+		return rval;
+	}
+
+	/**
+	 * Shows the rate between the last two readouts, and earlier rates in the
+	 * tool tip.
+	 */
+	private void displayRate(final JTextComponent text,
+			final DataElement element) {
+		if (!(element instanceof Scaler)) {
+			text.setText("");
+			return;
+		}
+		final int count = ((Scaler) element).getHistory(historyMillis,
+				historyValues);
+		if (count < 2) {
+			text.setText("");
+			text.setToolTipText(null);
+			return;
+		}
+		final StringBuilder tip = new StringBuilder(
+				"<html>Counts/s, latest first:");
+		for (int i = count - 1; i > 0; i--) {
+			final double rate = ScalerStore.rate(historyMillis[i - 1],
+					historyValues[i - 1], historyMillis[i], historyValues[i]);
+			if (i == count - 1) {
+				text.setText(String.format("%.1f/s", rate));
+			}
+			tip.append("<br>").append(String.format("%.1f", rate));
+		}
+		text.setToolTipText(tip.append("</html>").toString());
+	}
+
 	/**
 	 * Get the values from the Scalers and display them
 	 */
@@ -178,6 +227,7 @@ public final class ScalerDisplay extends AbstractControl {
 					doSetup();
 				}
 				final Iterator<JTextField> txtIterator = textScaler.iterator();
+				final Iterator<JTextField> rateIterator = textRate.iterator();
 				for (DataElement currentScaler : currentGroup.getScalerList()) {
 					final JTextComponent text = txtIterator.next();
 					if (text == null) {
@@ -187,6 +237,7 @@ public final class ScalerDisplay extends AbstractControl {
 					text
 							.setText(String.valueOf((int) currentScaler
 									.getCount()));
+					displayRate(rateIterator.next(), currentScaler);
 				}
 			}
 		}
@@ -209,6 +260,7 @@ public final class ScalerDisplay extends AbstractControl {
 				final int numberScalers = scalerList.size();
 				pScalers.removeAll();
 				textScaler.clear();
+				textRate.clear();
 				if (numberScalers != 0) {
 					/* We have some elements in the scaler list. */
 					for (DataElement currentScaler : scalerList) {
@@ -217,6 +269,7 @@ public final class ScalerDisplay extends AbstractControl {
 						final JTextField text = createScalerTextField(currentScaler);
 						panelS.add(labelScaler);
 						panelS.add(text);
+						panelS.add(createRateTextField());
 						pScalers.add(panelS);
 					}
 				}
@@ -12,22 +12,30 @@ import java.util.Collection;
 import java.util.List;
 
 /**
- * Represents a group of peaks in a spectrum.
+ * Represents a group of peaks in a spectrum, such as those found close
+ * together by <code>PeakFinder</code>, and serves as initial guesses for
+ * <code>jam.fit.MultipletFit</code>.
  * 
  * @author <a href="mailto:dwvisser@users.sourceforge.net">Dale Visser</a>
  */
 @SuppressWarnings("serial")
-final class Multiplet extends ArrayList<Peak> {
+public final class Multiplet extends ArrayList<Peak> {
 
 	private Multiplet() {
 		super();
 	}
 
-	protected static Multiplet createMultiplet() {
+	/**
+	 * @return a new, empty multiplet
+	 */
+	public static Multiplet createMultiplet() {
 		return new Multiplet();
 	}
 
-	protected List<Double> getAllCentroids() {
+	/**
+	 * @return the centroids of the peaks in this multiplet
+	 */
+	public List<Double> getAllCentroids() {
 		final List<Double> centroids = new ArrayList<>();
 		for (Peak peak : this) {
 			centroids.add(peak.getPosition());
@@ -33,6 +33,30 @@ public final class Peak implements Comparable<Peak>, Cloneable {
 		return new Peak(position, area, width);
 	}
 
+	/**
+	 * Peak factory method, with error bars.
+	 * 
+	 * @param position
+	 *            of centroid
+	 * @param positionError
+	 *            uncertainty in position
+	 * @param area
+	 *            of peak
+	 * @param areaError
+	 *            uncertainty in area
+	 * @param width
+	 *            FWHM of peak
+	 * @param widthError
+	 *            uncertainty in FWHM
+	 * @return a new Peak object
+	 */
+	public static Peak createPeak(final double position,
+			final double positionError, final double area,
+			final double areaError, final double width, final double widthError) {
+		return new Peak(position, positionError, area, areaError, width,
+				widthError);
+	}
+
 	private transient double perr, aerr, werr;
 
 	private double position, area, width;
@@ -99,21 +123,48 @@ public final class Peak implements Comparable<Peak>, Cloneable {
 		return rval;
 	}
 
-	double getArea() {// NOPMD
+	/**
+	 * @return area of peak
+	 */
+	public double getArea() {
 		return area;
 	}
 
+	/**
+	 * @return uncertainty in area
+	 */
+	public double getAreaError() {
+		return aerr;
+	}
+
 	/**
 	 * @return centroid of peak
 	 */
-	double getPosition() {// NOPMD
+	public double getPosition() {
 		return position;
 	}
 
-	double getWidth() {// NOPMD
+	/**
+	 * @return uncertainty in centroid
+	 */
+	public double getPositionError() {
+		return perr;
+	}
+
+	/**
+	 * @return FWHM of peak
+	 */
+	public double getWidth() {
 		return width;
 	}
 
+	/**
+	 * @return uncertainty in FWHM
+	 */
+	public double getWidthError() {
+		return werr;
+	}
+
 	@Override
 	public int hashCode() {
 		return Double.valueOf(getPosition()).hashCode();
@@ -58,6 +58,28 @@ public final class PeakFinder {
 		return getCentroids();
 	}
 
+	/**
+	 * Performs the same search as <code>getCentroids()</code>, returning the
+	 * peaks grouped into multiplets of overlapping peaks, suitable as initial
+	 * guesses for a multiplet fit.
+	 * 
+	 * @param data
+	 *            spectrum to be searched
+	 * @param _sensitivity
+	 *            larger numbers (typical=3) require better defined peaks
+	 * @param _width
+	 *            typical FWHM of peaks in spectrum
+	 * @return multiplets found
+	 */
+	public List<Multiplet> getMultiplets(final double[] data,
+			final double _sensitivity, final double _width) {
+		spectrum = data.clone();
+		sensitivity = _sensitivity;
+		width = _width;
+		sigma = width / GaussianConstants.SIG_TO_FWHM;
+		return peakFind();
+	}
+
 	/**
 	 * Workhorse for peak-finding.
 	 * 
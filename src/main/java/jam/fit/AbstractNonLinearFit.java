@@ -3,11 +3,18 @@
  */
 package jam.fit;
 
+import jam.global.MessageHandler;
+
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
- * This abstract class uses LevenbergMarquadt to do non-linear parametric
+ * This abstract class uses LevenbergMarquadtSolver to do non-linear parametric
  * function fitting. An actual class should define additional parameters and add
  * them to <code>parameters</code>, It should implement <code>estimate()</code>,
- * <code>valueAt()</code>, and <code>derivative()</code>.
+ * <code>valueAt()</code>, and <code>derivative()</code>. For speed, it may
+ * also override <code>createAnalyticFunction()</code>.
  * 
  * @author Dale Visser
  * @version 0.5, 8/28/98
@@ -15,7 +22,8 @@ package jam.fit;
  * @see #valueAt
  * @see #derivative
  * @see AbstractFit
- * @see LevenbergMarquadt
+ * @see LevenbergMarquadtSolver
+ * @see FitFunction
  * @see GaussianFit
  * @see AbstractFit#estimate
  */
@@ -23,9 +31,25 @@ public abstract class AbstractNonLinearFit extends AbstractFit implements
 		NonLinearFit {
 
 	/**
-	 * does the actual matrix algebra to find the best fit
+	 * does the actual matrix algebra to find the best fit, reused between
+	 * fits
+	 */
+	protected transient LevenbergMarquadtSolver fitter;
+
+	/**
+	 * function being fitted, in the form the fitter calls
+	 */
+	private transient FitFunction function;
+
+	/**
+	 * names of the parameters handled by <code>fitter</code>
+	 */
+	private transient String[] fitNames;
+
+	/**
+	 * values of the parameters handled by <code>fitter</code>
 	 */
-	protected transient LevenbergMarquadt fitter;
+	private transient double[] fitValues;
 
 	/**
 	 * the low channel limit for the fit
@@ -97,8 +121,24 @@ public abstract class AbstractNonLinearFit extends AbstractFit implements
 	public abstract double derivative(double xValue, String parameterName);
 
 	/**
-	 * Perform fit calculation and return a status <code>String</code>. Calls
-	 * <code>LevenbergMarquadt</code> several times, which determines changes in
+	 * Returns an analytic, allocation-free form of this fit function, if one
+	 * is available. The default implementation returns <code>null</code>, in
+	 * which case the fit is driven through <code>valueAt()</code> and
+	 * <code>derivative()</code>.
+	 * 
+	 * @param names
+	 *            names of the fit parameters, in the order the returned
+	 *            function will receive their values and must fill in the
+	 *            gradient
+	 * @return analytic function, or <code>null</code>
+	 */
+	protected FitFunction createAnalyticFunction(final String[] names) {
+		return null;
+	}
+
+	/**
+	 * Perform fit calculation and return a status <code>String</code>. Uses
+	 * <code>LevenbergMarquadtSolver</code>, which determines changes in
 	 * parameter values likely to reduce chi-squared. When reductions are no
 	 * longer significant, it stops. If there is no convergence, it stops after
 	 * 10 iterations.
@@ -108,59 +148,141 @@ public abstract class AbstractNonLinearFit extends AbstractFit implements
 	 * @return message with number of iterations and degrees of freedom to fit
 	 */
 	public String doFit() throws FitException {
-		double chiSq, newChiSq;
-		int numIter = 1;
-		final int MAX_ITERATIONS = 10;
-		final int MAX_SMALL = 2; // total non- or marginal improvements
-		// before giving up
-		boolean close;
-		boolean quit;
-		int smallCounter = 0;
 		String returnVal;
-		fitter = new LevenbergMarquadt(this);
-		// function.setParameters(parameters);
 		minCH = lowChannel.getValue();
 		lowerLimit = minCH;
 		maxCH = highChannel.getValue();
 		upperLimit = maxCH;
-		fitter.setup(counts, errors, minCH, maxCH);
-
-		try {
-			fitter.iterate(LevenbergMarquadt.Iteration.FIRST_ITERATION);
-		} catch (Exception e) {
-//			returnVal = e.toString();
+		final List<Parameter<Double>> variables = getVariableParameters();
+		final int nPar = variables.size();
+		if (fitter == null || fitter.getNumberOfParameters() != nPar) {
+			fitter = new LevenbergMarquadtSolver(nPar);
+			fitValues = new double[nPar];
+			fitNames = new String[nPar];
+			function = null;
 		}
-		chiSq = fitter.getChiSq();
-		do {
-			try {
-				fitter.iterate(LevenbergMarquadt.Iteration.NEXT_ITERATION);
-			} catch (Exception e) {
-//				returnVal = e.toString();
+		for (int i = 0; i < nPar; i++) {
+			final Parameter<Double> param = variables.get(i);
+			fitter.setFixed(i, param.isFixed());
+			fitValues[i] = param.getValue();
+			if (!param.getName().equals(fitNames[i])) {
+				fitNames[i] = param.getName();
+				function = null;
 			}
-			newChiSq = fitter.getChiSq();
-			numIter++;
-			close = (Math.abs(newChiSq - chiSq) < 0.01);// didn't improve or
-			// improved marginally
-			if (close) {
-				smallCounter++;
+		}
+		if (function == null) {
+			function = createAnalyticFunction(fitNames.clone());
+			if (function == null) {
+				function = new ParameterFunction(fitNames.clone());
 			}
-			quit = ((smallCounter >= MAX_SMALL) || (numIter >= MAX_ITERATIONS));
-			chiSq = newChiSq;
-		} while (!quit);
-		// do last iteration
+		}
+		outputHeader();
 		try {
-			fitter.iterate(LevenbergMarquadt.Iteration.LAST_ITERATION);
+			final int numIter = fitter.fit(function, fitValues, counts, errors,
+					minCH, maxCH);
 			returnVal = (numIter + " iterations, d.o.f. = " + fitter
 					.getDegreesOfFreedom());
-			textInfo.messageOutln(numIter + " iterations, d.o.f. = "
-					+ fitter.getDegreesOfFreedom());
-		} catch (Exception e) {
+			outputCovariance();
+			if (textInfo != null) {
+				textInfo.messageOutln(returnVal);
+			}
+		} catch (IllegalStateException e) {
 			returnVal = e.toString();
 		}
-		this.chisq.setValue(newChiSq);
+		for (int i = 0; i < nPar; i++) {
+			final Parameter<Double> param = variables.get(i);
+			param.setValue(fitValues[i]);
+			param.setError(fitter.getParameterError(i));
+		}
+		this.chisq.setValue(fitter.getReducedChiSq());
 		return returnVal;
 	}
 
+	/**
+	 * @return the double parameters varied, or held fixed, by the fitter
+	 */
+	@SuppressWarnings("unchecked")
+	private List<Parameter<Double>> getVariableParameters() {
+		final List<Parameter<Double>> result = new ArrayList<>();
+		for (Parameter<?> param : parameters) {
+			if (param.isDouble() && !(param.isOutputOnly() || param.isKnown())) {
+				result.add((Parameter<Double>) param);
+			}
+		}
+		return result;
+	}
+
+	private void outputHeader() {
+		if (textInfo != null) {
+			textInfo.messageOut("Iteration ChiSq/dof ", MessageHandler.NEW);
+			for (String paramName : fitNames) {
+				textInfo.messageOut(paramName + " ");
+			}
+			textInfo.messageOut("", MessageHandler.END);
+			fitter.setListener(this::outputIteration);
+		} else {
+			fitter.setListener(null);
+		}
+	}
+
+	private void outputIteration(final int iteration, final double reducedChiSq,
+			final double[] params) {
+		final NumberFormat formatter = NumberFormat.getInstance();
+		formatter.setMinimumFractionDigits(3);
+		formatter.setMaximumFractionDigits(3);
+		textInfo.messageOut(iteration + " ", MessageHandler.NEW);
+		textInfo.messageOut(formatter.format(reducedChiSq) + " ");
+		for (double value : params) {
+			textInfo.messageOut(formatter.format(value) + " ");
+		}
+		textInfo.messageOut("", MessageHandler.END);
+	}
+
+	private void outputCovariance() {
+		if (textInfo != null) {
+			final NumberFormat formatter = NumberFormat.getInstance();
+			formatter.setMinimumFractionDigits(3);
+			formatter.setMaximumFractionDigits(3);
+			final StringBuilder text = new StringBuilder(
+					"\nCovariance Matrix: \n");
+			for (int row = 0; row < fitNames.length; row++) {
+				for (int column = 0; column <= row; column++) {
+					text.append(formatter.format(fitter.getCovariance(row,
+							column))).append('\t');
+				}
+				text.append('\n');
+			}
+			textInfo.messageOutln(text.toString());
+		}
+	}
+
+	/**
+	 * Adapts <code>valueAt()</code> and <code>derivative()</code> for fits
+	 * which do not supply an analytic function.
+	 */
+	private final class ParameterFunction implements FitFunction {
+
+		private transient final String[] names;
+
+		ParameterFunction(final String[] names) {
+			this.names = names;
+		}
+
+		public void setParameters(final double[] params) {
+			for (int i = 0; i < names.length; i++) {
+				setParameter(names[i], params[i]);
+			}
+		}
+
+		public double valueAndGradient(final double xValue,
+				final double[] gradient) {
+			for (int i = 0; i < names.length; i++) {
+				gradient[i] = derivative(xValue, names[i]);
+			}
+			return valueAt(xValue);
+		}
+	}
+
 	/**
 	 * Returns <code>double</code> value of parameter indicated by name.
 	 * 
@@ -0,0 +1,375 @@
+package jam.fit;
+
+import java.util.Arrays;
+
+/**
+ * A symmetric matrix whose first few rows and columns, the border, may be
+ * filled throughout, and whose remaining rows are zero outside a band about
+ * the diagonal: the curvature matrix of a fit with a few parameters shared
+ * by every point and the rest each affecting only part of the data, e.g.,
+ * the peaks of a multiplet. Only the lower triangle within that structure is
+ * stored. The banded block is factored first, and the border last through
+ * its Schur complement, so there is no fill-in, and decomposing, solving and
+ * inverting all take time growing linearly with the size of the banded
+ * block, for a given border and bandwidth.
+ * <p>
+ * Rows and columns are numbered with the border first. Storage grows as
+ * needed on <code>reset()</code>, and is otherwise reused.
+ * </p>
+ * @see SparseFitFunction
+ * @see LevenbergMarquadtSolver
+ */
+final class ArrowMatrix {
+
+    /* rows in the border, and in the banded block */
+    private transient int border, size;
+
+    /* greatest distance from the diagonal within the banded block */
+    private transient int width;
+
+    /* border against border, border * border, row by row */
+    private transient double[] corner = new double[0];
+
+    /* banded block against border, size * border, row by row */
+    private transient double[] edge = new double[0];
+
+    /* banded block, (width + 1) per row, diagonal first then leftwards */
+    private transient double[] band = new double[0];
+
+    private transient double[] work = new double[0];
+
+    ArrowMatrix() {
+        super();
+    }
+
+    /**
+     * Sets the shape, and all elements to zero.
+     * @param borderRows
+     *            rows in the border
+     * @param bandRows
+     *            rows in the banded block
+     * @param bandwidth
+     *            greatest distance from the diagonal of a non-zero element
+     *            in the banded block
+     */
+    void reset(final int borderRows, final int bandRows, final int bandwidth) {
+        border = borderRows;
+        size = bandRows;
+        width = Math.max(0, Math.min(bandwidth, bandRows - 1));
+        corner = zeroed(corner, border * border);
+        edge = zeroed(edge, size * border);
+        band = zeroed(band, size * (width + 1));
+        if (work.length < border) {
+            work = new double[border];
+        }
+    }
+
+    private static double[] zeroed(final double[] array, final int length) {
+        final double[] rval = array.length < length ? new double[length]
+                : array;
+        Arrays.fill(rval, 0, length, 0.0);
+        return rval;
+    }
+
+    /**
+     * Copies the shape and elements of another matrix.
+     * @param other
+     *            to copy
+     */
+    void copyFrom(final ArrowMatrix other) {
+        reset(other.border, other.size, other.width);
+        System.arraycopy(other.corner, 0, corner, 0, border * border);
+        System.arraycopy(other.edge, 0, edge, 0, size * border);
+        System.arraycopy(other.band, 0, band, 0, size * (width + 1));
+    }
+
+    /**
+     * @param row
+     *            row number
+     * @param column
+     *            column number
+     * @return whether the element is stored, rather than zero by structure
+     */
+    boolean isStored(final int row, final int column) {
+        return row < border || column < border
+                || Math.abs(row - column) <= width;
+    }
+
+    private int index(final int row, final int column) {
+        final int rval;
+        if (row < border) {
+            rval = row * border + column;
+        } else if (column < border) {
+            rval = (row - border) * border + column;
+        } else {
+            rval = (row - border) * (width + 1) + row - column;
+        }
+        return rval;
+    }
+
+    private double[] array(final int row, final int column) {
+        final double[] rval;
+        if (row < border) {
+            rval = corner;
+        } else if (column < border) {
+            rval = edge;
+        } else {
+            rval = band;
+        }
+        return rval;
+    }
+
+    /**
+     * Adds to an element in the lower triangle, and so to its mirror.
+     * @param row
+     *            row number
+     * @param column
+     *            column number, not greater than <code>row</code>
+     * @param value
+     *            to add
+     * @throws IllegalStateException
+     *             if the element is outside the band
+     */
+    void add(final int row, final int column, final double value) {
+        if (!isStored(row, column)) {
+            throw new IllegalStateException("Element (" + row + ", " + column
+                    + ") outside bandwidth " + width);
+        }
+        array(row, column)[index(row, column)] += value;
+    }
+
+    /**
+     * @param row
+     *            row number
+     * @param column
+     *            column number
+     * @return the element, zero if not stored
+     */
+    double get(final int row, final int column) {
+        final int high = Math.max(row, column);
+        final int low = Math.min(row, column);
+        return isStored(high, low) ? array(high, low)[index(high, low)] : 0.0;
+    }
+
+    /**
+     * Multiplies the diagonal by the given factor.
+     * @param factor
+     *            to multiply by
+     */
+    void scaleDiagonal(final double factor) {
+        for (int a = 0; a < border; a++) {
+            corner[a * border + a] *= factor;
+        }
+        for (int i = 0; i < size; i++) {
+            band[i * (width + 1)] *= factor;
+        }
+    }
+
+    /**
+     * Replaces this matrix with its Cholesky factor, L, where L
+     * L<sup>T</sup> is the matrix with the banded block ordered first. The
+     * band then holds the factor of the banded block, the edge holds that
+     * factor's inverse times the edge, and the corner holds the factor of the
+     * Schur complement of the banded block.
+     * @return <code>false</code> if the matrix was not positive definite
+     */
+    boolean decompose() {
+        final int stride = width + 1;
+        boolean rval = true;
+        for (int i = 0; rval && i < size; i++) {
+            final int rowI = i * stride;
+            final int first = Math.max(0, i - width);
+            for (int j = first; rval && j <= i; j++) {
+                final int rowJ = j * stride;
+                double sum = band[rowI + i - j];
+                for (int k = first; k < j; k++) {
+                    sum -= band[rowI + i - k] * band[rowJ + j - k];
+                }
+                if (j < i) {
+                    band[rowI + i - j] = sum / band[rowJ];
+                } else {
+                    rval = sum > 0.0;
+                    band[rowI] = Math.sqrt(sum);
+                }
+            }
+            for (int a = 0; rval && a < border; a++) {
+                double sum = edge[i * border + a];
+                for (int k = first; k < i; k++) {
+                    sum -= band[rowI + i - k] * edge[k * border + a];
+                }
+                edge[i * border + a] = sum / band[rowI];
+            }
+        }
+        for (int a = 0; rval && a < border; a++) {
+            for (int b = 0; b <= a; b++) {
+                double sum = 0.0;
+                for (int i = 0; i < size; i++) {
+                    sum += edge[i * border + a] * edge[i * border + b];
+                }
+                corner[a * border + b] -= sum;
+            }
+        }
+        for (int a = 0; rval && a < border; a++) {
+            for (int b = 0; rval && b <= a; b++) {
+                double sum = corner[a * border + b];
+                for (int c = 0; c < b; c++) {
+                    sum -= corner[a * border + c] * corner[b * border + c];
+                }
+                if (b < a) {
+                    corner[a * border + b] = sum / corner[b * border + b];
+                } else {
+                    rval = sum > 0.0;
+                    corner[a * border + a] = Math.sqrt(sum);
+                }
+            }
+        }
+        return rval;
+    }
+
+    /**
+     * Solves for x, where this matrix, once decomposed, times x is the given
+     * vector.
+     * @param vector
+     *            right-hand side on entry, solution on return, border first
+     */
+    void solve(final double[] vector) {
+        final int stride = width + 1;
+        /* forward through the banded block */
+        for (int i = 0; i < size; i++) {
+            double sum = vector[border + i];
+            for (int k = Math.max(0, i - width); k < i; k++) {
+                sum -= band[i * stride + i - k] * vector[border + k];
+            }
+            vector[border + i] = sum / band[i * stride];
+        }
+        /* then the border, forward and back */
+        for (int a = 0; a < border; a++) {
+            double sum = vector[a];
+            for (int i = 0; i < size; i++) {
+                sum -= edge[i * border + a] * vector[border + i];
+            }
+            for (int b = 0; b < a; b++) {
+                sum -= corner[a * border + b] * vector[b];
+            }
+            vector[a] = sum / corner[a * border + a];
+        }
+        for (int a = border - 1; a >= 0; a--) {
+            double sum = vector[a];
+            for (int b = a + 1; b < border; b++) {
+                sum -= corner[b * border + a] * vector[b];
+            }
+            vector[a] = sum / corner[a * border + a];
+        }
+        /* and back through the banded block */
+        for (int i = size - 1; i >= 0; i--) {
+            double sum = vector[border + i];
+            for (int a = 0; a < border; a++) {
+                sum -= edge[i * border + a] * vector[a];
+            }
+            for (int k = i + 1; k < size && k <= i + width; k++) {
+                sum -= band[k * stride + k - i] * vector[border + k];
+            }
+            vector[border + i] = sum / band[i * stride];
+        }
+    }
+
+    /**
+     * Fills the given matrix with the elements of this matrix's inverse
+     * where this matrix has stored elements, from this decomposed matrix.
+     * The banded block's are found from the factor alone, by the recurrence
+     * of Takahashi et al., without forming the rest of the inverse.
+     * @param inverse
+     *            to fill, reshaped to match
+     */
+    void invert(final ArrowMatrix inverse) {
+        inverse.reset(border, size, width);
+        final int stride = width + 1;
+        final double[] outEdge = inverse.edge;
+        final double[] outBand = inverse.band;
+        /* the banded block's inverse times the edge, into outEdge */
+        for (int a = 0; a < border; a++) {
+            for (int i = size - 1; i >= 0; i--) {
+                double sum = edge[i * border + a];
+                for (int k = i + 1; k < size && k <= i + width; k++) {
+                    sum -= band[k * stride + k - i] * outEdge[k * border + a];
+                }
+                outEdge[i * border + a] = sum / band[i * stride];
+            }
+        }
+        /* inverse of the Schur complement, for the corner */
+        for (int a = 0; a < border; a++) {
+            for (int b = 0; b < border; b++) {
+                work[b] = 0.0;
+            }
+            work[a] = 1.0;
+            for (int b = 0; b < border; b++) {
+                double sum = work[b];
+                for (int c = 0; c < b; c++) {
+                    sum -= corner[b * border + c] * work[c];
+                }
+                work[b] = sum / corner[b * border + b];
+            }
+            for (int b = border - 1; b >= 0; b--) {
+                double sum = work[b];
+                for (int c = b + 1; c < border; c++) {
+                    sum -= corner[c * border + b] * work[c];
+                }
+                work[b] = sum / corner[b * border + b];
+            }
+            for (int b = a; b < border; b++) {
+                inverse.corner[b * border + a] = work[b];
+            }
+        }
+        /* the banded block's own inverse, within the band */
+        for (int j = size - 1; j >= 0; j--) {
+            final int last = Math.min(size - 1, j + width);
+            for (int i = last; i >= j; i--) {
+                double sum = i == j ? 1.0 / band[j * stride] : 0.0;
+                for (int k = j + 1; k <= last; k++) {
+                    sum -= band[k * stride + k - j] * inverse.get(border + k,
+                            border + i);
+                }
+                outBand[i * stride + i - j] = sum / band[j * stride];
+            }
+        }
+        /* correct for the border, last rows first to keep outEdge intact */
+        for (int i = size - 1; i >= 0; i--) {
+            for (int a = 0; a < border; a++) {
+                double sum = 0.0;
+                for (int b = 0; b < border; b++) {
+                    sum += inverse.get(a, b) * outEdge[i * border + b];
+                }
+                work[a] = sum;
+            }
+            for (int j = Math.max(0, i - width); j <= i; j++) {
+                double sum = 0.0;
+                for (int a = 0; a < border; a++) {
+                    sum += work[a] * outEdge[j * border + a];
+                }
+                outBand[i * stride + i - j] += sum;
+            }
+            for (int a = 0; a < border; a++) {
+                outEdge[i * border + a] = -work[a];
+            }
+        }
+    }
+
+    /**
+     * Finds any element of the inverse, from this decomposed matrix, by
+     * solving for one column of it.
+     * @param row
+     *            row number
+     * @param column
+     *            column number
+     * @param vector
+     *            workspace, at least as long as there are rows
+     * @return the element of the inverse
+     */
+    double inverseElement(final int row, final int column,
+            final double[] vector) {
+        Arrays.fill(vector, 0, border + size, 0.0);
+        vector[column] = 1.0;
+        solve(vector);
+        return vector[row];
+    }
+}
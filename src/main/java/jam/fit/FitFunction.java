@@ -0,0 +1,32 @@
+package jam.fit;
+
+/**
+ * A fit function expressed purely in primitive values, suitable for
+ * evaluation by <code>LevenbergMarquadtSolver</code> without boxing.
+ * Implementations supply the function value and its analytic gradient with
+ * respect to every parameter at once.
+ * @see LevenbergMarquadtSolver
+ * @see AbstractNonLinearFit#createAnalyticFunction(String[])
+ */
+public interface FitFunction {
+
+    /**
+     * Called once before every pass over the fit region, so that
+     * implementations can cache anything depending only on the parameters.
+     * @param params
+     *            current parameter values, in the solver's order
+     */
+    void setParameters(double[] params);
+
+    /**
+     * Evaluates the function and its gradient at the given point, using the
+     * parameters last passed to <code>setParameters()</code>.
+     * @param xValue
+     *            value at which to evaluate
+     * @param gradient
+     *            filled with df(x)/dp for every parameter, in the solver's
+     *            order
+     * @return f(x)
+     */
+    double valueAndGradient(double xValue, double[] gradient);
+}
@@ -4,6 +4,7 @@
 package jam.fit;
 
 import java.util.Arrays;
+import java.util.List;
 
 import static jam.data.peaks.GaussianConstants.*;
 
@@ -195,6 +196,58 @@ public final class GaussianFit extends AbstractNonLinearFit {
 				* diff;
 	}
 
+	/**
+	 * Supplies the gaussian with quadratic background and its gradient in one
+	 * evaluation, computing the exponential only once per channel.
+	 */
+	@Override
+	protected FitFunction createAnalyticFunction(final String[] names) {
+		return new AnalyticGaussian(Arrays.asList(names));
+	}
+
+	private static final class AnalyticGaussian implements FitFunction {
+
+		private transient final int iArea, iCentroid, iWidth, iA, iB, iC;
+
+		private transient double area, centroid, invWidth, paramA, paramB,
+				paramC;
+
+		AnalyticGaussian(final List<String> names) {
+			iArea = names.indexOf(AREA);
+			iCentroid = names.indexOf(CENTROID);
+			iWidth = names.indexOf(WIDTH);
+			iA = names.indexOf("A");
+			iB = names.indexOf("B");
+			iC = names.indexOf("C");
+		}
+
+		public void setParameters(final double[] params) {
+			area = params[iArea];
+			centroid = params[iCentroid];
+			invWidth = 1.0 / params[iWidth];
+			paramA = params[iA];
+			paramB = params[iB];
+			paramC = params[iC];
+		}
+
+		public double valueAndGradient(final double xValue,
+				final double[] gradient) {
+			final double diff = xValue - centroid;
+			final double diffW = diff * invWidth;
+			final double exp = Math.exp(-MAGIC_B * diffW * diffW);
+			final double peak = area * invWidth * MAGIC_A * exp;
+			final double peakTerm = MAGIC_2AB * area * exp * invWidth
+					* invWidth * invWidth;
+			gradient[iArea] = MAGIC_A * invWidth * exp;
+			gradient[iCentroid] = peakTerm * diff - paramB - 2 * paramC * diff;
+			gradient[iWidth] = -peak * invWidth + peakTerm * diff * diffW;
+			gradient[iA] = 1.0;
+			gradient[iB] = diff;
+			gradient[iC] = diff * diff;
+			return paramA + paramB * diff + paramC * diff * diff + peak;
+		}
+	}
+
 	/**
 	 * Evaluates derivative with respect to <code>parameterName</code> at
 	 * <code>x</code>.
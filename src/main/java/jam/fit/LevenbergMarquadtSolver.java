@@ -0,0 +1,517 @@
+package jam.fit;
+
+import java.util.Arrays;
+
+/**
+ * Levenberg-Marquadt minimization of chi-squared working entirely on
+ * primitive arrays. Workspace is allocated on the first fit and reused, and
+ * the damped normal equations are solved by Cholesky decomposition, so one
+ * instance may be reused for any number of fits having the same number of
+ * parameters without creating garbage. Functions implementing
+ * <code>SparseFitFunction</code> have only their non-zero derivatives
+ * accumulated, into a matrix stored and factored by its border and band, so
+ * that each iteration takes time growing linearly with the number of
+ * parameters, for a given bandwidth.
+ * @see FitFunction
+ * @see SparseFitFunction
+ * @see ArrowMatrix
+ * @see AbstractNonLinearFit#doFit()
+ */
+public final class LevenbergMarquadtSolver {
+
+    /**
+     * Receives progress reports after each iteration.
+     */
+    public interface IterationListener {
+        /**
+         * @param iteration
+         *            number of iterations completed
+         * @param reducedChiSq
+         *            chi-squared per degree of freedom
+         * @param params
+         *            current best parameter values
+         */
+        void iterationDone(int iteration, double reducedChiSq, double[] params);
+    }
+
+    /**
+     * default number of iterations after which to stop if there is no
+     * convergence
+     */
+    private static final int MAX_ITERATIONS = 10;
+
+    /**
+     * total non- or marginal improvements before giving up
+     */
+    private static final int MAX_SMALL = 2;
+
+    /**
+     * change in reduced chi-squared considered marginal
+     */
+    private static final double MARGINAL = 0.01;
+
+    private static final double INITIAL_LAMBDA = 0.001;
+
+    private transient final int nPar;
+
+    private transient final boolean[] fixed;
+
+    /* indices of the parameters being varied */
+    private transient final int[] varying;
+
+    /* row in the curvature matrix of each parameter, -1 if fixed */
+    private transient final int[] rowOf;
+
+    /* parameter indices filled in by sparse functions */
+    private transient final int[] entries;
+
+    private transient int nVar;
+
+    /* varying parameters in the border of a sparse function */
+    private transient int borderRows;
+
+    /* whether the latest fit was of a sparse function */
+    private transient boolean sparse;
+
+    /* curvature matrix and gradient vector at the current best parameters */
+    private transient double[] alpha;
+
+    private transient double[] beta;
+
+    /* the same, evaluated at the trial parameters */
+    private transient double[] trialAlpha;
+
+    private transient double[] trialBeta;
+
+    /* Cholesky factor of the damped curvature matrix */
+    private transient double[] factor;
+
+    private transient final double[] delta;
+
+    private transient final double[] trial;
+
+    private transient final double[] gradient;
+
+    private transient double[] covariance;
+
+    /* the same matrices for sparse functions, by border and band */
+    private transient ArrowMatrix arrowAlpha, arrowTrial, arrowFactor,
+            arrowCovariance;
+
+    private transient double chiSq;
+
+    private transient int dof;
+
+    private transient IterationListener listener;
+
+    private transient int maxIterations = MAX_ITERATIONS;
+
+    /**
+     * Creates a solver for functions of the given number of parameters.
+     * @param numParameters
+     *            number of function parameters, fixed or not
+     */
+    public LevenbergMarquadtSolver(final int numParameters) {
+        super();
+        nPar = numParameters;
+        fixed = new boolean[nPar];
+        varying = new int[nPar];
+        rowOf = new int[nPar];
+        entries = new int[nPar];
+        beta = new double[nPar];
+        trialBeta = new double[nPar];
+        delta = new double[nPar];
+        trial = new double[nPar];
+        gradient = new double[nPar];
+    }
+
+    /* allocates the matrices for the kind of function, on first use */
+    private void allocate() {
+        if (sparse && arrowAlpha == null) {
+            arrowAlpha = new ArrowMatrix();
+            arrowTrial = new ArrowMatrix();
+            arrowFactor = new ArrowMatrix();
+            arrowCovariance = new ArrowMatrix();
+        } else if (!sparse && alpha == null) {
+            alpha = new double[nPar * nPar];
+            trialAlpha = new double[nPar * nPar];
+            factor = new double[nPar * nPar];
+            covariance = new double[nPar * nPar];
+        }
+    }
+
+    /**
+     * @return number of function parameters this solver handles
+     */
+    public int getNumberOfParameters() {
+        return nPar;
+    }
+
+    /**
+     * Sets whether the given parameter is held at its initial value.
+     * @param index
+     *            which parameter
+     * @param state
+     *            <code>true</code> to hold fixed
+     */
+    public void setFixed(final int index, final boolean state) {
+        fixed[index] = state;
+    }
+
+    /**
+     * @param listener
+     *            to be notified after each iteration, may be
+     *            <code>null</code>
+     */
+    public void setListener(final IterationListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @param iterations
+     *            number of iterations after which to stop if there is no
+     *            convergence
+     */
+    public void setMaxIterations(final int iterations) {
+        maxIterations = iterations;
+    }
+
+    /**
+     * Minimizes chi-squared over the given channel range.
+     * @param function
+     *            function to fit
+     * @param params
+     *            initial values on entry, best values on return
+     * @param counts
+     *            histogram counts
+     * @param errors
+     *            error bars on the counts
+     * @param minChannel
+     *            lower limit of the fit
+     * @param maxChannel
+     *            upper limit of the fit
+     * @return number of iterations performed
+     * @throws IllegalStateException
+     *             if the curvature matrix is singular at the minimum
+     */
+    public int fit(final FitFunction function, final double[] params,
+            final double[] counts, final double[] errors,
+            final int minChannel, final int maxChannel) {
+        sparse = function instanceof SparseFitFunction;
+        allocate();
+        final int border = sparse ? ((SparseFitFunction) function)
+                .getBorder() : 0;
+        nVar = 0;
+        borderRows = 0;
+        for (int i = 0; i < nPar; i++) {
+            if (fixed[i]) {
+                rowOf[i] = -1;
+            } else {
+                varying[nVar] = i;
+                rowOf[i] = nVar;
+                nVar++;
+                if (i < border) {
+                    borderRows++;
+                }
+            }
+        }
+        dof = maxChannel - minChannel + 1 - nVar;
+        double lambda = INITIAL_LAMBDA;
+        chiSq = curvature(function, params, counts, errors, minChannel,
+                maxChannel, false);
+        double reduced = getReducedChiSq();
+        int numIter = 0;
+        int smallCounter = 0;
+        do {
+            boolean improved = false;
+            if (solveDamped(lambda)) {
+                System.arraycopy(params, 0, trial, 0, nPar);
+                for (int r = 0; r < nVar; r++) {
+                    trial[varying[r]] += delta[r];
+                }
+                final double trialChiSq = curvature(function, trial, counts,
+                        errors, minChannel, maxChannel, true);
+                improved = trialChiSq < chiSq;
+                if (improved) {
+                    swapTrial();
+                    System.arraycopy(trial, 0, params, 0, nPar);
+                    chiSq = trialChiSq;
+                }
+            }
+            lambda = improved ? lambda * 0.1 : lambda * 10.0;
+            numIter++;
+            final double newReduced = getReducedChiSq();
+            if (Math.abs(newReduced - reduced) < MARGINAL) {
+                smallCounter++;
+            }
+            reduced = newReduced;
+            if (listener != null) {
+                listener.iterationDone(numIter, reduced, params);
+            }
+        } while (smallCounter < MAX_SMALL && numIter < maxIterations);
+        invertCurvature();
+        return numIter;
+    }
+
+    private void swapTrial() {
+        final double[] tempAlpha = alpha;
+        alpha = trialAlpha;
+        trialAlpha = tempAlpha;
+        final ArrowMatrix tempArrow = arrowAlpha;
+        arrowAlpha = arrowTrial;
+        arrowTrial = tempArrow;
+        final double[] tempBeta = beta;
+        beta = trialBeta;
+        trialBeta = tempBeta;
+    }
+
+    /**
+     * Calculates the curvature matrix, gradient vector and chi-squared for
+     * the given parameters, as in Numerical Recipes in C 15.5, into the
+     * trial or current matrix and vector.
+     */
+    private double curvature(final FitFunction function,
+            final double[] params, final double[] counts,
+            final double[] errors, final int minChannel,
+            final int maxChannel, final boolean forTrial) {
+        final double[] vector = forTrial ? trialBeta : beta;
+        Arrays.fill(vector, 0, nVar, 0.0);
+        function.setParameters(params);
+        final double sum;
+        if (sparse) {
+            final SparseFitFunction sparseFit = (SparseFitFunction) function;
+            final ArrowMatrix matrix = forTrial ? arrowTrial : arrowAlpha;
+            matrix.reset(borderRows, nVar - borderRows, sparseFit
+                    .getBandwidth());
+            sum = sparseSums(sparseFit, counts, errors, minChannel,
+                    maxChannel, matrix, vector);
+        } else {
+            final double[] matrix = forTrial ? trialAlpha : alpha;
+            Arrays.fill(matrix, 0, nVar * nVar, 0.0);
+            sum = denseSums(function, counts, errors, minChannel, maxChannel,
+                    matrix, vector);
+            /* fill in the symmetric side */
+            for (int r = 1; r < nVar; r++) {
+                for (int c = 0; c < r; c++) {
+                    matrix[c * nVar + r] = matrix[r * nVar + c];
+                }
+            }
+        }
+        return sum;
+    }
+
+    /* accumulates the lower triangle, returning chi-squared */
+    private double denseSums(final FitFunction function,
+            final double[] counts, final double[] errors,
+            final int minChannel, final int maxChannel, final double[] matrix,
+            final double[] vector) {
+        double sum = 0.0;
+        for (int i = minChannel; i <= maxChannel; i++) {
+            final double deltaY = counts[i]
+                    - function.valueAndGradient(i, gradient);
+            final double sig2i = 1.0 / (errors[i] * errors[i]);
+            sum += deltaY * deltaY * sig2i;
+            for (int r = 0; r < nVar; r++) {
+                final double weight = gradient[varying[r]] * sig2i;
+                final int offset = r * nVar;
+                for (int c = 0; c <= r; c++) {
+                    matrix[offset + c] += weight * gradient[varying[c]];
+                }
+                vector[r] += deltaY * weight;
+            }
+        }
+        return sum;
+    }
+
+    /* accumulates the lower triangle, returning chi-squared */
+    private double sparseSums(final SparseFitFunction function,
+            final double[] counts, final double[] errors,
+            final int minChannel, final int maxChannel,
+            final ArrowMatrix matrix, final double[] vector) {
+        double sum = 0.0;
+        for (int i = minChannel; i <= maxChannel; i++) {
+            final double deltaY = counts[i]
+                    - function.valueAndGradient(i, gradient, entries);
+            final double sig2i = 1.0 / (errors[i] * errors[i]);
+            sum += deltaY * deltaY * sig2i;
+            int count = 0;
+            while (count < nPar && entries[count] >= 0) {
+                count++;
+            }
+            for (int j = 0; j < count; j++) {
+                final int row = rowOf[entries[j]];
+                if (row >= 0) {
+                    final double weight = gradient[j] * sig2i;
+                    vector[row] += deltaY * weight;
+                    for (int k = 0; k <= j; k++) {
+                        final int column = rowOf[entries[k]];
+                        if (column >= 0) {
+                            final double term = weight * gradient[k];
+                            if (column <= row) {
+                                matrix.add(row, column, term);
+                            } else {
+                                matrix.add(column, row, term);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Solves (alpha + lambda diag(alpha)) delta = beta.
+     * @return <code>false</code> if the damped matrix was not positive
+     *         definite
+     */
+    private boolean solveDamped(final double lambda) {
+        if (sparse) {
+            arrowFactor.copyFrom(arrowAlpha);
+            arrowFactor.scaleDiagonal(1.0 + lambda);
+            final boolean rval = arrowFactor.decompose();
+            if (rval) {
+                System.arraycopy(beta, 0, delta, 0, nVar);
+                arrowFactor.solve(delta);
+            }
+            return rval;
+        }
+        System.arraycopy(alpha, 0, factor, 0, nVar * nVar);
+        for (int r = 0; r < nVar; r++) {
+            factor[r * nVar + r] *= 1.0 + lambda;
+        }
+        final boolean rval = decompose();
+        if (rval) {
+            System.arraycopy(beta, 0, delta, 0, nVar);
+            substitute(delta);
+        }
+        return rval;
+    }
+
+    /**
+     * Replaces the lower triangle of <code>factor</code> with its Cholesky
+     * factor L, where L L<sup>T</sup> = factor.
+     */
+    private boolean decompose() {
+        boolean rval = true;
+        for (int j = 0; rval && j < nVar; j++) {
+            final int rowJ = j * nVar;
+            double sum = factor[rowJ + j];
+            for (int k = 0; k < j; k++) {
+                sum -= factor[rowJ + k] * factor[rowJ + k];
+            }
+            rval = sum > 0.0;
+            if (rval) {
+                final double diagonal = Math.sqrt(sum);
+                factor[rowJ + j] = diagonal;
+                for (int i = j + 1; i < nVar; i++) {
+                    final int rowI = i * nVar;
+                    double term = factor[rowI + j];
+                    for (int k = 0; k < j; k++) {
+                        term -= factor[rowI + k] * factor[rowJ + k];
+                    }
+                    factor[rowI + j] = term / diagonal;
+                }
+            }
+        }
+        return rval;
+    }
+
+    /**
+     * Solves L L<sup>T</sup> x = b in place using the decomposed factor.
+     */
+    private void substitute(final double[] vector) {
+        for (int i = 0; i < nVar; i++) {
+            final int rowI = i * nVar;
+            double sum = vector[i];
+            for (int k = 0; k < i; k++) {
+                sum -= factor[rowI + k] * vector[k];
+            }
+            vector[i] = sum / factor[rowI + i];
+        }
+        for (int i = nVar - 1; i >= 0; i--) {
+            double sum = vector[i];
+            for (int k = i + 1; k < nVar; k++) {
+                sum -= factor[k * nVar + i] * vector[k];
+            }
+            vector[i] = sum / factor[i * nVar + i];
+        }
+    }
+
+    /**
+     * Inverts the undamped curvature matrix into the covariance matrix,
+     * expanded to include the fixed parameters with zero entries. For sparse
+     * functions, only the elements within the border and band are found, and
+     * the factor kept to find any others asked for.
+     */
+    private void invertCurvature() {
+        if (sparse) {
+            arrowFactor.copyFrom(arrowAlpha);
+            if (!arrowFactor.decompose()) {
+                throw new IllegalStateException(
+                        "Singular curvature matrix, cannot estimate errors.");
+            }
+            arrowFactor.invert(arrowCovariance);
+            return;
+        }
+        Arrays.fill(covariance, 0.0);
+        System.arraycopy(alpha, 0, factor, 0, nVar * nVar);
+        if (!decompose()) {
+            throw new IllegalStateException(
+                    "Singular curvature matrix, cannot estimate errors.");
+        }
+        for (int c = 0; c < nVar; c++) {
+            Arrays.fill(delta, 0, nVar, 0.0);
+            delta[c] = 1.0;
+            substitute(delta);
+            for (int r = 0; r < nVar; r++) {
+                covariance[varying[r] * nPar + varying[c]] = delta[r];
+            }
+        }
+    }
+
+    /**
+     * @return chi-squared per degree of freedom of the latest iteration
+     */
+    public double getReducedChiSq() {
+        return chiSq / dof;
+    }
+
+    /**
+     * @return degrees of freedom of the latest fit
+     */
+    public int getDegreesOfFreedom() {
+        return dof;
+    }
+
+    /**
+     * @param index
+     *            which parameter
+     * @return estimated error of the parameter, zero if it was fixed
+     */
+    public double getParameterError(final int index) {
+        return Math.sqrt(getCovariance(index, index));
+    }
+
+    /**
+     * @param row
+     *            first parameter index
+     * @param column
+     *            second parameter index
+     * @return element of the covariance matrix from the latest fit
+     */
+    public double getCovariance(final int row, final int column) {
+        final double rval;
+        if (!sparse) {
+            rval = covariance == null ? 0.0 : covariance[row * nPar + column];
+        } else if (rowOf[row] < 0 || rowOf[column] < 0) {
+            rval = 0.0;
+        } else if (arrowCovariance.isStored(rowOf[row], rowOf[column])) {
+            rval = arrowCovariance.get(rowOf[row], rowOf[column]);
+        } else {
+            rval = arrowFactor.inverseElement(rowOf[row], rowOf[column],
+                    delta);
+        }
+        return rval;
+    }
+}
@@ -0,0 +1,376 @@
+package jam.fit;
+
+import static jam.data.peaks.GaussianConstants.MAGIC_2AB;
+import static jam.data.peaks.GaussianConstants.MAGIC_A;
+import static jam.data.peaks.GaussianConstants.MAGIC_B;
+import jam.data.peaks.Multiplet;
+import jam.data.peaks.Peak;
+
+import java.util.Arrays;
+
+/**
+ * Fits a multiplet of overlapping gaussian peaks on a common polynomial
+ * background, starting from the peaks in a <code>Multiplet</code>, e.g., as
+ * found by <code>PeakFinder.getMultiplets()</code>. All peaks share a single
+ * FWHM, or optionally a FWHM varying linearly with channel, so only two
+ * parameters per peak, area and centroid, are free. A peak's contribution is
+ * neglected beyond a few FWHM of its centroid, so each channel's gradient
+ * has only a handful of non-zero elements, and each peak's parameters are
+ * coupled only to the background, the width and the peaks near it. The
+ * curvature matrix is then banded but for the shared parameters, and both
+ * filling it and solving the damped normal equations take time growing only
+ * linearly with the number of peaks, for a given density of peaks.
+ * <p>
+ * The background is A+B(x-R)+C(x-R)<sup>2</sup>, and the FWHM is
+ * W+S(x-R), where R is the mean of the initial centroids.
+ * </p>
+ * @see jam.data.peaks.PeakFinder#getMultiplets(double[], double, double)
+ * @see LevenbergMarquadtSolver
+ */
+public final class MultipletFit {
+
+    /**
+     * How the peak widths are constrained.
+     */
+    public enum WidthMode {
+        /**
+         * all peaks have the same FWHM
+         */
+        SHARED,
+
+        /**
+         * FWHM varies linearly with centroid
+         */
+        LINEAR
+    }
+
+    /* indices of the shared parameters */
+    private static final int A = 0, B = 1, C = 2, WIDTH = 3, SLOPE = 4;
+
+    /* number of shared parameters, the peak parameters follow */
+    private static final int SHARED = 5;
+
+    /**
+     * Number of FWHM from its centroid beyond which a peak's contribution is
+     * neglected, where it is below 1E-10 of the peak height.
+     */
+    private static final double WINDOW = 3.0;
+
+    private transient final int numPeaks;
+
+    private transient final double reference;
+
+    private transient final double[] params;
+
+    private transient final LevenbergMarquadtSolver solver;
+
+    private transient final Function function;
+
+    /**
+     * Creates a fit for the given peaks, with a linear background.
+     * @param multiplet
+     *            initial guesses for centroids, areas and widths
+     * @param mode
+     *            how to constrain the widths
+     */
+    public MultipletFit(final Multiplet multiplet, final WidthMode mode) {
+        super();
+        if (multiplet.isEmpty()) {
+            throw new IllegalArgumentException("No peaks to fit.");
+        }
+        numPeaks = multiplet.size();
+        params = new double[SHARED + 2 * numPeaks];
+        double sumCentroids = 0.0;
+        double sumWidths = 0.0;
+        for (int i = 0; i < numPeaks; i++) {
+            final Peak peak = multiplet.get(i);
+            params[area(i)] = peak.getArea();
+            params[centroid(i)] = peak.getPosition();
+            sumCentroids += peak.getPosition();
+            sumWidths += peak.getWidth();
+        }
+        reference = sumCentroids / numPeaks;
+        params[WIDTH] = sumWidths / numPeaks;
+        solver = new LevenbergMarquadtSolver(params.length);
+        solver.setMaxIterations(10 + 2 * numPeaks);
+        solver.setFixed(SLOPE, mode == WidthMode.SHARED);
+        solver.setFixed(C, true);
+        function = new Function(numPeaks, reference);
+    }
+
+    private static int area(final int peak) {
+        return SHARED + 2 * peak;
+    }
+
+    private static int centroid(final int peak) {
+        return SHARED + 2 * peak + 1;
+    }
+
+    /**
+     * @param order
+     *            0, 1 or 2 for a constant, linear or quadratic background
+     */
+    public void setBackgroundOrder(final int order) {
+        if (order < 0 || order > 2) {
+            throw new IllegalArgumentException("Background order must be 0-2: "
+                    + order);
+        }
+        solver.setFixed(B, order < 1);
+        solver.setFixed(C, order < 2);
+        if (order < 1) {
+            params[B] = 0.0;
+        }
+        if (order < 2) {
+            params[C] = 0.0;
+        }
+    }
+
+    /**
+     * @return a fit region extending a few FWHM beyond the outermost peaks
+     */
+    public int[] getDefaultLimits() {
+        double low = Double.MAX_VALUE;
+        double high = -Double.MAX_VALUE;
+        for (int i = 0; i < numPeaks; i++) {
+            low = Math.min(low, params[centroid(i)]);
+            high = Math.max(high, params[centroid(i)]);
+        }
+        final double margin = 2.0 * params[WIDTH];
+        return new int[] { (int) Math.floor(low - margin),
+                (int) Math.ceil(high + margin) };
+    }
+
+    /**
+     * Performs the fit. The background is initially estimated from the
+     * counts at the limits.
+     * @param counts
+     *            histogram counts
+     * @param errors
+     *            error bars on the counts
+     * @param low
+     *            lower limit of fit
+     * @param high
+     *            upper limit of fit
+     * @return message with number of iterations and degrees of freedom
+     * @throws FitException
+     *             if the limits are outside the histogram or the fit fails
+     */
+    public String doFit(final double[] counts, final double[] errors,
+            final int low, final int high) throws FitException {
+        if (low < 0 || high >= counts.length || low >= high) {
+            throw new FitException("Fit limits out of range: " + low + " to "
+                    + high);
+        }
+        params[A] = (counts[low] + counts[high]) * 0.5;
+        final int numIter;
+        try {
+            numIter = solver.fit(function, params, counts, errors, low, high);
+        } catch (IllegalStateException ise) {
+            throw new FitException(ise.getMessage(), ise);
+        }
+        return numIter + " iterations, d.o.f. = "
+                + solver.getDegreesOfFreedom();
+    }
+
+    /**
+     * @return the fitted peaks, with uncertainties
+     */
+    public Multiplet getMultiplet() {
+        final Multiplet rval = Multiplet.createMultiplet();
+        final double widthVar = solver.getCovariance(WIDTH, WIDTH);
+        final double slopeVar = solver.getCovariance(SLOPE, SLOPE);
+        final double widthSlopeCov = solver.getCovariance(WIDTH, SLOPE);
+        for (int i = 0; i < numPeaks; i++) {
+            final double offset = params[centroid(i)] - reference;
+            final double width = params[WIDTH] + params[SLOPE] * offset;
+            final double widthError = Math.sqrt(widthVar + offset * offset
+                    * slopeVar + 2.0 * offset * widthSlopeCov);
+            rval.add(Peak.createPeak(params[centroid(i)], solver
+                    .getParameterError(centroid(i)), params[area(i)], solver
+                    .getParameterError(area(i)), width, widthError));
+        }
+        return rval;
+    }
+
+    /**
+     * @return chi-squared per degree of freedom of the last fit
+     */
+    public double getReducedChiSq() {
+        return solver.getReducedChiSq();
+    }
+
+    /**
+     * @param channel
+     *            where to evaluate
+     * @return background plus all peaks at the given channel
+     */
+    public double calculate(final int channel) {
+        function.setParameters(params);
+        return function.valueAt(channel);
+    }
+
+    /**
+     * @param channel
+     *            where to evaluate
+     * @return background at the given channel
+     */
+    public double calculateBackground(final int channel) {
+        final double diff = channel - reference;
+        return params[A] + params[B] * diff + params[C] * diff * diff;
+    }
+
+    /**
+     * Sum of gaussians on a polynomial background, reporting only the
+     * derivatives with respect to the shared parameters and the peaks near
+     * each channel.
+     */
+    private static final class Function implements SparseFitFunction {
+
+        private transient final int numPeaks;
+
+        private transient final double reference;
+
+        private transient final double[] values;
+
+        /* peak indices ordered by centroid */
+        private transient final int[] order;
+
+        private transient final double[] sortedCentroids;
+
+        private transient final double[] scratch;
+
+        private transient final int[] scratchIndices;
+
+        private transient double window;
+
+        private transient int bandwidth;
+
+        Function(final int numPeaks, final double reference) {
+            this.numPeaks = numPeaks;
+            this.reference = reference;
+            values = new double[SHARED + 2 * numPeaks];
+            order = new int[numPeaks];
+            sortedCentroids = new double[numPeaks];
+            scratch = new double[SHARED + 2 * numPeaks];
+            scratchIndices = new int[SHARED + 2 * numPeaks];
+            for (int i = 0; i < numPeaks; i++) {
+                order[i] = i;
+            }
+        }
+
+        public void setParameters(final double[] params) {
+            System.arraycopy(params, 0, values, 0, values.length);
+            /* nearly sorted already, so insertion sort is cheap */
+            for (int i = 1; i < numPeaks; i++) {
+                final int peak = order[i];
+                int j = i - 1;
+                while (j >= 0
+                        && values[centroid(order[j])] > values[centroid(peak)]) {
+                    order[j + 1] = order[j];
+                    j--;
+                }
+                order[j + 1] = peak;
+            }
+            double maxWidth = 0.0;
+            for (int i = 0; i < numPeaks; i++) {
+                sortedCentroids[i] = values[centroid(order[i])];
+                maxWidth = Math.max(maxWidth, Math.abs(width(order[i])));
+            }
+            window = WINDOW * maxWidth;
+            /* peaks are both near some channel if within two windows */
+            final double reach = 2.0 * window;
+            int apart = 0;
+            for (int i = 0; i < numPeaks; i++) {
+                int j = i + 1;
+                while (j < numPeaks
+                        && sortedCentroids[j] <= sortedCentroids[i] + reach) {
+                    apart = Math.max(apart, Math.abs(order[j] - order[i]));
+                    j++;
+                }
+            }
+            bandwidth = 2 * apart + 1;
+        }
+
+        public int getBorder() {
+            return SHARED;
+        }
+
+        public int getBandwidth() {
+            return bandwidth;
+        }
+
+        private double width(final int peak) {
+            return values[WIDTH] + values[SLOPE]
+                    * (values[centroid(peak)] - reference);
+        }
+
+        double valueAt(final double xValue) {
+            return valueAndGradient(xValue, scratch, scratchIndices);
+        }
+
+        public double valueAndGradient(final double xValue,
+                final double[] gradient, final int[] indices) {
+            final double diffR = xValue - reference;
+            double value = values[A] + values[B] * diffR + values[C] * diffR
+                    * diffR;
+            indices[A] = A;
+            gradient[A] = 1.0;
+            indices[B] = B;
+            gradient[B] = diffR;
+            indices[C] = C;
+            gradient[C] = diffR * diffR;
+            indices[WIDTH] = WIDTH;
+            indices[SLOPE] = SLOPE;
+            double dWidth = 0.0;
+            double dSlope = 0.0;
+            int count = SHARED;
+            int first = Arrays.binarySearch(sortedCentroids, xValue - window);
+            if (first < 0) {
+                first = -first - 1;
+            }
+            for (int i = first; i < numPeaks
+                    && sortedCentroids[i] <= xValue + window; i++) {
+                final int peak = order[i];
+                final double offset = values[centroid(peak)] - reference;
+                final double invWidth = 1.0 / width(peak);
+                final double diff = xValue - values[centroid(peak)];
+                final double diffW = diff * invWidth;
+                final double exp = Math.exp(-MAGIC_B * diffW * diffW);
+                final double signal = values[area(peak)] * invWidth * MAGIC_A
+                        * exp;
+                final double peakTerm = MAGIC_2AB * values[area(peak)] * exp
+                        * invWidth * invWidth * invWidth;
+                /* d(signal)/d(FWHM) */
+                final double byWidth = -signal * invWidth + peakTerm * diff
+                        * diffW;
+                value += signal;
+                dWidth += byWidth;
+                dSlope += byWidth * offset;
+                indices[count] = area(peak);
+                gradient[count] = MAGIC_A * invWidth * exp;
+                count++;
+                indices[count] = centroid(peak);
+                gradient[count] = peakTerm * diff + byWidth * values[SLOPE];
+                count++;
+            }
+            gradient[WIDTH] = dWidth;
+            gradient[SLOPE] = dSlope;
+            if (count < indices.length) {
+                indices[count] = -1;
+            }
+            return value;
+        }
+
+        public double valueAndGradient(final double xValue,
+                final double[] gradient) {
+            Arrays.fill(gradient, 0.0);
+            final double value = valueAndGradient(xValue, scratch,
+                    scratchIndices);
+            for (int i = 0; i < scratchIndices.length
+                    && scratchIndices[i] >= 0; i++) {
+                gradient[scratchIndices[i]] = scratch[i];
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package jam.fit;
+
+/**
+ * A fit function whose gradient at any one point has only a few non-zero
+ * elements, e.g., a sum of peaks on a shared background. The parameters are
+ * ordered with those that may affect any point, the border, first, and the
+ * rest so that those affecting the same point are never far apart. The
+ * solver then accumulates only the non-zero products into a curvature matrix
+ * stored by its border and band, so the cost per channel depends on how many
+ * parameters affect that channel, and the cost of solving for each step on
+ * the bandwidth, rather than on the total number of parameters.
+ * @see LevenbergMarquadtSolver
+ */
+public interface SparseFitFunction extends FitFunction {
+
+    /**
+     * Evaluates the function and the non-zero elements of its gradient at
+     * the given point, using the parameters last passed to
+     * <code>setParameters()</code>.
+     * @param xValue
+     *            value at which to evaluate
+     * @param gradient
+     *            filled with df(x)/dp for the parameters listed in
+     *            <code>indices</code>
+     * @param indices
+     *            filled with the indices of the parameters with non-zero
+     *            derivative, followed by -1 if fewer than its length, with
+     *            no index repeated
+     * @return f(x)
+     */
+    double valueAndGradient(double xValue, double[] gradient, int[] indices);
+
+    /**
+     * @return number of leading parameters that may have non-zero
+     *         derivatives anywhere
+     */
+    int getBorder();
+
+    /**
+     * Returns the greatest difference in index between two parameters after
+     * the border that may both have non-zero derivatives at the same point,
+     * using the parameters last passed to <code>setParameters()</code>.
+     * @return the bandwidth, at least zero
+     */
+    int getBandwidth();
+}
@@ -69,9 +69,6 @@ public final class BroadcastEvent extends PropertyChangeEvent {
 		 */
 		MONITORS_DISABLED,
 
-		/** Please update the monitors. */
-		MONITORS_UPDATE,
-
 		/** A gate has been selected for display. */
 		GATE_SELECT,
 		/** A gate has been added. */
@@ -0,0 +1,165 @@
+package jam.global;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Remembers, between runs of Jam, which classes were found by a search for
+ * subclasses, so that the search needn't load every class it looks at again.
+ * Each entry is stored with a fingerprint of what was searched, made from the
+ * names, sizes and modification times of the class files, or of the jar file,
+ * and is used only while the fingerprint still matches.
+ *
+ * @see RuntimeSubclassIdentifier
+ */
+public final class ClassIndex {
+
+    private static final Logger LOGGER = Logger.getLogger(ClassIndex.class
+            .getPackage().getName());
+
+    private static final char FINGERPRINT_END = ';';
+
+    private static final String NAME_SEPARATOR = ",";
+
+    private transient final File file;
+
+    private transient final Properties entries = new Properties();
+
+    private transient boolean loaded = false;
+
+    /**
+     * @param file
+     *            where the index is kept, created when first needed
+     */
+    public ClassIndex(final File file) {
+        super();
+        this.file = file;
+    }
+
+    /**
+     * Makes a fingerprint of the class files in a directory, and optionally
+     * in its sub-directories, or of a jar file.
+     *
+     * @param path
+     *            directory or jar file
+     * @param recurse
+     *            whether to include sub-directories
+     * @return fingerprint, which changes when a class file is added, removed
+     *         or rewritten
+     */
+    public static long fingerprint(final File path, final boolean recurse) {
+        final CRC32 crc = new CRC32();
+        addToFingerprint(crc, path, recurse, true);
+        return crc.getValue();
+    }
+
+    private static void addToFingerprint(final CRC32 crc, final File path,
+            final boolean recurse, final boolean top) {
+        update(crc, path);
+        if (path.isDirectory() && (top || recurse)) {
+            final File[] list = path.listFiles();
+            if (list != null) {
+                Arrays.sort(list);
+                for (File child : list) {
+                    if (child.isDirectory()) {
+                        if (recurse) {
+                            addToFingerprint(crc, child, true, false);
+                        }
+                    } else if (child.getName().endsWith(".class")) {
+                        update(crc, child);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void update(final CRC32 crc, final File file) {
+        crc.update(file.getName().getBytes(StandardCharsets.UTF_8));
+        final long[] values = {file.length(), file.lastModified() };
+        for (long value : values) {
+            for (int shift = 0; shift < Long.SIZE; shift += Byte.SIZE) {
+                crc.update((int) (value >>> shift));
+            }
+        }
+    }
+
+    /**
+     * @param key
+     *            identifies the search
+     * @param fingerprint
+     *            of what would be searched now
+     * @return the class names found by the search, or <code>null</code> if it
+     *         hasn't been done, or was done when the fingerprint differed
+     */
+    public synchronized List<String> get(final String key,
+            final long fingerprint) {
+        load();
+        final String value = entries.getProperty(key);
+        if (value == null) {
+            return null;
+        }
+        final int end = value.indexOf(FINGERPRINT_END);
+        if (end < 0 || !Long.toHexString(fingerprint).equals(
+                value.substring(0, end))) {
+            return null;
+        }
+        final String names = value.substring(end + 1);
+        final List<String> rval = new ArrayList<>();
+        if (!names.isEmpty()) {
+            Collections.addAll(rval, names.split(NAME_SEPARATOR));
+        }
+        return rval;
+    }
+
+    /**
+     * Remembers the result of a search, and saves the index.
+     *
+     * @param key
+     *            identifies the search
+     * @param fingerprint
+     *            of what was searched
+     * @param names
+     *            of the classes found
+     */
+    public synchronized void put(final String key, final long fingerprint,
+            final Collection<String> names) {
+        load();
+        entries.setProperty(key, Long.toHexString(fingerprint)
+                + FINGERPRINT_END + String.join(NAME_SEPARATOR, names));
+        try (OutputStream output = new FileOutputStream(file)) {
+            entries.store(output, "Jam class index");
+        } catch (IOException ioe) {
+            LOGGER.log(Level.WARNING, "Couldn't save class index to "
+                    + file.getPath() + ".", ioe);
+        }
+    }
+
+    private void load() {
+        if (!loaded) {
+            loaded = true;
+            if (file.isFile()) {
+                try (InputStream input = new FileInputStream(file)) {
+                    entries.load(input);
+                } catch (IOException | IllegalArgumentException e) {
+                    LOGGER.log(Level.WARNING, "Couldn't read class index from "
+                            + file.getPath() + ".", e);
+                    entries.clear();
+                }
+            }
+        }
+    }
+}
@@ -371,6 +371,12 @@ public final class JamProperties {
 		PROPERTIES.setProperty(PropertyKeys.TARGET_PORT, "5003");
 		PROPERTIES.setProperty(PropertyKeys.HOST_DATA_IP, "localhost");
 		PROPERTIES.setProperty(PropertyKeys.HOST_DATA_P_RECV, "10205");
+		PROPERTIES.setProperty(PropertyKeys.HOST_DATA_P_RECV_MORE, "");
+		PROPERTIES.setProperty(PropertyKeys.HOST_DATA_SEQUENCE, "");
+		PROPERTIES.setProperty(PropertyKeys.HOST_DATA_REORDER, "8");
+		PROPERTIES.setProperty(PropertyKeys.METRICS_PORT, "");
+		PROPERTIES.setProperty(PropertyKeys.REMOTE_IP, "localhost");
+		PROPERTIES.setProperty(PropertyKeys.REMOTE_MAX_VIEWERS, "8");
 	}
 
 	/**
@@ -387,8 +393,11 @@ public final class JamProperties {
 		PROPERTIES.setProperty(PropertyKeys.EVENT_OUTPATH, new File(USERHOME,
 				"events").getPath());
 		PROPERTIES.setProperty(PropertyKeys.EVENT_OUTFILE, "sortout.evn");
+		PROPERTIES.setProperty(PropertyKeys.EVENT_COMPRESS, "false");
+		PROPERTIES.setProperty(PropertyKeys.EVENT_CACHE, "false");
 		PROPERTIES.setProperty(PropertyKeys.LOG_PATH,
 				new File(USERHOME).getPath());
+		PROPERTIES.setProperty(PropertyKeys.MONITOR_SMOOTHING, "3");
 		PROPERTIES.setProperty(PropertyKeys.EVENT_INSTREAM,
 				"jam.sort.stream.YaleCAEN_InputStream");
 		PROPERTIES.setProperty(PropertyKeys.EVENT_OUTSTREAM,
@@ -9,6 +9,21 @@ public final class PropertyKeys {
 		super();
 	}
 	
+	/**
+	 * Whether to cache the events decoded from files sorted offline, to sort
+	 * them faster the next time.
+	 * 
+	 * @see jam.sort.stream.EventCache
+	 */
+	public static final String EVENT_CACHE = "event.cache";
+
+	/**
+	 * Whether to compress event files written online.
+	 * 
+	 * @see jam.sort.stream.CompressedEventFile
+	 */
+	public static final String EVENT_COMPRESS = "event.compress";
+
 	/**
 	 * Default path to look in for event files to sort offline.
 	 */
@@ -60,6 +75,24 @@ public final class PropertyKeys {
 	 */
 	public static final String HOST_DATA_P_RECV = "host-data.portRecv";
 
+	/**
+	 * Comma-separated port numbers of further sockets to receive data on,
+	 * e.g., from additional front ends.
+	 */
+	public static final String HOST_DATA_P_RECV_MORE = "host-data.portsRecvMore";
+
+	/**
+	 * Byte offset of the sequence number in each buffer received, if not the
+	 * event format's own; -1 turns sequence checking off.
+	 */
+	public static final String HOST_DATA_SEQUENCE = "host-data.sequenceOffset";
+
+	/**
+	 * Most buffers held waiting for a missing one, so that buffers received
+	 * out of order are sorted in order.
+	 */
+	public static final String HOST_DATA_REORDER = "host-data.reorderWindow";
+
 	/**
 	 * IP address of the socket used to communicate with the front end.
 	 * 
@@ -87,6 +120,37 @@ public final class PropertyKeys {
 	 */
 	public static final String LOG_PATH = "log.path";
 
+	/**
+	 * Local port on which to serve acquisition metrics over HTTP; blank for
+	 * none.
+	 * 
+	 * @see jam.sort.AcquisitionMetrics
+	 */
+	public static final String METRICS_PORT = "metrics.port";
+
+	/**
+	 * Time constant in seconds over which monitor rates are smoothed, 0 for
+	 * no smoothing.
+	 * 
+	 * @see jam.data.MonitorEngine
+	 */
+	public static final String MONITOR_SMOOTHING = "monitor.smoothing";
+
+	/**
+	 * IP address of the interface on which a remote server streams
+	 * histograms to linked viewers.
+	 * 
+	 * @see jam.remote.HistogramServer
+	 */
+	public static final String REMOTE_IP = "remote.IP";
+
+	/**
+	 * Most viewers a remote server streams histograms to at once.
+	 * 
+	 * @see jam.remote.HistogramServer
+	 */
+	public static final String REMOTE_MAX_VIEWERS = "remote.maxViewers";
+
 	/**
 	 * Path to search for and load sort routines.
 	 */
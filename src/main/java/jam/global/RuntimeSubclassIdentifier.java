@@ -8,6 +8,7 @@ import java.io.IOException;
 import java.lang.reflect.Modifier;
 import java.net.JarURLConnection;
 import java.net.MalformedURLException;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.security.AccessController;
@@ -35,6 +36,10 @@ public final class RuntimeSubclassIdentifier {
 
     private static final String SLASH = "/";
 
+    /* in the user's home, so it lasts between runs of Jam */
+    private static final ClassIndex INDEX = new ClassIndex(new File(
+            System.getProperty("user.home"), ".jam-classes"));
+
     /**
      * @return true if <code>c</code> can have instances and is assignable as
      *         <code>tosubclass</code>
@@ -147,28 +152,59 @@ public final class RuntimeSubclassIdentifier {
             final Class<T> superclass) {
         /* used linked hash set to guarantee order is preserved */
         final Set<Class<? extends T>> rval = new LinkedHashSet<>();
-        ClassLoader loader = DEF_LOADER;
-        URL url = null;
         if (classpath != null) {
-            try {
-                url = classpath.toURI().toURL();
-            } catch (MalformedURLException e) {
-                JOptionPane.showMessageDialog(null, e.getMessage(), rtsiName,
-                        JOptionPane.ERROR_MESSAGE);
-            }
-            if (url != null) {
-                final URL passUrl = url;
-                loader = AccessController
-                        .doPrivileged((PrivilegedAction<ClassLoader>) () -> new URLClassLoader(new URL[] {passUrl }));
+            final ClassLoader loader = createLoader(classpath);
+            if (loader != null) {
+                /* create the set of classes, preserving the name order */
+                final Set<Class<?>> addFrom = nameSetToClassSet(
+                        findNames(classpath, superclass, loader), loader);
+                addAllToSet(rval, addFrom, superclass);
             }
         }
-        if (classpath != null) {
-            /* create the set of classes, preserving the name order */
-            final Set<Class<?>> addFrom = nameSetToClassSet(
-                    getClassesRecursively(superclass,
-                            classpath.getAbsolutePath(), classpath, loader),
-                    loader);
-            addAllToSet(rval, addFrom, superclass);
+        return rval;
+    }
+
+    /**
+     * Find the names of all the classes inheriting or implementing a given
+     * class in a given classpath folder, without loading any of them if the
+     * folder hasn't changed since it was last searched.
+     * @param classpath
+     *            folder containing the classpath to search
+     * @param superclass
+     *            the Class object to be assignable to
+     * @return an alphabetically ordered set of class names
+     */
+    public SortedSet<String> findNames(final File classpath,
+            final Class<?> superclass) {
+        final ClassLoader loader = createLoader(classpath);
+        return loader == null ? new TreeSet<>() : findNames(classpath,
+                superclass, loader);
+    }
+
+    private SortedSet<String> findNames(final File classpath,
+            final Class<?> superclass, final ClassLoader loader) {
+        final String key = superclass.getName() + '@'
+                + classpath.getAbsolutePath();
+        final long fingerprint = fingerprint(classpath, true, superclass);
+        final List<String> cached = INDEX.get(key, fingerprint);
+        if (cached != null) {
+            return new TreeSet<>(cached);
+        }
+        final SortedSet<String> rval = getClassesRecursively(superclass,
+                classpath.getAbsolutePath(), classpath, loader);
+        INDEX.put(key, fingerprint, rval);
+        return rval;
+    }
+
+    private ClassLoader createLoader(final File classpath) {
+        ClassLoader rval = null;
+        try {
+            final URL url = classpath.toURI().toURL();
+            rval = AccessController
+                    .doPrivileged((PrivilegedAction<ClassLoader>) () -> new URLClassLoader(new URL[] {url }));
+        } catch (MalformedURLException e) {
+            JOptionPane.showMessageDialog(null, e.getMessage(), rtsiName,
+                    JOptionPane.ERROR_MESSAGE);
         }
         return rval;
     }
@@ -176,7 +212,10 @@ public final class RuntimeSubclassIdentifier {
     private <T> void addAllToSet(final Collection<Class<? extends T>> addTo,
             final Collection<Class<?>> addFrom, final Class<T> superclass) {
         for (Class<?> clazz : addFrom) {
-            addTo.add(clazz.asSubclass(superclass));
+            /* the index may be out of date if only the superclass changed */
+            if (canUseClassAs(superclass, clazz)) {
+                addTo.add(clazz.asSubclass(superclass));
+            }
         }
     }
 
@@ -198,14 +237,17 @@ public final class RuntimeSubclassIdentifier {
                 .append(pckgname)
                 .append("\nYou've probably incorrectly specified a classpath,\n")
                 .append("or moved/renamed an existing .class file.\n");
-        final Set<String> names = findClassNames(pckgname, tosubclass, recurse);
+        final Set<String> names = findNames(pckgname, tosubclass, recurse);
         final Set<Class<? extends T>> rval = new LinkedHashSet<>(); // preserves
         // order of
         // add()'s
         try {
             for (String name : names) {
                 final Class<?> clazz = DEF_LOADER.loadClass(name);
-                rval.add(clazz.asSubclass(tosubclass));
+                /* the index may be out of date if only the superclass changed */
+                if (canUseClassAs(tosubclass, clazz)) {
+                    rval.add(clazz.asSubclass(tosubclass));
+                }
             }
         } catch (ClassNotFoundException | LinkageError e) {
             errmessage.append(e.getMessage());
@@ -215,6 +257,86 @@ public final class RuntimeSubclassIdentifier {
         return rval;
     }
 
+    /**
+     * Find the names of all the classes inheriting or implementing a given
+     * class in a given package, without loading any of them if the package
+     * hasn't changed since it was last searched.
+     * @param pckgname
+     *            the package to search
+     * @param tosubclass
+     *            the superclass we desire implementations of
+     * @param recurse
+     *            whether to recurse through sub-packages
+     * @return an alphabetically ordered set of class names
+     */
+    public SortedSet<String> findNames(final String pckgname,
+            final Class<?> tosubclass, final boolean recurse) {
+        final URL url = RuntimeSubclassIdentifier.class
+                .getResource(packageToPath(pckgname));
+        final File source = url == null ? null : sourceFile(url);
+        if (source == null) {
+            return new TreeSet<>(findClassNames(pckgname, tosubclass, recurse));
+        }
+        final String key = tosubclass.getName() + '@' + pckgname
+                + (recurse ? "/**" : "/*");
+        final long fingerprint = fingerprint(source, recurse, tosubclass);
+        final List<String> cached = INDEX.get(key, fingerprint);
+        if (cached != null) {
+            return new TreeSet<>(cached);
+        }
+        final SortedSet<String> rval = new TreeSet<>(findClassNames(pckgname,
+                tosubclass, recurse));
+        INDEX.put(key, fingerprint, rval);
+        return rval;
+    }
+
+    private static String packageToPath(final String pckgname) {
+        return (pckgname.startsWith(SLASH) ? pckgname : SLASH + pckgname)
+                .replace('.', '/');
+    }
+
+    /*
+     * Combines the fingerprints of what is searched and of where the
+     * superclass came from, since a class may stop being a subclass because
+     * its superclass changed.
+     */
+    private static long fingerprint(final File searched,
+            final boolean recurse, final Class<?> superclass) {
+        long rval = ClassIndex.fingerprint(searched, recurse);
+        final URL url = superclass.getResource(superclass.getSimpleName()
+                + CLASS_EXT);
+        final File source = url == null ? null : sourceFile(url);
+        if (source != null) {
+            rval = 31 * rval + ClassIndex.fingerprint(source, false);
+        }
+        return rval;
+    }
+
+    /**
+     * @param url
+     *            of a resource
+     * @return the directory or file the resource is in, or the jar file
+     *         containing it, or <code>null</code> if it is neither
+     */
+    private static File sourceFile(final URL url) {
+        File rval = null;
+        try {
+            if ("file".equals(url.getProtocol())) {
+                rval = new File(url.toURI());
+            } else if ("jar".equals(url.getProtocol())) {
+                final URL jarURL = ((JarURLConnection) url.openConnection())
+                        .getJarFileURL();
+                if ("file".equals(jarURL.getProtocol())) {
+                    rval = new File(jarURL.toURI());
+                }
+            }
+        } catch (IOException | URISyntaxException
+                | IllegalArgumentException e) {// NOPMD
+            // can't be fingerprinted, so isn't indexed
+        }
+        return rval != null && rval.exists() ? rval : null;
+    }
+
     /**
      * Find all the classes inheriting or implementing a given class in a given
      * package (but it does not search any sub-packages).
@@ -232,8 +354,7 @@ public final class RuntimeSubclassIdentifier {
          * Code from JWhich Translate the package name into an absolute path
          */
         final SortedSet<String> rval = new TreeSet<>();
-        final String name = (pckgname.startsWith(SLASH) ? pckgname : SLASH
-                + pckgname).replace('.', '/');
+        final String name = packageToPath(pckgname);
         final URL url = RuntimeSubclassIdentifier.class.getResource(name);
         if (url != null) {
             /*
@@ -9,6 +9,7 @@ import javax.swing.*;
 import javax.swing.filechooser.FileFilter;
 import java.awt.*;
 import java.io.*;
+import java.nio.file.Files;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.prefs.Preferences;
@@ -253,13 +254,10 @@ public abstract class AbstractImpExp {
      */
     public void saveFile(final File outFile, final AbstractHistogram hist)
             throws ImpExpException {
-        try {
-            final FileOutputStream outStream = new FileOutputStream(outFile);
-            final BufferedOutputStream buffStream = new BufferedOutputStream(
-                    outStream, BUFFER_SIZE);
+        try (OutputStream buffStream = new BufferedOutputStream(Files
+                .newOutputStream(outFile.toPath()), BUFFER_SIZE)) {
             writeHist(buffStream, hist);
             buffStream.flush();
-            outStream.close();
             if (!silent) {
                 LOGGER.info("File save done.");
             }
@@ -0,0 +1,460 @@
+package jam.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Reads the numbers in a text spectrum, for importing large histograms. The
+ * file is read in large blocks and numbers are parsed straight from the
+ * bytes, without creating strings except for the rare number that can't be
+ * converted exactly by the simple method. Large files are split at line
+ * breaks into slices parsed on separate threads.
+ * <p>
+ * If the first token of the first line starts with a letter, that line is a
+ * header and the token is the title. The number of columns is the number of
+ * numbers on the first line of data, and every other line of data must have
+ * as many.
+ * </p>
+ *
+ * @see ImpExpASCII
+ */
+public final class AsciiReader {
+
+	/* bytes read from the file at a time */
+	private static final int BLOCK_SIZE = 1 << 20;
+
+	/* longer numbers aren't expected in a spectrum */
+	private static final int MAX_TOKEN = 64;
+
+	/* smaller files are parsed on one thread */
+	private static final long PARALLEL_SIZE = 1 << 23;
+
+	/* digits that fit in a long */
+	private static final int MAX_DIGITS = 18;
+
+	/* 2^53, the largest mantissa a double holds exactly */
+	private static final long MAX_EXACT = 1L << 53;
+
+	/* exactly representable powers of ten */
+	private static final double[] POWERS = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5,
+			1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+			1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	private transient final File file;
+
+	private transient String title = null;
+
+	private transient int columns = 0;
+
+	private transient double[] values = new double[0];
+
+	/**
+	 * Creates a reader for the given file, which is read by
+	 * <code>read()</code>.
+	 *
+	 * @param file
+	 *            text file to read
+	 */
+	public AsciiReader(final File file) {
+		super();
+		this.file = file;
+	}
+
+	/**
+	 * @return the title from the header, or <code>null</code> if there is no
+	 *         header
+	 */
+	public String getTitle() {
+		return title;
+	}
+
+	/**
+	 * @return number of numbers on each line, 0 if there is no data
+	 */
+	public int getColumns() {
+		return columns;
+	}
+
+	/**
+	 * @return all the numbers in the file, line by line
+	 */
+	public double[] getValues() {
+		return values;
+	}
+
+	/**
+	 * @return number of lines of data
+	 */
+	public int getRows() {
+		return columns == 0 ? 0 : values.length / columns;
+	}
+
+	/**
+	 * Reads the file.
+	 *
+	 * @param threads
+	 *            maximum number of threads to parse large files on
+	 * @throws IOException
+	 *             if the file can't be read, contains something other than
+	 *             numbers after the header, or has a line of data with a
+	 *             different number of numbers than the first
+	 */
+	public void read(final int threads) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(),
+				StandardOpenOption.READ)) {
+			final long size = channel.size();
+			final long dataStart = readHeader(channel, size);
+			if (columns == 0) {
+				return;
+			}
+			final int slices = size - dataStart < PARALLEL_SIZE ? 1 : Math
+					.max(1, threads);
+			final long[] bounds = new long[slices + 1];
+			bounds[0] = dataStart;
+			bounds[slices] = size;
+			for (int i = 1; i < slices; i++) {
+				final long nominal = dataStart + (size - dataStart) * i
+						/ slices;
+				bounds[i] = Math.max(bounds[i - 1],
+						nextLine(channel, nominal, size));
+			}
+			if (slices == 1) {
+				values = new Slice(channel, dataStart, size).parse(columns);
+			} else {
+				values = parseInParallel(channel, bounds);
+			}
+		} catch (IOException ioe) {
+			throw new IOException(file.getName() + ": " + ioe.getMessage(),
+					ioe);
+		}
+	}
+
+	private double[] parseInParallel(final FileChannel channel,
+			final long[] bounds) throws IOException {
+		final int slices = bounds.length - 1;
+		final ExecutorService executor = Executors.newFixedThreadPool(slices,
+				runnable -> {
+					final Thread thread = new Thread(runnable, "Text Import");
+					thread.setDaemon(true);
+					return thread;
+				});
+		try {
+			final List<Future<double[]>> futures = new ArrayList<>();
+			for (int i = 0; i < slices; i++) {
+				final Slice slice = new Slice(channel, bounds[i],
+						bounds[i + 1]);
+				futures.add(executor.submit(() -> slice.parse(columns)));
+			}
+			final List<double[]> parsed = new ArrayList<>();
+			int total = 0;
+			for (Future<double[]> future : futures) {
+				final double[] part = future.get();
+				parsed.add(part);
+				total += part.length;
+			}
+			final double[] rval = new double[total];
+			int position = 0;
+			for (double[] part : parsed) {
+				System.arraycopy(part, 0, rval, position, part.length);
+				position += part.length;
+			}
+			return rval;
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted reading " + file.getName(), e);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/*
+	 * Finds the title, if any, and counts the numbers on the first line of
+	 * data. Returns where the data starts.
+	 */
+	private long readHeader(final FileChannel channel, final long size)
+			throws IOException {
+		final Slice slice = new Slice(channel, 0, size);
+		long dataStart = 0;
+		slice.skipSpaces();
+		if (slice.fill() && Character.isLetter(slice.peek())) {
+			title = slice.token();
+			slice.skipLine();
+			dataStart = slice.position();
+		}
+		columns = slice.countFirstLine();
+		return dataStart;
+	}
+
+	/* position just after the first line break at or after position */
+	private static long nextLine(final FileChannel channel,
+			final long position, final long size) throws IOException {
+		final Slice slice = new Slice(channel, position - 1, size);
+		slice.skipLine();
+		return slice.position();
+	}
+
+	private static boolean isSpace(final byte value) {
+		return value == ' ' || value == '\t' || value == '\r'
+				|| value == '\n' || value == '\f';
+	}
+
+	/**
+	 * Part of the file between two line breaks, read a block at a time.
+	 */
+	private static final class Slice {
+
+		private transient final FileChannel channel;
+
+		private transient final long end;
+
+		private transient final byte[] bytes;
+
+		/* file position of bytes[0] */
+		private transient long start;
+
+		private transient int next = 0;
+
+		private transient int limit = 0;
+
+		Slice(final FileChannel channel, final long start, final long end) {
+			super();
+			this.channel = channel;
+			this.start = start;
+			this.end = end;
+			bytes = new byte[(int) Math.min(BLOCK_SIZE,
+					Math.max(MAX_TOKEN, end - start))];
+		}
+
+		long position() {
+			return start + next;
+		}
+
+		/*
+		 * Ensures MAX_TOKEN bytes are buffered, or as many as are left.
+		 * Returns false at the end.
+		 */
+		boolean fill() throws IOException {
+			if (limit - next >= MAX_TOKEN) {
+				return true;
+			}
+			final int left = limit - next;
+			System.arraycopy(bytes, next, bytes, 0, left);
+			start += next;
+			next = 0;
+			limit = left;
+			long position = start + limit;
+			while (limit < bytes.length && position < end) {
+				final int count = channel.read(ByteBuffer.wrap(bytes, limit,
+						(int) Math.min(bytes.length - limit, end - position)),
+						position);
+				if (count < 0) {
+					break;
+				}
+				limit += count;
+				position += count;
+			}
+			return limit > next;
+		}
+
+		byte peek() {
+			return bytes[next];
+		}
+
+		void skipSpaces() throws IOException {
+			while (fill() && (bytes[next] == ' ' || bytes[next] == '\t')) {
+				next++;
+			}
+		}
+
+		void skipLine() throws IOException {
+			while (fill()) {
+				if (bytes[next++] == '\n') {
+					return;
+				}
+			}
+		}
+
+		String token() throws IOException {
+			fill();
+			final int from = next;
+			while (next < limit && !isSpace(bytes[next])) {
+				next++;
+			}
+			return new String(bytes, from, next - from,
+					StandardCharsets.ISO_8859_1);
+		}
+
+		/* skips blank lines, then counts the numbers on the next line */
+		int countFirstLine() throws IOException {
+			int rval = 0;
+			while (fill()) {
+				final byte value = bytes[next];
+				if (value == '\n' && rval > 0) {
+					break;
+				} else if (isSpace(value)) {
+					next++;
+				} else {
+					parseNumber();
+					rval++;
+				}
+			}
+			return rval;
+		}
+
+		/*
+		 * Parses all the numbers, checking that each line that isn't blank
+		 * has the given number of them.
+		 */
+		double[] parse(final int columns) throws IOException {
+			double[] rval = new double[(int) Math.min(Integer.MAX_VALUE - 8,
+					Math.max(16, (end - start) / 8))];
+			int count = 0;
+			int lineStart = 0;
+			long linePosition = position();
+			while (fill()) {
+				if (bytes[next] == '\n') {
+					checkLine(count - lineStart, columns, linePosition);
+					next++;
+					lineStart = count;
+					linePosition = position();
+				} else if (isSpace(bytes[next])) {
+					next++;
+				} else {
+					if (count == rval.length) {
+						rval = Arrays.copyOf(rval, (int) Math.min(
+								Integer.MAX_VALUE - 8, 2L * count));
+					}
+					rval[count++] = parseNumber();
+				}
+			}
+			checkLine(count - lineStart, columns, linePosition);
+			return Arrays.copyOf(rval, count);
+		}
+
+		private static void checkLine(final int numbers, final int columns,
+				final long position) throws IOException {
+			if (numbers != 0 && numbers != columns) {
+				throw new IOException("Expected " + columns
+						+ " numbers on the line at byte " + position
+						+ ", but found " + numbers + ".");
+			}
+		}
+
+		/*
+		 * Parses the number at the current position. Up to 18 significant
+		 * digits with a power of ten up to 22 are converted exactly by one
+		 * multiplication or division; anything else goes to
+		 * Double.parseDouble().
+		 */
+		private double parseNumber() throws IOException {
+			final int from = next;
+			int index = next;
+			final boolean negative = bytes[index] == '-';
+			if (negative || bytes[index] == '+') {
+				index++;
+			}
+			long mantissa = 0;
+			int digits = 0;
+			int exponent = 0;
+			boolean exact = true;
+			boolean any = false;
+			int digit;
+			while (index < limit
+					&& (digit = bytes[index] - '0') >= 0 && digit <= 9) {
+				if (digits < MAX_DIGITS) {
+					mantissa = 10 * mantissa + digit;
+					if (mantissa > 0) {
+						digits++;
+					}
+				} else {
+					exponent++;
+					exact &= digit == 0;
+				}
+				index++;
+				any = true;
+			}
+			if (index < limit && bytes[index] == '.') {
+				index++;
+				while (index < limit
+						&& (digit = bytes[index] - '0') >= 0 && digit <= 9) {
+					if (digits < MAX_DIGITS) {
+						mantissa = 10 * mantissa + digit;
+						exponent--;
+						if (mantissa > 0) {
+							digits++;
+						}
+					} else {
+						exact &= digit == 0;
+					}
+					index++;
+					any = true;
+				}
+			}
+			if (any && index < limit
+					&& (bytes[index] == 'e' || bytes[index] == 'E')) {
+				index++;
+				final boolean negativePower = index < limit
+						&& bytes[index] == '-';
+				if (index < limit && (negativePower || bytes[index] == '+')) {
+					index++;
+				}
+				int power = 0;
+				boolean anyPower = false;
+				while (index < limit
+						&& (digit = bytes[index] - '0') >= 0 && digit <= 9) {
+					power = Math.min(10 * power + digit, 100_000);
+					index++;
+					anyPower = true;
+				}
+				any = anyPower;
+				exponent += negativePower ? -power : power;
+			}
+			if (!any || index < limit && !isSpace(bytes[index])
+					|| index == limit && start + limit < end) {
+				return parseToken(from);
+			}
+			next = index;
+			if (!exact || mantissa >= MAX_EXACT || exponent < -22
+					|| exponent > 22) {
+				return Double.parseDouble(new String(bytes, from, index - from,
+						StandardCharsets.ISO_8859_1));
+			}
+			final double rval = exponent < 0 ? mantissa / POWERS[-exponent]
+					: mantissa * POWERS[exponent];
+			return negative ? -rval : rval;
+		}
+
+		/* for what the fast path doesn't handle, e.g., NaN */
+		private double parseToken(final int from) throws IOException {
+			next = from;
+			final long position = position();
+			final String token = token();
+			if (next == limit && position() < end) {
+				throw new IOException("Number too long at byte " + position
+						+ ".");
+			}
+			try {
+				return Double.parseDouble(token);
+			} catch (NumberFormatException nfe) {
+				throw new IOException("Expected a number at byte " + position
+						+ ", but found \"" + token + "\".", nfe);
+			}
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package jam.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes numbers and text as ASCII straight into a byte buffer, for
+ * exporting large histograms as text. Integers are formatted two digits at a
+ * time from a table, without creating strings. The output is the same as a
+ * <code>PrintWriter</code>'s.
+ *
+ * @see ImpExpASCII
+ */
+public final class AsciiWriter {
+
+	private static final byte[] NEWLINE = System.lineSeparator().getBytes(
+			StandardCharsets.US_ASCII);
+
+	/* "00" to "99" */
+	private static final byte[] DIGIT_PAIRS = new byte[200];
+
+	static {
+		for (int i = 0; i < 100; i++) {
+			DIGIT_PAIRS[2 * i] = (byte) ('0' + i / 10);
+			DIGIT_PAIRS[2 * i + 1] = (byte) ('0' + i % 10);
+		}
+	}
+
+	/* longest int, with sign */
+	private static final int MAX_DIGITS = 11;
+
+	private transient final OutputStream output;
+
+	private transient final byte[] buffer;
+
+	private transient int used = 0;
+
+	/**
+	 * Creates a writer, which holds what it's given until its buffer is
+	 * full or it's flushed.
+	 *
+	 * @param output
+	 *            to write to
+	 * @param size
+	 *            of the buffer, at least 64 bytes
+	 */
+	public AsciiWriter(final OutputStream output, final int size) {
+		super();
+		this.output = output;
+		buffer = new byte[Math.max(size, 64)];
+	}
+
+	private void ensure(final int length) throws IOException {
+		if (used + length > buffer.length) {
+			flushBuffer();
+		}
+	}
+
+	private void flushBuffer() throws IOException {
+		output.write(buffer, 0, used);
+		used = 0;
+	}
+
+	/**
+	 * @param value
+	 *            to write in decimal
+	 * @throws IOException
+	 *             if the output can't be written
+	 */
+	public void print(final int value) throws IOException {
+		if (value == Integer.MIN_VALUE) {
+			print(Integer.toString(value));
+			return;
+		}
+		ensure(MAX_DIGITS);
+		int remaining = Math.abs(value);
+		int digits = 1;
+		for (int bound = 10; digits < 10 && remaining >= bound; bound *= 10) {
+			digits++;
+		}
+		if (value < 0) {
+			buffer[used++] = '-';
+		}
+		int position = used + digits;
+		used = position;
+		while (remaining >= 100) {
+			final int pair = remaining % 100;
+			remaining /= 100;
+			buffer[--position] = DIGIT_PAIRS[2 * pair + 1];
+			buffer[--position] = DIGIT_PAIRS[2 * pair];
+		}
+		buffer[--position] = DIGIT_PAIRS[2 * remaining + 1];
+		if (remaining >= 10) {
+			buffer[--position] = DIGIT_PAIRS[2 * remaining];
+		}
+	}
+
+	/**
+	 * @param value
+	 *            to write as <code>String.valueOf()</code> does
+	 * @throws IOException
+	 *             if the output can't be written
+	 */
+	public void print(final double value) throws IOException {
+		print(String.valueOf(value));
+	}
+
+	/**
+	 * @param text
+	 *            ASCII text to write
+	 * @throws IOException
+	 *             if the output can't be written
+	 */
+	public void print(final String text) throws IOException {
+		final int length = text.length();
+		if (length > buffer.length) {
+			flushBuffer();
+			output.write(text.getBytes(StandardCharsets.US_ASCII));
+		} else {
+			ensure(length);
+			for (int i = 0; i < length; i++) {
+				buffer[used++] = (byte) text.charAt(i);
+			}
+		}
+	}
+
+	/**
+	 * Ends the line.
+	 *
+	 * @throws IOException
+	 *             if the output can't be written
+	 */
+	public void println() throws IOException {
+		ensure(NEWLINE.length);
+		System.arraycopy(NEWLINE, 0, buffer, used, NEWLINE.length);
+		used += NEWLINE.length;
+	}
+
+	/**
+	 * Writes what is buffered and flushes the output.
+	 *
+	 * @throws IOException
+	 *             if the output can't be written
+	 */
+	public void flush() throws IOException {
+		flushBuffer();
+		output.flush();
+	}
+}
@@ -32,6 +32,8 @@ import javax.swing.JScrollPane;
 import javax.swing.JTextField;
 import javax.swing.ListModel;
 import javax.swing.ListSelectionModel;
+import javax.swing.ProgressMonitor;
+import javax.swing.SwingUtilities;
 import javax.swing.border.EmptyBorder;
 
 import com.google.inject.Inject;
@@ -42,6 +44,7 @@ import jam.global.BroadcastEvent;
 import jam.global.Broadcaster;
 import jam.global.RuntimeSubclassIdentifier;
 import jam.ui.ExtensionFileFilter;
+import jam.util.AbstractSwingWorker;
 import jam.util.CollectionsUtil;
 import jam.util.FileUtilities;
 
@@ -264,71 +267,76 @@ public final class BatchExport extends JDialog implements PropertyChangeListener
 		return status;
 	}
 
-	private File createExportFile(final String dir, final String groupName,
-			final String histName, final String extension) {
-		final String fullFileName = this.fileUtilities.changeExtension(
-				histName.trim(), extension, FileUtilities.APPEND_ONLY);
-		return new File(dir + File.separator + groupName, fullFileName);
-	}
-
 	/**
 	 * Export the histograms
 	 */
 	private void export() {
-		boolean status;
-		boolean already = false;
-		final List<String> exportDirList = new ArrayList<>();
 		/* select the format */
 		final AbstractImpExp exportFormat = selectedExportFormat();
+		final HistogramExporter exporter = new HistogramExporter(exportFormat,
+				this.fileUtilities, Runtime.getRuntime().availableProcessors());
 		// Check or create export dir
-		final String exportDir = txtDirectory.getText().trim();
-		// final File exportDirFile = new File(exportDir);
-		// Create list of export histograms and files
+		final File exportDir = new File(txtDirectory.getText().trim());
+		// Create list of export histograms, group directories are made as
+		// they are exported to
 		final ListModel<AbstractHistogram> model = lstHists.getModel();
-		AbstractHistogram[] exportHistograms = new AbstractHistogram[model
-				.getSize()];
-		File[] exportFiles = new File[model.getSize()];
-		// Create array of histograms and files
-		for (int i = 0; i < exportHistograms.length; i++) {
-			final jam.data.AbstractHist1D hist1D = (jam.data.AbstractHist1D) model
-					.getElementAt(i);
-			exportHistograms[i] = hist1D;
-			final String groupName = hist1D.getGroupName();
-			final String histName = hist1D.getName().trim();
-			exportFiles[i] = createExportFile(exportDir, groupName, histName,
-					exportFormat.getDefaultExtension());
-			final String exportGroupDir = exportDir + File.separator
-					+ groupName;
-			if (!exportDirList.contains(exportGroupDir)) {
-				exportDirList.add(exportGroupDir);
-			}
-			already |= exportFiles[i].exists();
+		final List<AbstractHistogram> exportHistograms = new ArrayList<>();
+		boolean already = false;
+		for (int i = 0; i < model.getSize(); i++) {
+			final AbstractHistogram hist = model.getElementAt(i);
+			exportHistograms.add(hist);
+			already |= exporter.getExportFile(exportDir, hist).exists();
 		}
 		// Root directory
-		status = createExportDir(exportDir);
+		boolean status = createExportDir(exportDir.getPath());
 		status = checkFileOverwrite(status, already);
-		// create group directories
-		if (status) {
-			for (String anExportDirList : exportDirList) {
-				final boolean statusTemp = createExportDir(anExportDirList);
-				status = status && statusTemp;
-			}
-		}
 		// write out histograms
 		if (status) {
-			LOGGER.info("Exporting to " + exportDir + ": ");
-			for (int i = 0; i < exportFiles.length; i++) {
-				LOGGER.info("\t" + exportFiles[i].getName());
+			exportInBackground(exporter, exportHistograms, exportDir);
+		}
+	}
+
+	/*
+	 * Writes the histograms on other threads, showing progress, so the
+	 * interface stays responsive. Canceling the progress monitor stops the
+	 * export.
+	 */
+	private void exportInBackground(final HistogramExporter exporter,
+			final List<AbstractHistogram> histograms, final File exportDir) {
+		final ProgressMonitor monitor = new ProgressMonitor(this,
+				"Exporting histograms", null, 0, histograms.size());
+		monitor.setMillisToPopup(100);
+		bExport.setEnabled(false);
+		LOGGER.info("Exporting " + histograms.size() + " histograms to "
+				+ exportDir + ".");
+		final AbstractSwingWorker worker = new AbstractSwingWorker() {
+			@Override
+			public Object construct() {
+				List<File> rval = new ArrayList<>();
 				try {
-					exportFormat.saveFile(exportFiles[i], exportHistograms[i]);
-				} catch (ImpExpException e) {
-					LOGGER.log(Level.SEVERE, "Exporting file: "
-							+ exportFiles[i].getPath() + " " + e.getMessage(),
-							e);
+					rval = exporter.export(histograms, exportDir,
+							done -> SwingUtilities.invokeLater(() -> {
+								if (monitor.isCanceled()) {
+									interrupt();
+								} else {
+									monitor.setProgress(done);
+								}
+							}));
+				} catch (InterruptedException e) {
+					LOGGER.warning("Exporting canceled.");
 				}
+				return rval;
 			}
-			LOGGER.info("Exporting complete.");
-		}
+
+			@Override
+			public void finished() {
+				monitor.close();
+				setExportEnable();
+				LOGGER.info("Exporting complete, "
+						+ ((List<?>) get()).size() + " files written.");
+			}
+		};
+		worker.start();
 	}
 
 	private boolean checkFileOverwrite(final boolean status,
@@ -0,0 +1,142 @@
+package jam.io;
+
+import jam.data.AbstractHistogram;
+import jam.util.FileUtilities;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Exports many histograms at once, each to its own file, on a pool of
+ * threads. Needs no user interface, so it serves both the batch export
+ * dialog and scripts. Files are named for their histograms and put in a
+ * directory for each group. The format must be one allowed for batch
+ * export, whose <code>writeHist()</code> keeps no state between histograms.
+ *
+ * @see BatchExport
+ * @see jam.script.Session#exportHistograms(Class, List, File)
+ */
+public final class HistogramExporter {
+
+	private static final Logger LOGGER = Logger
+			.getLogger(HistogramExporter.class.getPackage().getName());
+
+	private transient final AbstractImpExp format;
+
+	private transient final FileUtilities fileUtilities;
+
+	private transient final int threads;
+
+	/**
+	 * @param format
+	 *            to export in
+	 * @param fileUtilities
+	 *            for naming the files
+	 * @param threads
+	 *            number of histograms to write at once
+	 * @throws IllegalArgumentException
+	 *             if the format doesn't allow batch export
+	 */
+	public HistogramExporter(final AbstractImpExp format,
+			final FileUtilities fileUtilities, final int threads) {
+		super();
+		if (!format.batchExportAllowed()) {
+			throw new IllegalArgumentException(format.getFormatDescription()
+					+ " doesn't allow batch export.");
+		}
+		this.format = format;
+		this.fileUtilities = fileUtilities;
+		this.threads = Math.max(1, threads);
+		format.setSilent();
+	}
+
+	/**
+	 * @param dir
+	 *            the directory exported to
+	 * @param hist
+	 *            a histogram
+	 * @return the file the histogram is exported to
+	 */
+	public File getExportFile(final File dir, final AbstractHistogram hist) {
+		final String fileName = fileUtilities.changeExtension(hist.getName()
+				.trim(), format.getDefaultExtension(),
+				FileUtilities.APPEND_ONLY);
+		return new File(new File(dir, hist.getGroupName()), fileName);
+	}
+
+	/**
+	 * Exports histograms, returning when all have been written. Failures are
+	 * logged, and don't stop the other histograms being exported.
+	 *
+	 * @param histograms
+	 *            to export
+	 * @param dir
+	 *            to export to, with a directory for each group
+	 * @param progress
+	 *            given the number of histograms done so far after each, from
+	 *            the exporting threads
+	 * @return the files written
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for the histograms to be
+	 *             written, which stops the export
+	 */
+	public List<File> export(final List<? extends AbstractHistogram> histograms,
+			final File dir, final IntConsumer progress)
+			throws InterruptedException {
+		final ExecutorService executor = Executors.newFixedThreadPool(threads,
+				runnable -> {
+					final Thread thread = new Thread(runnable,
+							"Histogram Export");
+					thread.setDaemon(true);
+					return thread;
+				});
+		final AtomicInteger done = new AtomicInteger();
+		final List<Future<File>> futures = new ArrayList<>();
+		for (AbstractHistogram hist : histograms) {
+			futures.add(executor.submit(() -> {
+				try {
+					return exportHistogram(dir, hist);
+				} finally {
+					progress.accept(done.incrementAndGet());
+				}
+			}));
+		}
+		final List<File> rval = new ArrayList<>();
+		try {
+			for (int i = 0; i < futures.size(); i++) {
+				try {
+					rval.add(futures.get(i).get());
+				} catch (ExecutionException e) {
+					LOGGER.log(Level.SEVERE, "Exporting histogram "
+							+ histograms.get(i).getFullName() + ": "
+							+ e.getCause().getMessage(), e.getCause());
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		return rval;
+	}
+
+	private File exportHistogram(final File dir, final AbstractHistogram hist)
+			throws ImpExpException {
+		final File file = getExportFile(dir, hist);
+		final File groupDir = file.getParentFile();
+		if (!groupDir.isDirectory() && !groupDir.mkdirs()
+				&& !groupDir.isDirectory()) {
+			throw new ImpExpException("Could not create the directory "
+					+ groupDir.getPath() + " .");
+		}
+		format.saveFile(file, hist);
+		return file;
+	}
+}
@@ -2,17 +2,10 @@ package jam.io;
 
 import java.awt.Frame;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.LineNumberReader;
 import java.io.OutputStream;
-import java.io.PrintWriter;
-import java.io.StringReader;
-import java.nio.CharBuffer;
-import java.util.Scanner;
+import java.util.Arrays;
 
 import javax.swing.filechooser.FileFilter;
 
@@ -51,8 +44,6 @@ import jam.ui.ExtensionFileFilter;
  */
 public class ImpExpASCII extends AbstractImpExp {// NOPMD
 
-	private transient boolean line1isTitle = false;
-
 	private static final String[] EXTS = { "dat", "txt" };
 
 	private static final ExtensionFileFilter FILTER = new ExtensionFileFilter(
@@ -102,55 +93,60 @@ public class ImpExpASCII extends AbstractImpExp {// NOPMD
 	}
 
 	/**
-	 * Read ASCII data from an <code>InputStream</code>. The first lines may be
-	 * a header these lines are read in until a line with leading token that is
-	 * a number is found. The first line of the header will be used as the
-	 * title. (Its first token as above cannot be a number.)
+	 * Read ASCII data from the file being imported. The first line may be a
+	 * header, if its leading token starts with a letter. That token will be
+	 * used as the title. The numbers are parsed straight from the bytes of
+	 * the file, with large files split among threads.
 	 * 
 	 * <p>
-	 * Data after the header may be one or two numbers per line. For one number
-	 * per line, these are assumed to be the counts starting at ch 0. For two
-	 * numbers per line, the first number is the channel and the second number
-	 * the counts in that channel.
+	 * Data after the header may be one or more numbers per line. For one
+	 * number per line, these are assumed to be the counts starting at ch 0.
+	 * For two numbers per line, the first number is the channel and the
+	 * second number the counts in that channel. For three, the first two are
+	 * the x- and y-channels and the third the counts in that bin. Four or more
+	 * numbers per line are a matrix of counts, with one line per x-channel.
 	 * </p>
 	 * 
 	 * @param inStream
-	 *            the stream to read the histogram from
+	 *            the stream opened on the file, not used
 	 * @exception ImpExpException
 	 *                exception related to import/export
 	 */
 	@Override
 	protected void readData(final InputStream inStream) throws ImpExpException {
-		double[] counts;
-		double[][] counts2d;
-
 		try {
-			final String titleHist = getHistTitle();
-			// also determines whether 1st line is title
+			final AsciiReader reader = new AsciiReader(getLastFile());
+			reader.read(Runtime.getRuntime().availableProcessors());
 			String nameHist = getFileName(getLastFile());
 			nameHist = nameHist.substring(0, nameHist.indexOf('.'));
-			final int rows = getNumberOfRows();
-			final int cols = getNumberOfColumns();
+			final String titleHist = reader.getTitle() == null ? nameHist
+					: reader.getTitle();
+			final double[] values = reader.getValues();
+			final int rows = reader.getRows();
+			final int cols = reader.getColumns();
 			switch (cols) {
 			case 0:
 				return;
 			case 1:
-				counts = new double[rows];
-				readHistY(inStream, nameHist, titleHist, counts);
+				Factory.createHistogram(importGroup, values, nameHist,
+						titleHist);
 				break;
 			case 2:
-				getMaxChannelsXY(rows);
-				counts = new double[maxX + 1];
-				readHistXY(inStream, nameHist, titleHist, counts, rows);
+				Factory.createHistogram(importGroup, readHistXY(values, rows),
+						nameHist, titleHist);
 				break;
 			case 3:
-				getMaxChannelsXYZ(rows);
-				counts2d = new double[maxX + 1][maxY + 1];
-				readHistXYZ(inStream, nameHist, titleHist, counts2d, rows);
+				Factory.createHistogram(importGroup,
+						readHistXYZ(values, rows), nameHist, titleHist);
 				break;
 			default:// >=4 cases
-				counts2d = new double[rows][cols];
-				readHistMatrix(inStream, nameHist, titleHist, counts2d);
+				final double[][] counts2d = new double[rows][];
+				for (int i = 0; i < rows; i++) {
+					counts2d[i] = Arrays.copyOfRange(values, i * cols, (i + 1)
+							* cols);
+				}
+				Factory.createHistogram(importGroup, counts2d, nameHist,
+						titleHist);
 				break;
 			}
 		} catch (IOException ioe) {
@@ -158,196 +154,40 @@ public class ImpExpASCII extends AbstractImpExp {// NOPMD
 		}
 	}
 
-	private void readHistY(final InputStream inputStream, final String name,
-			final String title, double[] counts) throws IOException {
-		final LineNumberReader lnr = new LineNumberReader(
-				new InputStreamReader(inputStream));
-		if (this.line1isTitle) {
-			lnr.readLine();
-		}
-		try (final Scanner scanner = new Scanner(lnr)) {
-			for (int i = 0; i < counts.length; i++) {
-				counts[i] = scanner.nextDouble();
-			}
-		}
-		Factory.createHistogram(importGroup, counts, name, title);
-	}
-
-	private transient int maxX, maxY;
-
-	private void getMaxChannelsXY(final int rows) throws IOException {
-		maxX = 0;
-		final LineNumberReader lnr = new LineNumberReader(new FileReader(
-				getLastFile()));
-		if (this.line1isTitle) {
-			lnr.readLine();
-		}
-		try (final Scanner scanner = new Scanner(lnr)) {
-			for (int i = 0; i < rows; i++) {
-				final double nval = scanner.nextDouble();
-				if (nval > maxX) {
-					maxX = (int) nval;
-				}
-				scanner.nextDouble();
-			}
-		}
-	}
-
-	private void getMaxChannelsXYZ(final int rows) throws IOException {
-		maxX = 0;
-		maxY = 0;
-		final LineNumberReader lnr = new LineNumberReader(new FileReader(
-				getLastFile()));
-		if (this.line1isTitle) {
-			lnr.readLine();
-		}
-		try (final Scanner scanner = new Scanner(lnr)) {
-			for (int i = 0; i < rows; i++) {
-				double nval = scanner.nextDouble();
-				if (nval > maxX) {
-					maxX = (int) nval;
-				}
-				nval = scanner.nextDouble();
-				if (nval > maxY) {
-					maxY = (int) nval;
-				}
-				scanner.nextDouble();
-			}
-		}
-	}
-
-	private void readHistXY(final InputStream inputStream, final String name,
-			final String title, double[] counts, final int rows)
-			throws IOException {
-		final LineNumberReader lnr = new LineNumberReader(
-				new InputStreamReader(inputStream));
-		if (this.line1isTitle) {
-			lnr.readLine();
-		}
-		try (final Scanner scanner = new Scanner(lnr)) {
-			for (int i = 0; i < rows; i++) {
-				final int channel = (int) scanner.nextDouble();
-				counts[channel] = scanner.nextDouble();
-			}
+	private static int getChannel(final double value) throws IOException {
+		if (value < 0 || value >= Integer.MAX_VALUE) {
+			throw new IOException("Channel out of range: " + value);
 		}
-		Factory.createHistogram(importGroup, counts, name, title);
+		return (int) value;
 	}
 
-	private void readHistXYZ(final InputStream inputStream, final String name,
-			final String title, double[][] counts, final int rows)
+	private double[] readHistXY(final double[] values, final int rows)
 			throws IOException {
-		final LineNumberReader lnr = new LineNumberReader(
-				new InputStreamReader(inputStream));
-		if (this.line1isTitle) {
-			lnr.readLine();
+		int maxX = 0;
+		for (int i = 0; i < rows; i++) {
+			maxX = Math.max(maxX, getChannel(values[2 * i]));
 		}
-		try (final Scanner scanner = new Scanner(lnr)) {
-			for (int i = 0; i < rows; i++) {
-				final int channelX = (int) scanner.nextDouble();
-				final int channelY = (int) scanner.nextDouble();
-				counts[channelX][channelY] = scanner.nextDouble();
-			}
+		final double[] counts = new double[maxX + 1];
+		for (int i = 0; i < rows; i++) {
+			counts[(int) values[2 * i]] = values[2 * i + 1];
 		}
-		Factory.createHistogram(importGroup, counts, name, title);
+		return counts;
 	}
 
-	private void readHistMatrix(final InputStream inputStream,
-			final String name, final String title, double[][] counts)
+	private double[][] readHistXYZ(final double[] values, final int rows)
 			throws IOException {
-		final LineNumberReader lnr = new LineNumberReader(
-				new InputStreamReader(inputStream));
-		if (this.line1isTitle) {
-			lnr.readLine();
+		int maxX = 0;
+		int maxY = 0;
+		for (int i = 0; i < rows; i++) {
+			maxX = Math.max(maxX, getChannel(values[3 * i]));
+			maxY = Math.max(maxY, getChannel(values[3 * i + 1]));
 		}
-		try (final Scanner scanner = new Scanner(lnr)) {
-			for (int i = 0; i < counts.length; i++) {
-				for (int j = 0; j < counts[0].length; j++) {
-					counts[i][j] = scanner.nextDouble();
-				}
-			}
+		final double[][] counts = new double[maxX + 1][maxY + 1];
+		for (int i = 0; i < rows; i++) {
+			final int index = 3 * i;
+			counts[(int) values[index]][(int) values[index + 1]] = values[index + 2];
 		}
-		Factory.createHistogram(importGroup, counts, name, title);
-	}
-
-	private String getHistTitle() throws IOException {
-		String rval;
-		try (final InputStreamReader isr = new InputStreamReader(
-				new FileInputStream(getLastFile()));
-			 final Scanner scanner = new Scanner(isr)) {
-			/* Make a tokenizer for input stream. */
-			/*
-			* Read in header lines, header are lines that start with a non-number
-			* token.
-			*/
-
-			line1isTitle = scanner.hasNext("[a-zA-Z]\\w*");
-			if (line1isTitle) {
-				rval = scanner.next();
-			} else {
-				rval = getFileName(getLastFile());
-				rval = rval.substring(0, rval.indexOf('.'));
-			}
-		}
-		return rval;
-	}
-
-	private int getNumberOfRows() throws IOException {
-		int rval;
-		LineNumberReader lnr = null;
-		try {
-			lnr = new LineNumberReader(new FileReader(getLastFile()));
-			/*
-			 * Read in header lines. Headers are lines that start with a
-			 * non-number token.
-			 */
-			if (line1isTitle) {
-				lnr.readLine();
-			} else {
-				lnr.setLineNumber(1);
-			}
-			final CharBuffer buffer = CharBuffer.allocate(8 * 1024);
-			int numRead;
-			do {
-				numRead = lnr.read(buffer);
-				buffer.clear();
-			} while (numRead >= 0);
-			rval = lnr.getLineNumber();
-		} finally {
-			if (lnr != null) {
-				lnr.close();
-			}
-		}
-		return rval;
-	}
-
-	private int getNumberOfColumns() throws IOException {
-		int result = 0;
-		LineNumberReader lnr = null;
-		String line;
-		try {
-			lnr = new LineNumberReader(new FileReader(getLastFile()));
-			/*
-			 * Read in header lines. Headers are lines that start with a
-			 * non-number token.
-			 */
-			if (line1isTitle) {
-				lnr.readLine();
-			}
-			line = lnr.readLine();
-		} finally {
-			if (lnr != null) {
-				lnr.close();
-			}
-		}
-		if (line != null) {
-			try (final Scanner scanner = new Scanner(new StringReader(line))) {
-				while (scanner.hasNextDouble()) {
-					scanner.nextDouble();
-					result++;
-				}
-			}
-		}
-		return result;
+		return counts;
 	}
 
 	/**
@@ -365,7 +205,7 @@ public class ImpExpASCII extends AbstractImpExp {// NOPMD
 	protected void writeHist(final OutputStream buffout,
 			final AbstractHistogram hist) throws ImpExpException {
 		try {
-			final PrintWriter writer = new PrintWriter(buffout);
+			final AsciiWriter writer = new AsciiWriter(buffout, BUFFER_SIZE);
 			if (hist.getType() == HistogramType.ONE_DIM_INT) {
 				final int[] counts = ((HistInt1D) hist).getCounts();
 				writeHist(writer, counts, hist.getSizeX());
@@ -375,7 +215,8 @@ public class ImpExpASCII extends AbstractImpExp {// NOPMD
 					// output a row of data channel counts
 					writer.print(i);
 					writer.print("   ");
-					writer.println(countsD[i]);
+					writer.print(countsD[i]);
+					writer.println();
 				}
 			} else if (hist.getType() == HistogramType.TWO_DIM_INT) {
 				final int[][] counts = ((HistInt2D) hist).getCounts();
@@ -391,24 +232,24 @@ public class ImpExpASCII extends AbstractImpExp {// NOPMD
 				}
 			}
 			writer.flush();
-			buffout.flush();
 		} catch (IOException ioe) {
 			throw new ImpExpException(ioe);
 		}
 	}
 
-	private void writeHist(final PrintWriter writer, final int[] counts,
-			final int sizeX) {
+	private void writeHist(final AsciiWriter writer, final int[] counts,
+			final int sizeX) throws IOException {
 		for (int i = 0; i < sizeX; i++) {
 			// output a row of data channel counts
 			writer.print(i);
 			writer.print("   ");
-			writer.println(counts[i]);
+			writer.print(counts[i]);
+			writer.println();
 		}
 	}
 
-	private void writeHist(final PrintWriter writer, final int[][] counts,
-			final int sizeX, final int sizeY) {
+	private void writeHist(final AsciiWriter writer, final int[][] counts,
+			final int sizeX, final int sizeY) throws IOException {
 		for (int x = 0; x < sizeX; x++) {
 			for (int y = 0; y < sizeY; y++) {
 				writer.print(counts[x][y]);
@@ -11,7 +11,13 @@ import jam.util.StringUtilities;
 import javax.swing.filechooser.FileFilter;
 import java.awt.*;
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.Calendar;
 import java.util.List;
 import java.util.logging.Level;
@@ -24,7 +30,9 @@ import java.util.logging.Level;
  * <LI>Data file-- <code><i>filename</i>.his</code></li>
  * <li>Directory file-- <code><i>filename</i>.drr</code></li>
  * </ul>
- * Where <code><i>filename</i></code> is the same for both files.
+ * Where <code><i>filename</i></code> is the same for both files. The data file
+ * is memory-mapped and decoded in bulk when read, and written through a
+ * channel a large buffer at a time.
  * @author Ken Swartz
  * @author <a href="mailto:dwvisser@users.sourceforge.net">Dale Visser </a>
  * @version 0.5
@@ -63,6 +71,9 @@ public class ImpExpORNL extends AbstractImpExp {// NOPMD
 
     private static final String[] EXTS = {"his", "drr" };
 
+    /* bytes buffered when writing the his file */
+    private static final int WRITE_BUFFER = 1 << 20;
+
     private static final ExtensionFileFilter FILTER = new ExtensionFileFilter(
             EXTS, "Oak Ridge DAMM");
 
@@ -120,6 +131,19 @@ public class ImpExpORNL extends AbstractImpExp {// NOPMD
         saveFile("Export ORNL", hist);
     }
 
+    /**
+     * Writes all histograms to the <code>.his</code> and <code>.drr</code>
+     * files named like the given one.
+     * @exception ImpExpException
+     *                if the files can't be written
+     */
+    @Override
+    public void saveFile(final File outFile, final AbstractHistogram hist)
+            throws ImpExpException {
+        setLastFile(outFile);
+        writeHist(null, hist);
+    }
+
     /**
      * Reads in a histogram from the event stream.
      * @exception ImpExpException
@@ -132,14 +156,14 @@ public class ImpExpORNL extends AbstractImpExp {// NOPMD
             readDrr(buffin); // read the drr file
             final String fileNameHis = this.fileUtilities.changeExtension(
                     getFileName(getLastFile()), "*.his", FileUtilities.FORCE);
-            /* open .his file random access, read only */
-            final RandomAccessFile fileHis = new RandomAccessFile(new File(
-                    getLastFile().getParentFile(), fileNameHis), "r");
             /* read in his file and load spectra */
-            for (int k = 0; k < totalHist; k++) {
-                readHist(fileHis, k);
+            try (FileChannel fileHis = FileChannel.open(new File(getLastFile()
+                    .getParentFile(), fileNameHis).toPath(),
+                    StandardOpenOption.READ)) {
+                for (int k = 0; k < totalHist; k++) {
+                    readHist(fileHis, k);
+                }
             }
-            fileHis.close();
         } catch (IOException ioe) {
             throw new ImpExpException(ioe);
         }
@@ -162,7 +186,8 @@ public class ImpExpORNL extends AbstractImpExp {// NOPMD
                     "Unable to read in signature. Wrong # of characters: "
                             + numRead);
         }
-        final String signature = String.valueOf(bsignature);
+        final String signature = new String(bsignature,
+                StandardCharsets.US_ASCII);
         if (!(signature.equals(SIGNATURE))) {
             throw new ImpExpException("Incorrect header, expected '"
                     + SIGNATURE + "', but got '" + signature + "'.");
@@ -254,7 +279,7 @@ public class ImpExpORNL extends AbstractImpExp {// NOPMD
                 throw new IOException(
                         "Wasn't able to read expected number of bytes for title.");
             }
-            titleDrr[i] = String.valueOf(titleb);
+            titleDrr[i] = new String(titleb, StandardCharsets.US_ASCII);
         }
     }
 
@@ -287,7 +312,7 @@ public class ImpExpORNL extends AbstractImpExp {// NOPMD
     /*
      * non-javadoc: Read in a histogram.
      */
-    private void readHist(final RandomAccessFile fileHis, final int index)
+    private void readHist(final FileChannel fileHis, final int index)
             throws IOException {
         /* copy to histogram variables */
         final String name = titleDrr[index].trim();
@@ -296,86 +321,76 @@ public class ImpExpORNL extends AbstractImpExp {// NOPMD
         final int wordCh = chSize[index];
         final int sizeX = lenParScal1[index];
         final int sizeY = lenParScal2[index];
-        if (type == 2) { // Read in 2D histogram
-            read2dHistogram(fileHis, index, name, number, wordCh, sizeX, sizeY);
-        } else { // Read in 1D Histogram
-            read1dHistogram(fileHis, index, name, number, wordCh, sizeX);
+        if (wordCh != 1 && wordCh != 2) { // unable to handle data type
+            throw new IOException("File uses " + wordCh
+                    + " words/channel, which can't be read.");
         }
+        final long channels = type == 2 ? (long) sizeX * sizeY : sizeX;
+        final ByteBuffer data = mapHistogram(fileHis, (long) offSet[index] * 2,
+                channels * wordCh * 2);
+        final Object counts = type == 2 ? read2dHistogram(data, wordCh,
+                sizeX, sizeY) : read1dHistogram(data, wordCh, sizeX);
+        final AbstractHistogram hist = Factory.createHistogram(importGroup,
+                counts, name);
+        hist.setNumber(number);
     }
 
-    private void read1dHistogram(final RandomAccessFile fileHis,
-            final int index, final String name, final int number,
-            final int wordCh, final int sizeX) throws IOException {
-        int[] counts = new int[sizeX];
-        fileHis.seek((long) offSet[index] * 2);
-        final int bytesToRead = sizeX * 4;
-        final byte[] inBuffer = new byte[bytesToRead];
-        final int numRead = fileHis.read(inBuffer); // read in byte array
-        if (numRead < bytesToRead) {
-            throw new IllegalStateException("Expected " + bytesToRead
-                    + " bytes, but only got " + numRead);
+    private ByteBuffer mapHistogram(final FileChannel fileHis,
+            final long position, final long bytesToRead) throws IOException {
+        final long available = fileHis.size() - position;
+        if (available < bytesToRead) {
+            throw new IOException("Expected " + bytesToRead
+                    + " bytes, but only got " + Math.max(0, available));
         }
+        if (bytesToRead > Integer.MAX_VALUE) {
+            throw new IOException("Histogram of " + bytesToRead
+                    + " bytes is too large to read.");
+        }
+        return fileHis.map(FileChannel.MapMode.READ_ONLY, position,
+                bytesToRead).order(byteOrder);
+    }
+
+    private int[] read1dHistogram(final ByteBuffer data, final int wordCh,
+            final int sizeX) {
+        final int[] counts = new int[sizeX];
         if (wordCh == 2) { // four byte data
-            int offset = 0;
-            for (int i = 0; i < sizeX; i++) {
-                counts[i] = numberUtilities.bytesToInt(inBuffer, offset,
-                        byteOrder);
-                offset += 4;
-            }
-        } else if (wordCh == 1) { // two byte data
-            int offset = 0;
+            data.asIntBuffer().get(counts);
+        } else { // two byte data
+            final ShortBuffer shorts = data.asShortBuffer();
             for (int i = 0; i < sizeX; i++) {
-                counts[i] = numberUtilities.bytesToShort(inBuffer, offset,
-                        byteOrder);
-                offset += 2;
+                counts[i] = shorts.get(i);
             }
-        } else { // unable to handle data type
-            throw new IOException("File uses " + wordCh
-                    + " words/channel, which can't be read.");
         }
-        final AbstractHistogram hist = Factory.createHistogram(importGroup,
-                counts, name);
-        hist.setNumber(number);
+        return counts;
     }
 
-    private void read2dHistogram(final RandomAccessFile fileHis,
-            final int index, final String name, final int number,
-            final int wordCh, final int sizeX, final int sizeY)
-            throws IOException {
-        int[][] counts2d = new int[sizeX][sizeY];
-        fileHis.seek((long) offSet[index] * 2);
-        final int bytesToRead = sizeX * sizeY * 4;
-        final byte[] inBuffer = new byte[bytesToRead];
-        final int numRead = fileHis.read(inBuffer); // read in byte array
-        if (numRead < bytesToRead) {
-            throw new IllegalStateException("Expected " + bytesToRead
-                    + " bytes, but only got " + numRead);
-        }
+    /*
+     * non-javadoc: Channels are stored a y-row at a time, so each row is read
+     * in bulk, then spread over the x-arrays.
+     */
+    private int[][] read2dHistogram(final ByteBuffer data, final int wordCh,
+            final int sizeX, final int sizeY) {
+        final int[][] counts2d = new int[sizeX][sizeY];
         if (wordCh == 2) { // four byte data
-            int offset = 0;
+            final IntBuffer ints = data.asIntBuffer();
+            final int[] row = new int[sizeX];
             for (int j = 0; j < sizeY; j++) {
+                ints.get(row);
                 for (int i = 0; i < sizeX; i++) {
-                    counts2d[i][j] = numberUtilities.bytesToInt(inBuffer,
-                            offset, byteOrder);
-                    offset += 4;
+                    counts2d[i][j] = row[i];
                 }
             }
-        } else if (wordCh == 1) { // two byte data
-            int offset = 0;
+        } else { // two byte data
+            final ShortBuffer shorts = data.asShortBuffer();
+            final short[] row = new short[sizeX];
             for (int j = 0; j < sizeY; j++) {
+                shorts.get(row);
                 for (int i = 0; i < sizeX; i++) {
-                    counts2d[i][j] = numberUtilities.bytesToShort(inBuffer,
-                            offset, byteOrder);
-                    offset += 2;
+                    counts2d[i][j] = row[i];
                 }
             }
-        } else { // not able to handle data
-            throw new IOException("File uses " + wordCh
-                    + " words/channel, which I don't know how to read.");
         }
-        final AbstractHistogram hist = Factory.createHistogram(importGroup,
-                counts2d, name);
-        hist.setNumber(number);
+        return counts2d;
     }
 
     /**
@@ -394,9 +409,6 @@ public class ImpExpORNL extends AbstractImpExp {// NOPMD
                     getLastFile().getName(), ".drr", FileUtilities.FORCE);
             final File parent = getLastFile().getParentFile();
             final File fileHis = new File(parent, fileNameHis);
-            final FileOutputStream fosHis = new FileOutputStream(fileHis);
-            final BufferedOutputStream buffoutHis = new BufferedOutputStream(
-                    fosHis);
 
             final File fileDRR = new File(parent, fileNameDRR);
             final FileOutputStream fosDRR = new FileOutputStream(fileDRR);
@@ -406,7 +418,12 @@ public class ImpExpORNL extends AbstractImpExp {// NOPMD
             LOGGER.info("Writing " + fileDRR.getName());
             writeDrr(buffoutDRR); // write out drr file
             LOGGER.info("Writing " + fileHis.getName());
-            writeHis(buffoutHis); // write out his file
+            try (FileChannel channelHis = FileChannel.open(
+                    fileHis.toPath(), StandardOpenOption.WRITE,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                writeHis(channelHis); // write out his file
+            }
         } catch (IOException ioe) {
             throw new ImpExpException(ioe);
         }
@@ -515,74 +532,83 @@ public class ImpExpORNL extends AbstractImpExp {// NOPMD
     }
 
     /*
-     * non-javadoc: Write out the .his file.
+     * non-javadoc: Write out the .his file, a buffer at a time, with counts
+     * put in bulk.
      */
-    private void writeHis(final OutputStream outputStream) throws IOException {
-        final DataOutputStream dosHis = new DataOutputStream(outputStream);
+    private void writeHis(final FileChannel channelHis) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER);
         for (AbstractHistogram hist : AbstractHistogram.getHistogramList()) {
             final HistogramType type = hist.getType();
             /* write as determined by type */
             if (type == HistogramType.ONE_DIM_INT) {
-                writeHist1dInt(dosHis, (HistInt1D) hist);
+                putCounts(channelHis, buffer, ((HistInt1D) hist).getCounts());
             } else if (type == HistogramType.ONE_D_DOUBLE) {
-                writeHist1dDouble(dosHis, (HistDouble1D) hist);
+                putCounts(channelHis, buffer,
+                        roundCounts(((HistDouble1D) hist).getCounts()));
             } else if (type == HistogramType.TWO_DIM_INT) {
-                writeHist2dInt(dosHis, (HistInt2D) hist);
+                putCounts(channelHis, buffer, ((HistInt2D) hist).getCounts());
             } else if (type == HistogramType.TWO_D_DOUBLE) {
-                writeHist2dDouble(dosHis, (HistDouble2D) hist);
+                final double[][] counts = ((HistDouble2D) hist).getCounts();
+                final int[][] rounded = new int[counts.length][];
+                for (int i = 0; i < counts.length; i++) {
+                    rounded[i] = roundCounts(counts[i]);
+                }
+                putCounts(channelHis, buffer, rounded);
             } else {
                 LOGGER.severe("Unrecognized histogram type [ImpExpORNL]");
             }
         }
-        LOGGER.info("File Size: " + dosHis.size() / 1024 + " kB");
-        dosHis.flush();
-        dosHis.close();
+        writeBuffer(channelHis, buffer);
+        LOGGER.info("File Size: " + channelHis.size() / 1024 + " kB");
     }
 
-    private void writeHist1dInt(final DataOutputStream dosHis,
-            final HistInt1D hist) throws IOException {
-        for (int aCountsInt : hist.getCounts()) {
-            dosHis.writeInt(aCountsInt);
+    private int[] roundCounts(final double[] counts) {
+        final int[] rval = new int[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            rval[i] = (int) (counts[i] + 0.5);
         }
+        return rval;
     }
 
-    private void writeHist1dDouble(final DataOutputStream dosHis,
-            final HistDouble1D hist) throws IOException {
-        for (double aCountsDbl : hist.getCounts()) {
-            dosHis.writeInt((int) (aCountsDbl + 0.5));
+    /*
+     * non-javadoc: Channels are stored a y-row at a time, as they are read, so
+     * each y-row is gathered from the x-arrays, then put in bulk.
+     */
+    private void putCounts(final FileChannel channelHis,
+            final ByteBuffer buffer, final int[][] counts2d)
+            throws IOException {
+        final int sizeY = counts2d.length == 0 ? 0 : counts2d[0].length;
+        final int[] row = new int[counts2d.length];
+        for (int j = 0; j < sizeY; j++) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] = counts2d[i][j];
+            }
+            putCounts(channelHis, buffer, row);
         }
     }
 
-    private void writeHist2dInt(final DataOutputStream dosHis,
-            final HistInt2D hist) throws IOException {
-        final int[][] counts2dInt = hist.getCounts();
-        final int sizeX = hist.getSizeX();
-        final int sizeY = hist.getSizeY();
-        for (int i = 0; i < sizeX; i++) {
-            for (int j = 0; j < sizeY; j++) {
-                /*
-                 * Next line was [j][i] which caused array out of bounds. Was
-                 * the order that way for some reason?
-                 */
-                dosHis.writeInt(counts2dInt[i][j]);
+    private void putCounts(final FileChannel channelHis,
+            final ByteBuffer buffer, final int[] counts) throws IOException {
+        int done = 0;
+        while (done < counts.length) {
+            if (buffer.remaining() < 4) {
+                writeBuffer(channelHis, buffer);
             }
+            final int count = Math.min(buffer.remaining() / 4, counts.length
+                    - done);
+            buffer.asIntBuffer().put(counts, done, count);
+            buffer.position(buffer.position() + 4 * count);
+            done += count;
         }
     }
 
-    private void writeHist2dDouble(final DataOutputStream dosHis,
-            final HistDouble2D hist) throws IOException {
-        final double[][] counts2dDbl = hist.getCounts();
-        final int sizeX = hist.getSizeX();
-        final int sizeY = hist.getSizeY();
-        for (int i = 0; i < sizeX; i++) {
-            for (int j = 0; j < sizeY; j++) {
-                /*
-                 * Next line was [j][i] which caused array out of bounds. Was
-                 * the order that way for some reason?
-                 */
-                dosHis.writeInt((int) (counts2dDbl[i][j] + 0.5));
-            }
+    private void writeBuffer(final FileChannel channelHis,
+            final ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channelHis.write(buffer);
         }
+        buffer.clear();
     }
 
     private int readInt(final DataInput dataInput) throws IOException {
@@ -625,6 +651,9 @@ public class ImpExpORNL extends AbstractImpExp {// NOPMD
             }
             if (inFile != null) { // if Open file was not canceled
                 setLastFile(inFile);
+                importGroup = Factory.createGroup(this.fileUtilities
+                        .removeExtensionFileName(inFile.getName()),
+                        Group.Type.FILE);
                 final File drrFile = (inFile.getName().endsWith("his")) ? new File(
                         inFile.getParent(),
                         this.fileUtilities.changeExtension(inFile.getName(),
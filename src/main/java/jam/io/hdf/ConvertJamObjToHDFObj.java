@@ -22,6 +22,9 @@ final class ConvertJamObjToHDFObj {
 
     private transient final StringUtilities stringUtilities;
 
+    /* whether to convert the counts frozen at the last rollover */
+    private transient boolean frozen = false;
+
     /**
      * Constructs a Jam-to-HDF object converter.
      */
@@ -160,6 +163,17 @@ final class ConvertJamObjToHDFObj {
         return virtualGroup;
     }
 
+    /**
+     * Sets whether histograms are converted with the counts frozen at the
+     * last rollover, where they have any, instead of their current counts.
+     * @param state
+     *            <code>true</code> to convert frozen counts
+     * @see AbstractHistogram#rolloverAll()
+     */
+    void setFrozen(final boolean state) {
+        frozen = state;
+    }
+
     /*
      * non-javadoc: Convert a histogram into a hdf Virtual group @param hist
      * 
@@ -182,22 +196,32 @@ final class ConvertJamObjToHDFObj {
         final HistogramType type = hist.getType();
         ScientificData sciData;
         AbstractHist1D hist1d = null;
+        final Object frozenCounts = frozen ? hist.getFrozenCounts() : null;
         if (type == HistogramType.ONE_DIM_INT) {
-            sciData = new ScientificData(((HistInt1D) hist).getCounts());
+            sciData = new ScientificData(frozenCounts == null ? ((HistInt1D) hist)
+                    .getCounts()
+                    : (int[]) frozenCounts);
             hist1d = (AbstractHist1D) hist;
         } else if (type == HistogramType.ONE_D_DOUBLE) {
-            sciData = new ScientificData(((HistDouble1D) hist).getCounts());
+            sciData = new ScientificData(frozenCounts == null ? ((HistDouble1D) hist)
+                    .getCounts()
+                    : (double[]) frozenCounts);
             hist1d = (AbstractHist1D) hist;
         } else if (type == HistogramType.TWO_DIM_INT) {
-            sciData = new ScientificData(((HistInt2D) hist).getCounts());
+            sciData = new ScientificData(frozenCounts == null ? ((HistInt2D) hist)
+                    .getCounts()
+                    : (int[][]) frozenCounts);
         } else if (type == HistogramType.TWO_D_DOUBLE) {
-            sciData = new ScientificData(((HistDouble2D) hist).getCounts());
+            sciData = new ScientificData(frozenCounts == null ? ((HistDouble2D) hist)
+                    .getCounts()
+                    : (double[][]) frozenCounts);
         } else {
             throw new IllegalArgumentException(
                     "HDFIO encountered a Histogram of unknown type.");
         }
         ndg.addDataObject(sciData);
-        if (hist1d != null && hist1d.hasErrorsSet()) {// Add errors
+        /* errors are of the current counts, not frozen ones */
+        if (hist1d != null && frozenCounts == null && hist1d.hasErrorsSet()) {// Add errors
             ScientificDataDimension sddErr = null;
             if (type == HistogramType.ONE_DIM_INT) {
                 sddErr = getSDD(hist, NumberType.DOUBLE);
@@ -339,7 +363,8 @@ final class ConvertJamObjToHDFObj {
             data.addInteger(0, i, scaler.getNumber());
             data.addChars(1, i, stringUtilities.makeLength(scaler.getName(),
                     orders[1]));
-            data.addInteger(2, i, scaler.getValue());
+            data.addInteger(2, i, frozen ? scaler.getFrozenValue() : scaler
+                    .getValue());
         }
 
         return desc;
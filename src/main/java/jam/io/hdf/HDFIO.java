@@ -18,6 +18,8 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.prefs.Preferences;
@@ -287,10 +289,12 @@ public final class HDFIO implements DataIO {
 	 * @param writeScalers whether to write out histograms scalers @param
 	 * writeParams whether to write out gates, calibration and parameters
 	 */
-	private void asyncWriteFile(final File file, final List<Group> groups,
+	private boolean asyncWriteFile(final File file, final List<Group> groups,
 			final List<AbstractHistogram> histograms, final boolean writeData,
-			final boolean writeSettings) {
+			final boolean writeSettings, final boolean frozen,
+			final CountDownLatch copied) {
 		synchronized (this) {
+			boolean rval = false;
 			final StringBuilder message = new StringBuilder(60);
 			/* reset all counters */
 			groupCount = 0;
@@ -303,14 +307,21 @@ public final class HDFIO implements DataIO {
 			asyncMonitor.setup("Saving HDF file", "Converting Objects",
 					MonitorSteps.READ_WRITE + MonitorSteps.OVERHEAD_WRITE);
 			final Preferences prefs = HDFPrefs.PREFS;
-			final boolean suppressEmpty = prefs.getBoolean(
-					HDFPrefs.SUPPRES_EMPTY, true);
+			/* can't tell whether frozen counts are empty */
+			final boolean suppressEmpty = !frozen
+					&& prefs.getBoolean(HDFPrefs.SUPPRES_EMPTY, true);
 			asyncMonitor.increment();
 			HDFile out = null;
+			jamToHDF.setFrozen(frozen);
 			try {
-				convertJamToHDF(groups, histograms, writeData, writeSettings,
-						suppressEmpty);
-
+				try {
+					convertJamToHDF(groups, histograms, writeData,
+							writeSettings, suppressEmpty);
+				} finally {
+					/* the converted objects hold copies of the counts */
+					jamToHDF.setFrozen(false);
+					copied.countDown();
+				}
 				out = new HDFile(file, "rw", asyncMonitor,
 						MonitorSteps.READ_WRITE);
 				asyncMonitor.setNote("Writing Data Objects");
@@ -318,6 +329,7 @@ public final class HDFIO implements DataIO {
 				asyncMonitor.setNote("Closing File");
 				message.append("Saved ").append(file.getName());
 				this.appendDataCounts(message);
+				rval = true;
 			} catch (FileNotFoundException e) {
 				uiErrorMsg = "Opening file: " + file.getName();
 			} catch (HDFException e) {
@@ -337,6 +349,7 @@ public final class HDFIO implements DataIO {
 			AbstractData.clearAll();
 			setLastValidFile(file);
 			uiMessage = message.toString();
+			return rval && uiErrorMsg.length() == 0;
 		}
 	}
 
@@ -959,7 +972,88 @@ public final class HDFIO implements DataIO {
 			@Override
 			public Object construct() {
 				HDFIO.this.asyncWriteFile(file, groups, histograms, writeData,
-						wrtSettings);
+						wrtSettings, false, new CountDownLatch(1));
+				return null;
+			}
+
+			@Override
+			public void finished() {
+				if (HDFIO.this.uiErrorMsg.length() == 0) {
+					LOGGER.info(uiMessage);
+				} else {
+					LOGGER.severe(uiErrorMsg);
+				}
+			}
+		};
+		worker.start();
+	}
+
+	/**
+	 * Writes out an HDF file of a group as it is now, e.g., at the end of a
+	 * run, without waiting for the file to be written. Returns once the
+	 * histograms and scalers have been copied, so they may be zeroed for the
+	 * next run while the file is written in the background. First waits for
+	 * any file already being read or written, though. Unlike
+	 * <code>writeFile()</code>, overwrites an existing file without asking.
+	 * Mustn't be called on the Swing thread, which shows the progress of the
+	 * copying.
+	 * 
+	 * @param file
+	 *            to write to
+	 * @param group
+	 *            to write
+	 * @return completes when the file has been written, exceptionally if it
+	 *         couldn't be
+	 */
+	public CompletableFuture<File> writeSnapshot(final File file,
+			final Group group) {
+		return writeInBackground(file, group, false);
+	}
+
+	/**
+	 * Writes out an HDF file of a group with the counts frozen at the last
+	 * rollover, in the background. Gates, calibrations and scalers are
+	 * written as they are now. Returns once the counts have been converted,
+	 * after which they may be released. Mustn't be called on the Swing
+	 * thread, which shows the progress of the converting.
+	 * 
+	 * @param file
+	 *            to write to, overwritten if it exists
+	 * @param group
+	 *            to write
+	 * @return completes when the file has been written, exceptionally if it
+	 *         couldn't be
+	 * @see AbstractHistogram#rolloverAll()
+	 */
+	public CompletableFuture<File> writeFrozen(final File file,
+			final Group group) {
+		return writeInBackground(file, group, true);
+	}
+
+	private CompletableFuture<File> writeInBackground(final File file,
+			final Group group, final boolean frozen) {
+		if (SwingUtilities.isEventDispatchThread()) {
+			throw new IllegalStateException(
+					"Waiting on the Swing thread for the counts to be copied"
+							+ " would stop the progress monitor.");
+		}
+		final List<Group> groups = Collections.singletonList(group);
+		final List<AbstractHistogram> histograms = new ArrayList<>(
+				group.histograms.getList());
+		final CountDownLatch copied = new CountDownLatch(1);
+		final CompletableFuture<File> written = new CompletableFuture<>();
+		this.uiMessage = "";
+		this.uiErrorMsg = "";
+		final AbstractSwingWorker worker = new AbstractSwingWorker() {
+			@Override
+			public Object construct() {
+				if (HDFIO.this.asyncWriteFile(file, groups, histograms, true,
+						true, frozen, copied)) {
+					written.complete(file);
+				} else {
+					written.completeExceptionally(new IOException(
+							"Couldn't write " + file.getPath()));
+				}
 				return null;
 			}
 
@@ -973,6 +1067,14 @@ public final class HDFIO implements DataIO {
 			}
 		};
 		worker.start();
+		try {
+			copied.await();
+		} catch (InterruptedException ie) {
+			LOGGER.log(Level.WARNING, "Interrupted copying data to write to "
+					+ file.getPath(), ie);
+			Thread.currentThread().interrupt();
+		}
+		return written;
 	}
 
 	private static final List<AbstractHistogram> EMPTY_HIST_LIST = Collections
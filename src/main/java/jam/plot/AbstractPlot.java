@@ -69,6 +69,12 @@ abstract class AbstractPlot implements PreferenceChangeListener, Dimensional,
     /** Number of Histogram to plot */
     private transient int plotHistNum = -1;
 
+    /**
+     * Histogram modification count as of the last copy of its counts, -1 if
+     * the counts must be copied in full.
+     */
+    protected transient long countsStamp = -1L;
+
     /* Gives channels of mouse click. */
     protected transient final PlotMouse plotMouse;
 
@@ -192,6 +198,7 @@ abstract class AbstractPlot implements PreferenceChangeListener, Dimensional,
                 size = new Size(100);
             } else {
                 plotHistNum = hist.getNumber();
+                countsStamp = -1L;
                 copyCounts(hist); // copy hist counts
                 /* Limits contains handle to Models */
                 scrollbars.setLimits(limits);
@@ -534,6 +541,22 @@ abstract class AbstractPlot implements PreferenceChangeListener, Dimensional,
         panel.repaint();
     }
 
+    /**
+     * Copies the counts and repaints, only if the histogram has changed since
+     * its counts were last copied. Unlike <code>update()</code>, leaves fits,
+     * gates and overlays displayed.
+     */
+    protected void refreshIfChanged() {
+        final AbstractHistogram plotHist = getHistogram();
+        if (plotHist != null
+                && plotHist.getModificationCount() != countsStamp) {
+            synchronized (this) {
+                copyCounts(plotHist);
+            }
+            panel.repaint();
+        }
+    }
+
     protected abstract void removeOverlays();
 
     /**
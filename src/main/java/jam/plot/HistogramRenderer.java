@@ -0,0 +1,270 @@
+package jam.plot;
+
+import jam.data.AbstractHist1D;
+import jam.data.AbstractHist2D;
+import jam.data.AbstractHistogram;
+import jam.data.Group;
+import jam.plot.color.ColorPrefs;
+import jam.plot.color.ColorScale;
+import jam.plot.color.DiscreteColorScale;
+import jam.plot.color.GradientColorScale;
+import jam.plot.color.PlotColorMap;
+import jam.plot.common.Scale;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static javax.swing.SwingConstants.BOTTOM;
+import static javax.swing.SwingConstants.LEFT;
+import static javax.swing.SwingConstants.TOP;
+
+/**
+ * Renders histograms to offscreen images, without any Swing components, so
+ * that it works with <code>java.awt.headless=true</code>, e.g., to write
+ * thumbnails of every spectrum to a run logbook. The plots are drawn by the
+ * same <code>Painter</code> as the display, using each histogram's current
+ * display limits and the current color preferences. Every plot gets its own
+ * painter and color scales, so whole groups are rendered in parallel.
+ *
+ * @see Painter
+ * @see javax.imageio.ImageIO
+ */
+public final class HistogramRenderer {
+
+	private static final PlotColorMap COLOR_MAP = PlotColorMap.getInstance();
+
+	private static final String X_LABEL = "Channels";
+
+	private static final String Y_LABEL_1D = "Counts";
+
+	private transient final Dimension size;
+
+	private transient final String format;
+
+	/**
+	 * Creates a renderer for images of the given size and format.
+	 *
+	 * @param width
+	 *            in pixels
+	 * @param height
+	 *            in pixels
+	 * @param format
+	 *            informal name of an <code>ImageIO</code> writer, e.g., "png"
+	 * @throws IllegalArgumentException
+	 *             if the size isn't positive or no writer exists for the
+	 *             format
+	 */
+	public HistogramRenderer(final int width, final int height,
+			final String format) {
+		super();
+		if (width <= 0 || height <= 0) {
+			throw new IllegalArgumentException("Image size must be positive: "
+					+ width + "x" + height);
+		}
+		if (!ImageIO.getImageWritersByFormatName(format).hasNext()) {
+			throw new IllegalArgumentException("No image writer for format: "
+					+ format);
+		}
+		size = new Dimension(width, height);
+		this.format = format;
+	}
+
+	/**
+	 * Draws the given histogram, as it would appear on the display.
+	 *
+	 * @param hist
+	 *            1d or 2d histogram
+	 * @return an image of the plot
+	 */
+	public BufferedImage render(final AbstractHistogram hist) {
+		final BufferedImage image = new BufferedImage(size.width, size.height,
+				BufferedImage.TYPE_INT_RGB);
+		final Graphics2D graphics = image.createGraphics();
+		try {
+			graphics.setColor(COLOR_MAP.getBackground());
+			graphics.fillRect(0, 0, size.width, size.height);
+			final Limits limits = Limits.getLimits(hist);
+			final Painter painter = new Painter(hist);
+			painter.update(graphics, size, limits);
+			graphics.setColor(COLOR_MAP.getForeground());
+			painter.drawBorder();
+			final String labelY;
+			if (hist.getDimensionality() == 1) {
+				graphics.setColor(COLOR_MAP.getHistogram());
+				painter.drawHist(getCounts((AbstractHist1D) hist), 1.0);
+				labelY = Y_LABEL_1D;
+			} else {
+				paint2d(painter, graphics, (AbstractHist2D) hist, limits);
+				labelY = X_LABEL;
+			}
+			graphics.setColor(COLOR_MAP.getForeground());
+			painter.drawTitle(hist.getTitle(), TOP);
+			painter.drawNumber(hist.getNumber(), new int[0]);
+			painter.drawTicks(BOTTOM);
+			painter.drawLabels(BOTTOM);
+			painter.drawTicks(LEFT);
+			painter.drawLabels(LEFT);
+			final String axisLabelX = hist.getLabelX();
+			painter.drawAxisLabel(axisLabelX == null ? X_LABEL : axisLabelX,
+					BOTTOM);
+			final String axisLabelY = hist.getLabelY();
+			painter.drawAxisLabel(axisLabelY == null ? labelY : axisLabelY,
+					LEFT);
+		} finally {
+			graphics.dispose();
+		}
+		return image;
+	}
+
+	private static double[] getCounts(final AbstractHist1D hist) {
+		final double[] rval = new double[hist.getSizeX()];
+		for (int i = 0; i < rval.length; i++) {
+			rval[i] = hist.getCounts(i);
+		}
+		return rval;
+	}
+
+	private static void paint2d(final Painter painter,
+			final Graphics2D graphics, final AbstractHist2D hist,
+			final Limits limits) {
+		final double[][] counts = new double[hist.getSizeX()][hist
+				.getSizeY()];
+		hist.copyCounts(counts, -1L);
+		final int maxX = Math.min(limits.getMaximumX(), counts.length - 1);
+		final int maxY = Math.min(limits.getMaximumY(),
+				counts[0].length - 1);
+		final int minX = Math.max(0, limits.getMinimumX());
+		final int minY = Math.max(0, limits.getMinimumY());
+		final Scale scale = limits.getScale();
+		final DiscreteColorScale dcs = DiscreteColorScale.create(scale);
+		if (PlotPreferences.PREFS.getBoolean(ColorPrefs.SMOOTH_SCALE, true)) {
+			final ColorScale colors = GradientColorScale.create(scale);
+			painter.drawHist2d(counts, minX, minY, maxX, maxY, colors);
+			graphics.setColor(COLOR_MAP.getForeground());
+			painter.drawScale2d(colors, dcs);
+		} else {
+			painter.drawHist2d(counts, minX, minY, maxX, maxY, dcs);
+			graphics.setColor(COLOR_MAP.getForeground());
+			painter.drawScale2d(dcs);
+		}
+	}
+
+	/**
+	 * Draws the given histogram and writes it to a file.
+	 *
+	 * @param hist
+	 *            1d or 2d histogram
+	 * @param file
+	 *            to write to
+	 * @throws IOException
+	 *             if the file couldn't be written
+	 */
+	public void write(final AbstractHistogram hist, final File file)
+			throws IOException {
+		if (!ImageIO.write(render(hist), format, file)) {
+			throw new IOException("No image writer for format: " + format);
+		}
+	}
+
+	/**
+	 * Draws every histogram in a group, in parallel using all available
+	 * processors, and writes them to files in the given directory.
+	 *
+	 * @param group
+	 *            whose histograms to draw
+	 * @param directory
+	 *            to write to, created if necessary
+	 * @return the files written
+	 * @throws IOException
+	 *             if any file couldn't be written
+	 * @see #getFile(File, AbstractHistogram)
+	 */
+	public List<File> write(final Group group, final File directory)
+			throws IOException {
+		final ExecutorService executor = Executors.newFixedThreadPool(Runtime
+				.getRuntime().availableProcessors());
+		try {
+			return write(group.histograms.getList(), directory, executor);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Draws the given histograms in parallel, and writes them to files in the
+	 * given directory.
+	 *
+	 * @param hists
+	 *            to draw
+	 * @param directory
+	 *            to write to, created if necessary
+	 * @param executor
+	 *            runs the rendering tasks
+	 * @return the files written
+	 * @throws IOException
+	 *             if any file couldn't be written
+	 * @see #getFile(File, AbstractHistogram)
+	 */
+	public List<File> write(final List<? extends AbstractHistogram> hists,
+			final File directory, final ExecutorService executor)
+			throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Couldn't create directory: " + directory);
+		}
+		final List<Future<File>> futures = new ArrayList<>(hists.size());
+		for (final AbstractHistogram hist : hists) {
+			futures.add(executor.submit(new Callable<File>() {
+				public File call() throws IOException {
+					final File file = getFile(directory, hist);
+					write(hist, file);
+					return file;
+				}
+			}));
+		}
+		final List<File> rval = new ArrayList<>(hists.size());
+		try {
+			for (Future<File> future : futures) {
+				rval.add(future.get());
+			}
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while rendering.", ie);
+		} catch (ExecutionException ee) {
+			final Throwable cause = ee.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			throw new IOException("Failed rendering histogram.", cause);
+		} finally {
+			for (Future<File> future : futures) {
+				future.cancel(true);
+			}
+		}
+		return rval;
+	}
+
+	/**
+	 * Returns the file that a histogram is written to, named after its group
+	 * and name, with characters unsafe in file names replaced.
+	 *
+	 * @param directory
+	 *            to write to
+	 * @param hist
+	 *            histogram
+	 * @return file to write to
+	 */
+	public File getFile(final File directory, final AbstractHistogram hist) {
+		final String name = hist.getFullName().replaceAll("[^\\w.-]", "_");
+		return new File(directory, name + '.' + format);
+	}
+}
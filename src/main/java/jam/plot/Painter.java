@@ -788,13 +788,26 @@ final class Painter {
 		synchronized (limitsLock) {
 			scale = plotLimits.getScale();
 		}
-		final ColorScale colors = GradientColorScale.getScale(scale);
+		drawScale2d(GradientColorScale.getScale(scale), DiscreteColorScale
+				.getScale(scale));
+	}
+
+	/**
+	 * Draw a smooth scale for a 2d plot, labeled with the thresholds of a
+	 * discrete scale.
+	 * 
+	 * @param colors
+	 *            smooth colors to draw
+	 * @param dcs
+	 *            supplies the thresholds to label
+	 */
+	protected void drawScale2d(final ColorScale colors,
+			final DiscreteColorScale dcs) {
 		final int lowerLimit = getMinimumCounts();
 		final int upperLimit = getMaximumCounts();
 		colors.setRange(lowerLimit, upperLimit);
 		setGraphicsFont(font);
 		final int textHeight = metrics.getAscent();
-		final DiscreteColorScale dcs = DiscreteColorScale.getScale(scale);
 		dcs.setRange(lowerLimit, upperLimit);
 		final int[] colorThresholds = dcs.getColorThresholds();
 		final int numberColors = colorThresholds.length;
@@ -830,7 +843,7 @@ final class Painter {
 	 */
 	protected void drawHist2d(final double[][] counts, final int minChanX,
 			final int minChanY, final int maxChanX, final int maxChanY,
-			final DiscreteColorScale colors) {
+			final ColorScale colors) {
 		final int minCount = getMinimumCounts();
 		colors.setRange(minCount, getMaximumCounts());
 		/* for each bin */
@@ -859,9 +872,9 @@ final class Painter {
 	}
 
 	/*
-	 * non-javadoc: Draw a 2d plot.
+	 * non-javadoc: Draw a 2d plot with the shared smooth color scale.
 	 * 
-	 * @param counts the counts to be displayed @param colors the colors to use
+	 * @param counts the counts to be displayed
 	 * 
 	 * @since Version 0.5
 	 */
@@ -871,25 +884,7 @@ final class Painter {
 		synchronized (limitsLock) {
 			colors = GradientColorScale.getScale(plotLimits.getScale());
 		}
-		final int minCount = getMinimumCounts();
-		colors.setRange(minCount, getMaximumCounts());
-		/* loop over channels */
-		for (int j = minChanY; j <= maxChanY; j++) {
-			for (int i = minChanX; i <= maxChanX; i++) {
-				final double count = counts[i][j];
-				/* quickly check above lower limit */
-				if (count > minCount) {
-					graphics2d.setColor(colors.getColor(count));
-					/* inline for speed */
-					final int xValue = toViewHorzLin(i);
-					final int yValue = toViewVertLin(j);
-					final int channelWidth = toViewHorzLin(i + 1) - xValue;
-					final int channelHeight = yValue - toViewVertLin(j + 1);
-					graphics2d.fillRect(xValue, yValue - channelHeight + 1,
-							channelWidth, channelHeight);
-				} // end of loop for each point
-			}
-		}
+		drawHist2d(counts, minChanX, minChanY, maxChanX, maxChanY, colors);
 	}
 
 	/*
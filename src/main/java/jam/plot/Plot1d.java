@@ -126,6 +126,7 @@ final class Plot1d extends AbstractPlot {
 	protected void copyCounts(final AbstractHistogram hist) {
 		final HistogramType type = hist.getType();
 		size = new Size(hist.getSizeX(), hist.getSizeY());
+		countsStamp = hist.getModificationCount();
 		if (type == HistogramType.ONE_DIM_INT) {
 			final int[] temp = ((HistInt1D) hist).getCounts();
 			counts = this.numberUtilities.intToDoubleArray(temp);
@@ -81,27 +81,17 @@ final class Plot2d extends AbstractPlot {
 
 	@Override
 	protected void copyCounts(final AbstractHistogram hist) {
-		final HistogramType type = hist.getType();
-		size = new Size(hist.getSizeX(), hist.getSizeY());
-		counts2d = new double[size.getSizeX()][size.getSizeY()];
-		if (type == HistogramType.TWO_DIM_INT) {
-			copyCounts2dInt((HistInt2D) hist);
-		} else {// must be floating point
-			final double[][] counts2dDble = ((HistDouble2D) hist).getCounts();
-			for (int i = 0; i < hist.getSizeX(); i++) {
-				System.arraycopy(counts2dDble[i], 0, counts2d[i], 0, hist
-						.getSizeY());
-			}
-		}
-	}
-
-	private void copyCounts2dInt(final HistInt2D hist) {
-		final int[][] counts2dInt = hist.getCounts();
-		for (int i = 0; i < hist.getSizeX(); i++) {
-			for (int j = 0; j < hist.getSizeY(); j++) {
-				counts2d[i][j] = counts2dInt[i][j];
-			}
+		final int sizeX = hist.getSizeX();
+		final int sizeY = hist.getSizeY();
+		size = new Size(sizeX, sizeY);
+		if (counts2d.length != sizeX
+				|| (sizeX > 0 && counts2d[0].length != sizeY)) {
+			counts2d = new double[sizeX][sizeY];
+			countsStamp = -1L;
 		}
+		/* only rows changed since the last copy */
+		countsStamp = ((AbstractHist2D) hist).copyCounts(counts2d,
+				countsStamp);
 	}
 
 	@Override
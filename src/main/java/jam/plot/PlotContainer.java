@@ -277,6 +277,16 @@ public final class PlotContainer implements PlotContainerSelectListener {
         }
     }
 
+    /**
+     * Only refresh plot if it has a histogram which has changed since last
+     * drawn
+     */
+    protected void refreshIfChanged() {
+        if (hasData) {
+            getPlot().refreshIfChanged();
+        }
+    }
+
     /**
      * @return currently selected subplot
      */
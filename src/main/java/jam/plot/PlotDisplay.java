@@ -81,6 +81,9 @@ public final class PlotDisplay extends JPanel implements
 
     private transient final Broadcaster broadcaster;
 
+    /** Refreshes plots automatically as their histograms change */
+    private transient final RefreshScheduler refreshScheduler;
+
     /**
      * Constructor called by all constructors
      * @param status
@@ -115,6 +118,7 @@ public final class PlotDisplay extends JPanel implements
         this.add(toolbar, location);
         initPrefs();
         isOverlay = false;
+        refreshScheduler = new RefreshScheduler(this);
     }
 
     /**
@@ -397,6 +401,18 @@ public final class PlotDisplay extends JPanel implements
         }
     }
 
+    /**
+     * Refresh only the visible plots whose histograms have changed since they
+     * were last drawn.
+     */
+    void refreshChanged() {
+        final int numberPlots = currentView == null ? 0 : currentView
+                .getNumberHists();
+        for (int i = 0; i < numberPlots && i < plotContainers.size(); i++) {
+            plotContainers.get(i).refreshIfChanged();
+        }
+    }
+
     @Override
     public void propertyChange(PropertyChangeEvent evt) {
         final BroadcastEvent event = (BroadcastEvent) evt;
@@ -66,4 +66,27 @@ public final class PlotPreferences {
 	 * Preference for whether to draw axis labels.
 	 */
 	public static final String DISPLAY_LABELS = "DisplayAxisLabels";
+
+	/**
+	 * Preference for whether to automatically refresh plots whose histograms
+	 * have changed, e.g., during online sorting.
+	 */
+	public static final String AUTO_REFRESH = "AutoRefresh";
+
+	/**
+	 * Preference for the maximum number of automatic refreshes per second,
+	 * from 1 to <code>MAX_REFRESH_RATE</code>, set with "Plot Refresh Rate..."
+	 * in the Preferences menu.
+	 */
+	public static final String REFRESH_RATE = "RefreshRate";
+
+	/**
+	 * Refreshes per second if <code>REFRESH_RATE</code> hasn't been set.
+	 */
+	public static final int DEFAULT_REFRESH_RATE = 4;
+
+	/**
+	 * Greatest allowed value of <code>REFRESH_RATE</code>.
+	 */
+	public static final int MAX_REFRESH_RATE = 50;
 }
@@ -0,0 +1,67 @@
+package jam.plot;
+
+import static jam.plot.PlotPreferences.AUTO_REFRESH;
+import static jam.plot.PlotPreferences.DEFAULT_REFRESH_RATE;
+import static jam.plot.PlotPreferences.MAX_REFRESH_RATE;
+import static jam.plot.PlotPreferences.PREFS;
+import static jam.plot.PlotPreferences.REFRESH_RATE;
+
+import java.util.prefs.PreferenceChangeEvent;
+import java.util.prefs.PreferenceChangeListener;
+
+import javax.swing.Timer;
+
+/**
+ * Periodically refreshes the displayed plots whose histograms have changed,
+ * e.g., while sorting online. Each tick only compares the histograms'
+ * modification counts against those last drawn, so an idle display costs
+ * almost nothing, and however fast events arrive, refreshes are coalesced to
+ * at most the preferred frame rate.
+ * @see PlotPreferences#AUTO_REFRESH
+ * @see PlotPreferences#REFRESH_RATE
+ * @see jam.data.AbstractHistogram#getModificationCount()
+ */
+final class RefreshScheduler implements PreferenceChangeListener {
+
+    private static final int MILLIS_PER_SECOND = 1000;
+
+    private transient final Timer timer;
+
+    RefreshScheduler(final PlotDisplay display) {
+        super();
+        timer = new Timer(delay(PREFS.getInt(REFRESH_RATE,
+                DEFAULT_REFRESH_RATE)), event -> display.refreshChanged());
+        timer.setCoalesce(true);
+        PREFS.addPreferenceChangeListener(this);
+        setRunning(PREFS.getBoolean(AUTO_REFRESH, false));
+    }
+
+    private static int delay(final int rate) {
+        final int bounded = Math.max(1, Math.min(MAX_REFRESH_RATE, rate));
+        return MILLIS_PER_SECOND / bounded;
+    }
+
+    private void setRunning(final boolean state) {
+        if (state) {
+            timer.start();
+        } else {
+            timer.stop();
+        }
+    }
+
+    public void preferenceChange(final PreferenceChangeEvent pce) {
+        final String key = pce.getKey();
+        if (AUTO_REFRESH.equals(key)) {
+            setRunning(Boolean.parseBoolean(pce.getNewValue()));
+        } else if (REFRESH_RATE.equals(key)) {
+            int rate = DEFAULT_REFRESH_RATE;
+            try {
+                rate = Integer.parseInt(pce.getNewValue());
+            } catch (NumberFormatException nfe) {
+                rate = DEFAULT_REFRESH_RATE;
+            }
+            timer.setDelay(delay(rate));
+            timer.setInitialDelay(delay(rate));
+        }
+    }
+}
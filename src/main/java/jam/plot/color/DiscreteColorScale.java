@@ -88,7 +88,6 @@ public final class DiscreteColorScale implements ColorScale {
 	private DiscreteColorScale(final Scale newScale) {
 		super();
 		scale = newScale;
-		setColors(Mode.B_ON_W);
 	}
 
 	private static final DiscreteColorScale LOG = new DiscreteColorScale(
@@ -109,6 +108,18 @@ public final class DiscreteColorScale implements ColorScale {
 		return scale == Scale.LINEAR ? LINEAR : LOG;
 	}
 
+	/**
+	 * Returns a new discrete color scale, with its own thresholds, so that it
+	 * may be used to paint on other threads than the shared scales.
+	 * 
+	 * @param scale
+	 *            the counts scale
+	 * @return a new color scale
+	 */
+	public static DiscreteColorScale create(final Scale scale) {
+		return new DiscreteColorScale(scale);
+	}
+
 	private transient int[] thresholds = new int[0];
 
 	static private Color[] colors = B_ON_W;
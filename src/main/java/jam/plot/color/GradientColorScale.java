@@ -14,10 +14,10 @@ import static jam.plot.color.ColorPrefs.COLOR_PREFS;
 public final class GradientColorScale implements ColorScale {
 
 	private static final GradientColorScale LINEAR = new GradientColorScale(0,
-			100, Scale.LINEAR);
+			100, Scale.LINEAR).trackPreferences();
 
 	private static final GradientColorScale LOG = new GradientColorScale(0,
-			100, Scale.LOG);
+			100, Scale.LOG).trackPreferences();
 
 	protected static Color getRGB(final double level, final double x0R,
 			final double sigR, final double x0G, final double sigG,
@@ -47,6 +47,20 @@ public final class GradientColorScale implements ColorScale {
 		}
 	}
 
+	/**
+	 * Returns a new gradient color scale with the current gradient settings.
+	 * Unlike the shared scales returned by <code>getScale()</code>, it has its
+	 * own range, so it may be used to paint on other threads, and it does not
+	 * follow later changes to the settings.
+	 * 
+	 * @param scale
+	 *            type of counts scale
+	 * @return a new gradient color scale
+	 */
+	static public GradientColorScale create(final Scale scale) {
+		return new GradientColorScale(0, 100, scale);
+	}
+
 	private transient double blueCenter = COLOR_PREFS.getDouble(
 			GradientSpecFieldsRGB.X0B.toString(), 0.2);
 
@@ -71,7 +85,7 @@ public final class GradientColorScale implements ColorScale {
 	private transient double redSpread = COLOR_PREFS.getDouble(
 			GradientSpecFieldsRGB.ARED.toString(), 0.25);
 
-	{// NOPMD
+	private GradientColorScale trackPreferences() {
 		COLOR_PREFS.addPreferenceChangeListener(pce -> {
             final String key = pce.getKey();
             if (!key.equals(ColorPrefs.SMOOTH_SCALE)) {
@@ -94,6 +108,7 @@ public final class GradientColorScale implements ColorScale {
                 }
             }
         });
+		return this;
 	}
 
 	/**
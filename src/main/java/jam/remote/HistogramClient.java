@@ -0,0 +1,207 @@
+package jam.remote;
+
+import jam.data.AbstractHistogram;
+import jam.data.Factory;
+import jam.data.Group;
+import jam.data.HistDouble2D;
+import jam.data.HistInt2D;
+import jam.data.HistogramType;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Views the histograms of a remote Jam process, served by a
+ * <code>HistogramServer</code>. Linking creates local copies of the remote
+ * histograms, which are kept current by the updates the server sends, so
+ * displays of them need nothing from the network.
+ *
+ * @see HistogramServer
+ */
+public final class HistogramClient implements Closeable {
+
+	private static final Logger LOGGER = Logger.getLogger(HistogramClient.class
+			.getPackage().getName());
+
+	private static final int STREAM_BUFFER = 0x10000;
+
+	/* milliseconds to wait for the server when connecting and linking */
+	private static final int TIMEOUT = 5000;
+
+	private transient final Socket socket;
+
+	private transient final DataInputStream input;
+
+	private transient final DataOutputStream output;
+
+	/* local copies, by remote full name */
+	private transient final Map<String, AbstractHistogram> cache = new HashMap<>();
+
+	/**
+	 * Connects to a server, giving up if it doesn't answer in a few seconds.
+	 *
+	 * @param host
+	 *            where the server is
+	 * @param port
+	 *            the server listens on
+	 * @throws IOException
+	 *             if the server can't be reached
+	 */
+	public HistogramClient(final String host, final int port)
+			throws IOException {
+		super();
+		socket = new Socket();
+		try {
+			socket.connect(new InetSocketAddress(host, port), TIMEOUT);
+		} catch (IOException ioe) {
+			socket.close();
+			throw ioe;
+		}
+		socket.setTcpNoDelay(true);
+		socket.setSoTimeout(TIMEOUT);
+		input = new DataInputStream(new BufferedInputStream(
+				socket.getInputStream(), STREAM_BUFFER));
+		output = new DataOutputStream(new BufferedOutputStream(
+				socket.getOutputStream()));
+	}
+
+	/**
+	 * Creates local copies of all the remote histograms, and subscribes to
+	 * updates of them. Call once, after clearing any histograms the remote
+	 * ones might clash with. Waits on the network, so call it off the event
+	 * dispatch thread.
+	 *
+	 * @param interval
+	 *            milliseconds wanted between updates, no fewer than
+	 *            <code>HistogramServer.MIN_INTERVAL</code>
+	 * @return the local histograms
+	 * @throws IOException
+	 *             if the server can't be read from or written to
+	 */
+	public List<AbstractHistogram> link(final int interval) throws IOException {
+		output.writeByte(Protocol.LIST);
+		output.flush();
+		if (input.readByte() != Protocol.LIST) {
+			throw new IOException("Expected list of histograms.");
+		}
+		final int count = input.readInt();
+		final Map<String, Group> groups = new HashMap<>();
+		final List<AbstractHistogram> rval = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			final String fullName = input.readUTF();
+			final String groupName = input.readUTF();
+			final String name = input.readUTF();
+			final String title = input.readUTF();
+			final String labelX = input.readUTF();
+			final String labelY = input.readUTF();
+			final int number = input.readInt();
+			final HistogramType type = Protocol.getType(input.readByte());
+			final int sizeX = input.readInt();
+			final int sizeY = input.readInt();
+			Group group = groups.get(groupName);
+			if (group == null) {
+				group = Factory.createGroup(groupName, Group.Type.TEMP);
+				groups.put(groupName, group);
+			}
+			final int countsY = type.getDimensionality() == 1 ? 0 : sizeY;
+			final AbstractHistogram hist = Factory.createHistogram(group,
+					type.getSampleArray(sizeX, countsY), name, title, labelX,
+					labelY);
+			hist.setNumber(number);
+			cache.put(fullName, hist);
+			rval.add(hist);
+		}
+		output.writeByte(Protocol.INTERVAL);
+		output.writeInt(interval);
+		for (String fullName : cache.keySet()) {
+			output.writeByte(Protocol.SUBSCRIBE);
+			output.writeUTF(fullName);
+		}
+		output.flush();
+		/* updates come only when histograms change */
+		socket.setSoTimeout(0);
+		final Thread thread = new Thread(this::receive, "Histogram Client");
+		thread.setDaemon(true);
+		thread.start();
+		return Collections.unmodifiableList(rval);
+	}
+
+	private void receive() {
+		try {
+			while (true) {
+				final byte kind = input.readByte();
+				if (kind != Protocol.UPDATE) {
+					throw new IOException("Expected update, got " + kind);
+				}
+				final AbstractHistogram hist = cache.get(input.readUTF());
+				if (hist == null) {
+					throw new IOException("Update of unknown histogram.");
+				}
+				input.readLong(); // epoch, kept by the server
+				readUpdate(hist);
+			}
+		} catch (IOException ioe) {
+			if (!socket.isClosed()) {
+				LOGGER.log(Level.SEVERE, "Lost link to remote histograms.",
+						ioe);
+			}
+		}
+	}
+
+	private void readUpdate(final AbstractHistogram hist) throws IOException {
+		final int rows = Protocol.readVarint(input);
+		final int sizeY = hist.getSizeY();
+		final HistogramType type = hist.getType();
+		if (type == HistogramType.ONE_DIM_INT) {
+			final int[] counts = new int[hist.getSizeX()];
+			for (int i = 0; i < rows; i++) {
+				Protocol.readVarint(input);
+				Protocol.readRow(input, counts);
+			}
+			hist.setCounts(counts);
+		} else if (type == HistogramType.ONE_D_DOUBLE) {
+			final double[] counts = new double[hist.getSizeX()];
+			for (int i = 0; i < rows; i++) {
+				Protocol.readVarint(input);
+				Protocol.readRow(input, counts);
+			}
+			hist.setCounts(counts);
+		} else if (type == HistogramType.TWO_DIM_INT) {
+			final int[] row = new int[sizeY];
+			for (int i = 0; i < rows; i++) {
+				final int chX = Protocol.readVarint(input);
+				Protocol.readRow(input, row);
+				((HistInt2D) hist).setRow(chX, row);
+			}
+		} else {
+			final double[] row = new double[sizeY];
+			for (int i = 0; i < rows; i++) {
+				final int chX = Protocol.readVarint(input);
+				Protocol.readRow(input, row);
+				((HistDouble2D) hist).setRow(chX, row);
+			}
+		}
+	}
+
+	/**
+	 * Stops updates and disconnects. The local histograms keep their last
+	 * counts.
+	 */
+	@Override
+	public void close() throws IOException {
+		socket.close();
+	}
+}
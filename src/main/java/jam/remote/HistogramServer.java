@@ -0,0 +1,332 @@
+package jam.remote;
+
+import jam.data.AbstractHist2D;
+import jam.data.AbstractHistogram;
+import jam.data.HistDouble1D;
+import jam.data.HistDouble2D;
+import jam.data.HistInt1D;
+import jam.data.HistInt2D;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Serves this process's histograms to remote viewers over TCP. Each viewer
+ * subscribes to the histograms it wants, and is sent an update of each at
+ * most once an interval, only when it has changed. An update holds only the
+ * rows of a 2-d histogram which have changed since the previous update sent
+ * to that viewer, so a live matrix costs little to watch.
+ * <p>
+ * Viewers aren't authenticated, so the server listens only on the interface
+ * it is given, and turns away viewers beyond a limit, each of which would
+ * cost two threads.
+ * </p>
+ *
+ * @see HistogramClient
+ */
+public final class HistogramServer implements Closeable {
+
+	/**
+	 * Port the server listens on by default.
+	 */
+	public static final int DEFAULT_PORT = 9741;
+
+	/**
+	 * Shortest interval between updates a viewer may ask for, in
+	 * milliseconds.
+	 */
+	public static final int MIN_INTERVAL = 100;
+
+	private static final int DEFAULT_INTERVAL = 1000;
+
+	private static final int STREAM_BUFFER = 0x10000;
+
+	private static final int BACKLOG = 50;
+
+	private static final Logger LOGGER = Logger.getLogger(HistogramServer.class
+			.getPackage().getName());
+
+	private transient final ServerSocket serverSocket;
+
+	private transient final Map<Connection, Boolean> connections = new ConcurrentHashMap<>();
+
+	private transient final int maxViewers;
+
+	/**
+	 * Starts listening for viewers.
+	 *
+	 * @param address
+	 *            of the interface to listen on
+	 * @param port
+	 *            to listen on, or 0 for any free port
+	 * @param maxViewers
+	 *            most viewers connected at once
+	 * @throws IOException
+	 *             if the port can't be listened on
+	 */
+	public HistogramServer(final InetAddress address, final int port,
+			final int maxViewers) throws IOException {
+		super();
+		this.maxViewers = maxViewers;
+		serverSocket = new ServerSocket(port, BACKLOG, address);
+		startThread(this::accept, "Histogram Server");
+	}
+
+	/**
+	 * @return the port listened on
+	 */
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	private static void startThread(final Runnable runnable, final String name) {
+		final Thread thread = new Thread(runnable, name);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	private void accept() {
+		while (!serverSocket.isClosed()) {
+			try {
+				final Socket socket = serverSocket.accept();
+				if (connections.size() >= maxViewers) {
+					LOGGER.warning("Turned away remote viewer from "
+							+ socket.getInetAddress() + ", already serving "
+							+ maxViewers + ".");
+					socket.close();
+					continue;
+				}
+				final Connection connection = new Connection(socket);
+				connections.put(connection, Boolean.TRUE);
+				LOGGER.info("Remote viewer connected from "
+						+ connection.socket.getInetAddress());
+				startThread(connection::receive, "Histogram Server Requests");
+				startThread(connection::push, "Histogram Server Updates");
+			} catch (IOException ioe) {
+				if (!serverSocket.isClosed()) {
+					LOGGER.log(Level.SEVERE, "Accepting a remote viewer.", ioe);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Stops listening and disconnects all viewers.
+	 */
+	@Override
+	public void close() throws IOException {
+		serverSocket.close();
+		for (Connection connection : connections.keySet()) {
+			connection.close();
+		}
+	}
+
+	/**
+	 * One viewer, with the histograms it has subscribed to.
+	 */
+	private final class Connection {
+
+		private transient final Socket socket;
+
+		private transient final DataInputStream input;
+
+		private transient final DataOutputStream output;
+
+		private transient final Map<String, Subscription> subscriptions = new ConcurrentHashMap<>();
+
+		private transient volatile int interval = DEFAULT_INTERVAL;
+
+		Connection(final Socket socket) throws IOException {
+			super();
+			this.socket = socket;
+			socket.setTcpNoDelay(true);
+			input = new DataInputStream(new BufferedInputStream(
+					socket.getInputStream()));
+			output = new DataOutputStream(new BufferedOutputStream(
+					socket.getOutputStream(), STREAM_BUFFER));
+		}
+
+		void receive() {
+			try {
+				while (true) {
+					final byte kind = input.readByte();
+					if (kind == Protocol.LIST) {
+						sendList();
+					} else if (kind == Protocol.SUBSCRIBE) {
+						final String name = input.readUTF();
+						subscriptions.put(name, new Subscription(name));
+					} else if (kind == Protocol.UNSUBSCRIBE) {
+						subscriptions.remove(input.readUTF());
+					} else if (kind == Protocol.INTERVAL) {
+						interval = Math.max(MIN_INTERVAL, input.readInt());
+					} else {
+						throw new IOException("Unknown request: " + kind);
+					}
+				}
+			} catch (EOFException | SocketException e) {
+				LOGGER.info("Remote viewer disconnected.");
+			} catch (IOException ioe) {
+				LOGGER.log(Level.SEVERE, "Reading from a remote viewer.", ioe);
+			} finally {
+				close();
+			}
+		}
+
+		private void sendList() throws IOException {
+			final List<AbstractHistogram> histograms = AbstractHistogram
+					.getHistogramList();
+			synchronized (output) {
+				output.writeByte(Protocol.LIST);
+				output.writeInt(histograms.size());
+				for (AbstractHistogram hist : histograms) {
+					output.writeUTF(hist.getFullName());
+					output.writeUTF(hist.getGroupName());
+					output.writeUTF(hist.getName());
+					output.writeUTF(nonNull(hist.getTitle()));
+					output.writeUTF(nonNull(hist.getLabelX()));
+					output.writeUTF(nonNull(hist.getLabelY()));
+					output.writeInt(hist.getNumber());
+					output.writeByte(Protocol.getCode(hist.getType()));
+					output.writeInt(hist.getSizeX());
+					output.writeInt(hist.getSizeY());
+				}
+				output.flush();
+			}
+		}
+
+		private String nonNull(final String text) {
+			return text == null ? "" : text;
+		}
+
+		void push() {
+			try {
+				while (!socket.isClosed()) {
+					Thread.sleep(interval);
+					synchronized (output) {
+						for (Subscription subscription : subscriptions
+								.values()) {
+							subscription.send(output);
+						}
+						output.flush();
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (IOException ioe) {
+				if (!socket.isClosed()) {
+					LOGGER.log(Level.SEVERE, "Updating a remote viewer.", ioe);
+				}
+			} finally {
+				close();
+			}
+		}
+
+		void close() {
+			connections.remove(this);
+			try {
+				socket.close();
+			} catch (IOException ioe) {
+				LOGGER.log(Level.WARNING, "Closing a remote viewer.", ioe);
+			}
+		}
+	}
+
+	/**
+	 * A histogram a viewer is watching, and how much of it the viewer has.
+	 */
+	private static final class Subscription {
+
+		private transient final String name;
+
+		private transient AbstractHistogram hist;
+
+		/* modification count when last sent */
+		private transient long epoch;
+
+		private transient boolean[] changed;
+
+		private transient int[] intRow;
+
+		private transient double[] doubleRow;
+
+		Subscription(final String name) {
+			super();
+			this.name = name;
+		}
+
+		void send(final DataOutputStream output) throws IOException {
+			final AbstractHistogram current = AbstractHistogram
+					.getHistogram(name);
+			if (current == null) {
+				return;
+			}
+			if (current != hist) { // new, or replaced by a reload
+				hist = current;
+				epoch = -1;
+				changed = new boolean[hist.getSizeX()];
+				if (hist.getType().isInteger()) {
+					intRow = new int[Math.max(1, hist.getSizeY())];
+				} else {
+					doubleRow = new double[Math.max(1, hist.getSizeY())];
+				}
+			}
+			if (hist.getModificationCount() == epoch) {
+				return;
+			}
+			output.writeByte(Protocol.UPDATE);
+			output.writeUTF(name);
+			if (hist instanceof AbstractHist2D) {
+				sendRows(output, (AbstractHist2D) hist);
+			} else {
+				epoch = hist.getModificationCount();
+				output.writeLong(epoch);
+				Protocol.writeVarint(output, 1);
+				Protocol.writeVarint(output, 0);
+				if (hist instanceof HistInt1D) {
+					Protocol.writeRow(output, ((HistInt1D) hist).getCounts());
+				} else {
+					Protocol.writeRow(output, ((HistDouble1D) hist).getCounts());
+				}
+			}
+		}
+
+		private void sendRows(final DataOutputStream output,
+				final AbstractHist2D hist2d) throws IOException {
+			epoch = hist2d.getChangedRows(changed, epoch);
+			output.writeLong(epoch);
+			int rows = 0;
+			for (boolean row : changed) {
+				if (row) {
+					rows++;
+				}
+			}
+			Protocol.writeVarint(output, rows);
+			for (int x = 0; x < changed.length; x++) {
+				if (changed[x]) {
+					Protocol.writeVarint(output, x);
+					if (hist2d instanceof HistInt2D) {
+						((HistInt2D) hist2d).copyRow(x, intRow);
+						Protocol.writeRow(output, intRow);
+					} else {
+						((HistDouble2D) hist2d).copyRow(x, doubleRow);
+						Protocol.writeRow(output, doubleRow);
+					}
+				}
+			}
+		}
+	}
+}
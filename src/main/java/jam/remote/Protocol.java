@@ -0,0 +1,268 @@
+package jam.remote;
+
+import jam.data.HistogramType;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Messages and encodings shared by the histogram server and its clients.
+ * Every message starts with a byte giving its kind.
+ * <dl>
+ * <dt>client to server</dt>
+ * <dd><code>LIST</code>; <code>SUBSCRIBE</code> or <code>UNSUBSCRIBE</code>
+ * and a histogram's full name; <code>INTERVAL</code> and the milliseconds
+ * wanted between updates</dd>
+ * <dt>server to client</dt>
+ * <dd><code>LIST</code>, the number of histograms and a description of each;
+ * <code>UPDATE</code>, a histogram's full name, its modification count and
+ * the rows changed since the previous update</dd>
+ * </dl>
+ * Integers which are usually small are written as variable-length integers,
+ * 7 bits to a byte. A row is written with its non-zero channels only, unless
+ * at least half of them are non-zero.
+ */
+public final class Protocol {
+
+	/**
+	 * Asks for, or gives, the list of histograms served.
+	 */
+	public static final byte LIST = 1;
+
+	/**
+	 * Asks for updates of a histogram.
+	 */
+	public static final byte SUBSCRIBE = 2;
+
+	/**
+	 * Asks for no more updates of a histogram.
+	 */
+	public static final byte UNSUBSCRIBE = 3;
+
+	/**
+	 * Asks for updates at most this often.
+	 */
+	public static final byte INTERVAL = 4;
+
+	/**
+	 * Gives the rows of a histogram changed since the last update.
+	 */
+	public static final byte UPDATE = 5;
+
+	private static final byte DENSE = 0;
+
+	private static final byte SPARSE = 1;
+
+	private Protocol() {
+		super();
+	}
+
+	/**
+	 * @param type
+	 *            of histogram
+	 * @return code sent for the type
+	 */
+	public static byte getCode(final HistogramType type) {
+		final int dim = type.getDimensionality();
+		return (byte) (2 * (dim - 1) + (type.isInteger() ? 0 : 1));
+	}
+
+	/**
+	 * @param code
+	 *            sent for a type
+	 * @return the type
+	 * @throws IOException
+	 *             if the code isn't for a type
+	 */
+	public static HistogramType getType(final int code) throws IOException {
+		final HistogramType rval;
+		switch (code) {
+		case 0:
+			rval = HistogramType.ONE_DIM_INT;
+			break;
+		case 1:
+			rval = HistogramType.ONE_D_DOUBLE;
+			break;
+		case 2:
+			rval = HistogramType.TWO_DIM_INT;
+			break;
+		case 3:
+			rval = HistogramType.TWO_D_DOUBLE;
+			break;
+		default:
+			throw new IOException("Unknown histogram type: " + code);
+		}
+		return rval;
+	}
+
+	/**
+	 * Writes an integer in as few bytes as its size needs, 7 bits each.
+	 * Negative values take 5 bytes.
+	 *
+	 * @param out
+	 *            to write to
+	 * @param value
+	 *            to write
+	 * @throws IOException
+	 *             if the value can't be written
+	 */
+	public static void writeVarint(final DataOutput out, final int value)
+			throws IOException {
+		int remaining = value;
+		while ((remaining & ~0x7f) != 0) {
+			out.writeByte((remaining & 0x7f) | 0x80);
+			remaining >>>= 7;
+		}
+		out.writeByte(remaining);
+	}
+
+	/**
+	 * @param input
+	 *            to read from
+	 * @return an integer written by <code>writeVarint()</code>
+	 * @throws IOException
+	 *             if the value can't be read
+	 */
+	public static int readVarint(final DataInput input) throws IOException {
+		int rval = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			final int value = input.readUnsignedByte();
+			rval |= (value & 0x7f) << shift;
+			if ((value & 0x80) == 0) {
+				return rval;
+			}
+		}
+		throw new IOException("Variable-length integer too long.");
+	}
+
+	/* small negative counts in few bytes too */
+	private static int zigzag(final int value) {
+		return (value << 1) ^ (value >> 31);
+	}
+
+	private static int unzigzag(final int value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * @param out
+	 *            to write to
+	 * @param row
+	 *            counts to write
+	 * @throws IOException
+	 *             if the row can't be written
+	 */
+	public static void writeRow(final DataOutput out, final int[] row)
+			throws IOException {
+		int nonZero = 0;
+		for (int value : row) {
+			if (value != 0) {
+				nonZero++;
+			}
+		}
+		if (2 * nonZero < row.length) {
+			out.writeByte(SPARSE);
+			writeVarint(out, nonZero);
+			int last = -1;
+			for (int i = 0; i < row.length; i++) {
+				if (row[i] != 0) {
+					writeVarint(out, i - last - 1);
+					writeVarint(out, zigzag(row[i]));
+					last = i;
+				}
+			}
+		} else {
+			out.writeByte(DENSE);
+			for (int value : row) {
+				writeVarint(out, zigzag(value));
+			}
+		}
+	}
+
+	/**
+	 * @param input
+	 *            to read from
+	 * @param row
+	 *            given the counts written by <code>writeRow()</code>
+	 * @throws IOException
+	 *             if the row can't be read
+	 */
+	public static void readRow(final DataInput input, final int[] row)
+			throws IOException {
+		if (input.readByte() == SPARSE) {
+			Arrays.fill(row, 0);
+			final int nonZero = readVarint(input);
+			int index = -1;
+			for (int i = 0; i < nonZero; i++) {
+				index += readVarint(input) + 1;
+				row[index] = unzigzag(readVarint(input));
+			}
+		} else {
+			for (int i = 0; i < row.length; i++) {
+				row[i] = unzigzag(readVarint(input));
+			}
+		}
+	}
+
+	/**
+	 * @param out
+	 *            to write to
+	 * @param row
+	 *            counts to write
+	 * @throws IOException
+	 *             if the row can't be written
+	 */
+	public static void writeRow(final DataOutput out, final double[] row)
+			throws IOException {
+		int nonZero = 0;
+		for (double value : row) {
+			if (value != 0.0) {
+				nonZero++;
+			}
+		}
+		if (2 * nonZero < row.length) {
+			out.writeByte(SPARSE);
+			writeVarint(out, nonZero);
+			int last = -1;
+			for (int i = 0; i < row.length; i++) {
+				if (row[i] != 0.0) {
+					writeVarint(out, i - last - 1);
+					out.writeDouble(row[i]);
+					last = i;
+				}
+			}
+		} else {
+			out.writeByte(DENSE);
+			for (double value : row) {
+				out.writeDouble(value);
+			}
+		}
+	}
+
+	/**
+	 * @param input
+	 *            to read from
+	 * @param row
+	 *            given the counts written by <code>writeRow()</code>
+	 * @throws IOException
+	 *             if the row can't be read
+	 */
+	public static void readRow(final DataInput input, final double[] row)
+			throws IOException {
+		if (input.readByte() == SPARSE) {
+			Arrays.fill(row, 0.0);
+			final int nonZero = readVarint(input);
+			int index = -1;
+			for (int i = 0; i < nonZero; i++) {
+				index += readVarint(input) + 1;
+				row[index] = input.readDouble();
+			}
+		} else {
+			for (int i = 0; i < row.length; i++) {
+				row[i] = input.readDouble();
+			}
+		}
+	}
+}
@@ -0,0 +1,6 @@
+/**
+ * Streams histograms to remote viewers over a socket, sending only the
+ * channels which have changed since each viewer was last updated.
+ */
+
+package jam.remote;
@@ -2,23 +2,29 @@ package jam.script;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import injection.GuiceInjector;
 import injection.MapListener;
 import jam.commands.CommandNames;
+import jam.data.AbstractHistogram;
 import jam.data.Warehouse;
 import jam.data.control.HistogramZero;
 import jam.global.BroadcastEvent;
 import jam.global.Broadcaster;
 import jam.global.CommandListener;
 import jam.global.RunState;
+import jam.io.AbstractImpExp;
 import jam.io.FileOpenMode;
+import jam.io.HistogramExporter;
 import jam.io.hdf.HDFIO;
 import jam.io.hdf.HDFileFilter;
+import jam.plot.HistogramRenderer;
 import jam.sort.control.RunControl;
 import jam.sort.control.SetupSortOff;
 import jam.sort.control.SetupSortOn;
 import jam.sort.control.SortControl;
 import jam.sort.stream.AbstractEventInputStream;
 import jam.sort.stream.AbstractEventOutputStream;
+import jam.util.FileUtilities;
 
 import javax.swing.*;
 
@@ -26,6 +32,11 @@ import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.io.File;
 import java.io.FileFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -45,6 +56,8 @@ import java.util.logging.Logger;
  * <li>(Optional) Show the Jam window to observe sort progress.</li>
  * <li><em>Perform the sort.</em></li>
  * <li>Save the results in an HDF file.</li>
+ * <li>(Optional) Export histograms in text or other formats.</li>
+ * <li>(Optional) Render histograms to image files.</li>
  * <li>(Optional) Add histograms in stored HDF files together.
  * </ol>
  * <p>
@@ -92,6 +105,8 @@ public final class Session implements PropertyChangeListener {
 
     private transient final CommandListener listener;
 
+    private transient final FileUtilities fileUtilities;
+
     /**
      * Creates an instance, of which the user then invokes the methods to script
      * an offline sorting session. A non-trivial side-effect of invoking this
@@ -110,14 +125,17 @@ public final class Session implements PropertyChangeListener {
      * @param histogramZero zeroes histograms
      * @param broadcaster broadcasts events to registered listeners
      * @param listener listens for commands
+     * @param fileUtilities names exported files
      */
     @Inject
     protected Session(final JFrame frame, final SetupSortOff sortOffline,
             final SetupSortOn sortOnline, final SortControl sortControl,
             final RunControl runControl, final HDFIO hdfio,
             final HistogramZero histogramZero, final Broadcaster broadcaster,
-            final @MapListener CommandListener listener) {
+            final @MapListener CommandListener listener,
+            final FileUtilities fileUtilities) {
         super();
+        this.fileUtilities = fileUtilities;
         broadcaster.addPropertyChangeListener(this);
         this.listener = listener;
         this.frame = frame;
@@ -519,6 +537,79 @@ public final class Session implements PropertyChangeListener {
         this.histogramZero.zeroAll();
     }
 
+    /**
+     * Exports histograms, each to its own file, several at a time, returning
+     * when all have been written. Progress is logged.
+     * @param format
+     *            an export class allowing batch export, e.g.,
+     *            <code>ImpExpASCII</code> or <code>ImpExpSPE</code>
+     * @param histograms
+     *            to export, e.g., <code>AbstractHistogram.getHistogramList()</code>
+     * @param dir
+     *            to export to, with a directory for each group
+     * @return the files written
+     * @throws IllegalArgumentException
+     *             if the format doesn't allow batch export
+     * @see HistogramExporter
+     */
+    public List<File> exportHistograms(
+            final Class<? extends AbstractImpExp> format,
+            final List<? extends AbstractHistogram> histograms, final File dir) {
+        final HistogramExporter exporter = new HistogramExporter(GuiceInjector
+                .getObjectInstance(format), this.fileUtilities, Runtime
+                .getRuntime().availableProcessors());
+        final int step = Math.max(1, histograms.size() / 10);
+        List<File> rval = new ArrayList<>();
+        try {
+            rval = exporter.export(histograms, dir, done -> {
+                if (done % step == 0) {
+                    LOGGER.info("Exported " + done + " of "
+                            + histograms.size() + " histograms.");
+                }
+            });
+        } catch (InterruptedException e) {
+            LOGGER.log(Level.SEVERE, "Interrupted exporting histograms.", e);
+            Thread.currentThread().interrupt();
+        }
+        LOGGER.info("Exported " + rval.size() + " histograms to " + dir);
+        return rval;
+    }
+
+    /**
+     * Draws histograms as they appear on the display, each to its own image
+     * file, several at a time, e.g., as thumbnails for a run logbook. This
+     * works with <code>java.awt.headless=true</code>.
+     * @param histograms
+     *            to draw, e.g., <code>AbstractHistogram.getHistogramList()</code>
+     * @param dir
+     *            to write the images to, created if necessary
+     * @param width
+     *            of each image in pixels
+     * @param height
+     *            of each image in pixels
+     * @return the PNG files written, or an empty list if any couldn't be
+     * @see HistogramRenderer
+     */
+    public List<File> renderHistograms(
+            final List<? extends AbstractHistogram> histograms,
+            final File dir, final int width, final int height) {
+        final HistogramRenderer renderer = new HistogramRenderer(width,
+                height, "png");
+        final ExecutorService executor = Executors.newFixedThreadPool(Runtime
+                .getRuntime().availableProcessors());
+        List<File> rval = new ArrayList<>();
+        try {
+            rval = renderer.write(histograms, dir, executor);
+            LOGGER.info("Rendered " + rval.size() + " histograms to " + dir);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Couldn't render histograms to " + dir,
+                    e);
+        } finally {
+            executor.shutdown();
+        }
+        return rval;
+    }
+
     /**
      * Send the command to the front end to read the scalers.
      */
@@ -115,6 +115,14 @@ public abstract class AbstractStorageDaemon extends GoodThread {
 		outputFileOpen = false;
 	}
 
+	/**
+	 * 
+	 * @return the event file open for reading, or <code>null</code> if none
+	 */
+	public File getEventInputFile() {
+		return inputFileOpen ? inputFile : null;
+	}
+
 	/**
 	 * 
 	 * @return the file currently being used for event output
@@ -0,0 +1,436 @@
+package jam.sort;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Exports the online acquisition counters, the rates derived from them, and
+ * how full the rings between the daemons are, so acquisition health can be
+ * followed over a whole experiment without the GUI. The counters are
+ * registered as a JMX MXBean, and may also be served over HTTP on the local
+ * host as Prometheus text at <code>/metrics</code>. A daemon thread samples
+ * the rings ten times a second into occupancy histograms, and works out the
+ * rates once a second.
+ * @see jam.global.PropertyKeys#METRICS_PORT
+ */
+public final class AcquisitionMetrics implements AcquisitionMetricsMXBean {
+
+    private static final Logger LOGGER = Logger
+            .getLogger(AcquisitionMetrics.class.getPackage().getName());
+
+    /**
+     * Name under which the MXBean is registered.
+     */
+    public static final String OBJECT_NAME = "jam:type=Acquisition";
+
+    private static final int SAMPLE_MILLIS = 100;
+
+    private static final int SAMPLES_PER_RATE = 1000 / SAMPLE_MILLIS;
+
+    private static final double[] BOUNDS = {0.0, 1.0 / 16, 1.0 / 8,
+            1.0 / 4, 1.0 / 2, 3.0 / 4, 15.0 / 16, 1.0 };
+
+    /* how often a ring was found in each bin, and its total occupancy */
+    private static final class Occupancy {
+        private transient final AtomicLongArray bins = new AtomicLongArray(
+                BOUNDS.length);
+
+        private transient final AtomicLong usedSum = new AtomicLong();
+
+        void sample(final int used) {
+            final double fraction = (double) used / RingBuffer.NUMBER_BUFFERS;
+            int bin = 0;
+            while (bin < BOUNDS.length - 1 && fraction > BOUNDS[bin]) {
+                bin++;
+            }
+            bins.incrementAndGet(bin);
+            usedSum.addAndGet(used);
+        }
+
+        long[] toArray() {
+            final long[] rval = new long[bins.length()];
+            for (int i = 0; i < rval.length; i++) {
+                rval[i] = bins.get(i);
+            }
+            return rval;
+        }
+    }
+
+    private transient final NetDaemon netDaemon;
+
+    private transient final SortDaemon sortDaemon;
+
+    private transient final AbstractStorageDaemon storageDaemon;
+
+    private transient final RingBuffer sortRing, storageRing;
+
+    private transient final Occupancy sortOccupancy = new Occupancy();
+
+    private transient final Occupancy storageOccupancy = new Occupancy();
+
+    private transient final ScheduledExecutorService sampler;
+
+    private transient HttpServer server;
+
+    private transient ExecutorService serverThread;
+
+    private transient ObjectName registered;
+
+    /* used only by the sampling thread */
+    private transient int samples = 0;
+
+    private transient long lastNanos, lastPackets, lastReceived, lastSorted,
+            lastBytes;
+
+    private transient volatile double packetRate, receivedRate, sortedRate,
+            byteRate;
+
+    /**
+     * Creates metrics for the given daemons, and starts sampling.
+     * @param net
+     *            receives buffers
+     * @param sort
+     *            sorts buffers
+     * @param storage
+     *            writes buffers, or <code>null</code> if the front end
+     *            stores them
+     * @param sortRing
+     *            ring between <code>net</code> and <code>sort</code>
+     * @param storageRing
+     *            ring between <code>net</code> and <code>storage</code>
+     */
+    public AcquisitionMetrics(final NetDaemon net, final SortDaemon sort,
+            final AbstractStorageDaemon storage, final RingBuffer sortRing,
+            final RingBuffer storageRing) {
+        this(net, sort, storage, sortRing, storageRing, System.nanoTime());
+        sampler.scheduleAtFixedRate(() -> sample(System.nanoTime()),
+                SAMPLE_MILLIS, SAMPLE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates metrics for the given daemons without sampling them on a
+     * timer, so that <code>sample()</code> may be called at chosen times,
+     * e.g., to check the rates made from known counts.
+     * @param net
+     *            receives buffers
+     * @param sort
+     *            sorts buffers
+     * @param storage
+     *            writes buffers, or <code>null</code> if the front end
+     *            stores them
+     * @param sortRing
+     *            ring between <code>net</code> and <code>sort</code>
+     * @param storageRing
+     *            ring between <code>net</code> and <code>storage</code>
+     * @param startNanos
+     *            time the counts started from, on the clock of
+     *            <code>System.nanoTime()</code>
+     * @see #sample(long)
+     */
+    public AcquisitionMetrics(final NetDaemon net, final SortDaemon sort,
+            final AbstractStorageDaemon storage, final RingBuffer sortRing,
+            final RingBuffer storageRing, final long startNanos) {
+        super();
+        netDaemon = net;
+        sortDaemon = sort;
+        storageDaemon = storage;
+        this.sortRing = sortRing;
+        this.storageRing = storageRing;
+        sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "Metrics Sampler");
+            thread.setPriority(ThreadPriorities.MESSAGING);
+            thread.setDaemon(true);
+            return thread;
+        });
+        lastNanos = startNanos;
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server, replacing any
+     * registered before.
+     */
+    public void registerMBean() {
+        final MBeanServer mbeans = ManagementFactory.getPlatformMBeanServer();
+        try {
+            final ObjectName name = new ObjectName(OBJECT_NAME);
+            if (mbeans.isRegistered(name)) {
+                mbeans.unregisterMBean(name);
+            }
+            mbeans.registerMBean(this, name);
+            registered = name;
+        } catch (JMException jme) {
+            LOGGER.log(Level.WARNING, "Couldn't register acquisition MBean.",
+                    jme);
+        }
+    }
+
+    /**
+     * Serves these metrics as Prometheus text at <code>/metrics</code>, on
+     * the loopback interface only.
+     * @param port
+     *            to listen on
+     * @throws IOException
+     *             if the port can't be bound
+     */
+    public void startServer(final int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress
+                .getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", this::handle);
+        /* a slow scrape mustn't hold up sampling */
+        serverThread = Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "Metrics Server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(serverThread);
+        server.start();
+        LOGGER.info("Serving acquisition metrics at http://localhost:" + port
+                + "/metrics");
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        final byte[] body = toPrometheus().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type",
+                "text/plain; version=0.0.4; charset=utf-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Stops sampling and serving, and unregisters the MBean.
+     */
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+            serverThread.shutdownNow();
+        }
+        sampler.shutdownNow();
+        if (registered != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(
+                        registered);
+            } catch (JMException jme) {
+                LOGGER.log(Level.FINE, "MBean already unregistered.", jme);
+            }
+        }
+    }
+
+    /**
+     * Samples the rings' occupancy, and every tenth sample works out the
+     * rates since the last time. Called every 100 ms, unless these metrics
+     * were created with a start time.
+     * @param now
+     *            the time, on the clock of <code>System.nanoTime()</code>
+     */
+    public void sample(final long now) {
+        sortOccupancy.sample(sortRing.getUsedBuffers());
+        storageOccupancy.sample(storageRing.isNull() ? 0 : storageRing
+                .getUsedBuffers());
+        samples++;
+        if (samples % SAMPLES_PER_RATE == 0) {
+            final double seconds = (now - lastNanos) * 1.0e-9;
+            lastNanos = now;
+            final long packets = getPacketsReceived();
+            final long received = getEventsReceived();
+            final long sorted = getEventsSorted();
+            final long bytes = getBytesWritten();
+            packetRate = (packets - lastPackets) / seconds;
+            receivedRate = (received - lastReceived) / seconds;
+            sortedRate = (sorted - lastSorted) / seconds;
+            byteRate = (bytes - lastBytes) / seconds;
+            lastPackets = packets;
+            lastReceived = received;
+            lastSorted = sorted;
+            lastBytes = bytes;
+        }
+    }
+
+    /**
+     * @return all the metrics in the Prometheus text exposition format
+     */
+    public String toPrometheus() {
+        final StringBuilder out = new StringBuilder(2048);
+        metric(out, "jam_packets_received_total", "counter",
+                "Buffers received from the front end.", getPacketsReceived());
+        metric(out, "jam_buffers_sorted_total", "counter",
+                "Buffers taken from the sorting ring.", getBuffersSorted());
+        metric(out, "jam_buffers_stored_total", "counter",
+                "Buffers written to the event file.", getBuffersStored());
+        metric(out, "jam_bytes_written_total", "counter",
+                "Bytes written to the event file.", getBytesWritten());
+        metric(out, "jam_events_received_total", "counter",
+                "Events read from sorted buffers.", getEventsReceived());
+        metric(out, "jam_events_sorted_total", "counter",
+                "Events passed to the sort routine.", getEventsSorted());
+        metric(out, "jam_buffers_lost_total", "counter",
+                "Buffers never received.", getBuffersLost());
+        metric(out, "jam_buffers_duplicated_total", "counter",
+                "Buffers received more than once.", getBuffersDuplicated());
+        metric(out, "jam_buffers_reordered_total", "counter",
+                "Buffers received after a later one.", getBuffersReordered());
+        metric(out, "jam_sampling_fraction", "gauge",
+                "Fraction of events passed to the sort routine.",
+                getSamplingFraction());
+        out.append("# HELP jam_ring_used Buffers waiting in a ring.\n");
+        out.append("# TYPE jam_ring_used gauge\n");
+        out.append("jam_ring_used{ring=\"sort\"} ").append(getSortRingUsed())
+                .append('\n');
+        out.append("jam_ring_used{ring=\"storage\"} ").append(
+                getStorageRingUsed()).append('\n');
+        out.append("# HELP jam_stage_per_second Rate over the last second.\n");
+        out.append("# TYPE jam_stage_per_second gauge\n");
+        rate(out, "packets_received", getPacketsPerSecond());
+        rate(out, "events_received", getEventsReceivedPerSecond());
+        rate(out, "events_sorted", getEventsSortedPerSecond());
+        rate(out, "bytes_written", getBytesWrittenPerSecond());
+        out.append("# HELP jam_ring_occupancy Fraction of a ring in use,"
+                + " sampled every " + SAMPLE_MILLIS + " ms.\n");
+        out.append("# TYPE jam_ring_occupancy histogram\n");
+        histogram(out, "sort", sortOccupancy);
+        histogram(out, "storage", storageOccupancy);
+        return out.toString();
+    }
+
+    private static void metric(final StringBuilder out, final String name,
+            final String type, final String help, final double value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append(
+                '\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append(
+                '\n');
+        out.append(name).append(' ').append(format(value)).append('\n');
+    }
+
+    private static void rate(final StringBuilder out, final String stage,
+            final double value) {
+        out.append("jam_stage_per_second{stage=\"").append(stage).append(
+                "\"} ").append(format(value)).append('\n');
+    }
+
+    private static void histogram(final StringBuilder out, final String ring,
+            final Occupancy occupancy) {
+        final long[] bins = occupancy.toArray();
+        long cumulative = 0;
+        for (int i = 0; i < bins.length; i++) {
+            cumulative += bins[i];
+            out.append("jam_ring_occupancy_bucket{ring=\"").append(ring)
+                    .append("\",le=\"").append(format(BOUNDS[i])).append(
+                            "\"} ").append(cumulative).append('\n');
+        }
+        out.append("jam_ring_occupancy_bucket{ring=\"").append(ring).append(
+                "\",le=\"+Inf\"} ").append(cumulative).append('\n');
+        out.append("jam_ring_occupancy_sum{ring=\"").append(ring).append(
+                "\"} ").append(
+                format((double) occupancy.usedSum.get()
+                        / RingBuffer.NUMBER_BUFFERS)).append('\n');
+        out.append("jam_ring_occupancy_count{ring=\"").append(ring).append(
+                "\"} ").append(cumulative).append('\n');
+    }
+
+    private static String format(final double value) {
+        return value == Math.rint(value) && Math.abs(value) < 1.0e15 ? Long
+                .toString((long) value) : Double.toString(value);
+    }
+
+    public long getPacketsReceived() {
+        return netDaemon.getPacketCount();
+    }
+
+    public long getBuffersSorted() {
+        return sortDaemon.getBufferCount();
+    }
+
+    public long getBuffersStored() {
+        return storageDaemon == null ? 0 : storageDaemon.getBufferCount();
+    }
+
+    public long getBytesWritten() {
+        /* buffers are written whole; the daemon's own byte count is unused */
+        return getBuffersStored() * RingBuffer.BUFFER_SIZE;
+    }
+
+    public long getEventsReceived() {
+        return sortDaemon.getEventCount();
+    }
+
+    public long getEventsSorted() {
+        return sortDaemon.getSortedCount();
+    }
+
+    public long getBuffersLost() {
+        return netDaemon.getLostCount();
+    }
+
+    public long getBuffersDuplicated() {
+        return netDaemon.getDuplicateCount();
+    }
+
+    public long getBuffersReordered() {
+        return netDaemon.getReorderCount();
+    }
+
+    public double getSamplingFraction() {
+        return sortDaemon.getSamplingFraction();
+    }
+
+    public int getSortRingUsed() {
+        return sortRing.getUsedBuffers();
+    }
+
+    public int getStorageRingUsed() {
+        return storageRing.isNull() ? 0 : storageRing.getUsedBuffers();
+    }
+
+    public int getRingCapacity() {
+        return RingBuffer.NUMBER_BUFFERS;
+    }
+
+    public double getPacketsPerSecond() {
+        return packetRate;
+    }
+
+    public double getEventsReceivedPerSecond() {
+        return receivedRate;
+    }
+
+    public double getEventsSortedPerSecond() {
+        return sortedRate;
+    }
+
+    public double getBytesWrittenPerSecond() {
+        return byteRate;
+    }
+
+    public double[] getOccupancyBounds() {
+        return Arrays.copyOf(BOUNDS, BOUNDS.length);
+    }
+
+    public long[] getSortRingOccupancy() {
+        return sortOccupancy.toArray();
+    }
+
+    public long[] getStorageRingOccupancy() {
+        return storageOccupancy.toArray();
+    }
+}
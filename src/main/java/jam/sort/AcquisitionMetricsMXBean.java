@@ -0,0 +1,112 @@
+package jam.sort;
+
+/**
+ * Management interface of the online acquisition counters, so they may be
+ * watched with JMX tools without the GUI.
+ * @see AcquisitionMetrics
+ */
+public interface AcquisitionMetricsMXBean {
+
+    /**
+     * @return buffers received from the front end
+     */
+    long getPacketsReceived();
+
+    /**
+     * @return buffers taken from the sorting ring
+     */
+    long getBuffersSorted();
+
+    /**
+     * @return buffers written to the event file
+     */
+    long getBuffersStored();
+
+    /**
+     * @return bytes written to the event file
+     */
+    long getBytesWritten();
+
+    /**
+     * @return events read from the sorted buffers
+     */
+    long getEventsReceived();
+
+    /**
+     * @return events passed to the sort routine
+     */
+    long getEventsSorted();
+
+    /**
+     * @return buffers never received, if sequence numbers are checked
+     */
+    long getBuffersLost();
+
+    /**
+     * @return buffers received more than once
+     */
+    long getBuffersDuplicated();
+
+    /**
+     * @return buffers received after a later one
+     */
+    long getBuffersReordered();
+
+    /**
+     * @return fraction of events currently passed to the sort routine
+     */
+    double getSamplingFraction();
+
+    /**
+     * @return buffers waiting to be sorted
+     */
+    int getSortRingUsed();
+
+    /**
+     * @return buffers waiting to be written
+     */
+    int getStorageRingUsed();
+
+    /**
+     * @return buffers each ring holds
+     */
+    int getRingCapacity();
+
+    /**
+     * @return buffers received per second, over the last second
+     */
+    double getPacketsPerSecond();
+
+    /**
+     * @return events read per second, over the last second
+     */
+    double getEventsReceivedPerSecond();
+
+    /**
+     * @return events sorted per second, over the last second
+     */
+    double getEventsSortedPerSecond();
+
+    /**
+     * @return bytes written per second, over the last second
+     */
+    double getBytesWrittenPerSecond();
+
+    /**
+     * @return upper bounds of the occupancy histogram bins, as fractions of
+     *         the ring's capacity
+     */
+    double[] getOccupancyBounds();
+
+    /**
+     * @return how often the sorting ring was found with an occupancy in
+     *         each bin, not cumulative
+     */
+    long[] getSortRingOccupancy();
+
+    /**
+     * @return how often the storage ring was found with an occupancy in
+     *         each bin, not cumulative
+     */
+    long[] getStorageRingOccupancy();
+}
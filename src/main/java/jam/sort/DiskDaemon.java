@@ -1,11 +1,15 @@
 package jam.sort;
 
-import injection.GuiceInjector;
+import jam.global.RunInfo;
+import jam.sort.stream.CompressedEventFile;
 import jam.sort.stream.EventException;
-import jam.util.NumberUtilities;
+import jam.sort.stream.EventIndex;
 
 import java.io.*;
-import java.nio.ByteOrder;
+import java.nio.ByteBuffer;
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 
 /**
@@ -19,9 +23,20 @@ public final class DiskDaemon extends AbstractStorageDaemon {
 
     private transient BufferedOutputStream bos;
 
-    private transient boolean reachedRunEnd = false;
+    private transient volatile CompletableFuture<Void> runEnd = new CompletableFuture<>();
 
-    private transient final Object rreLock = new Object();
+    /* written before nextOutputFile, so seen with it */
+    private transient int nextRunNumber;
+
+    private transient final AtomicReference<File> nextOutputFile = new AtomicReference<>();
+
+    private static final int COMPRESSORS = Math.max(1, Math.min(4, Runtime
+            .getRuntime().availableProcessors() - 1));
+
+    private transient boolean compress = false;
+
+    /* indexes the buffers written online, null if not indexing */
+    private transient EventIndex.Writer indexWriter;
 
     /**
      * @see AbstractStorageDaemon#AbstractStorageDaemon(Controller)
@@ -42,15 +57,16 @@ public final class DiskDaemon extends AbstractStorageDaemon {
             throw new IllegalStateException(
                     "Should always have a ring buffer here.");
         }
-        boolean rval = false;
-        if (ringBuffer.isEmpty()) {
-            synchronized (rreLock) {
-                if (reachedRunEnd) {
-                    rval = true;
-                }
-            }
-        }
-        return rval;
+        return ringBuffer.isEmpty() && runEnd.isDone();
+    }
+
+    /**
+     * Returns whether all buffers received have been written.
+     * @return <code>true</code> if there are no unwritten buffers in the ring
+     *         buffer
+     */
+    public boolean caughtUp() {
+        return ringBuffer.isEmpty();
     }
 
     /**
@@ -102,6 +118,7 @@ public final class DiskDaemon extends AbstractStorageDaemon {
                 }
                 bos.close();// flushes bos, then closes underlying stream
                 outputFileOpen = false;
+                closeIndex();
             } catch (EventException ee) {
                 throw new SortException("Unable to close file EventException:"
                         + ee.getMessage() + " [DiskDaemon]", ee);
@@ -156,8 +173,8 @@ public final class DiskDaemon extends AbstractStorageDaemon {
             throw exception;
         }
         try {
-            final FileInputStream fis = new FileInputStream(file);
-            bis = new BufferedInputStream(fis, RingBuffer.BUFFER_SIZE);
+            bis = new BufferedInputStream(CompressedEventFile.open(file),
+                    RingBuffer.BUFFER_SIZE);
             eventInput.setInputStream(bis);
             inputFile = file;
             inputFileOpen = true;
@@ -190,6 +207,19 @@ public final class DiskDaemon extends AbstractStorageDaemon {
         return rval;
     }
 
+    /**
+     * Sets whether event files opened for writing from now on are
+     * compressed. Blocks are compressed on a few threads besides this
+     * daemon's, so that writing keeps up with acquisition, and are written
+     * in order. Files are read the same whether compressed or not.
+     * @param compress
+     *            whether to compress
+     * @see CompressedEventFile
+     */
+    public void setCompress(final boolean compress) {
+        this.compress = compress;
+    }
+
     /**
      * Open file to write events to.
      * @exception SortException
@@ -203,16 +233,58 @@ public final class DiskDaemon extends AbstractStorageDaemon {
         }
         try {
             final FileOutputStream fos = new FileOutputStream(file);
-            bos = new BufferedOutputStream(fos, RingBuffer.BUFFER_SIZE);
+            final OutputStream out = compress ? new CompressedEventFile.Output(
+                    fos, COMPRESSORS) : fos;
+            bos = new BufferedOutputStream(out, RingBuffer.BUFFER_SIZE);
             eventOutput.setOutputStream(bos);
             this.outputFile = file;
             outputFileOpen = true;
+            if (mode == Mode.ONLINE) {
+                openIndex(file);
+            }
         } catch (IOException ioe) {
             throw new SortException("Unable to open file: " + file.getPath()
                     + " [DiskDaemon]", ioe);
         }
     }
 
+    /*
+     * An index that can't be written is given up on, rather than stopping
+     * event data from being written.
+     */
+    private void openIndex(final File file) {
+        try {
+            indexWriter = new EventIndex.Writer(file, eventInput,
+                    RingBuffer.BUFFER_SIZE);
+        } catch (IOException ioe) {
+            LOGGER.log(Level.WARNING, "Not indexing " + file.getPath(), ioe);
+            indexWriter = null; // NOPMD
+        }
+    }
+
+    private void indexBuffer(final ByteBuffer buffer) {
+        if (indexWriter != null) {
+            try {
+                indexWriter.add(buffer, System.currentTimeMillis());
+            } catch (IOException ioe) {
+                LOGGER.log(Level.WARNING, "Stopped indexing event file.", ioe);
+                closeIndex();
+            }
+        }
+    }
+
+    private void closeIndex() {
+        if (indexWriter != null) {
+            try {
+                indexWriter.close();
+            } catch (IOException ioe) {
+                LOGGER.log(Level.WARNING, "Couldn't close event file index.",
+                        ioe);
+            }
+            indexWriter = null; // NOPMD
+        }
+    }
+
     /**
      * Implementation of <code>StorageDaemon</code> abstract method.
      * @exception SortException
@@ -222,7 +294,8 @@ public final class DiskDaemon extends AbstractStorageDaemon {
     public boolean readHeader() throws SortException {
         try {
             final BufferedInputStream headerInputStream = new BufferedInputStream(
-                    new FileInputStream(inputFile), eventInput.getHeaderSize());
+                    CompressedEventFile.open(inputFile), eventInput
+                            .getHeaderSize());
             eventInput.setInputStream(headerInputStream);
             final boolean goodHeader = eventInput.readHeader();
             headerInputStream.close();
@@ -238,11 +311,58 @@ public final class DiskDaemon extends AbstractStorageDaemon {
     }
 
     /**
-     * Reset the "reached run end" state to <code>false</code>.
+     * Starts waiting for the end of a new run.
+     * @return completes when the buffer with the end-of-run marker has
+     *         been written and the event file closed
      */
-    public void resetReachedRunEnd() {
-        synchronized (rreLock) {
-            reachedRunEnd = false;
+    public CompletableFuture<Void> expectRunEnd() {
+        runEnd = new CompletableFuture<>();
+        return runEnd;
+    }
+
+    /**
+     * Starts waiting for the end of a run, at which event data carries on
+     * being written, to a new file. When the marker is reached, the run
+     * number and start time in <code>RunInfo</code> are set for the next run,
+     * so the new file's header is for that run.
+     * @param file
+     *            to write the events after the end-of-run marker to
+     * @param runNumber
+     *            of the next run
+     * @return completes when the buffer with the end-of-run marker has been
+     *         written and the new file opened
+     */
+    public CompletableFuture<Void> expectRollover(final File file,
+            final int runNumber) {
+        final CompletableFuture<Void> rval = expectRunEnd();
+        nextRunNumber = runNumber;
+        nextOutputFile.set(file);
+        return rval;
+    }
+
+    /**
+     * Stops waiting for the rollover asked for by
+     * <code>expectRollover()</code>, so that the end-of-run marker, if it
+     * still comes, ends writing as at the end of any run.
+     * @return <code>true</code> if cancelled before the rollover happened
+     */
+    public boolean cancelRollover() {
+        return nextOutputFile.getAndSet(null) != null;
+    }
+
+    /* closes the event file and opens the next, with a new header */
+    private void rollover(final File file) {
+        try {
+            final File last = getEventOutputFile();
+            closeEventOutputFile();
+            LOGGER.info("Event file closed " + last.getPath());
+            final RunInfo info = RunInfo.getInstance();
+            info.runNumber = nextRunNumber;
+            info.runStartTime = new Date();
+            openEventOutputFile(file);
+            writeHeader();
+        } catch (SortException se) {
+            LOGGER.log(Level.SEVERE, se.getMessage(), se);
         }
     }
 
@@ -284,10 +404,8 @@ public final class DiskDaemon extends AbstractStorageDaemon {
      * you see a end of run marker, then inform controller.
      */
     private void writeLoop() throws IOException {
-        final NumberUtilities numberUtilities = GuiceInjector
-                .getObjectInstance(NumberUtilities.class);
-        final byte[] buffer = GuiceInjector.getObjectInstance(
-                RingBufferFactory.class).freshBuffer();
+        final byte[] buffer = new byte[RingBuffer.BUFFER_SIZE];
+        final ByteBuffer wrapper = ByteBuffer.wrap(buffer);
         final int offset = buffer.length - 2;
         /*
          * checkState() waits until state is STOP (return value=false) or RUN
@@ -304,16 +422,19 @@ public final class DiskDaemon extends AbstractStorageDaemon {
             }
             bos.write(buffer);
             bufferCount++;
+            indexBuffer(wrapper);
             // check for end-of-run marker
-            final short last2bytes = numberUtilities.bytesToShort(buffer,
-                    offset, ByteOrder.BIG_ENDIAN);
+            final short last2bytes = wrapper.getShort(offset);
             if (eventInput.isEndRun(last2bytes)) {
                 // tell control we are done
                 fileCount++;
-                synchronized (rreLock) {
-                    reachedRunEnd = true;
+                final File next = nextOutputFile.getAndSet(null);
+                if (next == null) {
+                    controller.atWriteEnd();
+                } else {
+                    rollover(next);
                 }
-                controller.atWriteEnd();
+                runEnd.complete(null);
             }
             yield();
         }
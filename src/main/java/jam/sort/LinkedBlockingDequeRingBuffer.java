@@ -1,5 +1,6 @@
 package jam.sort;
 
+import java.nio.ByteBuffer;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.LinkedBlockingDeque;
 
@@ -54,7 +55,45 @@ public final class LinkedBlockingDequeRingBuffer implements RingBuffer {
 		assert !isNull() : "Attempted putBuffer() on 'null' ring buffer.";
 		validateBuffer(inBuffer);
 		final byte[] pushBuffer = allocateFromPoolIfPossibleAndCopy(inBuffer);
-		return ring.offer(pushBuffer);
+		return offerOrReturnToPool(pushBuffer);
+	}
+
+	/* a slot that didn't fit in the ring goes back for the next put */
+	private boolean offerOrReturnToPool(final byte[] pushBuffer) {
+		final boolean rval = ring.offer(pushBuffer);
+		if (!rval) {
+			poolStack.offerFirst(pushBuffer);
+		}
+		return rval;
+	}
+
+	/**
+	 * Copies the remaining bytes of the passed buffer into a pooled slot of
+	 * the ring buffer.
+	 * 
+	 * @param inBuffer
+	 *            incoming data
+	 * @return true if successful, false if full
+	 */
+	public boolean tryPutBuffer(final ByteBuffer inBuffer) {
+		assert !isNull() : "Attempted putBuffer() on 'null' ring buffer.";
+		if (inBuffer == null) {
+			throw new IllegalArgumentException("null buffer reference");
+		}
+		/* don't take a slot from the pool that can't go in the ring */
+		boolean success = ring.remainingCapacity() > 0;
+		if (success) {
+			byte[] pushBuffer = poolStack.pollFirst();
+			if (pushBuffer == null) {
+				pushBuffer = new byte[BUFFER_SIZE];
+			}
+			final int position = inBuffer.position();
+			inBuffer.get(pushBuffer, 0, Math.min(BUFFER_SIZE, inBuffer
+					.remaining()));
+			inBuffer.position(position);
+			success = offerOrReturnToPool(pushBuffer);
+		}
+		return success;
 	}
 
 	/**
@@ -104,7 +143,11 @@ public final class LinkedBlockingDequeRingBuffer implements RingBuffer {
 		this.validateBuffer(out);
 		final byte[] bufferFromRing = ring.take();
 		System.arraycopy(bufferFromRing, 0, out, 0, RingBuffer.BUFFER_SIZE);
-		poolStack.addFirst(bufferFromRing);
+		/*
+		 * The producer may have allocated a fresh buffer while this one was
+		 * out of both ring and pool, so the pool may already be full.
+		 */
+		poolStack.offerFirst(bufferFromRing);
 	}
 
 	/**
@@ -4,14 +4,26 @@ import injection.GuiceInjector;
 import jam.global.GoodThread;
 
 import javax.swing.*;
+import java.awt.GraphicsEnvironment;
 import java.io.IOException;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 
 /**
  * <code>NetDeamon</code> receives packets from the network and sends the data
  * data into one or two pipes. One pipe to a <code>SortDeamon</code>, and the
  * other is a <code>TapeDaemon</code> or <code>DiskDaemon</code> if one is
- * activated.
+ * activated. Packets from any number of ports, e.g., from several front ends,
+ * are received by the one thread through non-blocking channels, and copied
+ * straight from a direct buffer into the ring buffers.
  * @author Ken Swartz
  * @author Dale Visser
  * @version 0.5
@@ -19,7 +31,23 @@ import java.net.*;
  */
 public final class NetDaemon extends GoodThread {
 
-    private transient final DatagramSocket dataSocket;
+    /**
+     * Requested size of each socket's kernel receive buffer, as much as the
+     * ring buffer holds, so bursts aren't dropped while this thread is
+     * descheduled. The OS may grant less, e.g., on Linux no more than
+     * <code>net.core.rmem_max</code>.
+     */
+    private static final int RECEIVE_BUFFER_SIZE = RingBuffer.MEMORY_FOOTPRINT;
+
+    /**
+     * How long to wait for a missing buffer, when later ones are held by
+     * the sequence tracker, before giving up on it.
+     */
+    private static final long FLUSH_MILLIS = 100L;
+
+    private transient final Selector selector;
+
+    private transient final List<DatagramChannel> channels = new ArrayList<>();
 
     /**
      * ring buffers for passing events to sorting
@@ -45,6 +73,8 @@ public final class NetDaemon extends GoodThread {
 
     private transient int notStorCount = 0;// number of packets not stored
 
+    private transient SequenceTracker sequencer = null;
+
     /**
      * Constructor passed both storage and sorting pipes.
      * @param sortRing
@@ -63,23 +93,104 @@ public final class NetDaemon extends GoodThread {
         super();
         sortingRing = sortRing;
         storageRing = storeRing;
+        try {
+            selector = Selector.open();
+        } catch (IOException e) {
+            throw new SortException("Could not create data socket.", e);
+        }
+        addPort(host, port);
+        setPriority(ThreadPriorities.NET);
+        setDaemon(true);// the user doesn't interact with this thread
+        setName("UDP Data Receiver");
+    }
+
+    /**
+     * Listens for data on another port as well, e.g., from a second front
+     * end. Must be called before this thread is started.
+     * @param host
+     *            front end IP address
+     * @param port
+     *            port to listen for front end on
+     * @exception SortException
+     *                thrown if there's a problem creating the socket
+     */
+    public void addPort(final String host, final int port)
+            throws SortException {
+        DatagramChannel channel = null;
         try {
             /* Create a port listener. */
             final InetAddress dataAddress = InetAddress.getByName(host);
-            dataSocket = new DatagramSocket(port, dataAddress);
+            channel = DatagramChannel.open();
+            channel.setOption(StandardSocketOptions.SO_RCVBUF,
+                    RECEIVE_BUFFER_SIZE);
+            channel.bind(new InetSocketAddress(dataAddress, port));
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ);
+            channels.add(channel);
+            final int granted = channel
+                    .getOption(StandardSocketOptions.SO_RCVBUF);
+            if (granted < RECEIVE_BUFFER_SIZE) {
+                LOGGER.info("Data socket on port " + port + " got a "
+                        + granted + " byte receive buffer instead of "
+                        + RECEIVE_BUFFER_SIZE
+                        + ". Raise the OS limit to avoid losing bursts.");
+            }
         } catch (UnknownHostException e) {
+            close(channel);
             throw new SortException("The host, " + host + ", is unknown.", e);
         } catch (BindException be) {
+            close(channel);
             throw new SortException(getClass().getName()
                     + "Data socket couldn't bind to address = " + host
                     + ", port = " + port
                     + ". (Other copies of Jam running online?)", be);
         } catch (IOException e) {
+            close(channel);
             throw new SortException("Could not create data socket.", e);
         }
-        setPriority(ThreadPriorities.NET);
-        setDaemon(true);// the user doesn't interact with this thread
-        setName("UDP Data Receiver");
+    }
+
+    /**
+     * Checks the sequence numbers of the buffers received, counting those
+     * lost, duplicated and out of order, and reordering them within a
+     * window before they go into the rings. Must be called before this
+     * thread is started.
+     * @param offset
+     *            byte offset of the 32-bit sequence number in each buffer
+     * @param window
+     *            most buffers held waiting for an earlier one
+     * @see SequenceTracker
+     */
+    public void setSequenceTracking(final int offset, final int window) {
+        sequencer = new SequenceTracker(offset, window, this::putPacket);
+    }
+
+    /**
+     * Takes the next buffer received as the start of a new sequence, as the
+     * front end may start counting again at the start of a run.
+     */
+    public void restartSequence() {
+        if (sequencer != null) {
+            sequencer.restart();
+        }
+    }
+
+    /**
+     * @return whether buffer sequence numbers are checked
+     */
+    public boolean isSequenceTracking() {
+        return sequencer != null;
+    }
+
+    private static void close(final DatagramChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ioe) {
+                LOGGER.warning("Couldn't close data socket: "
+                        + ioe.getMessage());
+            }
+        }
     }
 
     /**
@@ -90,7 +201,7 @@ public final class NetDaemon extends GoodThread {
     public void run() {
         try {
             receiveLoop();
-        } catch (SocketException se) {
+        } catch (ClosedChannelException | ClosedSelectorException e) {
             LOGGER.info("Communication with acquisition halted, because the socket was closed.");
         } catch (Exception e) {
             String message = "Communication with acquisition halted, because of " +
@@ -111,7 +222,9 @@ public final class NetDaemon extends GoodThread {
      */
     public void setEmptyBefore(final boolean state) {
         synchronized (this) {
-            if (!emptyBefore && state) {
+            if (!emptyBefore && state && GraphicsEnvironment.isHeadless()) {
+                LOGGER.warning("The sorting process lost a buffer.");
+            } else if (!emptyBefore && state) {
                 final String mesg = "The sorting process lost a buffer. Click 'OK' to\nend the current run, 'Cancel' to have Jam attempt to\ncontinue automatically sampling events in order to keep\nup with the acquisition with no further warnings.\n";
                 final boolean confirmed = JOptionPane.showConfirmDialog(
                         GuiceInjector.getObjectInstance(JFrame.class), mesg,
@@ -143,38 +256,63 @@ public final class NetDaemon extends GoodThread {
      *                if there's a problem sorting the data
      */
     public void receiveLoop() throws SortException, IOException {
-        if (dataSocket == null) {
+        if (channels.isEmpty()) {
             throw new SortException(
                     "Could not start netDeamon, socket null {NetDaemon]");
         }
-        // bufferOut and dataIn keep getting re-used
-        final byte[] bufferOut = GuiceInjector.getObjectInstance(
-                RingBufferFactory.class).freshBuffer();
-        final DatagramPacket dataIn = new DatagramPacket(bufferOut,
-                bufferOut.length);
+        // packet keeps getting re-used
+        final ByteBuffer packet = ByteBuffer
+                .allocateDirect(RingBuffer.BUFFER_SIZE);
         while (checkState()) {// loop as long as state is RUN
-            /* wait for packet */
-            dataSocket.receive(dataIn);
-            if (checkState()) {
-                dataIn.getData();// data goes to bufferOut
-                packetCount++;
-                /* Put buffer into to sorting ring with sample fraction */
-                if (!sortingRing.tryPutBuffer(bufferOut)) {
-                    notSortCount++;
-                    setEmptyBefore(true);
+            /* wait for packets on any socket */
+            if (sequencer != null && sequencer.isHolding()) {
+                /* don't hold buffers forever, e.g., at the end of a run */
+                if (selector.select(FLUSH_MILLIS) == 0) {
+                    sequencer.flush();
                 }
-                /* put buffer into to storage ring */
-                if (writerOn && !storageRing.tryPutBuffer(bufferOut)) {
-                    notStorCount++;
-                    LOGGER.severe("Lost a storage buffer.");
+            } else {
+                selector.select();
+            }
+            final Iterator<SelectionKey> keys = selector.selectedKeys()
+                    .iterator();
+            while (keys.hasNext()) {
+                final DatagramChannel channel = (DatagramChannel) keys.next()
+                        .channel();
+                keys.remove();
+                /* take all the packets queued, in one wakeup */
+                packet.clear();
+                while (channel.receive(packet) != null) {
+                    packet.flip();
+                    if (sequencer == null) {
+                        putPacket(packet);
+                    } else {
+                        sequencer.accept(packet);
+                    }
+                    packet.clear();
                 }
-            } else {// received a packet while thread state not RUN
-                LOGGER.warning("Warning: received buffer while NetDaemon thread"
-                        + " state was not RUN: state=" + this);
             }
         }// end RUN loop
     }
 
+    private void putPacket(final ByteBuffer packet) {
+        if (checkState()) {
+            packetCount++;
+            /* Put buffer into to sorting ring with sample fraction */
+            if (!sortingRing.tryPutBuffer(packet)) {
+                notSortCount++;
+                setEmptyBefore(true);
+            }
+            /* put buffer into to storage ring */
+            if (writerOn && !storageRing.tryPutBuffer(packet)) {
+                notStorCount++;
+                LOGGER.severe("Lost a storage buffer.");
+            }
+        } else {// received a packet while thread state not RUN
+            LOGGER.warning("Warning: received buffer while NetDaemon thread"
+                    + " state was not RUN: state=" + this);
+        }
+    }
+
     /**
      * Sets whether to write out events to the storage pipe.
      * @param writerOn
@@ -193,8 +331,13 @@ public final class NetDaemon extends GoodThread {
      * Closes the network connection.
      */
     public void closeNet() {
-        if (dataSocket != null) {
-            dataSocket.close();
+        try {
+            selector.close();
+        } catch (IOException ioe) {
+            LOGGER.warning("Couldn't close selector: " + ioe.getMessage());
+        }
+        for (DatagramChannel channel : channels) {
+            close(channel);
         }
     }
 
@@ -230,13 +373,49 @@ public final class NetDaemon extends GoodThread {
     }
 
     /**
-     * Reset all buffer counts.
+     * @return number of buffers the front end sent that never arrived, or
+     *         zero if sequence numbers aren't checked
+     */
+    public int getLostCount() {
+        return sequencer == null ? 0 : sequencer.getLostCount();
+    }
+
+    /**
+     * @return number of buffers received more than once, or zero if
+     *         sequence numbers aren't checked
+     */
+    public int getDuplicateCount() {
+        return sequencer == null ? 0 : sequencer.getDuplicateCount();
+    }
+
+    /**
+     * @return number of buffers received after a later one, or zero if
+     *         sequence numbers aren't checked
+     */
+    public int getReorderCount() {
+        return sequencer == null ? 0 : sequencer.getReorderCount();
+    }
+
+    /**
+     * Sets the counts of buffers lost, duplicated and reordered to zero.
+     */
+    public void resetSequenceCounters() {
+        if (sequencer != null) {
+            sequencer.resetCounters();
+        }
+    }
+
+    /**
+     * Reset all buffer counts. The next buffer received starts a new
+     * sequence.
      */
     public void resetCounters() {
         synchronized (sortingRing) {
             packetCount = 0;
             notStorCount = 0;
             notSortCount = 0;
+            resetSequenceCounters();
+            restartSequence();
         }
     }
 
@@ -1,5 +1,7 @@
 package jam.sort;
 
+import java.io.File;
+
 /**
  * Interface for offline sorting.
  * 
@@ -14,4 +16,12 @@ public interface OfflineController extends Controller {
 	 * @return <code>true</code> if there was a next file and it's open now
 	 */
 	boolean openNextFile();
+
+	/**
+	 * Returns the event file opened by the last call to
+	 * <code>openNextFile()</code>.
+	 * 
+	 * @return the file being sorted, or <code>null</code> if none is open
+	 */
+	File getOpenFile();
 }
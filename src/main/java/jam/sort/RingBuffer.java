@@ -1,5 +1,7 @@
 package jam.sort;
 
+import java.nio.ByteBuffer;
+
 /**
  * @author Dale Visser
  * 
@@ -53,6 +55,18 @@ public interface RingBuffer {
 	 */
 	boolean tryPutBuffer(final byte[] inBuffer);
 
+	/**
+	 * Copies the remaining bytes of the passed buffer, at most
+	 * <code>BUFFER_SIZE</code>, straight into a slot of the ring buffer,
+	 * leaving its position unchanged. Lets receivers using direct buffers
+	 * avoid an intermediate copy to an array.
+	 * 
+	 * @param inBuffer
+	 *            incoming data
+	 * @return true if successful, false if full
+	 */
+	boolean tryPutBuffer(final ByteBuffer inBuffer);
+
 	/**
 	 * 
 	 * @return whether this buffer was created with no capacity
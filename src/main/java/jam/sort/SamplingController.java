@@ -0,0 +1,109 @@
+package jam.sort;
+
+import java.util.SplittableRandom;
+
+/**
+ * Decides which events online sorting passes to the sort routine when it
+ * can't keep up with acquisition. A proportional-integral controller sets
+ * the fraction of events sorted so as to hold the sorting ring at a target
+ * occupancy, rather than letting it fill and empty in turn, and each event
+ * is then chosen at random with that probability, so that the events sorted
+ * are a uniform sample, free of any pattern in the event stream. The target
+ * is just short of the ring being close to full, so that bursts the ring can
+ * absorb are still sorted whole, as they were before sampling.
+ * <p>
+ * Called only by the sorting thread, except for
+ * <code>getFraction()</code> and <code>reset()</code>.
+ * </p>
+ */
+public final class SamplingController {
+
+    /* occupancy above which the ring is close to full */
+    private static final double CLOSE_TO_FULL = 1.0
+            - (double) RingBuffer.CLOSE_TO_CAPACITY
+            / RingBuffer.NUMBER_BUFFERS;
+
+    /**
+     * Ring occupancy aimed for, as far below close to full again as close
+     * to full is below full.
+     * @see RingBuffer#isCloseToFull()
+     */
+    public static final double TARGET_OCCUPANCY = 2.0 * CLOSE_TO_FULL - 1.0;
+
+    /**
+     * Smallest fraction of events sorted.
+     */
+    public static final double MIN_FRACTION = 1.0 / 1024;
+
+    /* fraction dropped per unit of occupancy above target, half by full */
+    private static final double PROPORTIONAL_GAIN = 0.5 / (1.0 - CLOSE_TO_FULL);
+
+    /* added to the fraction dropped each buffer, per unit above target */
+    private static final double INTEGRAL_GAIN = 0.02;
+
+    private transient final SplittableRandom random;
+
+    private transient volatile double integral = 0.0;
+
+    private transient volatile double fraction = 1.0;
+
+    /**
+     * Creates a controller sorting every event until told otherwise.
+     */
+    public SamplingController() {
+        this(new SplittableRandom());
+    }
+
+    /**
+     * Creates a controller with a given source of random numbers, e.g., for
+     * reproducible tests.
+     * @param random
+     *            decides which events are sorted
+     */
+    public SamplingController(final SplittableRandom random) {
+        super();
+        this.random = random;
+    }
+
+    /**
+     * Updates the fraction of events to sort, given how full the sorting ring
+     * is. Called once per buffer taken from the ring.
+     * @param occupancy
+     *            fraction of the ring's buffers waiting to be sorted
+     * @return the new fraction of events to sort
+     */
+    public double update(final double occupancy) {
+        final double error = occupancy - TARGET_OCCUPANCY;
+        /* clamped so it can't wind up beyond what the output can use */
+        integral = Math.min(1.0 - MIN_FRACTION, Math.max(0.0, integral
+                + INTEGRAL_GAIN * error));
+        final double dropped = PROPORTIONAL_GAIN * error + integral;
+        fraction = Math.min(1.0, Math.max(MIN_FRACTION, 1.0 - dropped));
+        return fraction;
+    }
+
+    /**
+     * Decides whether to sort the next event.
+     * @return <code>true</code> with probability given by the current
+     *         fraction
+     */
+    public boolean sample() {
+        final double current = fraction;
+        return current >= 1.0 || random.nextDouble() < current;
+    }
+
+    /**
+     * @return the current fraction of events sorted
+     */
+    public double getFraction() {
+        return fraction;
+    }
+
+    /**
+     * Goes back to sorting every event.
+     */
+    public void reset() {
+        integral = 0.0;
+        fraction = 1.0;
+    }
+}
@@ -0,0 +1,279 @@
+package jam.sort;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Checks the sequence numbers of buffers from the front end, counting those
+ * lost, duplicated or received out of order, and passing them on in order.
+ * Each buffer carries a 32-bit, big-endian sequence number at a fixed offset,
+ * given by the event format. Buffers arriving early are held in a small
+ * window, until the buffers before them arrive or the window is full, so that
+ * buffers swapped on the network are still sorted in order. A window of one
+ * passes every buffer on at once, only counting. A jump back in sequence
+ * number of more than 1024 buffers is taken as the front end having started
+ * counting again; a jump ahead of more than 1024 buffers as all the buffers
+ * in between lost, e.g., in an outage, without waiting for them.
+ * <p>
+ * Not thread safe, except for the counters and <code>restart()</code>: all
+ * other methods are called by the receiving thread.
+ * </p>
+ * @see jam.sort.stream.AbstractEventInputStream#getSequenceOffset()
+ */
+public final class SequenceTracker {
+
+    private static final Logger LOGGER = Logger.getLogger(SequenceTracker.class
+            .getPackage().getName());
+
+    /* how far back lost buffers are remembered, so late ones are recognized */
+    private static final int HISTORY = 1024;
+
+    private static final int HISTORY_MASK = HISTORY - 1;
+
+    private transient final int offset;
+
+    private transient final int window;
+
+    private transient final Consumer<ByteBuffer> receiver;
+
+    private transient final ByteBuffer[] held;
+
+    private transient final int[] heldSequence;
+
+    private transient final boolean[] occupied;
+
+    private transient final boolean[] missing = new boolean[HISTORY];
+
+    private transient int heldCount = 0;
+
+    private transient int expected;
+
+    private transient boolean started = false;
+
+    private transient volatile boolean resync = false;
+
+    private transient volatile int lostCount = 0;
+
+    private transient volatile int duplicateCount = 0;
+
+    private transient volatile int reorderCount = 0;
+
+    /**
+     * @param offset
+     *            byte offset of the sequence number in each buffer
+     * @param window
+     *            most buffers held waiting for earlier ones, at least one
+     * @param receiver
+     *            given the buffers in sequence order
+     */
+    public SequenceTracker(final int offset, final int window,
+            final Consumer<ByteBuffer> receiver) {
+        super();
+        if (offset < 0 || window < 1) {
+            throw new IllegalArgumentException("Invalid sequence offset "
+                    + offset + " or window " + window);
+        }
+        this.offset = offset;
+        this.window = window;
+        this.receiver = receiver;
+        held = new ByteBuffer[window];
+        heldSequence = new int[window];
+        occupied = new boolean[window];
+    }
+
+    /**
+     * Checks a buffer's sequence number, and passes it on, or copies it to
+     * be passed on later, or drops it if it was already received.
+     * @param buffer
+     *            the received buffer, between position and limit, which
+     *            are unchanged
+     */
+    public void accept(final ByteBuffer buffer) {
+        if (buffer.remaining() < offset + 4) {
+            /* too short to carry a sequence number, e.g. a stray packet */
+            receiver.accept(buffer);
+            return;
+        }
+        final int sequence = buffer.getInt(buffer.position() + offset);
+        final int ahead = sequence - expected;
+        final boolean counting = started && !resync;
+        final boolean jumped = counting && ahead < -HISTORY;
+        if (jumped) {
+            LOGGER.warning("Buffer sequence number jumped from " + expected
+                    + " back to " + sequence
+                    + ", taking it as the front end counting again.");
+        } else if (counting && ahead > HISTORY) {
+            final int lostBefore = lostCount;
+            final int from = expected;
+            advanceTo(sequence);
+            LOGGER.warning("Buffer sequence number jumped from " + from
+                    + " to " + sequence + ", " + (lostCount - lostBefore)
+                    + " buffers lost.");
+        }
+        if (resync || !started || jumped) {
+            /* new run, or the front end started counting again */
+            flush();
+            Arrays.fill(missing, false);
+            expected = sequence;
+            started = true;
+            resync = false;
+        }
+        if (sequence - expected < 0) {
+            acceptLate(sequence, buffer);
+        } else {
+            if (sequence - expected >= window) {
+                advanceTo(sequence - window + 1);
+                releaseReady();
+            }
+            if (sequence == expected) {
+                if (heldCount > 0) {
+                    reorderCount++;
+                }
+                pass(buffer, sequence);
+                releaseReady();
+            } else {
+                hold(buffer, sequence);
+            }
+        }
+    }
+
+    private void acceptLate(final int sequence, final ByteBuffer buffer) {
+        final int index = sequence & HISTORY_MASK;
+        if (missing[index]) {
+            /* counted as lost when the window moved past it */
+            missing[index] = false;
+            lostCount--;
+            reorderCount++;
+            receiver.accept(buffer);
+        } else {
+            duplicateCount++;
+        }
+    }
+
+    private void hold(final ByteBuffer buffer, final int sequence) {
+        final int slot = Math.floorMod(sequence, window);
+        if (occupied[slot]) {
+            duplicateCount++;
+            return;
+        }
+        if (held[slot] == null) {
+            held[slot] = ByteBuffer.allocate(RingBuffer.BUFFER_SIZE);
+        }
+        final ByteBuffer copy = held[slot];
+        copy.clear();
+        final ByteBuffer source = buffer.duplicate();
+        if (source.remaining() > copy.capacity()) {
+            source.limit(source.position() + copy.capacity());
+        }
+        copy.put(source).flip();
+        occupied[slot] = true;
+        heldSequence[slot] = sequence;
+        heldCount++;
+    }
+
+    private void pass(final ByteBuffer buffer, final int sequence) {
+        missing[sequence & HISTORY_MASK] = false;
+        receiver.accept(buffer);
+        expected = sequence + 1;
+    }
+
+    /* passes on held buffers following the last one passed on */
+    private void releaseReady() {
+        while (heldCount > 0 && !step(false)) {
+            /* all released, or stopped at a gap */
+        }
+    }
+
+    /*
+     * Moves the expected sequence number on by one, passing on its buffer if
+     * held. Returns true if there was nothing to pass on; if skipGap, counts
+     * it lost and moves on anyway.
+     */
+    private boolean step(final boolean skipGap) {
+        final int slot = Math.floorMod(expected, window);
+        final boolean gap = !occupied[slot] || heldSequence[slot] != expected;
+        if (!gap) {
+            occupied[slot] = false;
+            heldCount--;
+            pass(held[slot], expected);
+        } else if (skipGap) {
+            lostCount++;
+            missing[expected & HISTORY_MASK] = true;
+            expected++;
+        }
+        return gap;
+    }
+
+    /* gives up waiting for the buffers before the given one */
+    private void advanceTo(final int sequence) {
+        while (heldCount > 0 && sequence - expected > 0) {
+            step(true);
+        }
+        final int skipped = sequence - expected;
+        if (skipped > 0) {
+            lostCount += skipped;
+            for (int i = Math.max(0, skipped - HISTORY); i < skipped; i++) {
+                missing[(expected + i) & HISTORY_MASK] = true;
+            }
+            expected = sequence;
+        }
+    }
+
+    /**
+     * Passes on all held buffers, giving up on those missing between them.
+     * Called when no buffers have arrived for a while, e.g., at the end of a
+     * run.
+     */
+    public void flush() {
+        while (heldCount > 0) {
+            step(true);
+        }
+    }
+
+    /**
+     * @return whether any buffers are waiting for earlier ones
+     */
+    public boolean isHolding() {
+        return heldCount > 0;
+    }
+
+    /**
+     * Takes the next buffer's sequence number as the start of a new
+     * sequence, e.g., at the start of a run. May be called from any thread.
+     */
+    public void restart() {
+        resync = true;
+    }
+
+    /**
+     * @return number of buffers never received
+     */
+    public int getLostCount() {
+        return lostCount;
+    }
+
+    /**
+     * @return number of buffers received more than once
+     */
+    public int getDuplicateCount() {
+        return duplicateCount;
+    }
+
+    /**
+     * @return number of buffers received after a later buffer
+     */
+    public int getReorderCount() {
+        return reorderCount;
+    }
+
+    /**
+     * Sets all counts to zero. May be called from any thread.
+     */
+    public void resetCounters() {
+        lostCount = 0;
+        duplicateCount = 0;
+        reorderCount = 0;
+    }
+}
@@ -1,6 +1,7 @@
 package jam.sort;
 
 import javax.swing.*;
+import java.nio.ByteBuffer;
 
 /**
  * <code>SimpleRingBuffer</code> is a list of buffers which starts repeating
@@ -85,6 +86,32 @@ public final class SimpleRingBuffer implements RingBuffer {
 		return success;
 	}
 
+	/**
+	 * Copies the remaining bytes of the passed buffer into the ring buffer.
+	 * 
+	 * @param inBuffer
+	 *            incoming data
+	 */
+	public boolean tryPutBuffer(final ByteBuffer inBuffer) {
+		boolean success = false;
+		synchronized (this) {
+			assert !isNull() : "Attempted putBuffer() on 'null' ring buffer.";
+			if (!isFull()) {
+				final int position = inBuffer.position();
+				inBuffer.get(buffer[posPut & MASK], 0, Math.min(BUFFER_SIZE,
+						inBuffer.remaining()));
+				inBuffer.position(position);
+				final boolean emptyBeforePut = isEmpty();
+				posPut++;
+				if (emptyBeforePut) {
+					notifyAll();
+				}
+				success = true;
+			}
+		}
+		return success;
+	}
+
 	/**
 	 * Clear the buffer. This is a quick operation, since it just involves
 	 * resetting the put and get pointers.
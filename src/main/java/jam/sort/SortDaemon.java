@@ -1,6 +1,8 @@
 package jam.sort;
 
 import injection.GuiceInjector;
+import jam.data.AbstractHistogram;
+import jam.data.Scaler;
 import jam.data.Sorter;
 import jam.global.BroadcastEvent;
 import jam.global.Broadcaster;
@@ -8,8 +10,13 @@ import jam.global.GoodThread;
 import jam.global.JamStatus;
 import jam.sort.stream.AbstractEventInputStream;
 import jam.sort.stream.AbstractEventInputStream.EventInputStatus;
+import jam.sort.stream.EventCache;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 
 /**
@@ -63,7 +70,27 @@ public class SortDaemon extends GoodThread {
 
     private transient Sorter sorter;
 
-    private int sortInterval = 1;
+    private transient final SamplingController sampler = new SamplingController();
+
+    /* events in the current buffer, and how many of them were sorted */
+    private transient int bufferOffered, bufferSampled;
+
+    private transient boolean skipping = false;
+
+    private transient volatile CompletableFuture<Void> runEnd = new CompletableFuture<>();
+
+    private transient final AtomicBoolean rolloverArmed = new AtomicBoolean();
+
+    /* whether to sort offline from event caches, writing them as needed */
+    private transient boolean cacheEvents = false;
+
+    /* caches the events of the file being sorted, null if not caching */
+    private transient EventCache.Writer cacheWriter;
+
+    private transient int cacheStartBuffer;
+
+    /* the file whose events are being cached */
+    private transient File cachedFile;
 
     /**
      * Creates a new <code>SortDaemon</code> process.
@@ -100,24 +127,55 @@ public class SortDaemon extends GoodThread {
         return ringBuffer.isEmpty();
     }
 
-    private void checkIntervalAndSortEvent(final int[] eventData)
+    private void sampleAndSortEvent(final int[] eventData)
             throws Exception {// NOPMD
-        /* Sort only the sortInterval'th events. */
-        if (isCallingSortRoutine() && getEventCount() % getSortInterval() == 0) {
+        /* Sort only the events chosen by the sampling controller. */
+        if (isCallingSortRoutine() && sampler.sample()) {
             sorter.sort(eventData);
             incrementSortedCount();
+            bufferSampled++;
         }
         incrementEventCount();
+        bufferOffered++;
         /* Zero event array and get ready for next event. */
         Arrays.fill(eventData, 0);
     }
 
-    private void decreaseSortInterval() {
-        synchronized (this) {
-            if (sortInterval > 1) {
-                sortInterval--;
-            }
-        }
+    /**
+     * Starts waiting for the end of a new run online.
+     * @return completes when the buffer with the end-of-run marker has
+     *         been sorted
+     */
+    public CompletableFuture<Void> expectRunEnd() {
+        runEnd = new CompletableFuture<>();
+        return runEnd;
+    }
+
+    /**
+     * Starts waiting for the end of a run online, at which the histograms
+     * are rolled over without sorting stopping: the user's sort routine is
+     * told the run has ended, the counts and scaler values up to the
+     * end-of-run marker are frozen, and the events after it are sorted into
+     * zeroed histograms.
+     * @return completes once the histograms have rolled over
+     * @see AbstractHistogram#rolloverAll()
+     * @see Scaler#freezeAll()
+     */
+    public CompletableFuture<Void> expectRollover() {
+        AbstractHistogram.prepareRolloverAll();
+        final CompletableFuture<Void> rval = expectRunEnd();
+        rolloverArmed.set(true);
+        return rval;
+    }
+
+    /**
+     * Stops waiting for the rollover asked for by
+     * <code>expectRollover()</code>, if the end-of-run marker hasn't yet
+     * been sorted.
+     * @return <code>true</code> if cancelled before the rollover happened
+     */
+    public boolean cancelRollover() {
+        return rolloverArmed.compareAndSet(true, false);
     }
 
     /**
@@ -165,14 +223,13 @@ public class SortDaemon extends GoodThread {
     }
 
     /**
-     * Returns the sort sample interval.
-     * @see #setSortInterval(int)
-     * @return the total number of packets sent
+     * Returns the fraction of events currently passed to the sort routine
+     * online, which is less than one when sorting can't keep up.
+     * @return the current sampling fraction
+     * @see SamplingController
      */
-    public int getSortInterval() {
-        synchronized (this) {
-            return sortInterval;
-        }
+    public double getSamplingFraction() {
+        return sampler.getFraction();
     }
 
     private void handleStatusOffline() {
@@ -210,6 +267,12 @@ public class SortDaemon extends GoodThread {
             yield();
         } else if (eventInputStatus == EventInputStatus.END_RUN) {
             incrementBufferCount();
+            if (rolloverArmed.compareAndSet(true, false)) {
+                userEnd();
+                Scaler.freezeAll();
+                AbstractHistogram.rolloverAll();
+            }
+            runEnd.complete(null);
             yield();
         } else if (eventInputStatus == EventInputStatus.UNKNOWN_WORD) {
             LOGGER.warning("Unknown word in event stream.");
@@ -222,14 +285,6 @@ public class SortDaemon extends GoodThread {
         }
     }
 
-    private void increaseSortInterval() {
-        synchronized (this) {
-            sortInterval++;
-            LOGGER.warning("Sorting ring buffer half-full."
-                    + " Sort interval increased to " + sortInterval + ".");
-        }
-    }
-
     private void incrementBufferCount() {
         synchronized (this) {
             bufferCount++;
@@ -330,6 +385,19 @@ public class SortDaemon extends GoodThread {
         eventSize = size;
     }
 
+    /**
+     * Sets whether to keep the events decoded from each file sorted offline
+     * in a cache beside it, and to sort from the cache, skipping decoding,
+     * when sorting the file again. Files with scaler values in the event
+     * stream aren't cached, as the cache holds events only.
+     * @param state
+     *            whether to cache events
+     * @see EventCache
+     */
+    public void setCacheEvents(final boolean state) {
+        cacheEvents = state;
+    }
+
     /**
      * Sets the ring buffer to pull event data from.
      * @param ringBuffer
@@ -360,16 +428,11 @@ public class SortDaemon extends GoodThread {
     }
 
     /**
-     * Sets the sort sample interval This is the frequeny of buffers sent to the
-     * sort routine. For example if this is set to 2 only every second buffer is
-     * sent to the sort routine.
-     * @param sample
-     *            the sample interval
+     * Goes back to sorting every event online, until sorting falls behind
+     * again.
      */
-    public void setSortInterval(final int sample) {
-        synchronized (this) {
-            sortInterval = sample;
-        }
+    public void resetSampling() {
+        sampler.reset();
     }
 
     /**
@@ -408,6 +471,9 @@ public class SortDaemon extends GoodThread {
         if (offlineSortingCanceled()) {
             eventInputStatus = EventInputStatus.END_RUN;
         } else if (eventInputStatus == EventInputStatus.EVENT) {
+            if (cacheWriter != null) {
+                addToCache(eventData);
+            }
             sorter.sort(eventData);
             incrementEventCount();
             incrementSortedCount();
@@ -417,6 +483,9 @@ public class SortDaemon extends GoodThread {
             Arrays.fill(eventData, 0);
             atBuffer = false;
             periodicallyUpdateCounters();
+        } else if (eventInputStatus == EventInputStatus.SCALER_VALUE
+                && cacheWriter != null) {
+            abandonCache();
         }
         /*
          * else SCALER_VALUE, assume sort stream took care and move on or IGNORE
@@ -465,16 +534,120 @@ public class SortDaemon extends GoodThread {
                  * set it back to false so that the next file will be sorted.
                  */
                 this.endSort = false;
+                final File file = offlineController.getOpenFile();
+                if (this.sortFromCache(file, eventData)) {
+                    continue;
+                }
+                this.startCache(file);
                 while (!this.offlineSortingCanceled() && !this.endSort) {// buffer
                                                                          // loop
                     this.sortEventsInFile(eventData);
                     this.handleStatusOffline();
                 }// end buffer loop
+                this.finishCache();
             }// end isSortNext loop
             offlineController.atSortEnd();
         }// end checkstate loop
     }
 
+    /*
+     * Sorts the events of a file from its cache, if caching and it has a
+     * current one. Returns whether it did.
+     */
+    private boolean sortFromCache(final File file, final int[] eventData)
+            throws Exception {// NOPMD
+        if (!cacheEvents || file == null) {
+            return false;
+        }
+        try (EventCache.Reader cache = openCache(file)) {
+            if (cache == null) {
+                return false;
+            }
+            LOGGER.info("Sorting " + cache.getEvents()
+                    + " cached events of " + file.getName());
+            while (!offlineSortingCanceled() && cache.readEvent(eventData)) {
+                sorter.sort(eventData);
+                incrementEventCount();
+                incrementSortedCount();
+                periodicallyUpdateCounters();
+            }
+            if (!offlineSortingCanceled()) {
+                setBufferCount(getBufferCount() + cache.getBuffers());
+            }
+            updateCounters();
+        }
+        return true;
+    }
+
+    private EventCache.Reader openCache(final File file) {
+        EventCache.Reader rval = null;
+        try {
+            rval = EventCache.open(file, eventInputStream.getClass()
+                    .getName(), eventSize);
+        } catch (IOException ioe) {
+            LOGGER.log(Level.WARNING, "Couldn't read event cache of "
+                    + file.getName(), ioe);
+        }
+        return rval;
+    }
+
+    private void startCache(final File file) {
+        if (cacheEvents && file != null) {
+            try {
+                cacheWriter = new EventCache.Writer(file, eventInputStream
+                        .getClass().getName(), eventSize);
+                cacheStartBuffer = getBufferCount();
+                cachedFile = file;
+            } catch (IOException ioe) {
+                LOGGER.log(Level.WARNING, "Couldn't cache events of "
+                        + file.getName(), ioe);
+            }
+        }
+    }
+
+    private void addToCache(final int[] eventData) {
+        try {
+            cacheWriter.add(eventData);
+        } catch (IOException ioe) {
+            LOGGER.log(Level.WARNING, "Stopped caching events.", ioe);
+            closeCache();
+        }
+    }
+
+    /*
+     * Scaler values read from the event stream update the scalers as they're
+     * decoded, but the cache holds events only, so sorting from it would lose
+     * them. Files with scaler values are decoded each time instead.
+     */
+    private void abandonCache() {
+        LOGGER.info("Not caching events of " + cachedFile.getName()
+                + ", since the cache can't hold its scaler values.");
+        closeCache();
+    }
+
+    /* keeps the cache if the whole file was sorted */
+    private void finishCache() {
+        if (cacheWriter != null && !offlineSortingCanceled()) {
+            try {
+                cacheWriter.commit(getBufferCount() - cacheStartBuffer);
+            } catch (IOException ioe) {
+                LOGGER.log(Level.WARNING, "Couldn't finish event cache.", ioe);
+            }
+        }
+        closeCache();
+    }
+
+    private void closeCache() {
+        if (cacheWriter != null) {
+            try {
+                cacheWriter.close();
+            } catch (IOException ioe) {
+                LOGGER.log(Level.WARNING, "Couldn't close event cache.", ioe);
+            }
+            cacheWriter = null; // NOPMD
+        }
+    }
+
     /**
      * Performs the online sorting until an end-of-run state is reached in the
      * event stream.
@@ -484,19 +657,10 @@ public class SortDaemon extends GoodThread {
     public void sortOnline() throws Exception {// NOPMD
         final RingInputStream ringInputStream = new RingInputStream();
         final int[] eventData = new int[eventSize];
-        final byte[] buffer = GuiceInjector.getObjectInstance(
-                RingBufferFactory.class).freshBuffer();
+        final byte[] buffer = new byte[RingBuffer.BUFFER_SIZE];
         while (true) { // loop while acquisition on
             /* Get a new buffer and make an input stream out of it. */
-            if (ringBuffer.isCloseToFull()) {
-                increaseSortInterval();
-                setIsCallingSort(false);
-            } else {
-                setIsCallingSort(true);
-                if (ringBuffer.isEmpty()) {
-                    decreaseSortInterval();
-                }
-            }
+            checkRingOccupancy();
             ringBuffer.getBuffer(buffer);
             ringInputStream.setBuffer(buffer);
             eventInputStream.setInputStream(ringInputStream);
@@ -506,16 +670,46 @@ public class SortDaemon extends GoodThread {
             while (((eventInputStatus == EventInputStatus.EVENT)
                     || (eventInputStatus == EventInputStatus.SCALER_VALUE) || (eventInputStatus == EventInputStatus.IGNORE))) {
                 if (eventInputStatus == EventInputStatus.EVENT) {
-                    checkIntervalAndSortEvent(eventData);
+                    sampleAndSortEvent(eventData);
                 }
                 // else SCALER_VALUE, assume sort stream took care and move on
                 eventInputStatus = eventInputStream.readEvent(eventData);
             }
+            recordSampling();
             handleStatusOnline();
             yield();
         }// end infinite loop
     }
 
+    /*
+     * Sets the sampling fraction from how full the ring is. If the ring is
+     * nearly full anyway, skips sorting the whole next buffer.
+     */
+    private void checkRingOccupancy() {
+        final int used = ringBuffer.getUsedBuffers();
+        final int total = used + ringBuffer.getAvailableBuffers();
+        sampler.update(total == 0 ? 0.0 : (double) used / total);
+        final boolean closeToFull = ringBuffer.isCloseToFull();
+        if (closeToFull && !skipping) {
+            LOGGER.warning("Sorting ring buffer nearly full."
+                    + " Skipping buffers until it empties.");
+        }
+        skipping = closeToFull;
+        setIsCallingSort(!closeToFull);
+    }
+
+    /*
+     * Records how many of the events in the last buffer were sorted, so the
+     * histograms' counts can be scaled to true rates.
+     */
+    private void recordSampling() {
+        if (bufferOffered > 0) {
+            AbstractHistogram.addSampling(bufferOffered, bufferSampled);
+        }
+        bufferOffered = 0;
+        bufferSampled = 0;
+    }
+
     /**
      * Update the counters display.
      */
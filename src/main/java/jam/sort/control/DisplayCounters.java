@@ -69,6 +69,20 @@ public final class DisplayCounters extends JDialog implements PropertyChangeList
 	private transient final CounterPanel pSortSample = new CounterPanel(
 			"Current sampling fraction");
 
+	private transient final CounterPanel pBuffLost = new CounterPanel(
+			"Buffers lost");
+
+	private transient final CounterPanel pBuffDupl = new CounterPanel(
+			"Buffers duplicated");
+
+	private transient final CounterPanel pBuffReord = new CounterPanel(
+			"Buffers reordered");
+
+	/* sequence counts and time at the last update, for rates */
+	private transient final int[] lastSequenceCounts = new int[3];
+
+	private transient long lastSequenceTime = System.nanoTime();
+
 	private transient SortDaemon sortDaemon;
 
 	private transient AbstractStorageDaemon storeDaemon;
@@ -126,10 +140,13 @@ public final class DisplayCounters extends JDialog implements PropertyChangeList
                 netDaemon.setPacketCount(0);
                 pBuffRecv.setText(String
                         .valueOf(netDaemon.getPacketCount()));
+                netDaemon.resetSequenceCounters();
+                updateSequence();
                 pBuffWrit.setText(space);
                 storeDaemon.setBufferCount(0);
                 pBuffWrit.setText(String.valueOf(storeDaemon
                         .getBufferCount()));
+                sortDaemon.resetSampling();
                 pSortSample.setText(space);
                 broadcaster.broadcast(BroadcastEvent.Command.COUNTERS_READ);
 
@@ -168,6 +185,7 @@ public final class DisplayCounters extends JDialog implements PropertyChangeList
                 pEvntSort.setText(String.valueOf(sortDaemon
                         .getSortedCount()));
                 updateSample();
+                updateSequence();
             } else { // offline
                 pEvntSort.setText(String.valueOf(sortDaemon
                         .getSortedCount()));
@@ -228,6 +246,11 @@ public final class DisplayCounters extends JDialog implements PropertyChangeList
 		pCenter.add(pEvntRecv);
 		pCenter.add(pEvntSort);
 		pCenter.add(pSortSample);
+		if (net.isSequenceTracking()) {
+			pCenter.add(pBuffLost);
+			pCenter.add(pBuffDupl);
+			pCenter.add(pBuffReord);
+		}
 		pack();
 	}
 
@@ -244,6 +267,7 @@ public final class DisplayCounters extends JDialog implements PropertyChangeList
 				pBuffSent.setText(String.valueOf(vmeCounters[iBufferCt]));
 				pEvntSent.setText(String.valueOf(vmeCounters[iEventCount]));
 				updateSample();
+				updateSequence();
 			} else {
 				/* update fields used in OFFLINE mode */
 				pBuffSort.setText(String.valueOf(sortDaemon.getBufferCount()));
@@ -253,13 +277,32 @@ public final class DisplayCounters extends JDialog implements PropertyChangeList
 		}
 	}
 
+	/* current fraction, and fraction of all events received so far */
 	private void updateSample() {
-		final int sample = sortDaemon.getSortInterval();
-		final StringBuilder buffer = new StringBuilder();
-		if (sample > 1) {
-			buffer.append("1/");
+		final int received = sortDaemon.getEventCount();
+		final double overall = received == 0 ? 1.0 : (double) sortDaemon
+				.getSortedCount()
+				/ received;
+		pSortSample.setText(String.format("%.1f%% (overall %.1f%%)",
+				100.0 * sortDaemon.getSamplingFraction(), 100.0 * overall));
+	}
+
+	/* shows the sequence counts, with their rates since the last update */
+	private void updateSequence() {
+		if (!netDaemon.isSequenceTracking()) {
+			return;
+		}
+		final int[] counts = { netDaemon.getLostCount(),
+				netDaemon.getDuplicateCount(), netDaemon.getReorderCount() };
+		final CounterPanel[] panels = { pBuffLost, pBuffDupl, pBuffReord };
+		final long now = System.nanoTime();
+		final double seconds = (now - lastSequenceTime) * 1.0e-9;
+		for (int i = 0; i < counts.length; i++) {
+			final double rate = Math.max(0, counts[i] - lastSequenceCounts[i])
+					/ seconds;
+			panels[i].setText(String.format("%d (%.1f/s)", counts[i], rate));
+			lastSequenceCounts[i] = counts[i];
 		}
-		buffer.append(sample);
-		pSortSample.setText(buffer.toString());
+		lastSequenceTime = now;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,41 @@
+package jam.sort.control;
+
+import java.awt.event.ActionEvent;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.swing.AbstractAction;
+import javax.swing.Action;
+
+import injection.GuiceInjector;
+import jam.global.JamException;
+import jam.ui.Icons;
+
+@SuppressWarnings("serial")
+class Rollover extends AbstractAction {
+
+    private static final Logger LOGGER = Logger.getLogger(Rollover.class
+            .getPackage().getName());
+
+    private transient final RunController runControl;
+
+    Rollover(final RunController runControl) {
+        super();
+        this.runControl = runControl;
+        putValue(Action.NAME, "Next Run");
+        putValue(Action.SHORT_DESCRIPTION,
+                "Ends the current run and begins the next, without stopping sorting.");
+        putValue(Action.SMALL_ICON,
+                GuiceInjector.getObjectInstance(Icons.class).GO_GREEN);
+        setEnabled(false);
+    }
+
+    public void actionPerformed(final ActionEvent event) {
+        try {
+            runControl.rolloverRun();
+        } catch (JamException je) {
+            LOGGER.log(Level.SEVERE, je.getMessage(), je);
+        }
+    }
+
+}
@@ -7,6 +7,9 @@ import java.awt.Frame;
 import java.awt.GridLayout;
 import java.io.File;
 import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -17,6 +20,8 @@ import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JTextField;
 import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import javax.swing.border.EmptyBorder;
 
 import com.google.inject.Inject;
@@ -24,6 +29,9 @@ import com.google.inject.Singleton;
 
 import jam.comm.FrontEndCommunication;
 import jam.comm.ScalerCommunication;
+import jam.data.AbstractHistogram;
+import jam.data.Group;
+import jam.data.Scaler;
 import jam.data.Warehouse;
 import jam.global.GoodThread.State;
 import jam.global.JamException;
@@ -58,6 +66,15 @@ import jam.sort.SortException;
  * <li>closes event file</li>
  * <li>writes out summary data file</li>
  * </ul>
+ * <p>
+ * <b>next run </b>:
+ * </p>
+ * <ul>
+ * <li>ends the run and begins the next at the same event, without stopping
+ * sorting</li>
+ * <li>closes the event file and opens the next</li>
+ * <li>writes out the ended run's histograms, frozen at that event</li>
+ * </ul>
  * 
  * @author Ken Swartz
  * @author <a href="mailto:dwvisser@users.sourceforge.net">Dale Visser </a>
@@ -82,6 +99,15 @@ public final class RunControl extends JDialog implements Controller,
 	private static final Logger LOGGER = Logger.getLogger(RunControl.class
 			.getPackage().getName());
 
+	/* how often to remind the front end to end the run */
+	private static final int END_RESEND_MILLIS = 3000;
+
+	/*
+	 * how long to wait for the end of run marker before ending the run
+	 * anyway, once everything received has been sorted and stored
+	 */
+	private static final long END_TIMEOUT_MILLIS = 30000;
+
 	private transient final JamStatus status;
 
 	private transient final Begin begin;
@@ -97,6 +123,8 @@ public final class RunControl extends JDialog implements Controller,
 
 	private transient final End end;
 
+	private transient final Rollover rollover;
+
 	/* daemon threads */
 	private transient NetDaemon netDaemon;
 
@@ -107,6 +135,8 @@ public final class RunControl extends JDialog implements Controller,
 
 	private transient SortDaemon sortDaemon;
 
+	private transient CompletableFuture<Void> sortRunEnd, storeRunEnd;
+
 	private transient final JTextField tRunNumber, textRunTitle, textExptName;
 
 	private transient final FrontEndCommunication frontEnd;
@@ -117,6 +147,17 @@ public final class RunControl extends JDialog implements Controller,
 
 	private transient final HDFIO hdfio;
 
+	/*
+	 * Starts writing the histogram files of ended runs. Not the Swing thread,
+	 * which shows the progress of the copying it waits for.
+	 */
+	private transient final ExecutorService runFileWriter = Executors
+			.newSingleThreadExecutor(runnable -> {
+				final Thread thread = new Thread(runnable, "Run File Writer");
+				thread.setDaemon(true);
+				return thread;
+			});
+
 	private transient final Object syncObject = new Object();
 
 	/**
@@ -197,6 +238,8 @@ public final class RunControl extends JDialog implements Controller,
 		end = new End(this);
 		final JButton bend = new JButton(end);
 		pGrid.add(bend);
+		rollover = new Rollover(this);
+		pGrid.add(new JButton(rollover));
 		setDefaultCloseOperation(DISPOSE_ON_CLOSE);
 		pack();
 	}
@@ -288,8 +331,13 @@ public final class RunControl extends JDialog implements Controller,
 			// tell net daemon to write events to storage daemon
 			netDaemon.setWriter(true);
 		}
+		/* signalled when the end of run marker reaches each daemon */
+		sortRunEnd = sortDaemon.expectRunEnd();
+		storeRunEnd = device == Device.DISK ? diskDaemon.expectRunEnd()
+				: CompletableFuture.<Void> completedFuture(null);
 		// enable end button, display run number
 		end.setEnabled(true);
+		rollover.setEnabled(true);
 		begin.setEnabled(false);
 		setLockControls(true);
 		status.setRunState(RunState.runOnline(RunInfo.getInstance().runNumber));
@@ -302,6 +350,7 @@ public final class RunControl extends JDialog implements Controller,
 		}
 		setRunOn(true);
 		netDaemon.setEmptyBefore(false);// fresh slate
+		netDaemon.restartSequence();
 		netDaemon.setState(State.RUN);
 		frontEnd.startAcquisition();// VME start last because other thread have
 
@@ -313,8 +362,9 @@ public final class RunControl extends JDialog implements Controller,
 	 * run marker When the storageDaemon gets end of run character, it will turn
 	 * the netDaemon's eventWriter off which flushes and close event file.
 	 * 
-	 * sort calls back isEndRun when it sees the end of run marker and write out
-	 * histogram, gates and scalers if requested
+	 * Doesn't wait: once the sort and storage daemons have both passed the end
+	 * of run marker, the histograms are copied and written to a file in the
+	 * background, and the next run may begin.
 	 */
 	public void endRun() {
 		RunInfo.getInstance().runEndTime = new Date();
@@ -322,30 +372,55 @@ public final class RunControl extends JDialog implements Controller,
 		scaler.readScalers(); // read scalers
 
 		status.setRunState(RunState.ACQ_OFF);
+		end.setEnabled(false);
+		rollover.setEnabled(false);
 		LOGGER.info("Ending run " + RunInfo.getInstance().runNumber
 				+ ", waiting for sorting to finish.");
-		int numSeconds = 0;
-		do {// wait for sort to catch up
-			try {
-				Thread.sleep(1000); // sleep 1 second
-				numSeconds++;
-				if (numSeconds % 3 == 0) {
-					LOGGER
-							.warning("Waited "
-									+ numSeconds
-									+ " seconds for "
-									+ "sorter and file writer to finish. Sending commands to "
-									+ "front end again.");
-					frontEnd.end();
-					scaler.readScalers();
-				}
-			} catch (InterruptedException ie) {
-				LOGGER.log(Level.SEVERE, getClass().getName()
-						+ ".endRun(), Error: Interrupted while"
-						+ " waiting for sort to finish.", ie);
+		final CompletableFuture<Void> drained = CompletableFuture.allOf(
+				sortRunEnd, storeRunEnd);
+		/* the front end may not have heard, so remind it now and then */
+		final long start = System.currentTimeMillis();
+		final Timer reminder = new Timer(END_RESEND_MILLIS, event -> {
+			if (drained.isDone()) {
+				return;
 			}
-		} while (!sortDaemon.caughtUp() && !storageCaughtUp());
-		diskDaemon.resetReachedRunEnd();
+			final long waited = System.currentTimeMillis() - start;
+			if (waited >= END_TIMEOUT_MILLIS && sortDaemon.caughtUp()
+					&& (device != Device.DISK || diskDaemon.caughtUp())) {
+				endRunWithoutMarker(waited);
+			} else {
+				LOGGER.warning("Waited " + waited / 1000
+						+ " seconds for sorter and file writer to finish."
+						+ " Sending commands to front end again.");
+				frontEnd.end();
+				scaler.readScalers();
+			}
+		});
+		reminder.start();
+		drained.thenRun(() -> SwingUtilities.invokeLater(() -> {
+			reminder.stop();
+			finishRun();
+		}));
+	}
+
+	/*
+	 * The front end never sent the end of run marker, or it was lost, but
+	 * everything received has been sorted and stored, as the run loop used
+	 * to wait for.
+	 */
+	private void endRunWithoutMarker(final long waited) {
+		LOGGER.warning("No end of run marker after " + waited / 1000
+				+ " seconds, but all data received has been sorted."
+				+ " Ending the run anyway.");
+		if (device == Device.DISK && !storeRunEnd.isDone()) {
+			atWriteEnd();
+		}
+		storeRunEnd.complete(null);
+		sortRunEnd.complete(null);
+	}
+
+	/* Called once the daemons have passed the end of run marker. */
+	private void finishRun() {
 		netDaemon.setState(State.SUSPEND);
 		sortDaemon.userEnd();
 		// histogram file name constructed using run name and number
@@ -355,17 +430,159 @@ public final class RunControl extends JDialog implements Controller,
 		final File histFile = new File(histPath, histFileName);
 		LOGGER.info("Sorting finished writing out histogram file: "
 				+ histFile.getPath());
-		hdfio
-				.writeFile(histFile, Warehouse.getSortGroupGetter()
-						.getSortGroup());
+		final Group group = Warehouse.getSortGroupGetter().getSortGroup();
+		runFileWriter.execute(() -> {
+			/* returns once the counts are copied, so they may be zeroed */
+			logFailure(hdfio.writeSnapshot(histFile, group), histFile);
+			SwingUtilities.invokeLater(this::readyForNextRun);
+		});
+	}
+
+	private static void logFailure(final CompletableFuture<File> written,
+			final File file) {
+		written.exceptionally(thrown -> {
+			LOGGER.log(Level.SEVERE, thrown.getMessage(), thrown);
+			return file;
+		});
+	}
+
+	/* Called once the ended run's counts have been copied for writing. */
+	private void readyForNextRun() {
 		RunInfo.getInstance().runNumber++;// increment run number
 		tRunNumber.setText(Integer.toString(RunInfo.getInstance().runNumber));
 		setRunOn(false);
-		end.setEnabled(false); // toggle button states
 		begin.setEnabled(true);// set begin button state for next run
 		setLockControls(false);
 	}
 
+	/**
+	 * Ends the current run and begins the next without stopping acquisition
+	 * or sorting. The front end is told to end and start again, which puts an
+	 * end of run marker in the event stream. When the sorter reaches it, the
+	 * histograms are frozen and sorting goes on into empty histograms; when
+	 * the storage daemon reaches it, the event file is closed and the next
+	 * opened. The frozen histograms are then written to the ended run's file
+	 * in the background. Histograms always start from zero, whatever the
+	 * "Zero on Begin" setting.
+	 * <p>
+	 * The user's sort routine is told the run has ended, and the scaler
+	 * values are frozen for the file, by the sorter at the marker. Scalers
+	 * are zeroed, if "Zero on Begin" is set, as soon as the marker has been
+	 * passed, so counts taken between the marker and then are lost. If no
+	 * marker arrives within the time <code>endRun()</code> would wait, the
+	 * rollover is given up and the run ended as by <code>endRun()</code>.
+	 * </p>
+	 * 
+	 * @throws JamException
+	 *             if the next run's event file already exists
+	 */
+	public void rolloverRun() throws JamException {
+		final RunInfo info = RunInfo.getInstance();
+		final int endedRun = info.runNumber;
+		final File histFile = new File(histPath, info.experimentName
+				+ endedRun + ".hdf");
+		File nextFile = null;
+		if (device == Device.DISK) {
+			nextFile = new File(dataPath, info.experimentName + (endedRun + 1)
+					+ ".evn");
+			if (nextFile.exists()) {// Do not allow file overwrite
+				throw new JamException("Event file already exits, File: "
+						+ nextFile.getPath()
+						+ ", Jam Cannot overwrite. [RunControl]");
+			}
+		}
+		end.setEnabled(false);
+		rollover.setEnabled(false);
+		info.runEndTime = new Date();
+		scaler.readScalers();
+		sortRunEnd = sortDaemon.expectRollover();
+		storeRunEnd = device == Device.DISK ? diskDaemon.expectRollover(
+				nextFile, endedRun + 1) : CompletableFuture
+				.<Void> completedFuture(null);
+		LOGGER.info("Ending run " + endedRun + " and beginning run "
+				+ (endedRun + 1) + " at the next end of run marker.");
+		/* a second marker would end the new run, so no reminders here */
+		frontEnd.end();
+		frontEnd.startAcquisition();
+		final CompletableFuture<Void> rolled = CompletableFuture.allOf(
+				sortRunEnd, storeRunEnd);
+		final long start = System.currentTimeMillis();
+		final Timer watchdog = new Timer(END_RESEND_MILLIS, null);
+		watchdog.addActionListener(event -> {
+			final long waited = System.currentTimeMillis() - start;
+			if (!rolled.isDone() && waited >= END_TIMEOUT_MILLIS
+					&& sortDaemon.caughtUp()
+					&& (device != Device.DISK || diskDaemon.caughtUp())
+					&& sortDaemon.cancelRollover()) {
+				watchdog.stop();
+				giveUpRollover(waited);
+			}
+		});
+		watchdog.start();
+		rolled.thenRun(() -> SwingUtilities.invokeLater(() -> {
+			if (watchdog.isRunning()) {
+				watchdog.stop();
+				finishRollover(histFile, endedRun + 1);
+			}
+		}));
+	}
+
+	/*
+	 * The front end never sent the marker between the runs, or it was lost,
+	 * but everything received has been sorted and stored. Ends the run
+	 * instead, so the controls don't stay disabled.
+	 */
+	private void giveUpRollover(final long waited) {
+		LOGGER.severe("No end of run marker after " + waited / 1000
+				+ " seconds, so run " + RunInfo.getInstance().runNumber
+				+ " could not be rolled over. Ending the run instead.");
+		if (device == Device.DISK) {
+			diskDaemon.cancelRollover();
+		}
+		endRun();
+	}
+
+	/* Called once the daemons have passed the marker between the runs. */
+	private void finishRollover(final File histFile, final int nextRun) {
+		if (zeroScalers.isSelected()) {
+			scaler.clearScalers();
+		}
+		LOGGER.info("Run " + (nextRun - 1)
+				+ " rolled over, writing out histogram file: "
+				+ histFile.getPath());
+		final Group group = Warehouse.getSortGroupGetter().getSortGroup();
+		runFileWriter.execute(() -> {
+			logFailure(hdfio.writeFrozen(histFile, group), histFile);
+			/* the frozen counts have been copied for writing by now */
+			AbstractHistogram.releaseFrozenAll();
+			Scaler.releaseFrozenAll();
+			SwingUtilities.invokeLater(() -> beginRolledOverRun(nextRun));
+		});
+	}
+
+	/* Called once the ended run's frozen counts have been copied. */
+	private void beginRolledOverRun(final int nextRun) {
+		if (device != Device.DISK) {
+			/* else set at the marker, for the new event file's header */
+			final RunInfo info = RunInfo.getInstance();
+			info.runNumber = nextRun;
+			info.runStartTime = new Date();
+		}
+		tRunNumber.setText(Integer.toString(nextRun));
+		sortDaemon.userBegin();
+		status.setRunState(RunState.runOnline(nextRun));
+		end.setEnabled(true);
+		rollover.setEnabled(true);
+		if (device == Device.DISK) {
+			LOGGER.info("Began run " + nextRun
+					+ ", events being written to file: "
+					+ diskDaemon.getEventOutputFile().getPath());
+		} else {
+			LOGGER.info("Began run " + nextRun
+					+ ", events being written out by front end.");
+		}
+	}
+
 	/**
 	 * flush the VME buffer
 	 */
@@ -454,6 +671,7 @@ public final class RunControl extends JDialog implements Controller,
 					.runOnline(RunInfo.getInstance().runNumber));
 			// see stopAcq() for reason for this next line.
 			end.setEnabled(true);
+			rollover.setEnabled(true);
 			LOGGER.info("Started Acquisition, continuing Run #"
 					+ RunInfo.getInstance().runNumber);
 		} else {// just viewing events, not running to disk
@@ -477,6 +695,7 @@ public final class RunControl extends JDialog implements Controller,
 		 * in next run" problem
 		 */
 		this.end.setEnabled(false);
+		this.rollover.setEnabled(false);
 
 		if (this.isRunOn()) {
 			LOGGER
@@ -490,7 +709,4 @@ public final class RunControl extends JDialog implements Controller,
 		}
 	}
 
-	private boolean storageCaughtUp() {
-		return device == Device.FRONT_END || diskDaemon.caughtUpOnline();
-	}
 }
@@ -6,4 +6,5 @@ import jam.sort.SortException;
 interface RunController {
 	void beginRun() throws JamException, SortException;
 	void endRun();
+	void rolloverRun() throws JamException;
 }
@@ -241,6 +241,8 @@ public final class SetupSortOff extends AbstractSetup {
 		final AbstractSortRoutine sortRoutine = sortChooser.getSortRoutine();
 		sortDaemon.setup(inStream, sortRoutine.getEventSize());
 		sortDaemon.setSorter(sortRoutine);
+		sortDaemon.setCacheEvents(Boolean.parseBoolean(JamProperties
+				.getPropString(PropertyKeys.EVENT_CACHE).trim()));
 		/* eventInputStream to use get event size from sorting routine */
 		inStream.setEventSize(sortRoutine.getEventSize());
 		inStream.setBufferSize(sortRoutine.getBufferSize());
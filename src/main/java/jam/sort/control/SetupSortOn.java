@@ -6,6 +6,8 @@ import injection.GuiceInjector;
 import jam.comm.CommunicationsException;
 import jam.comm.FrontEndCommunication;
 import jam.comm.ScalerCommunication;
+import jam.data.Monitor;
+import jam.data.control.AbstractControl;
 import jam.global.*;
 import jam.sort.*;
 import jam.sort.stream.AbstractEventInputStream;
@@ -18,6 +20,7 @@ import java.awt.*;
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.util.function.IntSupplier;
 
 import static jam.global.GoodThread.State.STOP;
 import static java.util.logging.Level.SEVERE;
@@ -86,6 +89,8 @@ public final class SetupSortOn extends AbstractSetup {
 
     private transient final RingBufferFactory ringFactory;
 
+    private transient AcquisitionMetrics metrics;
+
     @Inject
     private SetupSortOn(final ConsoleLog console, final JFrame frame,
             final RunControl runControl,
@@ -373,6 +378,10 @@ public final class SetupSortOn extends AbstractSetup {
      * Parameters
      */
     private void resetAcq(final boolean killSort) {
+        if (metrics != null) {
+            metrics.close();
+            metrics = null; // NOPMD
+        }
         if (diskDaemon != null) {
             diskDaemon.setState(STOP);
         }
@@ -500,6 +509,8 @@ public final class SetupSortOn extends AbstractSetup {
             diskDaemon = new DiskDaemon(runControl);
             diskDaemon.setupOn(inStream, outStream);
             diskDaemon.setRingBuffer(storageRing);
+            diskDaemon.setCompress(Boolean.parseBoolean(JamProperties
+                    .getPropString(PropertyKeys.EVENT_COMPRESS).trim()));
         }
         /* Create the net daemon. */
         final String hostDataIP = JamProperties
@@ -508,6 +519,20 @@ public final class SetupSortOn extends AbstractSetup {
                 .getPropInt(PropertyKeys.HOST_DATA_P_RECV);
         netDaemon = new NetDaemon(sortingRing, storageRing, hostDataIP,
                 hostDataPort);
+        for (String morePort : JamProperties.getPropString(
+                PropertyKeys.HOST_DATA_P_RECV_MORE).split(",")) {
+            if (!morePort.trim().isEmpty()) {
+                try {
+                    netDaemon.addPort(hostDataIP, Integer.parseInt(morePort
+                            .trim()));
+                } catch (NumberFormatException nfe) {
+                    throw new JamException("Invalid data port: " + morePort,
+                            nfe);
+                }
+            }
+        }
+        setupSequenceTracking();
+        setupMetrics(sortingRing, storageRing);
 
         /* Tell control about everything. */
         final String exptName = textExpName.getText().trim();
@@ -524,6 +549,69 @@ public final class SetupSortOn extends AbstractSetup {
         netDaemon.start();
     }
 
+    /*
+     * Turns on sequence checking if the buffers carry sequence numbers, and
+     * adds monitors of buffers lost, duplicated and reordered.
+     */
+    private void setupSequenceTracking() throws JamException {
+        final String offsetProperty = JamProperties.getPropString(
+                PropertyKeys.HOST_DATA_SEQUENCE).trim();
+        final int offset;
+        try {
+            offset = offsetProperty.isEmpty() ? inStream.getSequenceOffset()
+                    : Integer.parseInt(offsetProperty);
+        } catch (NumberFormatException nfe) {
+            throw new JamException("Invalid sequence offset: "
+                    + offsetProperty, nfe);
+        }
+        if (offset >= 0) {
+            final int window = Math.max(1, JamProperties
+                    .getPropInt(PropertyKeys.HOST_DATA_REORDER));
+            netDaemon.setSequenceTracking(offset, window);
+            addCountMonitor("Buffers lost", () -> netDaemon.getLostCount());
+            addCountMonitor("Buffers duplicated", () -> netDaemon
+                    .getDuplicateCount());
+            addCountMonitor("Buffers reordered", () -> netDaemon
+                    .getReorderCount());
+            AbstractControl.setupAll();
+            LOGGER.info("Checking buffer sequence numbers at byte " + offset
+                    + ", reordering up to " + window + " buffers.");
+        }
+    }
+
+    /*
+     * Adds a monitor unless one of the same name is left from an earlier
+     * setup, which is kept with its threshold and maximum. The counter reads
+     * whichever net daemon is current.
+     */
+    private static void addCountMonitor(final String name,
+            final IntSupplier counter) {
+        if (!Monitor.TABLE.containsKey(name)) {
+            new Monitor(name, counter);
+        }
+    }
+
+    /*
+     * Exports the daemons' counters over JMX, and over HTTP if a port is
+     * given.
+     */
+    private void setupMetrics(final RingBuffer sortingRing,
+            final RingBuffer storageRing) throws JamException {
+        metrics = new AcquisitionMetrics(netDaemon, sortDaemon, diskDaemon,
+                sortingRing, storageRing);
+        metrics.registerMBean();
+        final String port = JamProperties.getPropString(
+                PropertyKeys.METRICS_PORT).trim();
+        if (!port.isEmpty()) {
+            try {
+                metrics.startServer(Integer.parseInt(port));
+            } catch (NumberFormatException | IOException e) {
+                throw new JamException("Can't serve metrics on port " + port,
+                        e);
+            }
+        }
+    }
+
     private void setupVMEmap() throws CommunicationsException {
         frontEnd.setupAcquisition();
         final jam.sort.VME_Map map = sortChooser.getSortRoutine().getVMEmap();
@@ -18,15 +18,16 @@ import jam.global.RuntimeSubclassIdentifier;
 import jam.sort.AbstractSortRoutine;
 
 @SuppressWarnings("serial")
-final class SortChooser extends JComboBox<Class<? extends AbstractSortRoutine>> {
+final class SortChooser extends JComboBox<String> {
 
 	private transient File classPath;
 
-	private transient Class<? extends AbstractSortRoutine> sortClass;
+	/* classes are found by name, and loaded only once chosen */
+	private transient String sortClass;
 
 	private transient AbstractSortRoutine sortRoutine;
 
-	private transient final List<Class<? extends AbstractSortRoutine>> listClasses = new ArrayList<>();
+	private transient final List<String> listClasses = new ArrayList<>();
 
 	private transient final RuntimeSubclassIdentifier subclassIdentifier = GuiceInjector
 			.getObjectInstance(RuntimeSubclassIdentifier.class);
@@ -54,37 +55,44 @@ final class SortChooser extends JComboBox<Class<? extends AbstractSortRoutine>>
 	 * @throws JamException
 	 *             if there's a problem
 	 */
-	@SuppressWarnings("unchecked")
 	protected void loadSorter(final boolean userSpecifiedPath)
 			throws JamException {
 		if (sortClass == null) {
-			sortClass = (Class<? extends AbstractSortRoutine>) getSelectedItem();
+			sortClass = (String) getSelectedItem();
 		}
 		if (sortClass == null) {
 			throw new JamException("No sort routine has been selected.");
 		}
 		// FIXME maybe we should do DataBase.clearAll(); here
 		jam.data.Warehouse.getGroupCollection().clear();
-		final String sortName = Group.parseSortClassName(sortClass.getName());
+		final String sortName = Group.parseSortClassName(sortClass);
 		Factory.createGroup(sortName, Group.Type.SORT);
 		try {
+			final Class<?> clazz;
 			if (userSpecifiedPath) {
-				synchronized (this) {
-					sortRoutine = (AbstractSortRoutine) subclassIdentifier.loadClass(
-							classPath, sortClass.getName()).getDeclaredConstructor().newInstance();
-				}
-			} else {// use default loader
 				/* we call loadClass() in order to guarantee latest version */
-				synchronized (this) {
-					sortRoutine = sortClass.getDeclaredConstructor().newInstance();
-				}
+				clazz = subclassIdentifier.loadClass(classPath, sortClass);
+			} else {// use default loader
+				clazz = Class.forName(sortClass);
+			}
+			if (clazz == null
+					|| !RuntimeSubclassIdentifier.canUseClassAs(
+							AbstractSortRoutine.class, clazz)) {
+				throw new JamException("Not a sort routine: " + sortClass);
 			}
+			synchronized (this) {
+				sortRoutine = clazz.asSubclass(AbstractSortRoutine.class)
+						.getDeclaredConstructor().newInstance();
+			}
+		} catch (ClassNotFoundException cnfe) {
+			throw new JamException("Cannot find sort routine: " + sortClass,
+					cnfe);
 		} catch (InstantiationException | InvocationTargetException | NoSuchMethodException ie) {
 			throw new JamException("Cannot instantiate sort routine: "
-					+ sortClass.getName(), ie);
+					+ sortClass, ie);
 		} catch (IllegalAccessException iae) {
 			throw new JamException("Cannot access sort routine: "
-					+ sortClass.getName(), iae);
+					+ sortClass, iae);
 		}
 	}
 
@@ -94,7 +102,6 @@ final class SortChooser extends JComboBox<Class<? extends AbstractSortRoutine>>
 	 * @param isDefaultPath
 	 *            <code>true</code> to use the default classpath
 	 */
-	@SuppressWarnings({ "rawtypes", "unchecked" })
 	private void loadChooser(final boolean isDefaultPath) {
 		listClasses.clear();
 		if (isDefaultPath) {
@@ -105,7 +112,8 @@ final class SortChooser extends JComboBox<Class<? extends AbstractSortRoutine>>
 			}
 		}
 
-		setModel(new DefaultComboBoxModel(listClasses.toArray()));
+		setModel(new DefaultComboBoxModel<>(listClasses
+				.toArray(new String[listClasses.size()])));
 
 		if (getModel().getSize() > 0) {
 			setSelectedIndex(0);
@@ -129,11 +137,11 @@ final class SortChooser extends JComboBox<Class<? extends AbstractSortRoutine>>
 	}
 
 	/**
-	 * Get a list of the classes
+	 * Get a list of the class names
 	 * 
-	 * @return List of classes
+	 * @return List of class names
 	 */
-	protected List<Class<? extends AbstractSortRoutine>> getClassList() {
+	protected List<String> getClassList() {
 		return listClasses;
 	}
 
@@ -144,36 +152,33 @@ final class SortChooser extends JComboBox<Class<? extends AbstractSortRoutine>>
 	 *            name of class to select
 	 */
 	public void selectSortClass(final String className) {
-		for (Class<? extends AbstractSortRoutine> clazz : getClassList()) {
-			final String name = clazz.getName();
-			if (name.equals(className)) {
-				setSelectedItem(clazz);
-				break;
-			}
+		if (getClassList().contains(className)) {
+			setSelectedItem(className);
 		}
 	}
 
 	/**
-	 * Get the sort classes using the given file as the class path.
+	 * Get the sort class names using the given file as the class path.
 	 * 
 	 * @param path
 	 *            class path
 	 * @return set of available sort routines
 	 */
-	private Set<Class<? extends AbstractSortRoutine>> findSortClasses(
-			final File path) {
-		return subclassIdentifier.find(path, AbstractSortRoutine.class);
+	private Set<String> findSortClasses(final File path) {
+		return subclassIdentifier.findNames(path, AbstractSortRoutine.class);
 	}
 
 	/**
-	 * Get the sort classes using the default class path.
+	 * Get the sort class names using the default class path.
 	 * 
 	 * @return set of available sort routines
 	 */
-	private Set<Class<? extends AbstractSortRoutine>> findSortClassesDefault() {
-		final Set<Class<? extends AbstractSortRoutine>> set = new LinkedHashSet<>();
-		set.addAll(subclassIdentifier.find("help", AbstractSortRoutine.class, true));
-		set.addAll(subclassIdentifier.find("sort", AbstractSortRoutine.class, true));
+	private Set<String> findSortClassesDefault() {
+		final Set<String> set = new LinkedHashSet<>();
+		set.addAll(subclassIdentifier.findNames("help",
+				AbstractSortRoutine.class, true));
+		set.addAll(subclassIdentifier.findNames("sort",
+				AbstractSortRoutine.class, true));
 		return set;
 	}
 }
@@ -304,6 +304,10 @@ public final class SortControl extends javax.swing.JDialog implements
 		return sortNext;
 	}
 
+	public File getOpenFile() {
+		return inputDaemon.getEventInputFile();
+	}
+
 	/**
 	 * Scripting. Reads a list of event files from a text file.
 	 * 
@@ -6,6 +6,7 @@ import javax.swing.*;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -139,6 +140,12 @@ public abstract class AbstractEventInputStream {
 	 */
 	public transient int headerRunNumber;
 
+	/**
+	 * Byte offset of the sequence number in each buffer, or -1 if the buffers
+	 * of this format carry none. Formats with one set it when constructed.
+	 */
+	protected int sequenceOffset = -1;
+
 	/**
 	 * Number of bytes in header
 	 */
@@ -213,6 +220,31 @@ public abstract class AbstractEventInputStream {
 		return headerSize;
 	}
 
+	/**
+	 * Returns where each buffer from the front end carries its 32-bit,
+	 * big-endian sequence number, which online sorting uses to detect lost,
+	 * duplicated and reordered buffers.
+	 * 
+	 * @return byte offset of the sequence number in each buffer, or -1 if
+	 *         there is none
+	 * @see jam.sort.SequenceTracker
+	 */
+	public int getSequenceOffset() {
+		return sequenceOffset;
+	}
+
+	/**
+	 * Sets where each buffer carries its sequence number, for front ends that
+	 * add one to a format that otherwise has none.
+	 * 
+	 * @param offset
+	 *            byte offset of the sequence number in each buffer, or -1 if
+	 *            there is none
+	 */
+	public void setSequenceOffset(final int offset) {
+		sequenceOffset = offset;
+	}
+
 	/**
 	 * Checks if a word is an end-of-run marker.
 	 * 
@@ -222,6 +254,26 @@ public abstract class AbstractEventInputStream {
 	 */
 	abstract public boolean isEndRun(short word);
 
+	/**
+	 * Finds what an index of the event file needs to know about one buffer of
+	 * event data. This only looks for an end-of-run marker in the last word;
+	 * formats override it to also find events and scaler blocks. It mustn't
+	 * change the state of this stream, which may be reading events meanwhile.
+	 * 
+	 * @param buffer
+	 *            a whole buffer, from position zero to its limit, which is
+	 *            left unchanged
+	 * @param summary
+	 *            given what is found
+	 * @see EventIndex
+	 */
+	public void summarizeBuffer(final ByteBuffer buffer,
+			final BufferSummary summary) {
+		summary.clear();
+		final int last = buffer.limit() - 2;
+		summary.setEndRun(last >= 0 && isEndRun(buffer.getShort(last)));
+	}
+
 	/**
 	 * Loads the run information, usually after it is read from a header.
 	 */
@@ -29,6 +29,7 @@ public abstract class AbstractL002HeaderReader extends
      */
     AbstractL002HeaderReader(final boolean consoleExists, final int eventSize) {
         super(consoleExists, eventSize);
+        headerSize = HEADER_LENGTH;
     }
 
     /**
@@ -37,6 +38,7 @@ public abstract class AbstractL002HeaderReader extends
      */
     public AbstractL002HeaderReader(final boolean consoleExists) {
         super(consoleExists);
+        headerSize = HEADER_LENGTH;
     }
 
     /**
@@ -44,6 +46,7 @@ public abstract class AbstractL002HeaderReader extends
      */
     public AbstractL002HeaderReader() {
         super();
+        headerSize = HEADER_LENGTH;
     }
 
     /**
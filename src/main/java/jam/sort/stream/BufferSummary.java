@@ -0,0 +1,99 @@
+package jam.sort.stream;
+
+/**
+ * What an event input stream finds in one buffer of event data, for an index
+ * of the event file. Reused from buffer to buffer.
+ * @see AbstractEventInputStream#summarizeBuffer(java.nio.ByteBuffer,
+ *      BufferSummary)
+ * @see EventIndex
+ */
+public final class BufferSummary {
+
+    private transient int events;
+
+    private transient long eventNumber;
+
+    private transient int scalerOffset;
+
+    private transient boolean endRun;
+
+    /**
+     * Creates a summary of nothing found.
+     */
+    public BufferSummary() {
+        super();
+        clear();
+    }
+
+    /**
+     * Forgets what was found, ready for the next buffer.
+     */
+    public void clear() {
+        events = -1;
+        eventNumber = -1;
+        scalerOffset = -1;
+        endRun = false;
+    }
+
+    /**
+     * @return number of events ending in the buffer, or -1 if not counted
+     */
+    public int getEvents() {
+        return events;
+    }
+
+    /**
+     * @param events
+     *            number of events ending in the buffer
+     */
+    public void setEvents(final int events) {
+        this.events = events;
+    }
+
+    /**
+     * @return the number the data give the first event in the buffer, or -1
+     *         if they don't number events or there is none
+     */
+    public long getEventNumber() {
+        return eventNumber;
+    }
+
+    /**
+     * @param number
+     *            the number the data give the first event in the buffer
+     */
+    public void setEventNumber(final long number) {
+        eventNumber = number;
+    }
+
+    /**
+     * @return byte offset in the buffer of its first scaler block, or -1 if
+     *         it has none
+     */
+    public int getScalerOffset() {
+        return scalerOffset;
+    }
+
+    /**
+     * @param offset
+     *            byte offset in the buffer of its first scaler block
+     */
+    public void setScalerOffset(final int offset) {
+        scalerOffset = offset;
+    }
+
+    /**
+     * @return whether the run ends in the buffer
+     */
+    public boolean isEndRun() {
+        return endRun;
+    }
+
+    /**
+     * @param endRun
+     *            whether the run ends in the buffer
+     */
+    public void setEndRun(final boolean endRun) {
+        this.endRun = endRun;
+    }
+}
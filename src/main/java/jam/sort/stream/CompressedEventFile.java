@@ -0,0 +1,553 @@
+package jam.sort.stream;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A container for event files that compresses the event data in blocks, so
+ * that padded buffers take little disk space. Readers get the same bytes as
+ * from an uncompressed file, so every event input stream can read compressed
+ * files without knowing it, once they are opened with <code>open()</code>.
+ * <p>
+ * The file starts with a preamble of a magic number, version and block size.
+ * Each block follows as its uncompressed and stored lengths and then its
+ * data, which is deflated unless that made it no smaller. A block of length
+ * zero ends the blocks, followed by a table of where each block starts in the
+ * uncompressed data and in the file, the table's position in the file, and
+ * the magic number again. A file cut short, e.g., by a crash while writing,
+ * can still be read up to its last whole block.
+ * </p>
+ */
+public final class CompressedEventFile {
+
+    private static final int MAGIC = 0x4A45565A; // "JEVZ"
+
+    private static final int VERSION = 1;
+
+    private static final int PREAMBLE = 12;
+
+    private static final int TRAILER = 12;
+
+    /**
+     * Uncompressed size of a block, eight 8 kB buffers.
+     */
+    public static final int BLOCK_SIZE = 0x10000;
+
+    private CompressedEventFile() {
+        super();
+    }
+
+    /**
+     * @param file
+     *            an event file
+     * @return whether it is compressed
+     * @throws IOException
+     *             if the file can't be read
+     */
+    public static boolean isCompressed(final File file) throws IOException {
+        try (DataInputStream input = new DataInputStream(new FileInputStream(
+                file))) {
+            return file.length() >= PREAMBLE && input.readInt() == MAGIC;
+        }
+    }
+
+    /**
+     * Opens an event file for reading, uncompressing it if it is compressed.
+     * @param file
+     *            an event file
+     * @return a stream of the file's event data, unbuffered
+     * @throws IOException
+     *             if the file can't be opened
+     */
+    public static InputStream open(final File file) throws IOException {
+        final boolean compressed = isCompressed(file);
+        final FileInputStream input = new FileInputStream(file);
+        return compressed ? new Input(input) : input;
+    }
+
+    /**
+     * @param file
+     *            an event file
+     * @return the length of its event data, uncompressed
+     * @throws IOException
+     *             if the file can't be read
+     */
+    public static long getLength(final File file) throws IOException {
+        long rval = file.length();
+        if (isCompressed(file)) {
+            try (RandomAccessFile access = new RandomAccessFile(file, "r")) {
+                rval = readTableLength(access);
+                if (rval < 0) {
+                    rval = countWholeBlocks(access);
+                }
+            }
+        }
+        return rval;
+    }
+
+    /* with no table the file was cut short, so count what can be read */
+    private static long countWholeBlocks(final RandomAccessFile access)
+            throws IOException {
+        long rval = 0;
+        long position = PREAMBLE;
+        while (position + 8 <= access.length()) {
+            access.seek(position);
+            final int raw = access.readInt();
+            final int stored = access.readInt();
+            if (raw == 0 || position + 8 + stored > access.length()) {
+                break;
+            }
+            rval += raw;
+            position += 8 + stored;
+        }
+        return rval;
+    }
+
+    /* uncompressed length from the table, or -1 if there is no table */
+    private static long readTableLength(final RandomAccessFile access)
+            throws IOException {
+        long rval = -1;
+        if (access.length() >= PREAMBLE + 4 + TRAILER) {
+            access.seek(access.length() - TRAILER);
+            final long tableStart = access.readLong();
+            if (access.readInt() == MAGIC && tableStart >= PREAMBLE
+                    && tableStart < access.length() - TRAILER) {
+                access.seek(tableStart);
+                final int blocks = access.readInt();
+                rval = blocks == 0 ? 0 : readLastBlockEnd(access, tableStart,
+                        blocks);
+            }
+        }
+        return rval;
+    }
+
+    private static long readLastBlockEnd(final RandomAccessFile access,
+            final long tableStart, final int blocks) throws IOException {
+        access.seek(tableStart + 4 + 16L * (blocks - 1));
+        final long rawOffset = access.readLong();
+        access.seek(access.readLong());
+        return rawOffset + access.readInt();
+    }
+
+    /* a block of data, compressed by whichever thread is given it */
+    private static final class Block {
+        private transient final byte[] data = new byte[BLOCK_SIZE];
+
+        private transient final byte[] compressed = new byte[BLOCK_SIZE];
+
+        private transient final Deflater deflater = new Deflater(
+                Deflater.BEST_SPEED);
+
+        private transient int filled = 0;
+
+        private transient int length;
+
+        Block compress() {
+            deflater.reset();
+            deflater.setInput(data, 0, filled);
+            deflater.finish();
+            length = deflater.deflate(compressed);
+            if (!deflater.finished() || length >= filled) {
+                length = -1; // store as is
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Compresses event data written to it into a container file. Blocks are
+     * compressed by the writing thread, or, if given threads, by those while
+     * the writing thread carries on, and are written in order either way.
+     */
+    public static final class Output extends OutputStream {
+
+        private transient final DataOutputStream output;
+
+        /* null to compress on the writing thread */
+        private transient final ExecutorService compressors;
+
+        private transient final int maxPending;
+
+        private transient final Deque<Future<Block>> pending = new ArrayDeque<>();
+
+        private transient final Deque<Block> free = new ArrayDeque<>();
+
+        private transient final List<Block> allBlocks = new ArrayList<>();
+
+        private transient Block current;
+
+        private transient long rawOffset = 0;
+
+        private transient long fileOffset = PREAMBLE;
+
+        private transient long[] table = new long[64];
+
+        private transient int blocks = 0;
+
+        private transient boolean closed = false;
+
+        /**
+         * Writes the preamble of a new container, to be compressed on the
+         * writing thread.
+         * @param output
+         *            to write the container to, usually a new file
+         * @throws IOException
+         *             if the preamble can't be written
+         */
+        public Output(final OutputStream output) throws IOException {
+            this(output, 0);
+        }
+
+        /**
+         * Writes the preamble of a new container.
+         * @param output
+         *            to write the container to, usually a new file
+         * @param threads
+         *            number of threads to compress blocks on, zero to
+         *            compress on the writing thread
+         * @throws IOException
+         *             if the preamble can't be written
+         */
+        public Output(final OutputStream output, final int threads)
+                throws IOException {
+            super();
+            this.output = new DataOutputStream(new BufferedOutputStream(
+                    output, BLOCK_SIZE));
+            this.output.writeInt(MAGIC);
+            this.output.writeInt(VERSION);
+            this.output.writeInt(BLOCK_SIZE);
+            compressors = threads > 0 ? Executors.newFixedThreadPool(threads,
+                    runnable -> {
+                        final Thread thread = new Thread(runnable,
+                                "Event Compressor");
+                        thread.setDaemon(true);
+                        return thread;
+                    }) : null;
+            maxPending = 2 * threads;
+            current = newBlock();
+        }
+
+        private Block newBlock() {
+            Block rval = free.poll();
+            if (rval == null) {
+                rval = new Block();
+                allBlocks.add(rval);
+            }
+            return rval;
+        }
+
+        @Override
+        public void write(final int value) throws IOException {
+            current.data[current.filled] = (byte) value;
+            current.filled++;
+            if (current.filled == BLOCK_SIZE) {
+                endBlock();
+            }
+        }
+
+        @Override
+        public void write(final byte[] bytes, final int offset,
+                final int length) throws IOException {
+            int written = 0;
+            while (written < length) {
+                final int count = Math.min(length - written, BLOCK_SIZE
+                        - current.filled);
+                System.arraycopy(bytes, offset + written, current.data,
+                        current.filled, count);
+                current.filled += count;
+                written += count;
+                if (current.filled == BLOCK_SIZE) {
+                    endBlock();
+                }
+            }
+        }
+
+        private void endBlock() throws IOException {
+            if (compressors == null) {
+                writeBlock(current.compress());
+            } else {
+                final Block block = current;
+                pending.add(compressors.submit(block::compress));
+                while (pending.size() > maxPending) {
+                    writeBlock(takePending());
+                }
+                current = newBlock();
+            }
+        }
+
+        private Block takePending() throws IOException {
+            try {
+                return pending.poll().get();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted compressing.");
+            } catch (ExecutionException ee) {
+                throw new IOException("Couldn't compress.", ee.getCause());
+            }
+        }
+
+        private void writeBlock(final Block block) throws IOException {
+            final int filled = block.filled;
+            final int length = block.length;
+            if (2 * blocks + 2 > table.length) {
+                final long[] larger = new long[2 * table.length];
+                System.arraycopy(table, 0, larger, 0, table.length);
+                table = larger;
+            }
+            table[2 * blocks] = rawOffset;
+            table[2 * blocks + 1] = fileOffset;
+            blocks++;
+            output.writeInt(filled);
+            if (length < 0) {
+                output.writeInt(filled);
+                output.write(block.data, 0, filled);
+            } else {
+                output.writeInt(length);
+                output.write(block.compressed, 0, length);
+            }
+            rawOffset += filled;
+            fileOffset += 8 + (length < 0 ? filled : length);
+            block.filled = 0;
+            if (block != current) {
+                free.add(block);
+            }
+        }
+
+        /**
+         * Flushes the blocks compressed so far. Data short of a whole block
+         * is kept until the block is filled or the container closed.
+         */
+        @Override
+        public void flush() throws IOException {
+            while (!pending.isEmpty() && pending.peek().isDone()) {
+                writeBlock(takePending());
+            }
+            output.flush();
+        }
+
+        /**
+         * Writes the last blocks and the table, and closes the file.
+         */
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                try {
+                    if (current.filled > 0) {
+                        endBlock();
+                    }
+                    while (!pending.isEmpty()) {
+                        writeBlock(takePending());
+                    }
+                    output.writeInt(0);
+                    final long tableStart = fileOffset + 4;
+                    output.writeInt(blocks);
+                    for (int i = 0; i < 2 * blocks; i++) {
+                        output.writeLong(table[i]);
+                    }
+                    output.writeLong(tableStart);
+                    output.writeInt(MAGIC);
+                } finally {
+                    if (compressors != null) {
+                        compressors.shutdownNow();
+                    }
+                    for (Block block : allBlocks) {
+                        block.deflater.end();
+                    }
+                    output.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the uncompressed event data from a container.
+     */
+    public static final class Input extends InputStream {
+
+        private transient final DataInputStream input;
+
+        private transient final Inflater inflater = new Inflater();
+
+        private transient byte[] block = new byte[BLOCK_SIZE];
+
+        private transient byte[] stored = new byte[BLOCK_SIZE];
+
+        private transient int position = 0;
+
+        private transient int filled = 0;
+
+        private transient boolean ended = false;
+
+        /* header of the next block, if read before the block */
+        private transient boolean headerRead = false;
+
+        private transient int rawLength;
+
+        private transient int storedLength;
+
+        /**
+         * Reads the preamble of a container.
+         * @param input
+         *            reads the container from its start
+         * @throws IOException
+         *             if the input isn't a container
+         */
+        public Input(final InputStream input) throws IOException {
+            super();
+            this.input = new DataInputStream(new BufferedInputStream(input,
+                    BLOCK_SIZE));
+            if (this.input.readInt() != MAGIC) {
+                throw new IOException("Not a compressed event file.");
+            }
+            final int version = this.input.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unknown compressed event file version "
+                        + version + ".");
+            }
+            this.input.readInt(); // block size
+        }
+
+        /*
+         * reads the next block header, unless one was read and its block not
+         * yet; false at the end of the blocks
+         */
+        private boolean nextHeader() throws IOException {
+            if (!ended && !headerRead) {
+                try {
+                    rawLength = input.readInt();
+                    storedLength = rawLength == 0 ? 0 : input.readInt();
+                } catch (EOFException eofe) {
+                    rawLength = 0; // cut short
+                }
+                ended = rawLength == 0;
+                headerRead = !ended;
+            }
+            return !ended;
+        }
+
+        private boolean fill() throws IOException {
+            boolean rval = false;
+            if (nextHeader()) {
+                headerRead = false;
+                if (rawLength > block.length) {
+                    block = new byte[rawLength];
+                }
+                if (storedLength > stored.length) {
+                    stored = new byte[storedLength];
+                }
+                try {
+                    if (storedLength == rawLength) {
+                        input.readFully(block, 0, rawLength);
+                    } else {
+                        input.readFully(stored, 0, storedLength);
+                        inflate(rawLength, storedLength);
+                    }
+                    position = 0;
+                    filled = rawLength;
+                    rval = true;
+                } catch (EOFException eofe) {
+                    ended = true; // last block cut short
+                }
+            }
+            return rval;
+        }
+
+        private void inflate(final int raw, final int length)
+                throws IOException {
+            inflater.reset();
+            inflater.setInput(stored, 0, length);
+            try {
+                int done = 0;
+                while (done < raw && !inflater.finished()) {
+                    done += inflater.inflate(block, done, raw - done);
+                }
+                if (done != raw) {
+                    throw new IOException("Compressed block is damaged.");
+                }
+            } catch (DataFormatException dfe) {
+                throw new IOException("Compressed block is damaged.", dfe);
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int rval;
+            if (position < filled || fill()) {
+                rval = block[position] & 0xff;
+                position++;
+            } else {
+                rval = -1;
+            }
+            return rval;
+        }
+
+        @Override
+        public int read(final byte[] bytes, final int offset, final int length)
+                throws IOException {
+            int rval = -1;
+            if (length == 0) {
+                rval = 0;
+            } else if (position < filled || fill()) {
+                rval = Math.min(length, filled - position);
+                System.arraycopy(block, position, bytes, offset, rval);
+                position += rval;
+            }
+            return rval;
+        }
+
+        @Override
+        public int available() {
+            return filled - position;
+        }
+
+        /**
+         * Skips whole blocks without uncompressing them. In a file cut short,
+         * this may skip past the end of what can be read.
+         */
+        @Override
+        public long skip(final long count) throws IOException {
+            long rval = Math.min(count, filled - position);
+            position += (int) rval;
+            while (rval < count && nextHeader()) {
+                if (count - rval >= rawLength) {
+                    headerRead = false;
+                    input.skipBytes(storedLength);
+                    rval += rawLength;
+                } else if (fill()) {
+                    /* part way into this block, so uncompress it */
+                    position = (int) (count - rval);
+                    rval = count;
+                }
+            }
+            return rval;
+        }
+
+        @Override
+        public void close() throws IOException {
+            inflater.end();
+            input.close();
+        }
+    }
+}
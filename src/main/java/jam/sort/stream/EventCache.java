@@ -0,0 +1,303 @@
+package jam.sort.stream;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A cache of the events decoded from an event file, kept beside it in a file
+ * of the same name with <code>.evc</code> added, so the file can be sorted
+ * again without decoding it. Events are stored in chunks, each holding one
+ * column of values per event parameter, and chunks are memory-mapped when
+ * read.
+ * <p>
+ * A cache is written as the file is first sorted, and is only used while the
+ * event file keeps the size and modification time it had then, and for
+ * sorting with the same event size and input stream class. Only events are
+ * cached, so the sort daemon abandons the cache of a file whose event stream
+ * holds scaler values.
+ * </p>
+ */
+public final class EventCache {
+
+    /**
+     * Added to the name of an event file to get the name of its cache.
+     */
+    public static final String EXTENSION = ".evc";
+
+    private static final int MAGIC = 0x4A455643; // "JEVC"
+
+    private static final int VERSION = 1;
+
+    /* events in a whole chunk */
+    private static final int CHUNK = 4096;
+
+    /* header: magic, version, events, buffers, length, modified, event
+     * size, stream class */
+    private static final int EVENTS_AT = 8;
+
+    private EventCache() {
+        super();
+    }
+
+    /**
+     * @param eventFile
+     *            an event file
+     * @return where its cache is kept
+     */
+    public static File getCacheFile(final File eventFile) {
+        return new File(eventFile.getPath() + EXTENSION);
+    }
+
+    /**
+     * Opens the cache of an event file, if it has a complete one made from
+     * the file as it is now.
+     * @param eventFile
+     *            the event file, not its cache
+     * @param format
+     *            name of the input stream class the events are decoded with
+     * @param eventSize
+     *            number of parameters per event
+     * @return the open cache, or <code>null</code> if there is no current one
+     * @throws IOException
+     *             if the cache exists but can't be read
+     */
+    public static Reader open(final File eventFile, final String format,
+            final int eventSize) throws IOException {
+        final File file = getCacheFile(eventFile);
+        if (!file.isFile()) {
+            return null;
+        }
+        final Reader rval = new Reader(file);
+        if (rval.events < 0 || rval.length != eventFile.length()
+                || rval.modified != eventFile.lastModified()
+                || rval.eventSize != eventSize || !rval.format.equals(format)) {
+            rval.close();
+            return null;
+        }
+        return rval;
+    }
+
+    /**
+     * Reads the events in a cache, one chunk at a time.
+     */
+    public static final class Reader implements Closeable {
+
+        private transient final RandomAccessFile file;
+
+        private transient final FileChannel channel;
+
+        private transient final long events;
+
+        private transient final int buffers;
+
+        private transient final long length;
+
+        private transient final long modified;
+
+        private transient final int eventSize;
+
+        private transient final String format;
+
+        private transient long position;
+
+        private transient IntBuffer columns;
+
+        private transient int chunkEvents = 0;
+
+        private transient int next = 0;
+
+        private Reader(final File cacheFile) throws IOException {
+            super();
+            file = new RandomAccessFile(cacheFile, "r");
+            try {
+                if (file.readInt() != MAGIC || file.readInt() != VERSION) {
+                    throw new IOException(cacheFile.getPath()
+                            + " isn't an event cache.");
+                }
+                events = file.readLong();
+                buffers = (int) file.readLong();
+                length = file.readLong();
+                modified = file.readLong();
+                eventSize = file.readInt();
+                format = file.readUTF();
+            } catch (IOException ioe) {
+                file.close();
+                throw ioe;
+            }
+            channel = file.getChannel();
+            position = file.getFilePointer();
+        }
+
+        /**
+         * @return number of events in the cache
+         */
+        public long getEvents() {
+            return events;
+        }
+
+        /**
+         * @return number of buffers the events were decoded from
+         */
+        public int getBuffers() {
+            return buffers;
+        }
+
+        /**
+         * Reads the next event.
+         * @param event
+         *            filled with the event's parameters
+         * @return <code>false</code> if there are no more events
+         * @throws IOException
+         *             if a chunk can't be read
+         */
+        public boolean readEvent(final int[] event) throws IOException {
+            if (next == chunkEvents && !nextChunk()) {
+                return false;
+            }
+            for (int param = 0; param < eventSize; param++) {
+                event[param] = columns.get(param * chunkEvents + next);
+            }
+            next++;
+            return true;
+        }
+
+        private boolean nextChunk() throws IOException {
+            if (position + 4 > channel.size()) {
+                return false;
+            }
+            final ByteBuffer count = ByteBuffer.allocate(4);
+            channel.read(count, position);
+            chunkEvents = count.getInt(0);
+            final long size = 4L * eventSize * chunkEvents;
+            columns = channel.map(FileChannel.MapMode.READ_ONLY, position + 4,
+                    size).asIntBuffer();
+            position += 4 + size;
+            next = 0;
+            return chunkEvents > 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            file.close();
+        }
+    }
+
+    /**
+     * Writes the cache of an event file as its events are decoded. The cache
+     * is only usable once committed; closing it uncommitted deletes it.
+     */
+    public static final class Writer implements Closeable {
+
+        private transient final File cacheFile;
+
+        private transient final RandomAccessFile file;
+
+        private transient final int eventSize;
+
+        private transient final int[][] columns;
+
+        private transient final ByteBuffer chunk;
+
+        private transient int count = 0;
+
+        private transient long events = 0;
+
+        private transient boolean committed = false;
+
+        /**
+         * Starts the cache of an event file, replacing any it had.
+         * @param eventFile
+         *            the event file, not its cache
+         * @param format
+         *            name of the input stream class decoding the events
+         * @param eventSize
+         *            number of parameters per event
+         * @throws IOException
+         *             if the cache can't be written
+         */
+        public Writer(final File eventFile, final String format,
+                final int eventSize) throws IOException {
+            super();
+            this.eventSize = eventSize;
+            columns = new int[eventSize][CHUNK];
+            chunk = ByteBuffer.allocate(4 + 4 * eventSize * CHUNK);
+            cacheFile = getCacheFile(eventFile);
+            file = new RandomAccessFile(cacheFile, "rw");
+            file.setLength(0);
+            file.writeInt(MAGIC);
+            file.writeInt(VERSION);
+            file.writeLong(-1); // not committed
+            file.writeLong(0);
+            file.writeLong(eventFile.length());
+            file.writeLong(eventFile.lastModified());
+            file.writeInt(eventSize);
+            file.writeUTF(format);
+        }
+
+        /**
+         * Adds the next event.
+         * @param event
+         *            the event's parameters
+         * @throws IOException
+         *             if a full chunk can't be written
+         */
+        public void add(final int[] event) throws IOException {
+            for (int param = 0; param < eventSize; param++) {
+                columns[param][count] = event[param];
+            }
+            count++;
+            events++;
+            if (count == CHUNK) {
+                writeChunk();
+            }
+        }
+
+        private void writeChunk() throws IOException {
+            chunk.clear();
+            chunk.putInt(count);
+            final IntBuffer ints = chunk.asIntBuffer(); // after the count
+            for (int param = 0; param < eventSize; param++) {
+                ints.put(columns[param], 0, count);
+            }
+            file.write(chunk.array(), 0, 4 + 4 * eventSize * count);
+            count = 0;
+        }
+
+        /**
+         * Writes the last events and marks the cache as complete.
+         * @param buffers
+         *            number of buffers the events were decoded from
+         * @throws IOException
+         *             if the cache can't be written
+         */
+        public void commit(final int buffers) throws IOException {
+            if (count > 0) {
+                writeChunk();
+            }
+            file.seek(EVENTS_AT);
+            file.writeLong(events);
+            file.writeLong(buffers);
+            committed = true;
+            file.close();
+        }
+
+        /**
+         * Closes the cache, deleting it if it wasn't committed.
+         */
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                file.close();
+                if (!cacheFile.delete()) {
+                    throw new IOException("Couldn't delete "
+                            + cacheFile.getPath());
+                }
+            }
+        }
+    }
+}
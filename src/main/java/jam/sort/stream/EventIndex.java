@@ -0,0 +1,438 @@
+package jam.sort.stream;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+
+/**
+ * An index of an event file, kept beside it in a file of the same name with
+ * <code>.idx</code> added. For each buffer of event data it records where
+ * the buffer starts, when it was written, the first event in it, where its
+ * first scaler block is and whether the run ends in it. With it, sorting can
+ * start part way through a file, a file can be split at buffer boundaries to
+ * be sorted in parallel, and scaler blocks can be read with a few seeks.
+ * <p>
+ * Indexes are written by a <code>Writer</code> while the event file is
+ * written, and can be rebuilt for existing files by scanning them. Rebuilt
+ * indexes don't know when buffers were written. Offsets are into the event
+ * data as read, so for a compressed file they are into its uncompressed
+ * data.
+ * </p>
+ * @see AbstractEventInputStream#summarizeBuffer(ByteBuffer, BufferSummary)
+ */
+public final class EventIndex {
+
+    /**
+     * Added to the name of an event file to get the name of its index.
+     */
+    public static final String EXTENSION = ".idx";
+
+    private static final int MAGIC = 0x4A494458; // "JIDX"
+
+    private static final int VERSION = 1;
+
+    private static final int PREAMBLE = 16;
+
+    /* offset, millis, first event, scaler offset, flags */
+    private static final int ENTRY_SIZE = 4 * 8 + 1;
+
+    private static final byte END_RUN = 1;
+
+    private transient final int headerSize;
+
+    private transient final int bufferSize;
+
+    private transient final long[] offsets;
+
+    private transient final long[] millis;
+
+    private transient final long[] events;
+
+    private transient final long[] scalers;
+
+    private transient final byte[] flags;
+
+    private EventIndex(final int headerSize, final int bufferSize,
+            final int size) {
+        super();
+        this.headerSize = headerSize;
+        this.bufferSize = bufferSize;
+        offsets = new long[size];
+        millis = new long[size];
+        events = new long[size];
+        scalers = new long[size];
+        flags = new byte[size];
+    }
+
+    /**
+     * @param eventFile
+     *            an event file
+     * @return where its index is kept
+     */
+    public static File getIndexFile(final File eventFile) {
+        return new File(eventFile.getPath() + EXTENSION);
+    }
+
+    /**
+     * Reads the index of an event file. An entry cut short, e.g., by a crash
+     * while writing, is ignored.
+     * @param eventFile
+     *            the event file, not its index
+     * @return the index
+     * @throws IOException
+     *             if the index is missing or isn't an index
+     */
+    public static EventIndex read(final File eventFile) throws IOException {
+        final File file = getIndexFile(eventFile);
+        try (DataInputStream input = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                throw new IOException(file.getPath()
+                        + " isn't an event file index.");
+            }
+            final int header = input.readInt();
+            final int buffer = input.readInt();
+            final int size = (int) ((file.length() - PREAMBLE) / ENTRY_SIZE);
+            final EventIndex rval = new EventIndex(header, buffer, size);
+            for (int i = 0; i < size; i++) {
+                rval.offsets[i] = input.readLong();
+                rval.millis[i] = input.readLong();
+                rval.events[i] = input.readLong();
+                rval.scalers[i] = input.readLong();
+                rval.flags[i] = input.readByte();
+            }
+            return rval;
+        }
+    }
+
+    /**
+     * Indexes an existing event file by scanning it, replacing any index it
+     * had. A buffer cut short at the end of the file isn't indexed.
+     * @param eventFile
+     *            to index
+     * @param format
+     *            stream for the format of the file
+     * @param bufferSize
+     *            size of the buffers in the file
+     * @return the new index
+     * @throws IOException
+     *             if the event file can't be read or the index written
+     */
+    public static EventIndex rebuild(final File eventFile,
+            final AbstractEventInputStream format, final int bufferSize)
+            throws IOException {
+        final byte[] buffer = new byte[bufferSize];
+        final ByteBuffer wrapper = ByteBuffer.wrap(buffer);
+        try (DataInputStream input = new DataInputStream(
+                new BufferedInputStream(CompressedEventFile.open(eventFile),
+                        bufferSize));
+                Writer writer = new Writer(eventFile, format, bufferSize)) {
+            input.skipBytes(format.getHeaderSize());
+            long remaining = CompressedEventFile.getLength(eventFile)
+                    - format.getHeaderSize();
+            while (remaining >= bufferSize) {
+                input.readFully(buffer);
+                writer.add(wrapper, -1);
+                remaining -= bufferSize;
+            }
+        }
+        return read(eventFile);
+    }
+
+    /**
+     * Reads the index of an event file, first rebuilding it if it is missing
+     * or doesn't cover the whole file.
+     * @param eventFile
+     *            the event file, not its index
+     * @param format
+     *            stream for the format of the file
+     * @param bufferSize
+     *            size of the buffers in the file
+     * @return an index covering the whole file
+     * @throws IOException
+     *             if the index can't be read or rebuilt
+     */
+    public static EventIndex load(final File eventFile,
+            final AbstractEventInputStream format, final int bufferSize)
+            throws IOException {
+        if (getIndexFile(eventFile).isFile()) {
+            try {
+                final EventIndex index = read(eventFile);
+                if (index.covers(eventFile)) {
+                    return index;
+                }
+            } catch (IOException ioe) {
+                /* fall through to rebuild */
+            }
+        }
+        return rebuild(eventFile, format, bufferSize);
+    }
+
+    /**
+     * @param eventFile
+     *            the indexed file
+     * @return whether every whole buffer in the file is indexed
+     * @throws IOException
+     *             if the file can't be read
+     */
+    public boolean covers(final File eventFile) throws IOException {
+        final long end = size() == 0 ? headerSize : offsets[size() - 1]
+                + bufferSize;
+        return CompressedEventFile.getLength(eventFile) - end < bufferSize;
+    }
+
+    /**
+     * @return number of buffers indexed
+     */
+    public int size() {
+        return offsets.length;
+    }
+
+    /**
+     * @return size of the file header
+     */
+    public int getHeaderSize() {
+        return headerSize;
+    }
+
+    /**
+     * @return size of the buffers
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * @param buffer
+     *            index of a buffer
+     * @return where the buffer starts in the file
+     */
+    public long getOffset(final int buffer) {
+        return offsets[buffer];
+    }
+
+    /**
+     * @param buffer
+     *            index of a buffer
+     * @return when the buffer was written, or -1 if not known
+     */
+    public long getMillis(final int buffer) {
+        return millis[buffer];
+    }
+
+    /**
+     * @param buffer
+     *            index of a buffer
+     * @return number of the first event in the buffer, or -1 if it has no
+     *         events or its format doesn't find them
+     */
+    public long getFirstEvent(final int buffer) {
+        return events[buffer];
+    }
+
+    /**
+     * @param buffer
+     *            index of a buffer
+     * @return where the first scaler block in the buffer starts in the file,
+     *         or -1 if it has none
+     */
+    public long getScalerOffset(final int buffer) {
+        return scalers[buffer];
+    }
+
+    /**
+     * @param buffer
+     *            index of a buffer
+     * @return whether the run ends in the buffer
+     */
+    public boolean isEndRun(final int buffer) {
+        return (flags[buffer] & END_RUN) != 0;
+    }
+
+    /**
+     * @param time
+     *            milliseconds since the epoch
+     * @return the first buffer written at or after the time, or
+     *         <code>size()</code> if none or the times aren't known
+     */
+    public int findMillis(final long time) {
+        int low = 0;
+        int high = size();
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (millis[mid] < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param event
+     *            number of an event
+     * @return the buffer in which the event starts, or -1 if it comes before
+     *         the first numbered event
+     */
+    public int findEvent(final long event) {
+        int rval = -1;
+        for (int i = 0; i < size(); i++) {
+            if (events[i] > event) {
+                break;
+            } else if (events[i] >= 0) {
+                rval = i;
+            }
+        }
+        return rval;
+    }
+
+    /**
+     * @return the buffers containing scaler blocks, in order
+     */
+    public int[] getScalerBuffers() {
+        int count = 0;
+        for (long scaler : scalers) {
+            if (scaler >= 0) {
+                count++;
+            }
+        }
+        final int[] rval = new int[count];
+        count = 0;
+        for (int i = 0; i < size(); i++) {
+            if (scalers[i] >= 0) {
+                rval[count] = i;
+                count++;
+            }
+        }
+        return rval;
+    }
+
+    /**
+     * Splits the indexed buffers into nearly equal consecutive parts, e.g.,
+     * to sort them in parallel.
+     * @param parts
+     *            number of parts wanted
+     * @return file offsets where the parts start, followed by where the last
+     *         ends; fewer parts than asked for if there are too few buffers
+     */
+    public long[] split(final int parts) {
+        final int count = Math.max(1, Math.min(parts, size()));
+        final long[] rval = new long[count + 1];
+        for (int part = 0; part < count; part++) {
+            final int first = (int) ((long) part * size() / count);
+            rval[part] = size() == 0 ? headerSize : offsets[first];
+        }
+        rval[count] = size() == 0 ? headerSize : offsets[size() - 1]
+                + bufferSize;
+        return rval;
+    }
+
+    /**
+     * Reads the data of one buffer from an event file, from where its first
+     * scaler block starts, for finding its scaler values without scanning.
+     * @param file
+     *            the open event file, uncompressed
+     * @param buffer
+     *            index of a buffer with a scaler block
+     * @return the buffer's bytes from its first scaler block to its end
+     * @throws IOException
+     *             if the file can't be read
+     */
+    public byte[] readFromScalers(final RandomAccessFile file,
+            final int buffer) throws IOException {
+        final long start = scalers[buffer];
+        final byte[] rval = new byte[(int) (offsets[buffer] + bufferSize - start)];
+        file.seek(start);
+        file.readFully(rval);
+        return rval;
+    }
+
+    /**
+     * Writes the index of an event file as its buffers are written.
+     */
+    public static final class Writer implements Closeable {
+
+        private transient final DataOutputStream output;
+
+        private transient final AbstractEventInputStream format;
+
+        private transient final BufferSummary summary = new BufferSummary();
+
+        private transient long offset;
+
+        /* for formats that count events without numbering them */
+        private transient long eventCount = 0;
+
+        /**
+         * Starts the index of a new event file, replacing any it had.
+         * @param eventFile
+         *            the event file, not its index
+         * @param format
+         *            stream for the format of the file
+         * @param bufferSize
+         *            size of the buffers to be written
+         * @throws IOException
+         *             if the index can't be written
+         */
+        public Writer(final File eventFile,
+                final AbstractEventInputStream format, final int bufferSize)
+                throws IOException {
+            super();
+            this.format = format;
+            offset = format.getHeaderSize();
+            output = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(getIndexFile(eventFile))));
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(format.getHeaderSize());
+            output.writeInt(bufferSize);
+        }
+
+        /**
+         * Indexes the next buffer written to the event file.
+         * @param buffer
+         *            the whole buffer, from position zero to its limit,
+         *            unchanged
+         * @param time
+         *            when it was written, or -1 if not known
+         * @throws IOException
+         *             if the index can't be written
+         */
+        public void add(final ByteBuffer buffer, final long time)
+                throws IOException {
+            format.summarizeBuffer(buffer, summary);
+            final long first;
+            if (summary.getEventNumber() >= 0) {
+                first = summary.getEventNumber();
+            } else if (summary.getEvents() > 0) {
+                first = eventCount;
+            } else {
+                first = -1;
+            }
+            if (summary.getEvents() > 0) {
+                eventCount += summary.getEvents();
+            }
+            output.writeLong(offset);
+            output.writeLong(time);
+            output.writeLong(first);
+            output.writeLong(summary.getScalerOffset() < 0 ? -1 : offset
+                    + summary.getScalerOffset());
+            output.writeByte(summary.isEndRun() ? END_RUN : 0);
+            offset += buffer.limit();
+        }
+
+        @Override
+        public void close() throws IOException {
+            output.close();
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package jam.sort.stream;
 
 import java.io.EOFException;
+import java.nio.ByteBuffer;
 
 import static jam.sort.stream.L002Parameters.*;
 
@@ -110,6 +111,37 @@ public class L002InputStream extends AbstractL002HeaderReader {
 		return (paramWord & EVENT_PARAMETER) != 0;
 	}
 
+	/**
+	 * Counts the events ending in the buffer, and finds its first scaler
+	 * value.
+	 */
+	@Override
+	public void summarizeBuffer(final ByteBuffer buffer,
+			final BufferSummary summary) {
+		super.summarizeBuffer(buffer, summary);
+		int events = 0;
+		int position = 0;
+		while (position + 2 <= buffer.limit()) {
+			final short word = buffer.getShort(position);
+			position += 2;
+			if (word == EVENT_END_MARKER) {
+				events++;
+			} else if (word == RUN_END_MARKER) {
+				summary.setEndRun(true);
+			} else if (word != BUFFER_END_MARKER && passesParamMask(word)) {
+				if ((word & EVENT_MASK) < 2048) {
+					position += 2;
+				} else {
+					if (summary.getScalerOffset() < 0) {
+						summary.setScalerOffset(position - 2);
+					}
+					position += 4;
+				}
+			}
+		}
+		summary.setEvents(events);
+	}
+
 	/**
 	 * Check for end of run word
 	 */
@@ -4,8 +4,6 @@ import jam.data.Scaler;
 
 import java.io.EOFException;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * This class knows how to handle Uconn Be7. It extends EventInputStream, adding
@@ -86,13 +84,12 @@ public final class UconnInputStream extends AbstractEventInputStream {
                     + blockCurrSize + " number " + blockNumber
                     + "number event " + blockNumEvnt);
             /* read in scalers */
-            final List<Integer> scalerValues = new ArrayList<>(
-                    UconnStreamConstants.NUMBER_SCALERS);
+            final int[] scalerValues = new int[UconnStreamConstants.NUMBER_SCALERS];
             for (int i = 0; i < UconnStreamConstants.NUMBER_SCALERS; i++) {
-                scalerValues.add(dataInput.readInt()
-                        & UconnStreamConstants.SCALER_MASK);
+                scalerValues[i] = dataInput.readInt()
+                        & UconnStreamConstants.SCALER_MASK;
             }
-            Scaler.update(scalerValues);
+            Scaler.update(scalerValues, scalerValues.length);
             rval = true;
         } catch (EOFException eof) {
             showMessage("end of file readBlockHeader");
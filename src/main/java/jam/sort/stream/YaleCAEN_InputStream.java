@@ -4,6 +4,7 @@ import jam.data.Scaler;
 
 import java.io.EOFException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.*;
 
 /**
@@ -105,6 +106,9 @@ public class YaleCAEN_InputStream extends AbstractL002HeaderReader {
 
     private transient int nScalrBlocks = 0; // for counting number of scaler
 
+    /* scaler values, reused for each scaler block */
+    private transient int[] scalerValues = new int[32];
+
     private transient int posGet;// array index where next (i.e. oldest)
 
     private transient int posPut;// array index where next event counter is
@@ -272,6 +276,35 @@ public class YaleCAEN_InputStream extends AbstractL002HeaderReader {
         return (ENDRUN == dataWord);
     }
 
+    /**
+     * Numbers the buffer by the event counter of its first end-of-block, and
+     * finds its first scaler block and any end-of-run padding.
+     */
+    @Override
+    public void summarizeBuffer(final ByteBuffer buffer,
+            final BufferSummary summary) {
+        super.summarizeBuffer(buffer, summary);
+        int position = 0;
+        while (position + 4 <= buffer.limit()) {
+            final int word = buffer.getInt(position);
+            if (word == CAEN_StreamFields.SCALER_BLOCK) {
+                if (summary.getScalerOffset() < 0) {
+                    summary.setScalerOffset(position);
+                }
+                final int numScalers = position + 8 <= buffer.limit() ? buffer
+                        .getInt(position + 4) : 0;
+                position += 8 + 4 * Math.max(0, numScalers);
+            } else {
+                if (word == CAEN_StreamFields.END_PAD) {
+                    summary.setEndRun(true);
+                } else if (isEndBlock(word) && summary.getEventNumber() < 0) {
+                    summary.setEventNumber(word & 0xffffff);
+                }
+                position += 4;
+            }
+        }
+    }
+
     /*
      * non-javadoc Checks whether the word type is for an event header.
      */
@@ -297,7 +330,6 @@ public class YaleCAEN_InputStream extends AbstractL002HeaderReader {
         synchronized (this) {
             EventInputStatus rval = EventInputStatus.EVENT;
             int lastParameterRead = 0;
-            final List<Integer> scalerValues = new ArrayList<>(32);
             try {
                 /*
                  * internal_status may also be in a "flush" mode in which case
@@ -318,11 +350,13 @@ public class YaleCAEN_InputStream extends AbstractL002HeaderReader {
                          */
                         final int numScalers = dataInput.readInt();
                         nScalrBlocks++;
-                        scalerValues.clear();
+                        if (numScalers > scalerValues.length) {
+                            scalerValues = new int[numScalers];
+                        }
                         for (int i = 0; i < numScalers; i++) {
-                            scalerValues.add(dataInput.readInt());
+                            scalerValues[i] = dataInput.readInt();
                         }
-                        Scaler.update(scalerValues);
+                        Scaler.update(scalerValues, numScalers);
                         rval = EventInputStatus.SCALER_VALUE;
                         internalStat = BufferStatus.SCALER;
                     } else {
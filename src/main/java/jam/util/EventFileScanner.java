@@ -0,0 +1,500 @@
+package jam.util;
+
+import injection.GuiceInjector;
+import jam.global.LoggerConfig;
+import jam.sort.RingBuffer;
+import jam.sort.stream.CompressedEventFile;
+import jam.sort.stream.L002Parameters;
+
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This program checks a directory of event files of the type generated by
+ * jam.sort.stream.YaleCAEN_InputStream, scanning files in parallel. For each
+ * file it writes the scaler blocks to a CSV file, one block per line, and
+ * reports on the integrity of its buffers: which end the run, whether the
+ * last is cut short, and any words that aren't of a known type. A first
+ * buffer that ends the run is the last buffer of the previous run, which
+ * <code>FixEventFile</code> moves back. Progress over all the files is
+ * logged every few seconds, and the reports are also written together to
+ * <code>integrity.txt</code>. Uncompressed files are memory-mapped;
+ * compressed files are read uncompressed a few buffers at a time.
+ * @see FixEventFile
+ */
+public final class EventFileScanner {
+
+    private static final String PACKAGENAME = EventFileScanner.class
+            .getPackage().getName();
+
+    static {
+        new LoggerConfig(PACKAGENAME);
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(PACKAGENAME);
+
+    private static final int HEADER = L002Parameters.HEADER_LENGTH;
+
+    private static final int SIZE = RingBuffer.BUFFER_SIZE;
+
+    /* buffers mapped at a time */
+    private static final int WINDOW = 8192;
+
+    /* buffers uncompressed at a time */
+    private static final int STREAM_WINDOW = 128;
+
+    private static final int KEY_LENGTH = L002Parameters.HEADER_START
+            .length();
+
+    private static final int BUFFER_END = 0x01bbbbbb;
+
+    private static final int SCALER_BLOCK = 0x01cccccc;
+
+    private static final int STOP_PAD = 0x01dddddd;
+
+    private static final int END_PAD = 0x01eeeeee;
+
+    private static final int BUFFER_PAD = 0x01ffffff;
+
+    private static final int TYPE_MASK = 0x7000000;
+
+    private static final int MEGA = 1024 * 1024;
+
+    private transient final AtomicLong bytesScanned = new AtomicLong();
+
+    private transient final AtomicInteger filesScanned = new AtomicInteger();
+
+    /**
+     * What was found in one event file.
+     */
+    public static final class Report {
+
+        private transient final String name;
+
+        private transient boolean headerOK;
+
+        private transient int buffers;
+
+        private transient int truncatedBytes;
+
+        private transient final List<Integer> endRunBuffers = new ArrayList<>();
+
+        private transient int badWords;
+
+        private transient int firstBadBuffer = -1;
+
+        private transient int scalerBlocks;
+
+        private transient int scalersOutOfSequence;
+
+        Report(final String name) {
+            super();
+            this.name = name;
+        }
+
+        /**
+         * @return name of the event file
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return whether the file starts with an L002 header
+         */
+        public boolean isHeaderOK() {
+            return headerOK;
+        }
+
+        /**
+         * @return number of whole buffers
+         */
+        public int getBuffers() {
+            return buffers;
+        }
+
+        /**
+         * @return number of bytes after the last whole buffer
+         */
+        public int getTruncatedBytes() {
+            return truncatedBytes;
+        }
+
+        /**
+         * @return buffers, counting from one, ending with an end-of-run word
+         */
+        public List<Integer> getEndRunBuffers() {
+            return endRunBuffers;
+        }
+
+        /**
+         * @return number of words of unknown type, including scaler blocks
+         *         running past the end of their buffer
+         */
+        public int getBadWords() {
+            return badWords;
+        }
+
+        /**
+         * @return number of scaler blocks
+         */
+        public int getScalerBlocks() {
+            return scalerBlocks;
+        }
+
+        /**
+         * @return number of scaler values lower than in the block before
+         */
+        public int getScalersOutOfSequence() {
+            return scalersOutOfSequence;
+        }
+
+        /**
+         * @return whether the first buffer ends the run, so it belongs at the
+         *         end of the previous run
+         */
+        public boolean needsFixing() {
+            return !endRunBuffers.isEmpty() && endRunBuffers.get(0) == 1;
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder rval = new StringBuilder(name).append(": ");
+            rval.append(buffers).append(" buffers, ").append(scalerBlocks)
+                    .append(" scaler blocks");
+            if (!headerOK) {
+                rval.append(", bad header");
+            }
+            rval.append(", end-of-run in buffers ").append(endRunBuffers);
+            if (needsFixing()) {
+                rval.append(" (first buffer needs fixing)");
+            }
+            if (truncatedBytes > 0) {
+                rval.append(", last buffer cut short by ").append(
+                        SIZE - truncatedBytes).append(" bytes");
+            }
+            if (badWords > 0) {
+                rval.append(", ").append(badWords).append(
+                        " bad words, first in buffer ").append(firstBadBuffer);
+            }
+            if (scalersOutOfSequence > 0) {
+                rval.append(", ").append(scalersOutOfSequence).append(
+                        " scaler values out of sequence");
+            }
+            return rval.toString();
+        }
+    }
+
+    private EventFileScanner() {
+        super();
+    }
+
+    /**
+     * @param args
+     *            directory where event files are to be checked, optionally
+     *            followed by a directory for output files and the number of
+     *            files to scan at once
+     */
+    public static void main(final String[] args) {
+        final FileUtilities fileUtil = GuiceInjector
+                .getObjectInstance(FileUtilities.class);
+        final File dir = args.length >= 1 ? fileUtil.getDir(args[0]) : null;
+        final File outDir = args.length >= 2 ? fileUtil.getDir(args[1]) : null;
+        if (dir == null || args.length >= 2 && outDir == null) {
+            LOGGER.info("EventFileScanner needs 1 to 3 arguments:");
+            LOGGER.info("\t1st arg: directory containing event files");
+            LOGGER.info("\t2nd arg: directory for output files (none)");
+            LOGGER.info("\t3rd arg: files to scan at once (processors)");
+        } else {
+            final int threads = args.length >= 3 ? Integer.parseInt(args[2])
+                    : Runtime.getRuntime().availableProcessors();
+            scanDirectory(dir, outDir, threads);
+        }
+    }
+
+    /**
+     * Scans all event files in a directory, several at a time.
+     * @param dir
+     *            containing event files
+     * @param outDir
+     *            for scaler summaries and the integrity report, or
+     *            <code>null</code> to only log the reports
+     * @param threads
+     *            number of files to scan at once
+     * @return a report for each file scanned, in order of name
+     */
+    public static List<Report> scanDirectory(final File dir,
+            final File outDir, final int threads) {
+        final File[] eventFiles = dir.listFiles((parent, name) -> name
+                .endsWith("evn"));
+        final List<Report> rval = new ArrayList<>();
+        if (eventFiles == null || eventFiles.length == 0) {
+            LOGGER.warning("Didn't find event files in " + dir);
+        } else {
+            Arrays.sort(eventFiles);
+            LOGGER.info("Found " + eventFiles.length
+                    + " event files, starting to examine...");
+            rval.addAll(new EventFileScanner().scanAll(eventFiles, outDir,
+                    threads));
+            if (outDir != null) {
+                writeReports(rval, new File(outDir, "integrity.txt"));
+            }
+        }
+        LOGGER.info("Done.");
+        return rval;
+    }
+
+    private List<Report> scanAll(final File[] eventFiles, final File outDir,
+            final int threads) {
+        long total = 0;
+        for (File eventFile : eventFiles) {
+            total += eventFile.length();
+        }
+        final long totalMB = total / MEGA;
+        final ExecutorService executor = Executors.newFixedThreadPool(Math
+                .max(1, threads));
+        final ScheduledExecutorService progress = Executors
+                .newSingleThreadScheduledExecutor();
+        progress.scheduleAtFixedRate(() -> LOGGER.info("Scanned "
+                + filesScanned.get() + " of " + eventFiles.length
+                + " files, " + bytesScanned.get() / MEGA + " of " + totalMB
+                + " MB."), 2, 2, TimeUnit.SECONDS);
+        final List<Future<Report>> futures = new ArrayList<>();
+        for (File eventFile : eventFiles) {
+            futures.add(executor.submit(() -> scan(eventFile, outDir)));
+        }
+        final List<Report> rval = new ArrayList<>();
+        try {
+            for (int i = 0; i < eventFiles.length; i++) {
+                try {
+                    final Report report = futures.get(i).get();
+                    LOGGER.info(report.toString());
+                    rval.add(report);
+                } catch (ExecutionException e) {
+                    LOGGER.log(Level.SEVERE, "Couldn't scan "
+                            + eventFiles[i], e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+            progress.shutdownNow();
+        }
+        return rval;
+    }
+
+    private static void writeReports(final List<Report> reports,
+            final File file) {
+        try (Writer writer = Files.newBufferedWriter(file.toPath(),
+                StandardCharsets.US_ASCII)) {
+            for (Report report : reports) {
+                writer.write(report.toString());
+                writer.write('\n');
+            }
+            LOGGER.info("Integrity report in: " + file.getPath());
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Scans one event file.
+     * @param eventFile
+     *            to scan
+     * @param outDir
+     *            for the scaler summary, or <code>null</code> for none
+     * @return what was found
+     * @throws IOException
+     *             if the files can't be read or written
+     */
+    public static Report scan(final File eventFile, final File outDir)
+            throws IOException {
+        return new EventFileScanner().scanFile(eventFile, outDir);
+    }
+
+    private Report scanFile(final File eventFile, final File outDir)
+            throws IOException {
+        final String name = eventFile.getName();
+        final Report report = new Report(name);
+        try (BufferedWriter csv = outDir == null ? null : Files
+                .newBufferedWriter(new File(outDir, name.substring(0, name
+                        .lastIndexOf(".evn"))
+                        + "_scalers.csv").toPath(), StandardCharsets.US_ASCII)) {
+            final BlockScanner scanner = new BlockScanner(report, csv);
+            if (CompressedEventFile.isCompressed(eventFile)) {
+                scanCompressed(eventFile, scanner);
+            } else {
+                scanMapped(eventFile, scanner);
+            }
+        }
+        filesScanned.incrementAndGet();
+        return report;
+    }
+
+    private static void setLength(final Report report, final long length,
+            final String key) {
+        report.headerOK = length >= HEADER
+                && key.equals(L002Parameters.HEADER_START);
+        final long data = Math.max(0, length - HEADER);
+        report.buffers = (int) (data / SIZE);
+        report.truncatedBytes = (int) (data % SIZE);
+    }
+
+    private void scanMapped(final File eventFile, final BlockScanner scanner)
+            throws IOException {
+        final Report report = scanner.report;
+        try (FileChannel channel = FileChannel.open(eventFile.toPath(),
+                StandardOpenOption.READ)) {
+            final long length = channel.size();
+            final ByteBuffer key = ByteBuffer.allocate(KEY_LENGTH);
+            channel.read(key, 0);
+            setLength(report, length, new String(key.array(),
+                    StandardCharsets.US_ASCII));
+            for (int first = 0; first < report.buffers; first += WINDOW) {
+                final int count = Math.min(WINDOW, report.buffers - first);
+                final MappedByteBuffer window = channel.map(
+                        FileChannel.MapMode.READ_ONLY, HEADER + (long) first
+                                * SIZE, (long) count * SIZE);
+                for (int i = 0; i < count; i++) {
+                    scanner.scanBuffer(window, i * SIZE, first + i + 1);
+                }
+                bytesScanned.addAndGet((long) count * SIZE);
+            }
+            bytesScanned.addAndGet(length - (long) report.buffers * SIZE);
+        }
+    }
+
+    /* can't be mapped, so read uncompressed a few buffers at a time */
+    private void scanCompressed(final File eventFile,
+            final BlockScanner scanner) throws IOException {
+        final Report report = scanner.report;
+        final long compressedLength = eventFile.length();
+        final long length = CompressedEventFile.getLength(eventFile);
+        try (DataInputStream input = new DataInputStream(CompressedEventFile
+                .open(eventFile))) {
+            final byte[] header = new byte[(int) Math.min(HEADER, length)];
+            input.readFully(header);
+            setLength(report, length, new String(header, 0, Math.min(
+                    KEY_LENGTH, header.length), StandardCharsets.US_ASCII));
+            final byte[] window = new byte[STREAM_WINDOW * SIZE];
+            final ByteBuffer wrapper = ByteBuffer.wrap(window);
+            for (int first = 0; first < report.buffers; first += STREAM_WINDOW) {
+                final int count = Math.min(STREAM_WINDOW, report.buffers
+                        - first);
+                input.readFully(window, 0, count * SIZE);
+                for (int i = 0; i < count; i++) {
+                    scanner.scanBuffer(wrapper, i * SIZE, first + i + 1);
+                }
+                bytesScanned.addAndGet(compressedLength * count
+                        / Math.max(1, report.buffers));
+            }
+        }
+    }
+
+    /* walks the words of buffers, keeping the last scaler values */
+    private static final class BlockScanner {
+
+        private transient final Report report;
+
+        private transient final Writer csv;
+
+        private transient int[] lastValues = new int[0];
+
+        BlockScanner(final Report report, final Writer csv) {
+            super();
+            this.report = report;
+            this.csv = csv;
+        }
+
+        void scanBuffer(final ByteBuffer window, final int start,
+                final int bufferNumber) throws IOException {
+            final int end = start + SIZE;
+            if (window.getInt(end - 4) == END_PAD) {
+                report.endRunBuffers.add(bufferNumber);
+            }
+            int position = start;
+            while (position < end) {
+                final int word = window.getInt(position);
+                if (word == SCALER_BLOCK) {
+                    final int numScalers = position + 8 <= end ? window
+                            .getInt(position + 4) : -1;
+                    if (numScalers < 0
+                            || numScalers > (end - position - 8) / 4) {
+                        badWord(bufferNumber);
+                        position = end;
+                    } else {
+                        scalerBlock(window, position + 8, numScalers);
+                        position += 8 + 4 * numScalers;
+                    }
+                } else {
+                    if (!isKnown(word)) {
+                        badWord(bufferNumber);
+                    }
+                    position += 4;
+                }
+            }
+        }
+
+        private boolean isKnown(final int word) {
+            final int type = word & TYPE_MASK;
+            return type == 0 || type == 0x2000000 || type == 0x4000000
+                    || word == BUFFER_END || word == STOP_PAD
+                    || word == END_PAD || word == BUFFER_PAD;
+        }
+
+        private void badWord(final int bufferNumber) {
+            if (report.badWords == 0) {
+                report.firstBadBuffer = bufferNumber;
+            }
+            report.badWords++;
+        }
+
+        private void scalerBlock(final ByteBuffer window, final int start,
+                final int numScalers) throws IOException {
+            report.scalerBlocks++;
+            if (lastValues.length != numScalers) {
+                lastValues = new int[numScalers];
+                Arrays.fill(lastValues, -1);
+            }
+            for (int i = 0; i < numScalers; i++) {
+                final int value = window.getInt(start + 4 * i);
+                if (value < lastValues[i]) {
+                    report.scalersOutOfSequence++;
+                }
+                lastValues[i] = value;
+                if (csv != null) {
+                    if (i > 0) {
+                        csv.write(',');
+                    }
+                    csv.write(Integer.toString(value));
+                }
+            }
+            if (csv != null) {
+                csv.write('\n');
+            }
+        }
+    }
+}
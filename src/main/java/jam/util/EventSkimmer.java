@@ -0,0 +1,436 @@
+package jam.util;
+
+import injection.GuiceInjector;
+import jam.data.Gate;
+import jam.global.LoggerConfig;
+import jam.sort.stream.AbstractEventInputStream;
+import jam.sort.stream.AbstractEventInputStream.EventInputStatus;
+import jam.sort.stream.CompressedEventFile;
+import jam.sort.stream.EventException;
+import jam.sort.stream.L002OutputStream;
+import jam.sort.stream.L002Parameters;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Skims event files: reads each, keeps only the events a selection accepts,
+ * and writes them to a file of the same name in another directory, in the
+ * L002 format, with the header of the original. Any format with L002
+ * headers can be skimmed, e.g., L002 and YaleCAEN. Files are skimmed in
+ * parallel, so a large data set can be cut down to the events of interest
+ * without sorting it. The selection is any predicate on event arrays, e.g.,
+ * gates on parameters built with <code>inGate()</code> and combined with
+ * <code>and()</code> or <code>or()</code>, or ranges of named parameters
+ * built with <code>inRanges()</code>; it is called from several
+ * threads at once. Each skimmed file is written under a temporary name and
+ * renamed when complete, so a file that fails part way leaves nothing
+ * behind.
+ * @see jam.sort.AbstractSortRoutine#writeEvent(int[])
+ */
+public final class EventSkimmer {
+
+    private static final String PACKAGENAME = EventSkimmer.class
+            .getPackage().getName();
+
+    static {
+        new LoggerConfig(PACKAGENAME);
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(PACKAGENAME);
+
+    private static final int STREAM_BUFFER = 0x10000;
+
+    private static final int KEY_LENGTH = L002Parameters.HEADER_START
+            .length();
+
+    /* key, date, title, number, reserved */
+    private static final int SECONDARY_AT = 32 + 16 + 80 + 4 + 8;
+
+    private transient final Class<? extends AbstractEventInputStream> format;
+
+    private transient final int eventSize;
+
+    private transient final Predicate<int[]> selection;
+
+    private transient final AtomicLong eventsRead = new AtomicLong();
+
+    private transient final AtomicInteger filesSkimmed = new AtomicInteger();
+
+    /**
+     * How many events were read from and written to one file.
+     */
+    public static final class Result {
+
+        private transient final String name;
+
+        private transient final long read;
+
+        private transient final long kept;
+
+        Result(final String name, final long read, final long kept) {
+            super();
+            this.name = name;
+            this.read = read;
+            this.kept = kept;
+        }
+
+        /**
+         * @return name of the event file
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return number of events read
+         */
+        public long getEventsRead() {
+            return read;
+        }
+
+        /**
+         * @return number of events written
+         */
+        public long getEventsKept() {
+            return kept;
+        }
+
+        @Override
+        public String toString() {
+            return name + ": kept " + kept + " of " + read + " events";
+        }
+    }
+
+    /**
+     * @param format
+     *            input stream class for the files to be skimmed
+     * @param eventSize
+     *            number of parameters per event
+     * @param selection
+     *            accepts the events to keep
+     */
+    public EventSkimmer(final Class<? extends AbstractEventInputStream> format,
+            final int eventSize, final Predicate<int[]> selection) {
+        super();
+        this.format = format;
+        this.eventSize = eventSize;
+        this.selection = selection;
+    }
+
+    /**
+     * @param gate
+     *            a one-dimensional gate
+     * @param param
+     *            index of the parameter the gate applies to
+     * @return selects events with the parameter in the gate
+     */
+    public static Predicate<int[]> inGate(final Gate gate, final int param) {
+        return event -> gate.inGate(event[param]);
+    }
+
+    /**
+     * @param gate
+     *            a two-dimensional gate
+     * @param paramX
+     *            index of the parameter for the gate's x-axis
+     * @param paramY
+     *            index of the parameter for the gate's y-axis
+     * @return selects events with the parameters in the gate
+     */
+    public static Predicate<int[]> inGate(final Gate gate, final int paramX,
+            final int paramY) {
+        return event -> gate.inGate(event[paramX], event[paramY]);
+    }
+
+    /**
+     * @param names
+     *            parameter names in the order of the event array, separated
+     *            by commas
+     * @return index in the event array of each parameter, by name
+     */
+    public static Map<String, Integer> parameterIndices(final String names) {
+        final Map<String, Integer> rval = new LinkedHashMap<>();
+        for (String name : names.split(",")) {
+            final String trimmed = name.trim();
+            if (trimmed.isEmpty() || rval.containsKey(trimmed)) {
+                throw new IllegalArgumentException(
+                        "Parameter names must be distinct and not empty: "
+                                + names);
+            }
+            rval.put(trimmed, rval.size());
+        }
+        return Collections.unmodifiableMap(rval);
+    }
+
+    /**
+     * @param indices
+     *            index in the event array of each parameter, by name
+     * @param conditions
+     *            one or more of <code>name:low-high</code>, separated by
+     *            <code>&amp;</code>, with the limits included as in a gate
+     * @return selects events meeting every condition
+     */
+    public static Predicate<int[]> inRanges(
+            final Map<String, Integer> indices, final String conditions) {
+        Predicate<int[]> rval = event -> true;
+        for (String condition : conditions.split("&")) {
+            final String[] nameAndRange = condition.trim().split(":");
+            final String[] range = nameAndRange.length == 2 ? nameAndRange[1]
+                    .split("-") : new String[0];
+            final Integer param = indices.get(nameAndRange[0].trim());
+            if (range.length != 2 || param == null) {
+                throw new IllegalArgumentException("Expected name:low-high"
+                        + " for a parameter in " + indices.keySet()
+                        + ", not " + condition);
+            }
+            final int index = param;
+            final int low = Integer.parseInt(range[0].trim());
+            final int high = Integer.parseInt(range[1].trim());
+            rval = rval.and(event -> event[index] >= low
+                    && event[index] <= high);
+        }
+        return rval;
+    }
+
+    /**
+     * @param args
+     *            directory of event files, directory to write skimmed files
+     *            to, input stream class, the parameter names separated by
+     *            commas or just their number, and the selection: either
+     *            conditions on named parameters, as taken by
+     *            <code>inRanges()</code>, or a class selecting events, a
+     *            <code>Predicate&lt;int[]&gt;</code> with a public
+     *            no-argument constructor; optionally followed by the number
+     *            of files to skim at once
+     */
+    public static void main(final String[] args) {
+        final FileUtilities fileUtil = GuiceInjector
+                .getObjectInstance(FileUtilities.class);
+        final File dir = args.length >= 5 ? fileUtil.getDir(args[0]) : null;
+        final File outDir = args.length >= 5 ? fileUtil.getDir(args[1]) : null;
+        if (dir == null || outDir == null) {
+            LOGGER.info("EventSkimmer needs 5 or 6 arguments:");
+            LOGGER.info("\t1st arg: directory containing event files");
+            LOGGER.info("\t2nd arg: directory for skimmed files");
+            LOGGER.info("\t3rd arg: event input stream class");
+            LOGGER.info("\t4th arg: parameter names, e.g. E,dE,TOF,"
+                    + " or parameters per event");
+            LOGGER.info("\t5th arg: conditions, e.g. \"E:100-900&TOF:20-60\","
+                    + " or Predicate<int[]> class selecting events");
+            LOGGER.info("\t6th arg: files to skim at once (processors)");
+        } else {
+            try {
+                final Class<? extends AbstractEventInputStream> format = Class
+                        .forName(args[2]).asSubclass(
+                                AbstractEventInputStream.class);
+                final boolean named = !args[3].trim().matches("\\d+");
+                final Map<String, Integer> indices = named
+                        ? parameterIndices(args[3])
+                        : Collections.<String, Integer> emptyMap();
+                final int eventSize = named ? indices.size() : Integer
+                        .parseInt(args[3].trim());
+                final Predicate<int[]> selection = args[4].contains(":")
+                        ? inRanges(indices, args[4])
+                        : createSelection(args[4]);
+                final int threads = args.length >= 6 ? Integer
+                        .parseInt(args[5]) : Runtime.getRuntime()
+                        .availableProcessors();
+                new EventSkimmer(format, eventSize, selection).skimDirectory(
+                        dir, outDir, threads);
+            } catch (ReflectiveOperationException | ClassCastException e) {
+                LOGGER.log(Level.SEVERE, "Couldn't load classes.", e);
+            } catch (IllegalArgumentException iae) {
+                LOGGER.severe(iae.getMessage());
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Predicate<int[]> createSelection(final String className)
+            throws ReflectiveOperationException {
+        return (Predicate<int[]>) Class.forName(className).asSubclass(
+                Predicate.class).getConstructor().newInstance();
+    }
+
+    /**
+     * Skims all event files in a directory, several at a time.
+     * @param dir
+     *            containing event files
+     * @param outDir
+     *            for the skimmed files, not <code>dir</code>
+     * @param threads
+     *            number of files to skim at once
+     * @return a result for each file skimmed, in order of name
+     */
+    public List<Result> skimDirectory(final File dir, final File outDir,
+            final int threads) {
+        final List<Result> rval = new ArrayList<>();
+        final File[] eventFiles = dir.listFiles((parent, name) -> name
+                .endsWith("evn"));
+        if (dir.getAbsoluteFile().equals(outDir.getAbsoluteFile())) {
+            LOGGER.severe("Skimmed files would replace the originals in "
+                    + dir);
+        } else if (eventFiles == null || eventFiles.length == 0) {
+            LOGGER.warning("Didn't find event files in " + dir);
+        } else {
+            Arrays.sort(eventFiles);
+            LOGGER.info("Found " + eventFiles.length
+                    + " event files, starting to skim...");
+            rval.addAll(skimAll(eventFiles, outDir, threads));
+        }
+        LOGGER.info("Done.");
+        return rval;
+    }
+
+    private List<Result> skimAll(final File[] eventFiles, final File outDir,
+            final int threads) {
+        final ExecutorService executor = Executors.newFixedThreadPool(Math
+                .max(1, threads));
+        final ScheduledExecutorService progress = Executors
+                .newSingleThreadScheduledExecutor();
+        progress.scheduleAtFixedRate(() -> LOGGER.info("Skimmed "
+                + filesSkimmed.get() + " of " + eventFiles.length
+                + " files, " + eventsRead.get() + " events read."), 2, 2,
+                TimeUnit.SECONDS);
+        final List<Future<Result>> futures = new ArrayList<>();
+        for (File eventFile : eventFiles) {
+            futures.add(executor.submit(() -> skim(eventFile, new File(
+                    outDir, eventFile.getName()))));
+        }
+        final List<Result> rval = new ArrayList<>();
+        try {
+            for (int i = 0; i < eventFiles.length; i++) {
+                try {
+                    final Result result = futures.get(i).get();
+                    LOGGER.info(result.toString());
+                    rval.add(result);
+                } catch (ExecutionException e) {
+                    LOGGER.log(Level.SEVERE, "Couldn't skim " + eventFiles[i],
+                            e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+            progress.shutdownNow();
+        }
+        return rval;
+    }
+
+    /*
+     * Copies the header and any secondary headers as they are, rather than
+     * through the run information shared by all the threads.
+     */
+    private static void copyHeader(final File eventFile,
+            final DataInputStream input, final OutputStream output)
+            throws IOException {
+        final byte[] header = new byte[L002Parameters.HEADER_LENGTH];
+        input.readFully(header);
+        if (!new String(header, 0, KEY_LENGTH, StandardCharsets.US_ASCII)
+                .equals(L002Parameters.HEADER_START)) {
+            throw new IOException(eventFile.getName()
+                    + " doesn't start with an L002 header.");
+        }
+        output.write(header);
+        final int secondary = ByteBuffer.wrap(header).getInt(SECONDARY_AT);
+        for (int i = 0; i < secondary; i++) {
+            input.readFully(header);
+            output.write(header);
+        }
+    }
+
+    /**
+     * Skims one event file, to the end of the file or of the run in it.
+     * @param eventFile
+     *            to read
+     * @param outFile
+     *            to write the selected events to
+     * @return how many events were read and kept
+     * @throws IOException
+     *             if a file can't be read or written, or the event file
+     *             doesn't have an L002 header
+     * @throws EventException
+     *             if the event file can't be decoded
+     * @throws ReflectiveOperationException
+     *             if the input stream can't be created
+     */
+    public Result skim(final File eventFile, final File outFile)
+            throws IOException, EventException, ReflectiveOperationException {
+        final Path partial = Files.createTempFile(outFile.getAbsoluteFile()
+                .getParentFile().toPath(), outFile.getName(), ".part");
+        /* events read and kept */
+        final long[] counts = new long[2];
+        try {
+            skimTo(eventFile, partial.toFile(), counts);
+            Files.move(partial, outFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            /* only still there if skimming failed */
+            Files.deleteIfExists(partial);
+            eventsRead.addAndGet(counts[0]);
+            filesSkimmed.incrementAndGet();
+        }
+        return new Result(eventFile.getName(), counts[0], counts[1]);
+    }
+
+    private void skimTo(final File eventFile, final File outFile,
+            final long[] counts) throws IOException, EventException,
+            ReflectiveOperationException {
+        final AbstractEventInputStream input = format.getConstructor()
+                .newInstance();
+        input.setEventSize(eventSize);
+        final L002OutputStream output = new L002OutputStream(eventSize);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                CompressedEventFile.open(eventFile), STREAM_BUFFER));
+                OutputStream out = new BufferedOutputStream(
+                        new FileOutputStream(outFile), STREAM_BUFFER)) {
+            copyHeader(eventFile, in, out);
+            input.setInputStream(in);
+            output.setOutputStream(out);
+            final int[] event = new int[eventSize];
+            EventInputStatus status = input.readEvent(event);
+            while (status != EventInputStatus.END_RUN
+                    && status != EventInputStatus.END_FILE) {
+                if (status == EventInputStatus.EVENT) {
+                    counts[0]++;
+                    if (selection.test(event)) {
+                        output.writeEvent(event);
+                        counts[1]++;
+                    }
+                    Arrays.fill(event, 0);
+                }
+                status = input.readEvent(event);
+            }
+            output.writeEndRun();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package jam.util;
+
+import injection.GuiceInjector;
+import jam.global.LoggerConfig;
+import jam.sort.RingBuffer;
+import jam.sort.stream.AbstractEventInputStream;
+import jam.sort.stream.EventIndex;
+import jam.sort.stream.YaleCAEN_InputStream;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This program builds indexes for event files written before Jam indexed
+ * them, or whose indexes don't cover the whole file. Give it a directory, and
+ * optionally the event input stream class for the format of the files, which
+ * is YaleCAEN_InputStream if not given.
+ * @see EventIndex
+ */
+public final class IndexEventFiles {
+
+    private static final String PACKAGENAME = IndexEventFiles.class
+            .getPackage().getName();
+
+    static {
+        new LoggerConfig(PACKAGENAME);
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(PACKAGENAME);
+
+    private IndexEventFiles(final File dir,
+            final AbstractEventInputStream format) {
+        super();
+        final File[] eventFiles = dir.listFiles((parent, name) -> name
+                .endsWith("evn"));
+        if (eventFiles == null || eventFiles.length == 0) {
+            LOGGER.warning("Didn't find event files in " + dir);
+        } else {
+            for (File eventFile : eventFiles) {
+                indexFile(eventFile, format);
+            }
+        }
+        LOGGER.info("Done.");
+    }
+
+    private void indexFile(final File eventFile,
+            final AbstractEventInputStream format) {
+        try {
+            final EventIndex index = EventIndex.load(eventFile, format,
+                    RingBuffer.BUFFER_SIZE);
+            int endRuns = 0;
+            for (int i = 0; i < index.size(); i++) {
+                if (index.isEndRun(i)) {
+                    endRuns++;
+                }
+            }
+            LOGGER.info(eventFile.getName() + ": " + index.size()
+                    + " buffers, " + index.getScalerBuffers().length
+                    + " with scalers, " + endRuns + " with end-of-run.");
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Couldn't index " + eventFile, e);
+        }
+    }
+
+    /**
+     * @param args
+     *            directory where event files are to be indexed, and
+     *            optionally the class name of their event input stream
+     */
+    public static void main(final String[] args) {
+        final File dir = args.length >= 1 ? GuiceInjector.getObjectInstance(
+                FileUtilities.class).getDir(args[0]) : null;
+        if (dir != null) {
+            try {
+                final AbstractEventInputStream format = args.length >= 2 ? (AbstractEventInputStream) Class
+                        .forName(args[1]).getDeclaredConstructor()
+                        .newInstance()
+                        : new YaleCAEN_InputStream(false);
+                new IndexEventFiles(dir, format);
+            } catch (ReflectiveOperationException | ClassCastException e) {
+                LOGGER.log(Level.SEVERE, "Not an event input stream: "
+                        + args[1], e);
+            }
+        } else {
+            LOGGER.info("IndexEventFiles needs 1 or 2 arguments:");
+            LOGGER.info("\t1st arg: directory containing event files");
+            LOGGER.info("\t2nd arg: event input stream class (default "
+                    + YaleCAEN_InputStream.class.getName() + ")");
+        }
+    }
+}
@@ -24,10 +24,13 @@
 package jam.util;
 
 import com.google.inject.Inject;
+import jam.sort.stream.CompressedEventFile;
+import jam.sort.stream.EventIndex;
 
 import javax.swing.*;
 import java.awt.*;
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.util.concurrent.ExecutorService;
 import java.util.logging.Logger;
 
@@ -76,6 +79,83 @@ public class YaleCAENgetScalers {
      * @return whether we were successful
      */
     private boolean doIt(final File events, final StringBuilder strError) {
+        final EventIndex index = readIndex(events);
+        return index == null ? scan(events, strError) : readIndexed(events,
+                index, strError);
+    }
+
+    /*
+     * an index covering the whole file, or null if there isn't one or the
+     * file is compressed, so can't be read by seeking
+     */
+    private EventIndex readIndex(final File events) {
+        EventIndex rval = null;
+        if (EventIndex.getIndexFile(events).isFile()) {
+            try {
+                final EventIndex index = EventIndex.read(events);
+                if (!CompressedEventFile.isCompressed(events)
+                        && index.covers(events)) {
+                    rval = index;
+                }
+            } catch (IOException ioe) {
+                LOGGER.warning("Scanning instead of using index: "
+                        + ioe.getMessage());
+            }
+        }
+        return rval;
+    }
+
+    /* reads only the buffers the index says have scaler blocks */
+    private boolean readIndexed(final File events, final EventIndex index,
+            final StringBuilder strError) {
+        final int[] buffers = index.getScalerBuffers();
+        pBstatus = new ProgressMonitor(frame, "Reading scaler blocks of "
+                + events.getName(), "Initializing", 0, buffers.length);
+        boolean rtnState = true;
+        final StringBuffer strBuff = new StringBuffer();
+        strError.delete(0, strError.length());
+        try (RandomAccessFile file = new RandomAccessFile(events, "r")) {
+            for (int i = 0; i < buffers.length; i++) {
+                appendScalerBlocks(strBuff, ByteBuffer.wrap(index
+                        .readFromScalers(file, buffers[i])));
+                updateProgressBar((i + 1) + " of " + buffers.length
+                        + " buffers read.", i + 1);
+            }
+            updateProgressBar("Done.", buffers.length);
+        } catch (IOException ioe) {
+            strError.append("Reading file: ").append(ioe.getMessage());
+            rtnState = false;
+        }
+        fileName = events.getName();
+        strScalerText = strBuff.toString();
+        return rtnState;
+    }
+
+    private void appendScalerBlocks(final StringBuffer strBuff,
+            final ByteBuffer data) {
+        final int SCALER_HEADER = 0x01cccccc;
+        int position = 0;
+        while (position + 8 <= data.limit()) {
+            if (data.getInt(position) == SCALER_HEADER) {
+                final int numScalers = Math.min(data.getInt(position + 4),
+                        (data.limit() - position - 8) / 4);
+                position += 8;
+                for (int i = 1; i <= numScalers; i++) {
+                    strBuff.append(data.getInt(position));
+                    position += 4;
+                    if (i < numScalers) {
+                        strBuff.append('\t');
+                    }
+                }
+                strBuff.append('\n');
+            } else {
+                position += 4;
+            }
+        }
+    }
+
+    /* scans the whole file, for when it has no index */
+    private boolean scan(final File events, final StringBuilder strError) {
         final int mega = 1024 * 1024;
         final long fileLength = events.length();
         final int lengthMB = (int) (fileLength / mega);
@@ -90,7 +170,7 @@ public class YaleCAENgetScalers {
         int megaCounter = 0;
         try {
             dis = new DataInputStream(new BufferedInputStream(
-                    new FileInputStream(events)));
+                    CompressedEventFile.open(events)));
             counter += dis.skipBytes(256);
             while (true) {
                 final int readVal = dis.readInt();
@@ -4,21 +4,45 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
 import test.data.GateTest;
+import test.data.HistogramAlgebraTest;
 import test.data.HistogramTest;
+import test.data.MonitorTest;
 import test.data.ParameterTest;
+import test.data.ScalerStoreTest;
 import test.data.func.CubicFunctionTest;
 import test.data.peaks.PeakTest;
+import test.fit.LevenbergMarquadtSolverTest;
+import test.fit.MultipletFitTest;
+import test.global.ClassIndexTest;
 import test.global.JamPropertiesTest;
 import test.injection.CommandFinderTest;
 import test.injection.FrameTest;
+import test.io.AsciiReaderTest;
+import test.io.AsciiWriterTest;
+import test.io.HistogramExporterTest;
 import test.io.ImpExpASCIITest;
+import test.io.ImpExpORNLTest;
 import test.io.hdf.HDFIOTest;
+import test.plot.HistogramRendererTest;
+import test.remote.HistogramClientTest;
+import test.remote.HistogramServerTest;
+import test.remote.ProtocolTest;
+import test.sort.AcquisitionMetricsTest;
+import test.sort.CompressedEventFileTest;
+import test.sort.EventCacheTest;
+import test.sort.EventIndexTest;
 import test.sort.GainCalibrationTest;
+import test.sort.OfflineCacheTest;
 import test.sort.OnlineScalerTest;
 import test.sort.RingBufferTest;
+import test.sort.RolloverTest;
+import test.sort.SamplingControllerTest;
+import test.sort.SequenceTrackerTest;
 import test.sort.SortOfflineTest;
 import test.sort.SortOnlineTest;
 import test.ui.MultipleFileChooserTest;
+import test.util.EventFileScannerTest;
+import test.util.EventSkimmerTest;
 import test.util.StringUtilitiesTest;
 
 /**
@@ -32,6 +56,17 @@ import test.util.StringUtilitiesTest;
 		RingBufferTest.class, CubicFunctionTest.class, JamPropertiesTest.class,
 		SortOfflineTest.class, SortOnlineTest.class, OnlineScalerTest.class,
 		StringUtilitiesTest.class, FrameTest.class, CommandFinderTest.class,
-		HDFIOTest.class, MultipleFileChooserTest.class })
+		HDFIOTest.class, MultipleFileChooserTest.class,
+		LevenbergMarquadtSolverTest.class, MultipletFitTest.class,
+		HistogramAlgebraTest.class, SequenceTrackerTest.class,
+		SamplingControllerTest.class, ScalerStoreTest.class,
+		MonitorTest.class, EventIndexTest.class,
+		EventFileScannerTest.class, CompressedEventFileTest.class,
+		EventCacheTest.class, EventSkimmerTest.class, ClassIndexTest.class,
+		RolloverTest.class, AcquisitionMetricsTest.class,
+		AsciiWriterTest.class, HistogramExporterTest.class,
+		AsciiReaderTest.class, ImpExpORNLTest.class, ProtocolTest.class,
+		HistogramServerTest.class, HistogramClientTest.class,
+		HistogramRendererTest.class, OfflineCacheTest.class })
 public class AllTests {// NOPMD
 }
@@ -0,0 +1,95 @@
+package test.data;
+
+import static org.junit.Assert.assertEquals;
+import jam.data.DataException;
+import jam.data.HistogramAlgebra;
+import jam.data.HistogramAlgebra.Operation;
+
+import org.junit.Test;
+
+/**
+ * Tests the array operations of <code>HistogramAlgebra</code>.
+ */
+public final class HistogramAlgebraTest {// NOPMD
+
+	private static final double DELTA = 1e-9;
+
+	private static final double[] COUNTS1 = { 4.0, 9.0, 16.0, 0.0 };
+
+	private static final double[] ERRORS1 = { 2.0, 3.0, 4.0, 1.0 };
+
+	private static final double[] COUNTS2 = { 1.0, 4.0, 0.0, 25.0 };
+
+	private static final double[] ERRORS2 = { 1.0, 2.0, 1.0, 5.0 };
+
+	private transient final double[] out = new double[COUNTS1.length];
+
+	private transient final double[] errOut = new double[COUNTS1.length];
+
+	/**
+	 * Test sums and differences, and their errors.
+	 */
+	@Test
+	public void testAddSubtract() {
+		HistogramAlgebra.combine(Operation.ADD, 2.0, COUNTS1, ERRORS1, 1.0,
+				COUNTS2, ERRORS2, out, errOut);
+		assertEquals("Sum", 22.0, out[1], DELTA);
+		assertEquals("Sum error", Math.sqrt(36.0 + 4.0), errOut[1], DELTA);
+		HistogramAlgebra.combine(Operation.SUBTRACT, 2.0, COUNTS1, ERRORS1,
+				1.0, COUNTS2, ERRORS2, out, errOut);
+		assertEquals("Difference", 14.0, out[1], DELTA);
+		assertEquals("Difference error", Math.sqrt(40.0), errOut[1], DELTA);
+	}
+
+	/**
+	 * Test products and quotients, and their relative errors.
+	 */
+	@Test
+	public void testMultiplyDivide() {
+		HistogramAlgebra.combine(Operation.MULTIPLY, 1.0, COUNTS1, ERRORS1,
+				1.0, COUNTS2, ERRORS2, out, errOut);
+		assertEquals("Product", 36.0, out[1], DELTA);
+		/* relative errors 1/3 and 1/2 add in quadrature */
+		assertEquals("Product error", 36.0 * Math.sqrt(1.0 / 9.0 + 0.25),
+				errOut[1], DELTA);
+		HistogramAlgebra.combine(Operation.DIVIDE, 1.0, COUNTS1, ERRORS1, 1.0,
+				COUNTS2, ERRORS2, out, errOut);
+		assertEquals("Quotient", 2.25, out[1], DELTA);
+		assertEquals("Quotient error", 2.25 * Math.sqrt(1.0 / 9.0 + 0.25),
+				errOut[1], DELTA);
+		assertEquals("Divide by zero", 0.0, out[2], DELTA);
+	}
+
+	/**
+	 * Test that shifting gain conserves counts and variance.
+	 * 
+	 * @throws DataException
+	 *             if the test fails
+	 */
+	@Test
+	public void testGainShift() throws DataException {
+		final double[] counts = new double[100];
+		final double[] errors = new double[counts.length];
+		double sum = 0.0;
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = i % 7 + 1.0;
+			errors[i] = Math.sqrt(counts[i]);
+			sum += counts[i];
+		}
+		final double[] shifted = new double[counts.length];
+		final double[] shiftedErrors = new double[counts.length];
+		/* compress by 2 into the lower half */
+		HistogramAlgebra.gainShift(counts, errors, 0.0, 1.0, 0.5, 2.0,
+				shifted, shiftedErrors);
+		double shiftedSum = 0.0;
+		for (double value : shifted) {
+			shiftedSum += value;
+		}
+		assertEquals("Counts conserved", sum, shiftedSum, DELTA);
+		/* each output channel gets exactly two input channels */
+		assertEquals("Channel 10", counts[20] + counts[21], shifted[10],
+				DELTA);
+		assertEquals("Error 10", Math.sqrt(counts[20] + counts[21]),
+				shiftedErrors[10], DELTA);
+	}
+}
@@ -147,6 +147,25 @@ public final class HistogramTest {// NOPMD
         assertHasGate(false, hist2, gate1);
     }
 
+    /**
+     * Test that each histogram's sampled fraction counts only the events
+     * since it was zeroed.
+     * @see AbstractHistogram#addSampling(long, long)
+     */
+    @Test
+    public void testSampledFraction() {
+        hist1.setZero();
+        AbstractHistogram.addSampling(100, 25);
+        Assert.assertEquals("Expected a quarter sampled.", 0.25, hist1
+                .getSampledFraction(), 1e-9);
+        hist2.setZero();
+        AbstractHistogram.addSampling(100, 75);
+        Assert.assertEquals("Expected half sampled since first zeroed.", 0.5,
+                hist1.getSampledFraction(), 1e-9);
+        Assert.assertEquals("Expected three quarters sampled.", 0.75, hist2
+                .getSampledFraction(), 1e-9);
+    }
+
     private void assertHasGate(final boolean hasGate,
             final AbstractHistogram histogram, final Gate gate) {
         final StringBuilder message = new StringBuilder(52);
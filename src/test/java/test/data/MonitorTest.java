@@ -0,0 +1,79 @@
+package test.data;
+
+import static org.junit.Assert.assertEquals;
+import jam.data.Monitor;
+import jam.data.MonitorSnapshot;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the rates and snapshots of monitors.
+ * @see Monitor
+ */
+public final class MonitorTest {// NOPMD
+
+    private static final double DELTA = 1.0e-9;
+
+    private transient final AtomicInteger count = new AtomicInteger();
+
+    private transient Monitor monitor;
+
+    /**
+     * Creates a monitor of a counter.
+     */
+    @Before
+    public void setUp() {
+        monitor = new Monitor("counter", count::get);
+        monitor.setThreshold(10.0);
+        monitor.setMaximum(100.0);
+    }
+
+    /**
+     * Removes the monitor.
+     */
+    @After
+    public void tearDown() {
+        Monitor.clearList();
+    }
+
+    /**
+     * Tests that the first rate is taken as it is, and later ones smoothed.
+     */
+    @Test
+    public void testSmoothing() {
+        count.set(1000);
+        monitor.update(0.0, 0.5);
+        assertEquals("No rate from the first value.", 0.0, monitor
+                .getValue(), DELTA);
+        count.addAndGet(40);
+        monitor.update(2.0, 0.5);
+        assertEquals("First rate.", 20.0, monitor.getValue(), DELTA);
+        count.addAndGet(120);
+        monitor.update(2.0, 0.5);
+        assertEquals("Smoothed rate.", 40.0, monitor.getValue(), DELTA);
+        monitor.reset();
+        count.addAndGet(100);
+        monitor.update(1.0, 0.5);
+        assertEquals("No rate after reset.", 0.0, monitor.getValue(), DELTA);
+    }
+
+    /**
+     * Tests that snapshots keep the state when taken.
+     */
+    @Test
+    public void testSnapshot() {
+        monitor.update(0.0, 1.0);
+        count.addAndGet(50);
+        monitor.update(1.0, 1.0);
+        final MonitorSnapshot snapshot = monitor.snapshot();
+        count.addAndGet(500);
+        monitor.update(1.0, 1.0);
+        assertEquals("Snapshot value.", 50.0, snapshot.getValue(), DELTA);
+        assertEquals("Snapshot acceptable.", true, snapshot.isAcceptable());
+        assertEquals("Monitor too high.", false, monitor.isAcceptable());
+    }
+}
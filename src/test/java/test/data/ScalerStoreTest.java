@@ -0,0 +1,83 @@
+package test.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import jam.data.ScalerStore;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the lock-free scaler values and readout history.
+ * @see ScalerStore
+ */
+public final class ScalerStoreTest {// NOPMD
+
+    private static final double DELTA = 1.0e-9;
+
+    private transient ScalerStore store;
+
+    private transient int first, second;
+
+    /**
+     * Creates a store with two scalers.
+     */
+    @Before
+    public void setUp() {
+        store = new ScalerStore();
+        first = store.register();
+        second = store.register();
+    }
+
+    private void readout(final long millis, final long firstValue,
+            final long secondValue) {
+        final int position = store.startReadout();
+        store.put(first, position, firstValue);
+        store.put(second, position, secondValue);
+        store.finishReadout(position, millis);
+    }
+
+    /**
+     * Tests values and rates from readouts.
+     */
+    @Test
+    public void testRate() {
+        assertTrue("No rate before two readouts.", Double.isNaN(store
+                .getRate(first)));
+        readout(1000, 10, 0);
+        readout(3000, 110, 50);
+        assertEquals("Latest value.", 110, store.get(first));
+        assertEquals("Rate of first.", 50.0, store.getRate(first), DELTA);
+        assertEquals("Rate of second.", 25.0, store.getRate(second), DELTA);
+        readout(4000, 20, 50);
+        assertEquals("Rate after zeroing.", 20.0, store.getRate(first), DELTA);
+    }
+
+    /**
+     * Tests that the history keeps the latest readouts in order, and
+     * survives adding scalers.
+     */
+    @Test
+    public void testHistory() {
+        final int readouts = ScalerStore.HISTORY * 2 + 5;
+        for (int i = 0; i < readouts; i++) {
+            readout(i, i, 2 * i);
+        }
+        for (int i = 0; i < 20; i++) {
+            store.register();
+        }
+        final long[] millis = new long[ScalerStore.HISTORY + 10];
+        final long[] values = new long[millis.length];
+        final int count = store.getHistory(second, millis, values);
+        assertEquals("Readouts kept.", ScalerStore.HISTORY, count);
+        for (int i = 0; i < count; i++) {
+            final long expected = readouts - count + i;
+            assertEquals("Time.", expected, millis[i]);
+            assertEquals("Value.", 2 * expected, values[i]);
+        }
+        store.set(first, 7);
+        assertEquals("Value set directly.", 7, store.get(first));
+        store.clear();
+        assertEquals("No readouts after clearing.", 0, store.getReadoutCount());
+    }
+}
@@ -0,0 +1,226 @@
+package test.fit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import jam.fit.FitFunction;
+import jam.fit.LevenbergMarquadtSolver;
+import jam.fit.SparseFitFunction;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Tests the primitive Levenberg-Marquadt solver.
+ */
+public final class LevenbergMarquadtSolverTest {// NOPMD
+
+	private static final int CHANNELS = 200;
+
+	/* amplitude, centroid, sigma, constant background */
+	private static final double[] TRUE_VALUES = { 1000.0, 97.3, 6.5, 20.0 };
+
+	private static final FitFunction GAUSSIAN = new FitFunction() {
+		private transient double amplitude, centroid, sigma, background;
+
+		public void setParameters(final double[] params) {
+			amplitude = params[0];
+			centroid = params[1];
+			sigma = params[2];
+			background = params[3];
+		}
+
+		public double valueAndGradient(final double xValue,
+				final double[] gradient) {
+			final double diff = (xValue - centroid) / sigma;
+			final double exp = Math.exp(-0.5 * diff * diff);
+			gradient[0] = exp;
+			gradient[1] = amplitude * exp * diff / sigma;
+			gradient[2] = amplitude * exp * diff * diff / sigma;
+			gradient[3] = 1.0;
+			return amplitude * exp + background;
+		}
+	};
+
+	/* bumps in the sparse function, and their spacing and half-width */
+	private static final int BUMPS = 40;
+
+	private static final int SPACING = 5;
+
+	private static final int REACH = 12;
+
+	/**
+	 * Constant and slope, then the heights of triangular bumps, each
+	 * overlapping the few beside it.
+	 */
+	private static final SparseFitFunction BUMPY = new SparseFitFunction() {
+		private transient final double[] values = new double[2 + BUMPS];
+
+		public void setParameters(final double[] params) {
+			System.arraycopy(params, 0, values, 0, values.length);
+		}
+
+		public double valueAndGradient(final double xValue,
+				final double[] gradient, final int[] indices) {
+			indices[0] = 0;
+			gradient[0] = 1.0;
+			indices[1] = 1;
+			gradient[1] = xValue;
+			double value = values[0] + values[1] * xValue;
+			int count = 2;
+			for (int i = 0; i < BUMPS; i++) {
+				final double shape = 1.0 - Math.abs(xValue - SPACING * (i + 1))
+						/ REACH;
+				if (shape > 0.0) {
+					value += values[2 + i] * shape;
+					indices[count] = 2 + i;
+					gradient[count] = shape;
+					count++;
+				}
+			}
+			if (count < indices.length) {
+				indices[count] = -1;
+			}
+			return value;
+		}
+
+		public double valueAndGradient(final double xValue,
+				final double[] gradient) {
+			final int[] indices = new int[gradient.length];
+			final double[] sparse = new double[gradient.length];
+			final double value = valueAndGradient(xValue, sparse, indices);
+			Arrays.fill(gradient, 0.0);
+			for (int i = 0; i < indices.length && indices[i] >= 0; i++) {
+				gradient[indices[i]] = sparse[i];
+			}
+			return value;
+		}
+
+		public int getBorder() {
+			return 2;
+		}
+
+		public int getBandwidth() {
+			return 2 * REACH / SPACING;
+		}
+	};
+
+	/* the same function, without its sparseness */
+	private static final FitFunction DENSE_BUMPY = new FitFunction() {
+		public void setParameters(final double[] params) {
+			BUMPY.setParameters(params);
+		}
+
+		public double valueAndGradient(final double xValue,
+				final double[] gradient) {
+			return BUMPY.valueAndGradient(xValue, gradient);
+		}
+	};
+
+	private static double[] counts() {
+		final double[] gradient = new double[TRUE_VALUES.length];
+		final double[] rval = new double[CHANNELS];
+		GAUSSIAN.setParameters(TRUE_VALUES);
+		for (int i = 0; i < CHANNELS; i++) {
+			rval[i] = GAUSSIAN.valueAndGradient(i, gradient);
+		}
+		return rval;
+	}
+
+	private static double[] errors(final double[] counts) {
+		final double[] rval = new double[counts.length];
+		for (int i = 0; i < counts.length; i++) {
+			rval[i] = Math.sqrt(counts[i]);
+		}
+		return rval;
+	}
+
+	/**
+	 * Fits noiseless gaussian data from a rough starting point.
+	 */
+	@Test
+	public void testConverges() {
+		final double[] counts = counts();
+		final double[] params = { 800.0, 95.0, 8.0, 15.0 };
+		final LevenbergMarquadtSolver solver = new LevenbergMarquadtSolver(
+				params.length);
+		solver.fit(GAUSSIAN, params, counts, errors(counts), 50, 150);
+		for (int i = 0; i < params.length; i++) {
+			assertEquals("Parameter " + i, TRUE_VALUES[i], params[i],
+					1e-3 * TRUE_VALUES[i]);
+			assertTrue("Error on parameter " + i,
+					solver.getParameterError(i) > 0.0);
+		}
+		assertEquals("Degrees of freedom", 97, solver.getDegreesOfFreedom());
+		assertEquals("Reduced chi-squared", 0.0, solver.getReducedChiSq(),
+				1e-3);
+	}
+
+	/**
+	 * Fixed parameters keep their values and get zero error.
+	 */
+	@Test
+	public void testFixedParameter() {
+		final double[] counts = counts();
+		final double[] params = { 800.0, 95.0, 8.0, TRUE_VALUES[3] };
+		final LevenbergMarquadtSolver solver = new LevenbergMarquadtSolver(
+				params.length);
+		solver.setFixed(3, true);
+		solver.fit(GAUSSIAN, params, counts, errors(counts), 50, 150);
+		assertEquals("Fixed value", TRUE_VALUES[3], params[3], 0.0);
+		assertEquals("Fixed error", 0.0, solver.getParameterError(3), 0.0);
+		assertEquals("Centroid", TRUE_VALUES[1], params[1], 1e-3);
+		assertEquals("Degrees of freedom", 98, solver.getDegreesOfFreedom());
+	}
+
+	private static double[] bumpyParameters() {
+		final double[] rval = new double[2 + BUMPS];
+		rval[0] = 5.0;
+		for (int i = 0; i < BUMPS; i++) {
+			rval[2 + i] = 100.0 + 37.0 * (i % 5);
+		}
+		return rval;
+	}
+
+	/**
+	 * A sparse function, solved by border and band, gives the same fit and
+	 * covariances as when solved densely, including covariances between
+	 * parameters far outside the band.
+	 */
+	@Test
+	public void testSparseMatchesDense() {
+		final double[] truth = bumpyParameters();
+		final int channels = SPACING * (BUMPS + 1) + 1;
+		final double[] counts = new double[channels];
+		final double[] gradient = new double[truth.length];
+		BUMPY.setParameters(truth);
+		for (int i = 0; i < channels; i++) {
+			counts[i] = BUMPY.valueAndGradient(i, gradient) + (i % 3 - 1);
+		}
+		final double[] errors = errors(counts);
+		final double[] sparseParams = new double[truth.length];
+		Arrays.fill(sparseParams, 50.0);
+		final double[] denseParams = sparseParams.clone();
+		final LevenbergMarquadtSolver sparse = new LevenbergMarquadtSolver(
+				truth.length);
+		final LevenbergMarquadtSolver dense = new LevenbergMarquadtSolver(
+				truth.length);
+		sparse.setFixed(4, true);
+		dense.setFixed(4, true);
+		sparse.fit(BUMPY, sparseParams, counts, errors, 0, channels - 1);
+		dense.fit(DENSE_BUMPY, denseParams, counts, errors, 0, channels - 1);
+		assertEquals("Reduced chi-squared", dense.getReducedChiSq(), sparse
+				.getReducedChiSq(), 1e-9);
+		for (int i = 0; i < truth.length; i++) {
+			assertEquals("Parameter " + i, denseParams[i], sparseParams[i],
+					1e-9 * Math.abs(denseParams[i]));
+			for (int j = 0; j < truth.length; j++) {
+				final double expected = dense.getCovariance(i, j);
+				assertEquals("Covariance " + i + ", " + j, expected, sparse
+						.getCovariance(i, j), 1e-9 * Math.sqrt(dense
+						.getCovariance(i, i)
+						* dense.getCovariance(j, j)));
+			}
+		}
+	}
+}
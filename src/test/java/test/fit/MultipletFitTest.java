@@ -0,0 +1,189 @@
+package test.fit;
+
+import static jam.data.peaks.GaussianConstants.MAGIC_A;
+import static jam.data.peaks.GaussianConstants.MAGIC_B;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import jam.data.peaks.Multiplet;
+import jam.data.peaks.Peak;
+import jam.fit.FitException;
+import jam.fit.MultipletFit;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Tests fitting of overlapping peaks with a shared or linearly varying
+ * width.
+ */
+public final class MultipletFitTest {// NOPMD
+
+	private static final int CHANNELS = 1024;
+
+	private static final double FWHM = 8.0;
+
+	private static final double BACKGROUND = 50.0;
+
+	private static double[] spectrum(final double[] centroids,
+			final double[] areas) {
+		final double[] widths = new double[centroids.length];
+		Arrays.fill(widths, FWHM);
+		return spectrum(centroids, areas, widths);
+	}
+
+	private static double[] spectrum(final double[] centroids,
+			final double[] areas, final double[] widths) {
+		return spectrum(centroids, areas, widths, CHANNELS);
+	}
+
+	private static double[] spectrum(final double[] centroids,
+			final double[] areas, final double[] widths, final int channels) {
+		final double[] rval = new double[channels];
+		for (int i = 0; i < channels; i++) {
+			rval[i] = BACKGROUND;
+			for (int j = 0; j < centroids.length; j++) {
+				final double diff = (i - centroids[j]) / widths[j];
+				rval[i] += areas[j] * MAGIC_A / widths[j]
+						* Math.exp(-MAGIC_B * diff * diff);
+			}
+		}
+		return rval;
+	}
+
+	private static double[] errors(final double[] counts) {
+		final double[] rval = new double[counts.length];
+		for (int i = 0; i < counts.length; i++) {
+			rval[i] = Math.sqrt(counts[i]);
+		}
+		return rval;
+	}
+
+	/**
+	 * Recovers a dozen overlapping peaks from perturbed guesses.
+	 * 
+	 * @throws FitException
+	 *             if the fit fails
+	 */
+	@Test
+	public void testSharedWidth() throws FitException {
+		final int numPeaks = 12;
+		final double[] centroids = new double[numPeaks];
+		final double[] areas = new double[numPeaks];
+		final Multiplet guesses = Multiplet.createMultiplet();
+		for (int i = 0; i < numPeaks; i++) {
+			centroids[i] = 300.0 + 11.5 * i;
+			areas[i] = 2000.0 + 500.0 * (i % 3);
+			guesses.add(Peak.createPeak(centroids[i] + (i % 2 == 0 ? 1 : -1),
+					0.8 * areas[i], 1.2 * FWHM));
+		}
+		final double[] counts = spectrum(centroids, areas);
+		final MultipletFit fit = new MultipletFit(guesses,
+				MultipletFit.WidthMode.SHARED);
+		final int[] limits = fit.getDefaultLimits();
+		fit.doFit(counts, errors(counts), limits[0], limits[1]);
+		final Multiplet result = fit.getMultiplet();
+		assertEquals("Number of peaks", numPeaks, result.size());
+		for (int i = 0; i < numPeaks; i++) {
+			final Peak peak = result.get(i);
+			assertEquals("Centroid " + i, centroids[i], peak.getPosition(),
+					0.01);
+			assertEquals("Area " + i, areas[i], peak.getArea(),
+					0.001 * areas[i]);
+			assertEquals("Width " + i, FWHM, peak.getWidth(), 0.001);
+		}
+		assertEquals("Background", BACKGROUND, fit.calculateBackground(400),
+				0.01);
+	}
+
+	/**
+	 * Recovers overlapping peaks whose width grows across the multiplet.
+	 * 
+	 * @throws FitException
+	 *             if the fit fails
+	 */
+	@Test
+	public void testLinearWidth() throws FitException {
+		final int numPeaks = 8;
+		final double slope = 0.04;
+		final double[] centroids = new double[numPeaks];
+		final double[] areas = new double[numPeaks];
+		final double[] widths = new double[numPeaks];
+		final Multiplet guesses = Multiplet.createMultiplet();
+		for (int i = 0; i < numPeaks; i++) {
+			centroids[i] = 300.0 + 14.0 * i;
+			areas[i] = 3000.0 + 500.0 * (i % 3);
+		}
+		final double mean = 300.0 + 14.0 * (numPeaks - 1) / 2.0;
+		for (int i = 0; i < numPeaks; i++) {
+			widths[i] = FWHM + slope * (centroids[i] - mean);
+			guesses.add(Peak.createPeak(centroids[i] + (i % 2 == 0 ? 1 : -1),
+					0.8 * areas[i], FWHM));
+		}
+		final double[] counts = spectrum(centroids, areas, widths);
+		final MultipletFit fit = new MultipletFit(guesses,
+				MultipletFit.WidthMode.LINEAR);
+		final int[] limits = fit.getDefaultLimits();
+		fit.doFit(counts, errors(counts), limits[0], limits[1]);
+		final Multiplet result = fit.getMultiplet();
+		assertEquals("Number of peaks", numPeaks, result.size());
+		for (int i = 0; i < numPeaks; i++) {
+			final Peak peak = result.get(i);
+			assertEquals("Centroid " + i, centroids[i], peak.getPosition(),
+					0.01);
+			assertEquals("Area " + i, areas[i], peak.getArea(),
+					0.001 * areas[i]);
+			assertEquals("Width " + i, widths[i], peak.getWidth(), 0.001);
+		}
+		assertEquals("Background", BACKGROUND, fit.calculateBackground(400),
+				0.01);
+	}
+
+	/* least time taken to fit the given number of peaks, in nanoseconds */
+	private static long timeFit(final int numPeaks) throws FitException {
+		final double[] centroids = new double[numPeaks];
+		final double[] areas = new double[numPeaks];
+		final double[] widths = new double[numPeaks];
+		final Multiplet guesses = Multiplet.createMultiplet();
+		for (int i = 0; i < numPeaks; i++) {
+			centroids[i] = 50.0 + 11.5 * i;
+			areas[i] = 2000.0 + 500.0 * (i % 3);
+			widths[i] = FWHM;
+			guesses.add(Peak.createPeak(centroids[i], areas[i], FWHM));
+		}
+		final double[] counts = spectrum(centroids, areas, widths,
+				(int) (centroids[numPeaks - 1] + 50.0));
+		final double[] errors = errors(counts);
+		long rval = Long.MAX_VALUE;
+		for (int run = 0; run < 3; run++) {
+			final MultipletFit fit = new MultipletFit(guesses,
+					MultipletFit.WidthMode.SHARED);
+			final int[] limits = fit.getDefaultLimits();
+			final long start = System.nanoTime();
+			fit.doFit(counts, errors, limits[0], limits[1]);
+			rval = Math.min(rval, System.nanoTime() - start);
+			assertEquals("Area of last peak", areas[numPeaks - 1], fit
+					.getMultiplet().get(numPeaks - 1).getArea(),
+					0.001 * areas[numPeaks - 1]);
+		}
+		return rval;
+	}
+
+	/**
+	 * Fitting eight times as many peaks, all converging alike, takes about
+	 * eight times as long, far short of the 512 times a dense solution
+	 * would.
+	 * 
+	 * @throws FitException
+	 *             if a fit fails
+	 */
+	@Test
+	public void testLinearScaling() throws FitException {
+		timeFit(200); // warm up
+		final long few = timeFit(100);
+		final long many = timeFit(800);
+		assertTrue("Expected time to grow about linearly, but went from "
+				+ few / 1000 + " to " + many / 1000 + " microseconds.",
+				many < 32 * few);
+	}
+}
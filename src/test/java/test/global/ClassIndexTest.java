@@ -0,0 +1,101 @@
+package test.global;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import jam.global.ClassIndex;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the persistent index of classes found by subclass searches.
+ */
+public final class ClassIndexTest {// NOPMD
+
+    private static final String KEY = "jam.sort.AbstractSortRoutine@sort/**";
+
+    private transient File dir;
+
+    private transient File indexFile;
+
+    /**
+     * Creates a directory of fake class files.
+     *
+     * @throws IOException
+     *             if the files can't be created
+     */
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("classindex").toFile();
+        indexFile = File.createTempFile("classindex", ".properties");
+        indexFile.delete();
+        Files.write(new File(dir, "A.class").toPath(), new byte[] {1, 2 });
+        Files.createDirectory(new File(dir, "sub").toPath());
+        Files.write(new File(dir, "sub/B.class").toPath(), new byte[] {3 });
+    }
+
+    /**
+     * Deletes the directory.
+     */
+    @After
+    public void tearDown() {
+        for (String name : new String[] {"sub/B.class", "sub/C.class", "sub",
+                "A.class" }) {
+            new File(dir, name).delete();
+        }
+        dir.delete();
+        indexFile.delete();
+    }
+
+    /**
+     * Names put are got back, by a later instance reading the same file.
+     */
+    @Test
+    public void testPersists() {
+        final long fingerprint = ClassIndex.fingerprint(dir, true);
+        final List<String> names = Arrays.asList("sort.A", "sort.sub.B");
+        new ClassIndex(indexFile).put(KEY, fingerprint, names);
+        assertTrue("Expected index file to be written.", indexFile.isFile());
+        final ClassIndex index = new ClassIndex(indexFile);
+        assertEquals("Expected names back.", names, index.get(KEY,
+                fingerprint));
+        assertNull("Expected nothing for another search.", index.get(
+                "other", fingerprint));
+        index.put(KEY, fingerprint, Collections.<String> emptyList());
+        assertEquals("Expected empty list.", Collections.emptyList(),
+                new ClassIndex(indexFile).get(KEY, fingerprint));
+    }
+
+    /**
+     * An entry isn't used once the searched classes change.
+     *
+     * @throws IOException
+     *             if a file can't be written
+     */
+    @Test
+    public void testStale() throws IOException {
+        final long flat = ClassIndex.fingerprint(dir, false);
+        final long deep = ClassIndex.fingerprint(dir, true);
+        final ClassIndex index = new ClassIndex(indexFile);
+        index.put(KEY, deep, Collections.singletonList("sort.A"));
+        Files.write(new File(dir, "sub/C.class").toPath(), new byte[] {4 });
+        assertEquals("Expected sub-directory to be ignored.", flat,
+                ClassIndex.fingerprint(dir, false));
+        final long changed = ClassIndex.fingerprint(dir, true);
+        assertNotEquals("Expected new class to change fingerprint.", deep,
+                changed);
+        assertNull("Expected stale entry to be ignored.", index.get(KEY,
+                changed));
+    }
+}
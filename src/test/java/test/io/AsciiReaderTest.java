@@ -0,0 +1,182 @@
+package test.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import jam.io.AsciiReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the text spectrum reader directly, including the parallel path that
+ * only large files take.
+ * @see AsciiReader
+ */
+public final class AsciiReaderTest {// NOPMD
+
+    /* more than the 8 MB below which a file is parsed on one thread */
+    private static final int LARGE_SIZE = 9 << 20;
+
+    private static final int THREADS = 4;
+
+    private transient File file;
+
+    /**
+     * Creates the file to read.
+     * @throws IOException
+     *             if the file can't be created
+     */
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("AsciiReaderTest", ".txt");
+    }
+
+    /**
+     * Deletes the file.
+     */
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    private AsciiReader read(final String text, final int threads)
+            throws IOException {
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.US_ASCII));
+        final AsciiReader rval = new AsciiReader(file);
+        rval.read(threads);
+        return rval;
+    }
+
+    private void assertRejected(final String text, final int threads) {
+        try {
+            read(text, threads);
+            fail("Expected lines of differing lengths to be rejected.");
+        } catch (IOException expected) {
+            assertTrue("Expected message about numbers on a line.", expected
+                    .getMessage().contains("numbers on the line"));
+        }
+    }
+
+    /**
+     * Tests the header and the counting of columns and rows.
+     * @throws IOException
+     *             if the file can't be read
+     */
+    @Test
+    public void testLayout() throws IOException {
+        final AsciiReader reader = read(
+                "title more words\n\n 1 2 3\r\n\t4 5 6 \n\n7 8 9", 1);
+        assertEquals("Expected title.", "title", reader.getTitle());
+        assertEquals("Expected columns.", 3, reader.getColumns());
+        assertEquals("Expected rows.", 3, reader.getRows());
+        assertArrayEquals("Expected values.", new double[] {1, 2, 3, 4, 5,
+                6, 7, 8, 9 }, reader.getValues(), 0.0);
+        final AsciiReader empty = read("\n  \n", 1);
+        assertNull("Expected no title.", empty.getTitle());
+        assertEquals("Expected no columns.", 0, empty.getColumns());
+        assertEquals("Expected no rows.", 0, empty.getRows());
+    }
+
+    /**
+     * Tests that every line must have as many numbers as the first, even if
+     * the total is a multiple of that.
+     */
+    @Test
+    public void testRaggedLines() {
+        assertRejected("1 2\n3\n4 5 6", 1);
+        assertRejected("1 2\n3 4\n5 6 7\n8", 1);
+        assertRejected("1 2\n3 4\n5", 1);
+    }
+
+    /**
+     * Tests numbers in every form, compared with
+     * <code>Double.parseDouble()</code>.
+     * @throws IOException
+     *             if the file can't be read
+     */
+    @Test
+    public void testNumberFormats() throws IOException {
+        final String[] tokens = {"0", "-0", "+7", "-12", "3.25", "-.5", "5.",
+                "1e3", "1E+3", "-2.5e-2", "6.02214076E23", "1.6e-19",
+                "1e22", "1e23", "1e-400", "1e400", "-1e400", "NaN",
+                "123456789012345678", "1234567890123456789",
+                "12345678901234567890123", "0.12345678901234567890123",
+                "9007199254740993", "000000000000000000000001.5",
+                "4.9e-324", "1.7976931348623157e308" };
+        final StringBuilder text = new StringBuilder();
+        for (String token : tokens) {
+            text.append(token).append('\n');
+        }
+        final double[] values = read(text.toString(), 1).getValues();
+        assertEquals("Expected a value for every token.", tokens.length,
+                values.length);
+        for (int i = 0; i < tokens.length; i++) {
+            assertEquals(tokens[i], Double.valueOf(tokens[i]), Double
+                    .valueOf(values[i]));
+        }
+    }
+
+    /**
+     * Tests that a large file, parsed in slices on several threads, gives
+     * the same numbers as on one thread, and as were written.
+     * @throws IOException
+     *             if the file can't be written or read
+     */
+    @Test
+    public void testParallel() throws IOException {
+        final Random random = new Random(47L);
+        long written = 0;
+        int count = 0;
+        try (Writer writer = Files.newBufferedWriter(file.toPath(),
+                StandardCharsets.US_ASCII)) {
+            while (written < LARGE_SIZE) {
+                final String line = random.nextInt(100000) + " "
+                        + random.nextGaussian() + "\n";
+                writer.write(line);
+                written += line.length();
+                count += 2;
+            }
+        }
+        assertTrue("Expected a file big enough to split.",
+                file.length() >= LARGE_SIZE);
+        final AsciiReader serial = new AsciiReader(file);
+        serial.read(1);
+        final AsciiReader parallel = new AsciiReader(file);
+        parallel.read(THREADS);
+        assertEquals("Expected every number.", count,
+                serial.getValues().length);
+        assertEquals("Expected columns.", 2, parallel.getColumns());
+        assertArrayEquals("Expected same numbers in parallel.", serial
+                .getValues(), parallel.getValues(), 0.0);
+        final Random again = new Random(47L);
+        final double[] values = parallel.getValues();
+        for (int i = 0; i < values.length; i += 2) {
+            assertEquals("Channel", again.nextInt(100000), values[i], 0.0);
+            assertEquals("Counts", again.nextGaussian(), values[i + 1], 0.0);
+        }
+    }
+
+    /**
+     * Tests that a short line is found in the last slice of a large file.
+     */
+    @Test
+    public void testRaggedLineInParallel() {
+        final StringBuilder text = new StringBuilder(LARGE_SIZE + 16);
+        while (text.length() < LARGE_SIZE) {
+            text.append("1 2 3\n");
+        }
+        text.append("4 5\n1 2 3\n");
+        assertRejected(text.toString(), THREADS);
+    }
+}
@@ -0,0 +1,148 @@
+package test.io;
+
+import static org.junit.Assert.assertEquals;
+import jam.io.AsciiWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that <code>AsciiWriter</code> writes exactly what a
+ * <code>PrintWriter</code> would.
+ * @see AsciiWriter
+ */
+public final class AsciiWriterTest {// NOPMD
+
+    /* small, so that values often straddle a flush */
+    private static final int BUFFER = 64;
+
+    private static final int RANDOM_VALUES = 200000;
+
+    private transient ByteArrayOutputStream bytes;
+
+    private transient AsciiWriter writer;
+
+    private transient StringWriter expected;
+
+    private transient PrintWriter printer;
+
+    /**
+     * Creates a writer and the <code>PrintWriter</code> to compare it with.
+     */
+    @Before
+    public void setUp() {
+        bytes = new ByteArrayOutputStream();
+        writer = new AsciiWriter(bytes, BUFFER);
+        expected = new StringWriter();
+        printer = new PrintWriter(expected);
+    }
+
+    private void print(final int value) throws IOException {
+        writer.print(value);
+        writer.print(" ");
+        printer.print(value);
+        printer.print(" ");
+    }
+
+    private void print(final double value) throws IOException {
+        writer.print(value);
+        writer.println();
+        printer.print(value);
+        printer.println();
+    }
+
+    private void assertSame() throws IOException {
+        writer.flush();
+        printer.flush();
+        assertEquals("Expected same text as PrintWriter.", expected
+                .toString(), new String(bytes.toByteArray(),
+                StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Tests integers at every change in the number of digits, and the
+     * extremes.
+     * @throws IOException
+     *             never
+     */
+    @Test
+    public void testIntBoundaries() throws IOException {
+        int power = 1;
+        for (int digits = 1; digits <= 10; digits++) {
+            for (int value : new int[] {power - 1, power, power + 1 }) {
+                print(value);
+                print(-value);
+            }
+            power *= digits < 10 ? 10 : 1;
+        }
+        print(0);
+        print(Integer.MAX_VALUE);
+        print(Integer.MIN_VALUE);
+        print(Integer.MIN_VALUE + 1);
+        assertSame();
+    }
+
+    /**
+     * Tests many random integers, of every length, with lines between.
+     * @throws IOException
+     *             never
+     */
+    @Test
+    public void testRandomInts() throws IOException {
+        final Random random = new Random(46L);
+        for (int i = 0; i < RANDOM_VALUES; i++) {
+            /* a random number of bits, so short values are as common */
+            print(random.nextInt() >> random.nextInt(32));
+            if (i % 16 == 15) {
+                writer.println();
+                printer.println();
+            }
+        }
+        assertSame();
+    }
+
+    /**
+     * Tests doubles, including the special values.
+     * @throws IOException
+     *             never
+     */
+    @Test
+    public void testDoubles() throws IOException {
+        final Random random = new Random(46L);
+        for (int i = 0; i < RANDOM_VALUES / 10; i++) {
+            print(random.nextGaussian()
+                    * Math.pow(10, random.nextInt(40) - 20));
+        }
+        for (double value : new double[] {0.0, -0.0, Double.NaN,
+                Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+                Double.MIN_VALUE, Double.MAX_VALUE, 1e-3, 1e7 }) {
+            print(value);
+        }
+        assertSame();
+    }
+
+    /**
+     * Tests text longer than the buffer, between numbers.
+     * @throws IOException
+     *             never
+     */
+    @Test
+    public void testLongText() throws IOException {
+        final StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 3 * BUFFER; i++) {
+            text.append((char) ('a' + i % 26));
+        }
+        print(12345);
+        writer.print(text.toString());
+        printer.print(text.toString());
+        print(-678);
+        assertSame();
+    }
+}
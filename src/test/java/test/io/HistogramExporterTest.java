@@ -0,0 +1,164 @@
+package test.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import injection.GuiceInjector;
+import jam.data.AbstractHistogram;
+import jam.data.DataBase;
+import jam.data.Factory;
+import jam.data.Group;
+import jam.io.HistogramExporter;
+import jam.io.ImpExpASCII;
+import jam.util.FileUtilities;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests exporting many histograms at once.
+ * @see HistogramExporter
+ */
+public final class HistogramExporterTest {// NOPMD
+
+    private static final int THREADS = 4;
+
+    private static final int PER_GROUP = 20;
+
+    private transient File dir;
+
+    private transient HistogramExporter exporter;
+
+    private transient final List<AbstractHistogram> histograms = new ArrayList<>();
+
+    /**
+     * Creates histograms in two groups, and a directory to export them to.
+     * @throws IOException
+     *             if the directory can't be created
+     */
+    @Before
+    public void setUp() throws IOException {
+        DataBase.getInstance().clearAllLists();
+        dir = Files.createTempDirectory("export").toFile();
+        exporter = new HistogramExporter(GuiceInjector
+                .getObjectInstance(ImpExpASCII.class), GuiceInjector
+                .getObjectInstance(FileUtilities.class), THREADS);
+        for (String groupName : new String[] {"first", "second" }) {
+            final Group group = Factory.createGroup(groupName,
+                    Group.Type.FILE);
+            for (int i = 0; i < PER_GROUP; i++) {
+                histograms.add(Factory.createHistogram(group, new int[] {i,
+                        2 * i, 3 * i }, "hist" + i));
+            }
+        }
+    }
+
+    /**
+     * Deletes the directory and all exported.
+     * @throws IOException
+     *             if the files can't be listed
+     */
+    @After
+    public void tearDown() throws IOException {
+        DataBase.getInstance().clearAllLists();
+        try (Stream<Path> paths = Files.walk(dir.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile)
+                    .forEach(File::delete);
+        }
+    }
+
+    /**
+     * Tests that each histogram is written to
+     * <code>&lt;dir&gt;/&lt;group&gt;/&lt;name&gt;.&lt;ext&gt;</code>, with
+     * its own counts, and that progress reaches every histogram.
+     * @throws Exception
+     *             if the export is interrupted or a file can't be read
+     */
+    @Test
+    public void testLayout() throws Exception {
+        final AtomicInteger progress = new AtomicInteger();
+        final List<File> files = exporter.export(histograms, dir,
+                done -> progress.accumulateAndGet(done, Math::max));
+        assertEquals("Expected every histogram written.", histograms.size(),
+                files.size());
+        assertEquals("Expected progress to the end.", histograms.size(),
+                progress.get());
+        for (String groupName : new String[] {"first", "second" }) {
+            for (int i = 0; i < PER_GROUP; i++) {
+                final File file = new File(new File(dir, groupName), "hist"
+                        + i + ".dat");
+                assertTrue("Expected " + file, files.contains(file));
+                final String text = new String(Files.readAllBytes(file
+                        .toPath()), StandardCharsets.US_ASCII);
+                assertTrue("Expected counts in " + file, text.contains(" "
+                        + 3 * i));
+            }
+        }
+    }
+
+    /**
+     * Tests that histograms which can't be written don't stop the others.
+     * @throws Exception
+     *             if the export is interrupted
+     */
+    @Test
+    public void testPartialFailure() throws Exception {
+        /* a file where the first group's directory should be */
+        assertTrue("Expected file created.", new File(dir, "first")
+                .createNewFile());
+        final List<File> files = exporter.export(histograms, dir, done -> {
+            // not followed here
+        });
+        assertEquals("Expected the second group written.", PER_GROUP, files
+                .size());
+        for (File file : files) {
+            assertEquals("Expected only the second group.", "second", file
+                    .getParentFile().getName());
+            assertTrue("Expected " + file, file.isFile());
+        }
+    }
+
+    /**
+     * Tests that interrupting the caller stops the export, leaving the
+     * histograms not yet begun unwritten.
+     * @throws InterruptedException
+     *             if interrupted waiting for the export to settle
+     */
+    @Test
+    public void testCancel() throws InterruptedException {
+        final List<AbstractHistogram> many = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            many.addAll(histograms);
+        }
+        final AtomicInteger reported = new AtomicInteger();
+        Thread.currentThread().interrupt();
+        try {
+            exporter.export(many, dir, done -> reported.incrementAndGet());
+            fail("Expected the export to be interrupted.");
+        } catch (InterruptedException expected) {
+            assertFalse("Expected interrupt consumed.", Thread.interrupted());
+        }
+        /* let any histograms already begun finish */
+        int last;
+        int count = 0;
+        do {
+            last = reported.get();
+            Thread.sleep(100);
+        } while (last != reported.get() && ++count < 50);
+        assertTrue("Expected most histograms never exported.", reported
+                .get() < many.size() / 2);
+    }
+}
@@ -1,11 +1,16 @@
 package test.io;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import injection.GuiceInjector;
 import jam.data.AbstractHistogram;
 import jam.data.Group;
+import jam.data.HistDouble1D;
+import jam.data.HistDouble2D;
 import jam.io.ImpExpASCII;
 import jam.io.ImpExpException;
 import jam.util.FileUtilities;
@@ -13,6 +18,9 @@ import jam.util.FileUtilities;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 
 import javax.swing.JFrame;
 
@@ -38,9 +46,12 @@ public final class ImpExpASCIITest {// NOPMD
 
     private static final String HISTNAME = "oneDtest";
 
+    /* more than the 8 MB below which a file is parsed on one thread */
+    private static final int LARGE_SIZE = 9 << 20;
+
     private transient ImpExpASCII impExp;
 
-    private transient File temp1, temp2;
+    private transient File temp1, temp2, temp3;
 
     private void appendDataAndClose(final FileWriter writer)
             throws IOException {
@@ -58,14 +69,34 @@ public final class ImpExpASCIITest {// NOPMD
                 Math.round(hist.getArea()));
     }
 
-    private void readHistDataAndCheck(final File file) throws ImpExpException {
-        impExp.openFile(file);
+    private AbstractHistogram readHist(final File file)
+            throws ImpExpException {
+        assertTrue("Expected file to be imported.", impExp.openFile(file));
         final String groupName = GuiceInjector.getObjectInstance(
                 FileUtilities.class).removeExtensionFileName(file.getName());
         final Group importGroup = jam.data.Warehouse.getGroupCollection().get(
                 groupName);
-        final AbstractHistogram hist = importGroup.histograms.getList().get(0);
-        this.assertCorrectHistogramProperties(hist);
+        return importGroup.histograms.getList().get(0);
+    }
+
+    private void readHistDataAndCheck(final File file) throws ImpExpException {
+        this.assertCorrectHistogramProperties(readHist(file));
+    }
+
+    private AbstractHistogram readHist(final String text) throws IOException,
+            ImpExpException {
+        Files.write(temp3.toPath(), text.getBytes(StandardCharsets.US_ASCII));
+        return readHist(temp3);
+    }
+
+    private double[] read1D(final String text) throws IOException,
+            ImpExpException {
+        return ((HistDouble1D) readHist(text)).getCounts();
+    }
+
+    private double[][] read2D(final String text) throws IOException,
+            ImpExpException {
+        return ((HistDouble2D) readHist(text)).getCounts();
     }
 
     /**
@@ -82,6 +113,7 @@ public final class ImpExpASCIITest {// NOPMD
             appendDataAndClose(writer);
             temp2 = File.createTempFile(ASCIITEST, ".txt");
             appendDataAndClose(new FileWriter(temp2));
+            temp3 = File.createTempFile(ASCIITEST, ".txt");
         } catch (IOException ioe) {
             fail(ioe.getMessage());
         }
@@ -95,6 +127,11 @@ public final class ImpExpASCIITest {// NOPMD
     @After
     public void tearDown() {
         AbstractHistogram.clearList();
+        for (File file : new File[] {temp1, temp2, temp3 }) {
+            if (file != null) {
+                file.delete();
+            }
+        }
     }
 
     /**
@@ -110,4 +147,113 @@ public final class ImpExpASCIITest {// NOPMD
         }
     }
 
+    /**
+     * Tests one number per line: counts from channel 0.
+     * @throws Exception
+     *             if the file can't be written or imported
+     */
+    @Test
+    public void testOneColumn() throws Exception {
+        assertArrayEquals("Expected counts in order.", new double[] {5, 6.5,
+                0, 7 }, read1D("5\n6.5\n\n0\n7\n"), 0.0);
+    }
+
+    /**
+     * Tests two numbers per line: channel and counts, in any order.
+     * @throws Exception
+     *             if the file can't be written or imported
+     */
+    @Test
+    public void testTwoColumns() throws Exception {
+        assertArrayEquals("Expected counts in given channels.", new double[] {
+                1, 0, 4 }, read1D("2 4\r\n0 1\r\n"), 0.0);
+    }
+
+    /**
+     * Tests three numbers per line: x-channel, y-channel and counts.
+     * @throws Exception
+     *             if the file can't be written or imported
+     */
+    @Test
+    public void testThreeColumns() throws Exception {
+        final double[][] counts = read2D("title\n0 0 1\n1 2 5\n");
+        assertArrayEquals("Expected row 0.", new double[] {1, 0, 0 },
+                counts[0], 0.0);
+        assertArrayEquals("Expected row 1.", new double[] {0, 0, 5 },
+                counts[1], 0.0);
+    }
+
+    /**
+     * Tests four or more numbers per line: one line per x-channel.
+     * @throws Exception
+     *             if the file can't be written or imported
+     */
+    @Test
+    public void testMatrix() throws Exception {
+        final double[][] counts = read2D("0\t1\t2\t3\t\n2\t3\t4\t5\t\n");
+        assertEquals("Expected x-channels.", 2, counts.length);
+        assertArrayEquals("Expected row 0.", new double[] {0, 1, 2, 3 },
+                counts[0], 0.0);
+        assertArrayEquals("Expected row 1.", new double[] {2, 3, 4, 5 },
+                counts[1], 0.0);
+    }
+
+    /**
+     * Tests signs, exponents, NaN and numbers with more digits than fit in a
+     * long, compared with <code>Double.parseDouble()</code>.
+     * @throws Exception
+     *             if the file can't be written or imported
+     */
+    @Test
+    public void testNumberFormats() throws Exception {
+        final String[] tokens = {"+7", "-12", "-.5", "2.5E3", "-2.5e-2",
+                "1e+22", "1e23", "1e-400", "1e400", "NaN",
+                "1234567890123456789", "12345678901234567890123",
+                "0.12345678901234567890123", "9007199254740993" };
+        final double[] counts = read1D(String.join("\n", tokens));
+        assertEquals("Expected a channel for every number.", tokens.length,
+                counts.length);
+        for (int i = 0; i < tokens.length; i++) {
+            assertEquals(tokens[i], Double.valueOf(tokens[i]), Double
+                    .valueOf(counts[i]));
+        }
+    }
+
+    /**
+     * Tests a file large enough to be parsed on several threads.
+     * @throws Exception
+     *             if the file can't be written or imported
+     */
+    @Test
+    public void testLargeFile() throws Exception {
+        long written = 0;
+        int channels = 0;
+        try (Writer writer = Files.newBufferedWriter(temp3.toPath(),
+                StandardCharsets.US_ASCII)) {
+            while (written < LARGE_SIZE) {
+                final String line = channels + " " + channels % 1000 + "\n";
+                writer.write(line);
+                written += line.length();
+                channels++;
+            }
+        }
+        final double[] counts = ((HistDouble1D) readHist(temp3)).getCounts();
+        assertEquals("Expected every channel.", channels, counts.length);
+        for (int i = 0; i < channels; i++) {
+            assertEquals("Counts in channel " + i, i % 1000, counts[i], 0.0);
+        }
+    }
+
+    /**
+     * Tests that a line with a different number of numbers than the first
+     * stops the import, even if the total would fit.
+     * @throws Exception
+     *             if the file can't be written
+     */
+    @Test
+    public void testRaggedLines() throws Exception {
+        Files.write(temp3.toPath(), "1 2\n3\n4 5 6\n"
+                .getBytes(StandardCharsets.US_ASCII));
+        assertFalse("Expected import to fail.", impExp.openFile(temp3));
+    }
 }
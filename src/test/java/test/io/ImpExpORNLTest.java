@@ -0,0 +1,252 @@
+package test.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import injection.GuiceInjector;
+import jam.data.AbstractHistogram;
+import jam.data.Factory;
+import jam.data.Group;
+import jam.data.HistInt1D;
+import jam.data.HistInt2D;
+import jam.io.ImpExpORNL;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for importing and exporting Oak Ridge <code>.drr</code> and
+ * <code>.his</code> files.
+ * @see ImpExpORNL
+ */
+public final class ImpExpORNLTest {// NOPMD
+
+    private static final String SIGNATURE = "HHIRFDIR0001";
+
+    /* bytes in the header, before the directory entries */
+    private static final int HEADER = 12 + 9 * 4 + 80;
+
+    /* bytes in each directory entry */
+    private static final int ENTRY = 22 * 2 + 4 + 2 * 12 + 4 * 4 + 40;
+
+    private static final int[] COUNTS_1D = {0, 1, 2, 300, 32767, 4, 5 };
+
+    private static final int[][] COUNTS_2D = { {1, 2, 3 }, {4, 5, 6 },
+            {7, 8, 32000 }, {10, 11, 12 } };
+
+    private static final int[] LARGE_1D = {0, -1, 65536, Integer.MAX_VALUE,
+            Integer.MIN_VALUE, 123456789 };
+
+    private static final int[][] LARGE_2D = { {70000, -70000 }, {1, 2 },
+            {Integer.MAX_VALUE, 0 } };
+
+    private transient ImpExpORNL impExp;
+
+    private transient File dir, drr, his;
+
+    /**
+     * Creates the importer and a directory for the files.
+     * @throws IOException
+     *             if the directory can't be created
+     */
+    @Before
+    public void setUp() throws IOException {
+        AbstractHistogram.clearList();
+        impExp = GuiceInjector.getObjectInstance(ImpExpORNL.class);
+        impExp.setSilent();
+        dir = Files.createTempDirectory("ornl").toFile();
+        drr = new File(dir, "damm.drr");
+        his = new File(dir, "damm.his");
+    }
+
+    /**
+     * Deletes the files.
+     */
+    @After
+    public void tearDown() {
+        AbstractHistogram.clearList();
+        drr.delete();
+        his.delete();
+        dir.delete();
+    }
+
+    private static void putShorts(final ByteBuffer buffer,
+            final int... values) {
+        for (int value : values) {
+            buffer.putShort((short) value);
+        }
+    }
+
+    private static void putText(final ByteBuffer buffer, final String text,
+            final int length) {
+        final StringBuilder padded = new StringBuilder(text);
+        while (padded.length() < length) {
+            padded.append(' ');
+        }
+        buffer.put(padded.toString().getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /*
+     * Writes a 1-d histogram named "one", then a 2-d histogram named "two",
+     * with the given byte order and half-words per channel.
+     */
+    private void writeFiles(final ByteOrder order, final int halfWords,
+            final int[] counts1d, final int[][] counts2d) throws IOException {
+        final int sizeX = counts2d.length;
+        final int sizeY = counts2d[0].length;
+        final int channels = counts1d.length + sizeX * sizeY;
+        final ByteBuffer data = ByteBuffer.allocate(2 * halfWords * channels)
+                .order(order);
+        for (int count : counts1d) {
+            putCount(data, halfWords, count);
+        }
+        /* stored a y-row at a time */
+        for (int y = 0; y < sizeY; y++) {
+            for (int[] row : counts2d) {
+                putCount(data, halfWords, row[y]);
+            }
+        }
+        Files.write(his.toPath(), data.array());
+        final ByteBuffer index = ByteBuffer.allocate(HEADER + 2 * ENTRY + 2
+                * 4).order(order);
+        index.put(SIGNATURE.getBytes(StandardCharsets.US_ASCII));
+        index.putInt(2);
+        index.putInt(halfWords * channels);
+        for (int i = 0; i < 7; i++) {
+            index.putInt(0);
+        }
+        putText(index, "test", 80);
+        putEntry(index, 1, halfWords, counts1d.length, 0, 0, "one");
+        putEntry(index, 2, halfWords, sizeX, sizeY, halfWords
+                * counts1d.length, "two");
+        index.putInt(11);
+        index.putInt(12);
+        Files.write(drr.toPath(), index.array());
+    }
+
+    private static void putCount(final ByteBuffer data, final int halfWords,
+            final int count) {
+        if (halfWords == 1) {
+            data.putShort((short) count);
+        } else {
+            data.putInt(count);
+        }
+    }
+
+    private static void putEntry(final ByteBuffer index, final int dim,
+            final int halfWords, final int sizeX, final int sizeY,
+            final int offset, final String title) {
+        putShorts(index, dim, halfWords, 0, 0, 0, 0, sizeX, sizeY, 0, 0,
+                sizeX, sizeY, 0, 0, 0, 0, 0, 0, sizeX - 1, Math.max(sizeY - 1,
+                        0), 0, 0);
+        index.putInt(offset);
+        putText(index, "", 24);
+        for (int i = 0; i < 4; i++) {
+            index.putFloat(0.0f);
+        }
+        putText(index, title, 40);
+    }
+
+    private AbstractHistogram findHistogram(final String name) {
+        AbstractHistogram rval = null;
+        for (AbstractHistogram hist : AbstractHistogram.getHistogramList()) {
+            if (name.equals(hist.getName().trim())) {
+                rval = hist;
+            }
+        }
+        assertNotNull("Expected histogram " + name, rval);
+        return rval;
+    }
+
+    private void assertImported(final int[] counts1d, final int[][] counts2d)
+            throws Exception {
+        assertTrue("Expected import to succeed.", impExp.openFile(drr));
+        assertEquals("Expected two histograms.", 2, AbstractHistogram
+                .getHistogramList().size());
+        assertArrayEquals("Expected 1-d counts.", counts1d,
+                ((HistInt1D) findHistogram("one")).getCounts());
+        final int[][] read2d = ((HistInt2D) findHistogram("two")).getCounts();
+        assertEquals("Expected x-channels.", counts2d.length, read2d.length);
+        for (int x = 0; x < counts2d.length; x++) {
+            assertArrayEquals("Expected 2-d counts at x=" + x, counts2d[x],
+                    read2d[x]);
+        }
+    }
+
+    /**
+     * Tests half-word data written big-endian.
+     * @throws Exception
+     *             if the files can't be written or read
+     */
+    @Test
+    public void testHalfWordBigEndian() throws Exception {
+        writeFiles(ByteOrder.BIG_ENDIAN, 1, COUNTS_1D, COUNTS_2D);
+        assertImported(COUNTS_1D, COUNTS_2D);
+    }
+
+    /**
+     * Tests half-word data written little-endian.
+     * @throws Exception
+     *             if the files can't be written or read
+     */
+    @Test
+    public void testHalfWordLittleEndian() throws Exception {
+        writeFiles(ByteOrder.LITTLE_ENDIAN, 1, COUNTS_1D, COUNTS_2D);
+        assertImported(COUNTS_1D, COUNTS_2D);
+    }
+
+    /**
+     * Tests full-word data written big-endian.
+     * @throws Exception
+     *             if the files can't be written or read
+     */
+    @Test
+    public void testFullWordBigEndian() throws Exception {
+        writeFiles(ByteOrder.BIG_ENDIAN, 2, LARGE_1D, LARGE_2D);
+        assertImported(LARGE_1D, LARGE_2D);
+    }
+
+    /**
+     * Tests full-word data written little-endian.
+     * @throws Exception
+     *             if the files can't be written or read
+     */
+    @Test
+    public void testFullWordLittleEndian() throws Exception {
+        writeFiles(ByteOrder.LITTLE_ENDIAN, 2, LARGE_1D, LARGE_2D);
+        assertImported(LARGE_1D, LARGE_2D);
+    }
+
+    /**
+     * Tests that what Jam exports, it imports unchanged.
+     * @throws Exception
+     *             if the files can't be written or read
+     */
+    @Test
+    public void testRoundTrip() throws Exception {
+        final Group group = Factory.createGroup("ornl", Group.Type.FILE);
+        final AbstractHistogram one = Factory.createHistogram(group,
+                LARGE_1D.clone(), "one");
+        one.setNumber(11);
+        final AbstractHistogram two = Factory.createHistogram(group,
+                new int[][] {LARGE_2D[0].clone(), LARGE_2D[1].clone(),
+                        LARGE_2D[2].clone() }, "two");
+        two.setNumber(12);
+        impExp.saveFile(his, one);
+        assertEquals("Expected 4 bytes per channel.", 4 * (LARGE_1D.length
+                + 2 * LARGE_2D.length), his.length());
+        AbstractHistogram.clearList();
+        assertImported(LARGE_1D, LARGE_2D);
+        assertEquals("Expected number.", 11, findHistogram("one").getNumber());
+        assertEquals("Expected number.", 12, findHistogram("two").getNumber());
+    }
+}
@@ -0,0 +1,161 @@
+package test.plot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import jam.data.AbstractHistogram;
+import jam.data.DataBase;
+import jam.data.Factory;
+import jam.data.Group;
+import jam.plot.HistogramRenderer;
+import jam.plot.color.PlotColorMap;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests drawing histograms to images without a display.
+ * @see HistogramRenderer
+ */
+public final class HistogramRendererTest {// NOPMD
+
+    private static final int WIDTH = 320;
+
+    private static final int HEIGHT = 240;
+
+    private static final int SIZE = 64;
+
+    private transient HistogramRenderer renderer;
+
+    private transient AbstractHistogram oneD, twoD;
+
+    private transient Group group;
+
+    private transient File dir;
+
+    /**
+     * Runs without a display, as on a server writing a run logbook.
+     */
+    @BeforeClass
+    public static void setHeadless() {
+        System.setProperty("java.awt.headless", "true");
+    }
+
+    /**
+     * Creates a 1-d and a 2-d histogram with counts throughout.
+     * @throws IOException
+     *             if the directory can't be created
+     */
+    @Before
+    public void setUp() throws IOException {
+        DataBase.getInstance().clearAllLists();
+        group = Factory.createGroup("rendered", Group.Type.FILE);
+        final int[] counts1d = new int[SIZE];
+        final int[][] counts2d = new int[SIZE][SIZE];
+        for (int x = 0; x < SIZE; x++) {
+            counts1d[x] = 10 + x;
+            for (int y = 0; y < SIZE; y++) {
+                counts2d[x][y] = 1 + x + y;
+            }
+        }
+        oneD = Factory.createHistogram(group, counts1d, "oneD");
+        twoD = Factory.createHistogram(group, counts2d, "twoD");
+        renderer = new HistogramRenderer(WIDTH, HEIGHT, "png");
+        dir = Files.createTempDirectory("render").toFile();
+    }
+
+    /**
+     * Deletes the images written.
+     */
+    @After
+    public void tearDown() {
+        DataBase.getInstance().clearAllLists();
+        final File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                assertTrue("Expected deleted: " + file, file.delete());
+            }
+        }
+        assertTrue("Expected deleted: " + dir, dir.delete());
+    }
+
+    private static int countPixels(final BufferedImage image, final int rgb) {
+        int rval = 0;
+        for (int x = 0; x < image.getWidth(); x++) {
+            for (int y = 0; y < image.getHeight(); y++) {
+                if ((image.getRGB(x, y) & 0xffffff) == rgb) {
+                    rval++;
+                }
+            }
+        }
+        return rval;
+    }
+
+    private static void assertDrawn(final BufferedImage image) {
+        assertEquals("Expected width.", WIDTH, image.getWidth());
+        assertEquals("Expected height.", HEIGHT, image.getHeight());
+        final int background = PlotColorMap.getInstance().getBackground()
+                .getRGB() & 0xffffff;
+        assertEquals("Expected background in corner.", background, image
+                .getRGB(0, 0) & 0xffffff);
+        assertEquals("Expected background in corner.", background, image
+                .getRGB(WIDTH - 1, HEIGHT - 1) & 0xffffff);
+        assertTrue("Expected something drawn.",
+                countPixels(image, background) < WIDTH * HEIGHT);
+    }
+
+    /**
+     * Tests that a 1-d histogram is drawn in the histogram color.
+     */
+    @Test
+    public void testRender1D() {
+        final BufferedImage image = renderer.render(oneD);
+        assertDrawn(image);
+        final int line = PlotColorMap.getInstance().getHistogram().getRGB()
+                & 0xffffff;
+        assertTrue("Expected histogram line.",
+                countPixels(image, line) > SIZE);
+    }
+
+    /**
+     * Tests that a 2-d histogram fills much of the plot with colors other
+     * than the background and foreground.
+     */
+    @Test
+    public void testRender2D() {
+        final BufferedImage image = renderer.render(twoD);
+        assertDrawn(image);
+        final PlotColorMap map = PlotColorMap.getInstance();
+        final int plain = countPixels(image,
+                map.getBackground().getRGB() & 0xffffff)
+                + countPixels(image, map.getForeground().getRGB() & 0xffffff);
+        assertTrue("Expected counts colored.", WIDTH * HEIGHT - plain > WIDTH
+                * HEIGHT / 4);
+    }
+
+    /**
+     * Tests that each histogram is written to a PNG image of the given size.
+     * @throws IOException
+     *             if an image can't be written or read
+     */
+    @Test
+    public void testWritePNG() throws IOException {
+        final List<File> files = renderer.write(group, dir);
+        assertEquals("Expected an image per histogram.", 2, files.size());
+        for (AbstractHistogram hist : new AbstractHistogram[] {oneD, twoD }) {
+            final File file = renderer.getFile(dir, hist);
+            assertTrue("Expected " + file, files.contains(file));
+            final BufferedImage image = ImageIO.read(file);
+            assertDrawn(image);
+        }
+    }
+}
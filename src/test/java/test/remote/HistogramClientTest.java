@@ -0,0 +1,152 @@
+package test.remote;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import jam.data.AbstractHistogram;
+import jam.data.DataBase;
+import jam.data.Factory;
+import jam.data.Group;
+import jam.data.HistInt1D;
+import jam.data.HistInt2D;
+import jam.remote.HistogramClient;
+import jam.remote.HistogramServer;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that a client's copies of served histograms follow the originals.
+ * @see HistogramClient
+ */
+public final class HistogramClientTest {// NOPMD
+
+    private static final int SIZE_X = 64;
+
+    private static final int SIZE_Y = 32;
+
+    private static final long TIMEOUT = 5000;
+
+    private transient HistogramServer server;
+
+    private transient HistogramClient client;
+
+    private transient HistInt2D original2d;
+
+    private transient HistInt1D original1d;
+
+    /**
+     * Fills histograms, and serves them on the loopback interface.
+     * @throws IOException
+     *             if the server can't listen
+     */
+    @Before
+    public void setUp() throws IOException {
+        DataBase.getInstance().clearAllLists();
+        final Group group = Factory.createGroup("served", Group.Type.FILE);
+        final int[][] counts = new int[SIZE_X][SIZE_Y];
+        for (int x = 0; x < SIZE_X; x++) {
+            for (int y = 0; y < SIZE_Y; y++) {
+                counts[x][y] = (x * y) % 7 == 0 ? 0 : x + 100 * y;
+            }
+        }
+        original2d = (HistInt2D) Factory.createHistogram(group, counts,
+                "twoD");
+        original1d = (HistInt1D) Factory.createHistogram(group, new int[] {
+                1, 2, 3 }, "oneD");
+        server = new HistogramServer(InetAddress.getLoopbackAddress(), 0, 1);
+    }
+
+    /**
+     * Disconnects, and stops the server.
+     * @throws IOException
+     *             if either can't be closed
+     */
+    @After
+    public void tearDown() throws IOException {
+        if (client != null) {
+            client.close();
+        }
+        server.close();
+        DataBase.getInstance().clearAllLists();
+    }
+
+    private static AbstractHistogram find(
+            final List<AbstractHistogram> copies, final String name) {
+        AbstractHistogram rval = null;
+        for (AbstractHistogram copy : copies) {
+            if (name.equals(copy.getName().trim())) {
+                rval = copy;
+            }
+        }
+        assertNotNull("Expected copy of " + name, rval);
+        return rval;
+    }
+
+    private static boolean same(final HistInt2D copy,
+            final HistInt2D original) {
+        return Arrays.deepEquals(copy.getCounts(), original.getCounts());
+    }
+
+    private static void awaitSame(final HistInt2D copy,
+            final HistInt2D original) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (!same(copy, original) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        final int[][] expected = original.getCounts();
+        final int[][] actual = copy.getCounts();
+        for (int x = 0; x < SIZE_X; x++) {
+            assertArrayEquals("Expected row " + x, expected[x], actual[x]);
+        }
+    }
+
+    /**
+     * Tests that the copies start equal to the originals, that rows
+     * incremented afterwards reach the copy, and that histograms left
+     * unchanged are sent no more.
+     * @throws Exception
+     *             if the link fails, or interrupted waiting for updates
+     */
+    @Test
+    public void testUpdates() throws Exception {
+        client = new HistogramClient(InetAddress.getLoopbackAddress()
+                .getHostAddress(), server.getPort());
+        final List<AbstractHistogram> copies = client
+                .link(HistogramServer.MIN_INTERVAL);
+        final HistInt2D copy2d = (HistInt2D) find(copies, "twoD");
+        final HistInt1D copy1d = (HistInt1D) find(copies, "oneD");
+        assertTrue("Expected a copy, not the original.", copy2d != original2d);
+        awaitSame(copy2d, original2d);
+        for (int count = 0; count < 5; count++) {
+            original2d.inc(3, 4);
+            original2d.inc(40, 0);
+            original2d.inc(SIZE_X - 1, SIZE_Y - 1);
+        }
+        awaitSame(copy2d, original2d);
+        assertEquals("Expected incremented.", 5 + 3 + 400, copy2d
+                .getCounts()[3][4]);
+        final long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (!Arrays.equals(copy1d.getCounts(), original1d.getCounts())
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertArrayEquals("Expected 1-d copy.", original1d.getCounts(),
+                copy1d.getCounts());
+        /* every update of a 1-d histogram replaces the copy's counts */
+        final long settled = copy1d.getModificationCount();
+        final long settled2d = copy2d.getModificationCount();
+        Thread.sleep(5 * HistogramServer.MIN_INTERVAL);
+        assertEquals("Expected no update of unchanged 1-d histogram.",
+                settled, copy1d.getModificationCount());
+        assertEquals("Expected no update of unchanged 2-d histogram.",
+                settled2d, copy2d.getModificationCount());
+    }
+}
@@ -0,0 +1,131 @@
+package test.remote;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import jam.remote.HistogramServer;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the limits on which viewers the histogram server accepts.
+ * @see HistogramServer
+ */
+public final class HistogramServerTest {// NOPMD
+
+    private static final int TIMEOUT = 5000;
+
+    private transient HistogramServer server;
+
+    /**
+     * Starts a server on the loopback interface, for one viewer.
+     * @throws IOException
+     *             if the server can't listen
+     */
+    @Before
+    public void setUp() throws IOException {
+        server = new HistogramServer(InetAddress.getLoopbackAddress(), 0, 1);
+    }
+
+    /**
+     * Stops the server.
+     * @throws IOException
+     *             if the server can't be closed
+     */
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    private Socket connect() throws IOException {
+        final Socket rval = new Socket(InetAddress.getLoopbackAddress(),
+                server.getPort());
+        rval.setSoTimeout(TIMEOUT);
+        return rval;
+    }
+
+    /* whether the server closed the socket, or left it open for requests */
+    private static boolean isClosedByServer(final Socket socket)
+            throws IOException {
+        socket.setSoTimeout(TIMEOUT / 10);
+        try {
+            return socket.getInputStream().read() < 0;
+        } catch (SocketTimeoutException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Tests that viewers beyond the limit are turned away, and that a place
+     * comes free when a viewer leaves.
+     * @throws IOException
+     *             if a connection fails
+     * @throws InterruptedException
+     *             if interrupted waiting for the server
+     */
+    @Test
+    public void testMaxViewers() throws IOException, InterruptedException {
+        try (Socket first = connect()) {
+            assertFalse("Expected first viewer served.",
+                    isClosedByServer(first));
+            try (Socket second = connect()) {
+                assertTrue("Expected second viewer turned away.",
+                        isClosedByServer(second));
+            }
+        }
+        final long deadline = System.currentTimeMillis() + TIMEOUT;
+        boolean served = false;
+        while (!served && System.currentTimeMillis() < deadline) {
+            try (Socket next = connect()) {
+                served = !isClosedByServer(next);
+            }
+            if (!served) {
+                Thread.sleep(10);
+            }
+        }
+        assertTrue("Expected a viewer served after the first left.", served);
+    }
+
+    /**
+     * Tests that the server can't be reached on this machine's other
+     * interfaces, if it has any.
+     * @throws IOException
+     *             if the interfaces can't be listed
+     */
+    @Test
+    public void testLoopbackOnly() throws IOException {
+        InetAddress other = null;
+        for (NetworkInterface each : Collections.list(NetworkInterface
+                .getNetworkInterfaces())) {
+            if (each.isUp() && !each.isLoopback()) {
+                for (InetAddress address : Collections.list(each
+                        .getInetAddresses())) {
+                    if (address instanceof Inet4Address) {
+                        other = address;
+                    }
+                }
+            }
+        }
+        Assume.assumeNotNull(other);
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(other, server.getPort()),
+                    TIMEOUT);
+            fail("Expected no server on " + other);
+        } catch (ConnectException expected) {
+            // nothing listening there
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package test.remote;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import jam.data.HistogramType;
+import jam.remote.Protocol;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests the encodings shared by the histogram server and its clients.
+ * @see Protocol
+ */
+public final class ProtocolTest {// NOPMD
+
+    private static final int ROW = 1000;
+
+    private transient final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    private transient final DataOutputStream output = new DataOutputStream(
+            bytes);
+
+    private DataInputStream input() {
+        return new DataInputStream(new ByteArrayInputStream(bytes
+                .toByteArray()));
+    }
+
+    private int varintLength(final int value) throws IOException {
+        bytes.reset();
+        Protocol.writeVarint(output, value);
+        assertEquals("Expected value back.", value, Protocol
+                .readVarint(input()));
+        return bytes.size();
+    }
+
+    private int[] roundTrip(final int[] row) throws IOException {
+        bytes.reset();
+        Protocol.writeRow(output, row);
+        final int[] rval = new int[row.length];
+        Arrays.fill(rval, -99); // the reader must overwrite every channel
+        final DataInputStream input = input();
+        Protocol.readRow(input, rval);
+        assertEquals("Expected whole row read.", 0, input.available());
+        return rval;
+    }
+
+    private double[] roundTrip(final double[] row) throws IOException {
+        bytes.reset();
+        Protocol.writeRow(output, row);
+        final double[] rval = new double[row.length];
+        Arrays.fill(rval, -99.0);
+        final DataInputStream input = input();
+        Protocol.readRow(input, rval);
+        assertEquals("Expected whole row read.", 0, input.available());
+        return rval;
+    }
+
+    /**
+     * Tests variable-length integers at each change in length, and their
+     * lengths.
+     * @throws IOException
+     *             never
+     */
+    @Test
+    public void testVarint() throws IOException {
+        for (int bytesLong = 1; bytesLong <= 4; bytesLong++) {
+            final int limit = 1 << (7 * bytesLong);
+            assertEquals("Length of " + (limit - 1), bytesLong,
+                    varintLength(limit - 1));
+            assertEquals("Length of " + limit, bytesLong + 1,
+                    varintLength(limit));
+        }
+        assertEquals("Length of 0", 1, varintLength(0));
+        assertEquals("Length of max", 5, varintLength(Integer.MAX_VALUE));
+        assertEquals("Length of -1", 5, varintLength(-1));
+        assertEquals("Length of min", 5, varintLength(Integer.MIN_VALUE));
+        final Random random = new Random(49L);
+        for (int i = 0; i < 10000; i++) {
+            varintLength(random.nextInt());
+        }
+    }
+
+    /**
+     * Tests that a row with few non-zero channels, including negative ones,
+     * is sent as only those channels, each in few bytes.
+     * @throws IOException
+     *             never
+     */
+    @Test
+    public void testSparseIntRow() throws IOException {
+        final int[] row = new int[ROW];
+        row[0] = -1;
+        row[7] = 1;
+        row[500] = -64;
+        row[ROW - 1] = Integer.MIN_VALUE;
+        row[ROW - 2] = Integer.MAX_VALUE;
+        assertArrayEquals("Expected row back.", row, roundTrip(row));
+        /* kind, count, then gap and value for each of the 5 channels */
+        assertEquals("Expected sparse encoding.", 1 + 1 + 1 + 1 + 1 + 1 + 2
+                + 1 + 2 + 5 + 1 + 5, bytes.size());
+        final int[] empty = new int[ROW];
+        assertArrayEquals("Expected zeros back.", empty, roundTrip(empty));
+        assertEquals("Expected kind and count only.", 2, bytes.size());
+    }
+
+    /**
+     * Tests that a row with mostly non-zero channels is sent whole, with
+     * small counts of either sign in one byte each.
+     * @throws IOException
+     *             never
+     */
+    @Test
+    public void testDenseIntRow() throws IOException {
+        final int[] row = new int[ROW];
+        for (int i = 0; i < ROW; i++) {
+            row[i] = (i % 2 == 0 ? 1 : -1) * (i % 64);
+        }
+        assertArrayEquals("Expected row back.", row, roundTrip(row));
+        assertEquals("Expected one byte per channel.", 1 + ROW, bytes.size());
+        final Random random = new Random(49L);
+        for (int i = 0; i < ROW; i++) {
+            row[i] = random.nextInt();
+        }
+        assertArrayEquals("Expected random row back.", row, roundTrip(row));
+    }
+
+    /**
+     * Tests rows of doubles, sparse and dense.
+     * @throws IOException
+     *             never
+     */
+    @Test
+    public void testDoubleRows() throws IOException {
+        final double[] row = new double[ROW];
+        row[3] = 1.5;
+        row[ROW - 1] = Double.NaN;
+        row[600] = -Double.MAX_VALUE;
+        assertArrayEquals("Expected sparse row back.", row, roundTrip(row),
+                0.0);
+        assertTrue("Expected sparse encoding.", bytes.size() < 40);
+        for (int i = 0; i < ROW; i++) {
+            row[i] = i - 0.25;
+        }
+        row[10] = Double.NEGATIVE_INFINITY;
+        assertArrayEquals("Expected dense row back.", row, roundTrip(row),
+                0.0);
+        assertEquals("Expected every channel.", 1 + 8 * ROW, bytes.size());
+    }
+
+    /**
+     * Tests the codes sent for histogram types.
+     * @throws IOException
+     *             if a code isn't recognized
+     */
+    @Test
+    public void testTypes() throws IOException {
+        for (HistogramType type : new HistogramType[] {
+                HistogramType.ONE_DIM_INT, HistogramType.ONE_D_DOUBLE,
+                HistogramType.TWO_DIM_INT, HistogramType.TWO_D_DOUBLE }) {
+            assertSame("Expected type back.", type, Protocol
+                    .getType(Protocol.getCode(type)));
+        }
+    }
+}
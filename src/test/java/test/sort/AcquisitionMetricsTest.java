@@ -0,0 +1,180 @@
+package test.sort;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import jam.sort.AcquisitionMetrics;
+import jam.sort.Controller;
+import jam.sort.DiskDaemon;
+import jam.sort.NetDaemon;
+import jam.sort.RingBuffer;
+import jam.sort.RingBufferFactory;
+import jam.sort.SortDaemon;
+import jam.sort.SortException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the rates and Prometheus text made from known counts, sampled at
+ * chosen times instead of on a timer.
+ * @see AcquisitionMetrics
+ */
+public final class AcquisitionMetricsTest {// NOPMD
+
+    private static final long NANOS_PER_SAMPLE = 100000000L;
+
+    private transient NetDaemon net;
+
+    private transient AcquisitionMetrics metrics;
+
+    /**
+     * Creates metrics for daemons with known counts, and a sorting ring an
+     * eighth full.
+     * @throws SortException
+     *             if the data socket can't be opened
+     */
+    @Before
+    public void setUp() throws SortException {
+        final RingBufferFactory factory = new RingBufferFactory();
+        final RingBuffer sortRing = factory.create();
+        for (int i = 0; i < RingBuffer.NUMBER_BUFFERS / 8; i++) {
+            assertTrue("Buffer put.", sortRing
+                    .tryPutBuffer(new byte[RingBuffer.BUFFER_SIZE]));
+        }
+        final Controller controller = new Controller() {
+            public void atSortEnd() {
+                // not sorting
+            }
+
+            public void atWriteEnd() {
+                // not writing
+            }
+        };
+        net = new NetDaemon(sortRing, factory.create(true), "localhost", 0);
+        net.setPacketCount(500);
+        final SortDaemon sort = new SortDaemon(controller, null);
+        sort.setBufferCount(7);
+        sort.setEventCount(2000);
+        sort.setSortedCount(1000);
+        final DiskDaemon disk = new DiskDaemon(controller);
+        disk.setBufferCount(4);
+        metrics = new AcquisitionMetrics(net, sort, disk, sortRing, factory
+                .create(true), 0L);
+    }
+
+    /**
+     * Closes the metrics and the data socket.
+     */
+    @After
+    public void tearDown() {
+        metrics.close();
+        net.closeNet();
+    }
+
+    private void sampleForOneSecond() {
+        for (int i = 1; i <= 10; i++) {
+            metrics.sample(i * NANOS_PER_SAMPLE);
+        }
+    }
+
+    /**
+     * Rates are the counts' increase over the measured time.
+     */
+    @Test
+    public void testRates() {
+        sampleForOneSecond();
+        assertEquals("Packets per second.", 500.0, metrics
+                .getPacketsPerSecond(), 1e-9);
+        assertEquals("Events received per second.", 2000.0, metrics
+                .getEventsReceivedPerSecond(), 1e-9);
+        assertEquals("Events sorted per second.", 1000.0, metrics
+                .getEventsSortedPerSecond(), 1e-9);
+        assertEquals("Bytes written per second.",
+                4.0 * RingBuffer.BUFFER_SIZE, metrics
+                        .getBytesWrittenPerSecond(), 1e-9);
+        for (int i = 11; i <= 15; i++) {
+            metrics.sample(i * NANOS_PER_SAMPLE);
+        }
+        assertEquals("Rate kept until the next second.", 500.0, metrics
+                .getPacketsPerSecond(), 1e-9);
+        for (int i = 16; i <= 20; i++) {
+            metrics.sample(i * NANOS_PER_SAMPLE + NANOS_PER_SAMPLE * 10);
+        }
+        assertEquals("Unchanged count over two seconds.", 0.0, metrics
+                .getPacketsPerSecond(), 1e-9);
+    }
+
+    /**
+     * The whole Prometheus text for a known second of samples.
+     */
+    @Test
+    public void testPrometheus() {
+        sampleForOneSecond();
+        final String expected = "# HELP jam_packets_received_total Buffers received from the front end.\n"
+                + "# TYPE jam_packets_received_total counter\n"
+                + "jam_packets_received_total 500\n"
+                + "# HELP jam_buffers_sorted_total Buffers taken from the sorting ring.\n"
+                + "# TYPE jam_buffers_sorted_total counter\n"
+                + "jam_buffers_sorted_total 7\n"
+                + "# HELP jam_buffers_stored_total Buffers written to the event file.\n"
+                + "# TYPE jam_buffers_stored_total counter\n"
+                + "jam_buffers_stored_total 4\n"
+                + "# HELP jam_bytes_written_total Bytes written to the event file.\n"
+                + "# TYPE jam_bytes_written_total counter\n"
+                + "jam_bytes_written_total 32768\n"
+                + "# HELP jam_events_received_total Events read from sorted buffers.\n"
+                + "# TYPE jam_events_received_total counter\n"
+                + "jam_events_received_total 2000\n"
+                + "# HELP jam_events_sorted_total Events passed to the sort routine.\n"
+                + "# TYPE jam_events_sorted_total counter\n"
+                + "jam_events_sorted_total 1000\n"
+                + "# HELP jam_buffers_lost_total Buffers never received.\n"
+                + "# TYPE jam_buffers_lost_total counter\n"
+                + "jam_buffers_lost_total 0\n"
+                + "# HELP jam_buffers_duplicated_total Buffers received more than once.\n"
+                + "# TYPE jam_buffers_duplicated_total counter\n"
+                + "jam_buffers_duplicated_total 0\n"
+                + "# HELP jam_buffers_reordered_total Buffers received after a later one.\n"
+                + "# TYPE jam_buffers_reordered_total counter\n"
+                + "jam_buffers_reordered_total 0\n"
+                + "# HELP jam_sampling_fraction Fraction of events passed to the sort routine.\n"
+                + "# TYPE jam_sampling_fraction gauge\n"
+                + "jam_sampling_fraction 1\n"
+                + "# HELP jam_ring_used Buffers waiting in a ring.\n"
+                + "# TYPE jam_ring_used gauge\n"
+                + "jam_ring_used{ring=\"sort\"} 32\n"
+                + "jam_ring_used{ring=\"storage\"} 0\n"
+                + "# HELP jam_stage_per_second Rate over the last second.\n"
+                + "# TYPE jam_stage_per_second gauge\n"
+                + "jam_stage_per_second{stage=\"packets_received\"} 500\n"
+                + "jam_stage_per_second{stage=\"events_received\"} 2000\n"
+                + "jam_stage_per_second{stage=\"events_sorted\"} 1000\n"
+                + "jam_stage_per_second{stage=\"bytes_written\"} 32768\n"
+                + "# HELP jam_ring_occupancy Fraction of a ring in use, sampled every 100 ms.\n"
+                + "# TYPE jam_ring_occupancy histogram\n"
+                + "jam_ring_occupancy_bucket{ring=\"sort\",le=\"0\"} 0\n"
+                + "jam_ring_occupancy_bucket{ring=\"sort\",le=\"0.0625\"} 0\n"
+                + "jam_ring_occupancy_bucket{ring=\"sort\",le=\"0.125\"} 10\n"
+                + "jam_ring_occupancy_bucket{ring=\"sort\",le=\"0.25\"} 10\n"
+                + "jam_ring_occupancy_bucket{ring=\"sort\",le=\"0.5\"} 10\n"
+                + "jam_ring_occupancy_bucket{ring=\"sort\",le=\"0.75\"} 10\n"
+                + "jam_ring_occupancy_bucket{ring=\"sort\",le=\"0.9375\"} 10\n"
+                + "jam_ring_occupancy_bucket{ring=\"sort\",le=\"1\"} 10\n"
+                + "jam_ring_occupancy_bucket{ring=\"sort\",le=\"+Inf\"} 10\n"
+                + "jam_ring_occupancy_sum{ring=\"sort\"} 1.25\n"
+                + "jam_ring_occupancy_count{ring=\"sort\"} 10\n"
+                + "jam_ring_occupancy_bucket{ring=\"storage\",le=\"0\"} 10\n"
+                + "jam_ring_occupancy_bucket{ring=\"storage\",le=\"0.0625\"} 10\n"
+                + "jam_ring_occupancy_bucket{ring=\"storage\",le=\"0.125\"} 10\n"
+                + "jam_ring_occupancy_bucket{ring=\"storage\",le=\"0.25\"} 10\n"
+                + "jam_ring_occupancy_bucket{ring=\"storage\",le=\"0.5\"} 10\n"
+                + "jam_ring_occupancy_bucket{ring=\"storage\",le=\"0.75\"} 10\n"
+                + "jam_ring_occupancy_bucket{ring=\"storage\",le=\"0.9375\"} 10\n"
+                + "jam_ring_occupancy_bucket{ring=\"storage\",le=\"1\"} 10\n"
+                + "jam_ring_occupancy_bucket{ring=\"storage\",le=\"+Inf\"} 10\n"
+                + "jam_ring_occupancy_sum{ring=\"storage\"} 0\n"
+                + "jam_ring_occupancy_count{ring=\"storage\"} 10\n";
+        assertEquals("Prometheus text.", expected, metrics.toPrometheus());
+    }
+}
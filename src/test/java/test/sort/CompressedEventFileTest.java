@@ -0,0 +1,148 @@
+package test.sort;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import jam.sort.RingBuffer;
+import jam.sort.stream.CompressedEventFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests writing and reading compressed event files.
+ * @see CompressedEventFile
+ */
+public final class CompressedEventFileTest {// NOPMD
+
+    private static final int SIZE = RingBuffer.BUFFER_SIZE;
+
+    private static final int HEADER = 256;
+
+    private transient File file;
+
+    private transient byte[] data;
+
+    /**
+     * Makes event data of a header and twenty buffers, some random and some
+     * padding, and writes it compressed in awkward pieces.
+     * @throws IOException
+     *             if the file can't be written
+     */
+    @Before
+    public void setUp() throws IOException {
+        final Random random = new Random(42);
+        final ByteBuffer buffer = ByteBuffer.allocate(HEADER + 20 * SIZE);
+        buffer.position(HEADER);
+        while (buffer.hasRemaining()) {
+            buffer.putInt(buffer.position() % (3 * SIZE) < SIZE ? random
+                    .nextInt() : 0x01FFFFFF);
+        }
+        data = buffer.array();
+        file = File.createTempFile("compressed", ".evn");
+        writeFile(0);
+    }
+
+    /**
+     * Deletes the file.
+     */
+    @After
+    public void tearDown() {
+        assertTrue("Deleted file.", file.delete());
+    }
+
+    private void writeFile(final int threads) throws IOException {
+        try (CompressedEventFile.Output output = new CompressedEventFile.Output(
+                new FileOutputStream(file), threads)) {
+            output.write(data[0]);
+            int position = 1;
+            while (position < data.length) {
+                final int length = Math.min(1000, data.length - position);
+                output.write(data, position, length);
+                position += length;
+            }
+        }
+    }
+
+    private static byte[] readAll(final InputStream input) throws IOException {
+        final ByteArrayOutputStream rval = new ByteArrayOutputStream();
+        final byte[] bytes = new byte[3000];
+        int count = input.read(bytes);
+        while (count >= 0) {
+            rval.write(bytes, 0, count);
+            count = input.read(bytes);
+        }
+        return rval.toByteArray();
+    }
+
+    /**
+     * Tests that the data read back are the data written, also after
+     * skipping.
+     * @throws IOException
+     *             if the file can't be read
+     */
+    @Test
+    public void testRoundTrip() throws IOException {
+        assertTrue("Compressed.", CompressedEventFile.isCompressed(file));
+        assertTrue("Smaller.", file.length() < data.length / 2);
+        assertEquals("Length.", data.length, CompressedEventFile
+                .getLength(file));
+        try (InputStream input = CompressedEventFile.open(file)) {
+            assertArrayEquals("Data.", data, readAll(input));
+        }
+        final int skip = CompressedEventFile.BLOCK_SIZE + 1000;
+        try (InputStream input = CompressedEventFile.open(file)) {
+            assertEquals("Skipped.", skip, input.skip(skip));
+            assertArrayEquals("Data after skip.", Arrays.copyOfRange(data,
+                    skip, data.length), readAll(input));
+        }
+    }
+
+    /**
+     * Tests that blocks compressed on other threads are written in order.
+     * @throws IOException
+     *             if the file can't be written or read
+     */
+    @Test
+    public void testThreads() throws IOException {
+        writeFile(3);
+        assertEquals("Length.", data.length, CompressedEventFile
+                .getLength(file));
+        try (InputStream input = CompressedEventFile.open(file)) {
+            assertArrayEquals("Data.", data, readAll(input));
+        }
+    }
+
+    /**
+     * Tests that a file cut short, as by a crash, is read up to its last
+     * whole block.
+     * @throws IOException
+     *             if the file can't be read
+     */
+    @Test
+    public void testCutShort() throws IOException {
+        try (RandomAccessFile access = new RandomAccessFile(file, "rw")) {
+            access.setLength(access.length() / 2);
+        }
+        final long length = CompressedEventFile.getLength(file);
+        assertEquals("Whole blocks.", 0, length
+                % CompressedEventFile.BLOCK_SIZE);
+        assertFalse("Some data.", length == 0);
+        try (InputStream input = CompressedEventFile.open(file)) {
+            assertArrayEquals("Data.", Arrays.copyOf(data, (int) length),
+                    readAll(input));
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package test.sort;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import jam.sort.stream.EventCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests writing and replaying caches of decoded events.
+ * @see EventCache
+ */
+public final class EventCacheTest {// NOPMD
+
+    private static final String FORMAT = "test.Format";
+
+    private static final int SIZE = 3;
+
+    /* more than a chunk */
+    private static final int EVENTS = 5000;
+
+    private transient File eventFile;
+
+    /**
+     * Creates an event file for the cache to be of.
+     * @throws IOException
+     *             if the file can't be created
+     */
+    @Before
+    public void setUp() throws IOException {
+        eventFile = File.createTempFile("cache", ".evn");
+        Files.write(eventFile.toPath(), new byte[1000]);
+    }
+
+    /**
+     * Deletes the event file and any cache.
+     */
+    @After
+    public void tearDown() {
+        final File cache = EventCache.getCacheFile(eventFile);
+        assertTrue("Deleted cache.", !cache.exists() || cache.delete());
+        assertTrue("Deleted event file.", eventFile.delete());
+    }
+
+    private static int[] event(final int number) {
+        return new int[] { number, 0, -number };
+    }
+
+    private void writeCache(final boolean commit) throws IOException {
+        try (EventCache.Writer writer = new EventCache.Writer(eventFile,
+                FORMAT, SIZE)) {
+            for (int i = 0; i < EVENTS; i++) {
+                writer.add(event(i));
+            }
+            if (commit) {
+                writer.commit(7);
+            }
+        }
+    }
+
+    /**
+     * Tests that the events read back are the events written.
+     * @throws IOException
+     *             if the cache can't be written or read
+     */
+    @Test
+    public void testReplay() throws IOException {
+        writeCache(true);
+        try (EventCache.Reader reader = EventCache.open(eventFile, FORMAT,
+                SIZE)) {
+            assertEquals("Events.", EVENTS, reader.getEvents());
+            assertEquals("Buffers.", 7, reader.getBuffers());
+            final int[] event = new int[SIZE];
+            for (int i = 0; i < EVENTS; i++) {
+                assertTrue("More events.", reader.readEvent(event));
+                assertArrayEquals("Event.", event(i), event);
+            }
+            assertFalse("No more events.", reader.readEvent(event));
+        }
+    }
+
+    /**
+     * Tests that caches aren't used when out of date, for a different event
+     * size or stream, or unfinished.
+     * @throws IOException
+     *             if the cache can't be written or read
+     */
+    @Test
+    public void testStale() throws IOException {
+        writeCache(true);
+        assertNull("Other size.", EventCache.open(eventFile, FORMAT, SIZE + 1));
+        assertNull("Other stream.", EventCache.open(eventFile, "other", SIZE));
+        assertTrue("Touched.", eventFile.setLastModified(eventFile
+                .lastModified() - 10000));
+        assertNull("Modified.", EventCache.open(eventFile, FORMAT, SIZE));
+        writeCache(false);
+        assertFalse("Deleted unfinished.", EventCache.getCacheFile(eventFile)
+                .exists());
+    }
+}
@@ -0,0 +1,158 @@
+package test.sort;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import jam.sort.RingBuffer;
+import jam.sort.stream.AbstractEventInputStream;
+import jam.sort.stream.EventIndex;
+import jam.sort.stream.L002InputStream;
+import jam.sort.stream.L002Parameters;
+import jam.sort.stream.YaleCAEN_InputStream;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests indexing event files as they are written and afterwards.
+ * @see EventIndex
+ */
+public final class EventIndexTest {// NOPMD
+
+    private static final int SIZE = RingBuffer.BUFFER_SIZE;
+
+    private static final int HEADER = L002Parameters.HEADER_LENGTH;
+
+    private transient File eventFile;
+
+    /**
+     * Creates an empty event file.
+     * @throws IOException
+     *             if the file can't be created
+     */
+    @Before
+    public void setUp() throws IOException {
+        eventFile = File.createTempFile("index", ".evn");
+    }
+
+    /**
+     * Deletes the event file and its index.
+     */
+    @After
+    public void tearDown() {
+        assertTrue("Deleted index.", EventIndex.getIndexFile(eventFile)
+                .delete());
+        assertTrue("Deleted event file.", eventFile.delete());
+    }
+
+    /* header, the buffers, and a buffer cut short */
+    private void writeFile(final AbstractEventInputStream format,
+            final ByteBuffer... buffers) throws IOException {
+        try (FileOutputStream output = new FileOutputStream(eventFile);
+                EventIndex.Writer writer = new EventIndex.Writer(eventFile,
+                        format, SIZE)) {
+            output.write(new byte[HEADER]);
+            long time = 1000;
+            for (ByteBuffer buffer : buffers) {
+                output.write(buffer.array());
+                writer.add(buffer, time);
+                time += 10;
+            }
+            output.write(new byte[SIZE / 2]);
+        }
+    }
+
+    private static ByteBuffer caenBuffer(final int fill, final int... words) {
+        final ByteBuffer rval = ByteBuffer.allocate(SIZE);
+        for (int word : words) {
+            rval.putInt(word);
+        }
+        while (rval.hasRemaining()) {
+            rval.putInt(fill);
+        }
+        return rval;
+    }
+
+    private static ByteBuffer l002Buffer(final short fill,
+            final short... words) {
+        final ByteBuffer rval = ByteBuffer.allocate(SIZE);
+        for (short word : words) {
+            rval.putShort(word);
+        }
+        while (rval.hasRemaining()) {
+            rval.putShort(fill);
+        }
+        return rval;
+    }
+
+    /**
+     * Tests indexing CAEN buffers, which number their events, and that
+     * rebuilding the index finds the same.
+     * @throws IOException
+     *             if the files can't be written or read
+     */
+    @Test
+    public void testYaleCAEN() throws IOException {
+        final int pad = 0x01FFFFFF;
+        final int header = (5 << 27) | 0x2000000;
+        writeFile(new YaleCAEN_InputStream(false), caenBuffer(pad, header, 7,
+                0x4000000 | 42, 0x01bbbbbb), caenBuffer(pad, header,
+                0x4000000 | 43, 0x01CCCCCC, 2, 100, 200), caenBuffer(
+                0x01EEEEEE));
+        final EventIndex written = EventIndex.read(eventFile);
+        assertEquals("Time written.", 1010, written.getMillis(1));
+        assertEquals("Buffer written at time.", 2, written.findMillis(1015));
+        for (EventIndex index : new EventIndex[] {written,
+                EventIndex.rebuild(eventFile, new YaleCAEN_InputStream(false),
+                        SIZE) }) {
+            assertEquals("Buffers indexed.", 3, index.size());
+            assertTrue("Index covers file.", index.covers(eventFile));
+            assertEquals("Second buffer.", HEADER + SIZE, index.getOffset(1));
+            assertEquals("First event.", 42, index.getFirstEvent(0));
+            assertEquals("First event.", 43, index.getFirstEvent(1));
+            assertEquals("No event.", -1, index.getFirstEvent(2));
+            assertEquals("Buffer with event.", 1, index.findEvent(43));
+            assertArrayEquals("Scaler buffers.", new int[] {1}, index
+                    .getScalerBuffers());
+            assertEquals("Scaler block.", HEADER + SIZE + 8, index
+                    .getScalerOffset(1));
+            assertFalse("Run continues.", index.isEndRun(1));
+            assertTrue("Run ends.", index.isEndRun(2));
+            assertArrayEquals("Split.", new long[] {HEADER, HEADER + SIZE,
+                    HEADER + 3 * SIZE }, index.split(2));
+        }
+        assertEquals("Rebuilt without times.", -1, EventIndex.read(eventFile)
+                .getMillis(1));
+    }
+
+    /**
+     * Tests indexing L002 buffers, whose events are counted.
+     * @throws IOException
+     *             if the files can't be written or read
+     */
+    @Test
+    public void testL002() throws IOException {
+        final short end = L002Parameters.EVENT_END_MARKER;
+        final short param = (short) 0x8001;
+        final short scaler = (short) 0x8801;
+        writeFile(new L002InputStream(false), l002Buffer(
+                L002Parameters.BUFFER_END_MARKER, param, (short) 5, end,
+                param, (short) 7, end, scaler, (short) 0, (short) 9),
+                l002Buffer(L002Parameters.RUN_END_MARKER, param, (short) 6,
+                        end));
+        final EventIndex index = EventIndex.read(eventFile);
+        assertEquals("Buffers indexed.", 2, index.size());
+        assertEquals("First event.", 0, index.getFirstEvent(0));
+        assertEquals("First event.", 2, index.getFirstEvent(1));
+        assertEquals("Scaler value.", HEADER + 12, index.getScalerOffset(0));
+        assertFalse("Run continues.", index.isEndRun(0));
+        assertTrue("Run ends.", index.isEndRun(1));
+    }
+}
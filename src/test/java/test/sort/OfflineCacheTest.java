@@ -0,0 +1,161 @@
+package test.sort;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import injection.GuiceInjector;
+import jam.data.Sorter;
+import jam.global.Broadcaster;
+import jam.global.GoodThread;
+import jam.sort.OfflineController;
+import jam.sort.SortDaemon;
+import jam.sort.stream.EventCache;
+import jam.sort.stream.EventException;
+import jam.sort.stream.YaleCAEN_InputStream;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests caching the events of files sorted offline.
+ * @see SortDaemon#setCacheEvents(boolean)
+ */
+public final class OfflineCacheTest {// NOPMD
+
+    /* holds scaler blocks as well as events */
+    private static final String DATA = "test/sort/YaleCAENTestData.evn";
+
+    private static final int EVENTS = 302;
+
+    private static final int EVENT_SIZE = 256;
+
+    private static final long TIMEOUT = 10;
+
+    private transient File eventFile;
+
+    /**
+     * Copies the event file to somewhere a cache may be written beside it.
+     * @throws IOException
+     *             if the file can't be copied
+     */
+    @Before
+    public void setUp() throws IOException {
+        eventFile = File.createTempFile("scalers", ".evn");
+        try (InputStream data = getClass().getClassLoader()
+                .getResourceAsStream(DATA)) {
+            Files.copy(data, eventFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Deletes the event file and any cache.
+     */
+    @After
+    public void tearDown() {
+        final File cache = EventCache.getCacheFile(eventFile);
+        assertTrue("Deleted cache.", !cache.exists() || cache.delete());
+        assertTrue("Deleted event file.", eventFile.delete());
+    }
+
+    /**
+     * Tests that a file with scaler values in its event stream is sorted
+     * in full, but not cached, since sorting from the cache would lose the
+     * scaler values.
+     * @throws Exception
+     *             if the daemon can't be set up, or interrupted waiting for
+     *             the sort
+     */
+    @Test
+    public void testScalersNotCached() throws Exception {
+        final YaleCAEN_InputStream stream = new YaleCAEN_InputStream(false);
+        final CountDownLatch sortEnded = new CountDownLatch(1);
+        final OfflineController controller = new OfflineController() {
+            private transient File open;
+
+            public boolean openNextFile() {
+                if (open != null) {
+                    return false;
+                }
+                open = eventFile;
+                try {
+                    stream.setInputStream(new BufferedInputStream(
+                            new FileInputStream(eventFile)));
+                    return stream.readHeader();
+                } catch (IOException | EventException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+
+            public File getOpenFile() {
+                return open;
+            }
+
+            public void atSortEnd() {
+                sortEnded.countDown();
+            }
+
+            public void atWriteEnd() {
+                // no writing here
+            }
+        };
+        final AtomicInteger sorted = new AtomicInteger();
+        final SortDaemon daemon = new SortDaemon(controller, GuiceInjector
+                .getObjectInstance(Broadcaster.class));
+        daemon.setup(stream, EVENT_SIZE);
+        daemon.setSorter(new CountingSorter(sorted));
+        daemon.setCacheEvents(true);
+        daemon.start();
+        daemon.setState(GoodThread.State.RUN);
+        assertTrue("Expected sort to end.", sortEnded.await(TIMEOUT,
+                TimeUnit.SECONDS));
+        assertEquals("Expected every event sorted.", EVENTS, sorted.get());
+        assertFalse("Expected no cache.", EventCache.getCacheFile(eventFile)
+                .exists());
+    }
+
+    private static final class CountingSorter implements Sorter {
+
+        private transient final AtomicInteger count;
+
+        CountingSorter(final AtomicInteger count) {
+            this.count = count;
+        }
+
+        public int getBufferSize() {
+            return 0;
+        }
+
+        public int getEventSize() {
+            return EVENT_SIZE;
+        }
+
+        public void initialize() {
+            // nothing to create
+        }
+
+        public double monitor(final String name) {
+            return 0.0;
+        }
+
+        public void setWriteEnabled(final boolean enable) {
+            // never writes
+        }
+
+        public void sort(final int[] dataWords) {
+            count.incrementAndGet();
+        }
+    }
+}
@@ -4,6 +4,7 @@ import injection.GuiceInjector;
 import jam.sort.RingBuffer;
 import jam.sort.RingBufferFactory;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
@@ -179,6 +180,29 @@ public final class RingBufferTest {// NOPMD
                 emptyRing.getUsedBuffers());
     }
 
+    /**
+     * Test putting a direct buffer, as received from a channel.
+     * @throws InterruptedException
+     *             if a get buffer operation fails
+     * @see RingBuffer#tryPutBuffer(ByteBuffer)
+     */
+    @Test
+    public void testPutByteBuffer() throws InterruptedException {
+        final byte[] buffer = ringFactory.freshBuffer();
+        Arrays.fill(buffer, (byte) 7);
+        final ByteBuffer packet = ByteBuffer
+                .allocateDirect(RingBuffer.BUFFER_SIZE);
+        packet.put(buffer).flip();
+        this.clear(ring);
+        Assert.assertTrue("Expected success putting buffer into ring.", ring
+                .tryPutBuffer(packet));
+        Assert.assertEquals("Expected position unchanged.", 0, packet
+                .position());
+        final byte[] out = ringFactory.freshBuffer();
+        ring.getBuffer(out);
+        Assert.assertArrayEquals(ARRAYS_NOT_EQUAL, buffer, out);
+    }
+
     /**
      * Test for <code>putBuffer()</code>.
      * @throws InterruptedException
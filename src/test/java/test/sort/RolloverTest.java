@@ -0,0 +1,247 @@
+package test.sort;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import injection.GuiceInjector;
+import jam.data.AbstractHistogram;
+import jam.data.DataBase;
+import jam.data.Factory;
+import jam.data.Group;
+import jam.data.HistInt1D;
+import jam.data.Scaler;
+import jam.global.GoodThread;
+import jam.global.RunInfo;
+import jam.io.FileOpenMode;
+import jam.io.hdf.HDFIO;
+import jam.sort.Controller;
+import jam.sort.DiskDaemon;
+import jam.sort.RingBuffer;
+import jam.sort.RingBufferFactory;
+import jam.sort.stream.EventIndex;
+import jam.sort.stream.L002InputStream;
+import jam.sort.stream.L002OutputStream;
+import jam.sort.stream.L002Parameters;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests rolling over from one run to the next without stopping.
+ * @see jam.sort.control.RunControl#rolloverRun()
+ */
+public final class RolloverTest {// NOPMD
+
+    private static final int EVENT_SIZE = 4;
+
+    /* key, date and title precede the run number in an L002 header */
+    private static final int RUN_NUMBER_OFFSET = 32 + 16 + 80;
+
+    private static final int HEADER_SIZE = 256;
+
+    private static final int SIZE = RingBuffer.BUFFER_SIZE;
+
+    private static final long TIMEOUT = 10;
+
+    private transient File first, second, hdf;
+
+    /**
+     * Deletes the files written.
+     */
+    @After
+    public void tearDown() {
+        for (File file : new File[] {first, second, hdf }) {
+            if (file != null) {
+                file.delete();
+                EventIndex.getIndexFile(file).delete();
+            }
+        }
+        DataBase.getInstance().clearAllLists();
+    }
+
+    private static byte[] createBuffer(final boolean endRun) {
+        final ByteBuffer buffer = ByteBuffer.allocate(SIZE);
+        while (buffer.hasRemaining()) {
+            buffer.putShort(L002Parameters.BUFFER_END_MARKER);
+        }
+        if (endRun) {
+            buffer.putShort(SIZE - 2, L002Parameters.RUN_END_MARKER);
+        }
+        return buffer.array();
+    }
+
+    private DiskDaemon createDaemon(final RingBuffer ring,
+            final CountDownLatch writeEnded) throws Exception {
+        final DiskDaemon rval = new DiskDaemon(new Controller() {
+            public void atSortEnd() {
+                // no sorting here
+            }
+
+            public void atWriteEnd() {
+                writeEnded.countDown();
+            }
+        });
+        rval.setDaemon(true);
+        rval.setRingBuffer(ring);
+        rval.setupOn(new L002InputStream(false), new L002OutputStream(
+                EVENT_SIZE));
+        return rval;
+    }
+
+    private static int readRunNumber(final File file) throws IOException {
+        try (DataInputStream input = new DataInputStream(new FileInputStream(
+                file))) {
+            input.skipBytes(RUN_NUMBER_OFFSET);
+            return input.readInt();
+        }
+    }
+
+    /**
+     * The event file opened at the end of run marker has the next run's
+     * number in its header, and gets the buffers after the marker.
+     * @throws Exception
+     *             if the daemon can't be set up or the files read
+     */
+    @Test
+    public void testNextEventFileHeader() throws Exception {
+        final RingBuffer ring = new RingBufferFactory().create();
+        final CountDownLatch writeEnded = new CountDownLatch(1);
+        final DiskDaemon daemon = createDaemon(ring, writeEnded);
+        final RunInfo info = RunInfo.getInstance();
+        info.runNumber = 7;
+        info.runTitle = "Rollover test";
+        info.runStartTime = new Date();
+        first = File.createTempFile("rollover7", ".evn");
+        second = File.createTempFile("rollover8", ".evn");
+        assertTrue("Deleted file to be rolled over to.", second.delete());
+        daemon.openEventOutputFile(first);
+        daemon.writeHeader();
+        final CompletableFuture<Void> rolled = daemon.expectRollover(second,
+                8);
+        daemon.setState(GoodThread.State.RUN);
+        daemon.start();
+        assertTrue("Buffer put.", ring.tryPutBuffer(createBuffer(false)));
+        assertTrue("Buffer put.", ring.tryPutBuffer(createBuffer(true)));
+        rolled.get(TIMEOUT, TimeUnit.SECONDS);
+        assertEquals("Run number when next file opened.", 8, info.runNumber);
+        assertTrue("Buffer put.", ring.tryPutBuffer(createBuffer(false)));
+        final long deadline = System.currentTimeMillis() + TIMEOUT * 1000;
+        while (daemon.getBufferCount() < 3
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        daemon.setState(GoodThread.State.STOP);
+        daemon.closeEventOutputFile();
+        assertEquals("Run number in ended run's header.", 7,
+                readRunNumber(first));
+        assertEquals("Run number in next run's header.", 8,
+                readRunNumber(second));
+        assertEquals("Length of ended run's file.", HEADER_SIZE + 2 * SIZE,
+                first.length());
+        assertEquals("Length of next run's file.", HEADER_SIZE + SIZE, second
+                .length());
+        assertEquals("Rollover doesn't end writing.", 1, writeEnded
+                .getCount());
+    }
+
+    /**
+     * A rollover given up before its marker arrives ends writing at the
+     * marker, as at the end of any run, and opens no new file.
+     * @throws Exception
+     *             if the daemon can't be set up
+     */
+    @Test
+    public void testCancelledRollover() throws Exception {
+        final RingBuffer ring = new RingBufferFactory().create();
+        final CountDownLatch writeEnded = new CountDownLatch(1);
+        final DiskDaemon daemon = createDaemon(ring, writeEnded);
+        first = File.createTempFile("rollover7", ".evn");
+        second = File.createTempFile("rollover8", ".evn");
+        assertTrue("Deleted file to be rolled over to.", second.delete());
+        daemon.openEventOutputFile(first);
+        final CompletableFuture<Void> ended = daemon.expectRollover(second,
+                8);
+        assertTrue("Expected rollover cancelled.", daemon.cancelRollover());
+        assertFalse("Expected nothing left to cancel.", daemon
+                .cancelRollover());
+        daemon.setState(GoodThread.State.RUN);
+        daemon.start();
+        assertTrue("Buffer put.", ring.tryPutBuffer(createBuffer(true)));
+        ended.get(TIMEOUT, TimeUnit.SECONDS);
+        assertTrue("Expected writing ended.", writeEnded.await(TIMEOUT,
+                TimeUnit.SECONDS));
+        daemon.setState(GoodThread.State.STOP);
+        daemon.closeEventOutputFile();
+        assertFalse("Expected no next file.", second.exists());
+    }
+
+    /**
+     * Scaler values frozen at rollover are kept while new values are read
+     * out, until released.
+     */
+    @Test
+    public void testFrozenScalers() {
+        final Group group = Factory.createGroup("rollover", Group.Type.SORT);
+        final Scaler scaler = Factory.createScaler(group, "frozen", 0);
+        Scaler.update(new int[] {5 }, 1);
+        Scaler.freezeAll();
+        Scaler.update(new int[] {9 }, 1);
+        assertEquals("Expected frozen value.", 5, scaler.getFrozenValue());
+        assertEquals("Expected new value.", 9, scaler.getValue());
+        Scaler.releaseFrozenAll();
+        assertEquals("Expected current value once released.", 9, scaler
+                .getFrozenValue());
+    }
+
+    /**
+     * The counts frozen at rollover are written, not those sorted since.
+     * @throws Exception
+     *             if the file can't be written or read
+     */
+    @Test
+    public void testFrozenCountsWritten() throws Exception {
+        final Group group = Factory.createGroup("rollover", Group.Type.SORT);
+        final HistInt1D hist = (HistInt1D) Factory.createHistogram(group,
+                new int[] {1, 2, 3, 4 }, "frozen");
+        AbstractHistogram.prepareRolloverAll();
+        AbstractHistogram.rolloverAll();
+        hist.setCounts(new int[] {9, 9, 9, 9 });
+        hdf = File.createTempFile("rollover", ".hdf");
+        final HDFIO hdfio = GuiceInjector.getObjectInstance(HDFIO.class);
+        hdfio.writeFrozen(hdf, group).get(TIMEOUT, TimeUnit.SECONDS);
+        AbstractHistogram.releaseFrozenAll();
+        assertArrayEquals("Counts after rollover unchanged by writing.",
+                new int[] {9, 9, 9, 9 }, hist.getCounts());
+        final CountDownLatch read = new CountDownLatch(1);
+        hdfio.setListener((message, errorMessage) -> read.countDown());
+        try {
+            assertTrue("Expected file to be read.", hdfio.readFile(
+                    FileOpenMode.OPEN, hdf));
+            assertTrue("Read within timeout.", read.await(TIMEOUT,
+                    TimeUnit.SECONDS));
+        } finally {
+            hdfio.removeListener();
+        }
+        HistInt1D readBack = null;
+        for (AbstractHistogram each : AbstractHistogram.getHistogramList()) {
+            if (each != hist && "frozen".equals(each.getName().trim())) {
+                readBack = (HistInt1D) each;
+            }
+        }
+        assertNotNull("Expected histogram in file.", readBack);
+        assertArrayEquals("Expected frozen counts in file.", new int[] {1, 2,
+                3, 4 }, readBack.getCounts());
+    }
+}
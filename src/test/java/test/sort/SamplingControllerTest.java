@@ -0,0 +1,117 @@
+package test.sort;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import jam.sort.RingBuffer;
+import jam.sort.SamplingController;
+
+import java.util.SplittableRandom;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the adaptive choice of events to sort online.
+ * @see SamplingController
+ */
+public final class SamplingControllerTest {// NOPMD
+
+    private static final double DELTA = 1.0e-9;
+
+    /* occupancy above which the ring is close to full */
+    private static final double CLOSE_TO_FULL = 1.0
+            - (double) RingBuffer.CLOSE_TO_CAPACITY
+            / RingBuffer.NUMBER_BUFFERS;
+
+    /* between target and close to full */
+    private static final double BEHIND = (SamplingController.TARGET_OCCUPANCY
+            + CLOSE_TO_FULL) / 2.0;
+
+    private transient SamplingController controller;
+
+    /**
+     * Creates a controller with reproducible random numbers.
+     */
+    @Before
+    public void setUp() {
+        controller = new SamplingController(new SplittableRandom(1));
+    }
+
+    /**
+     * Tests that every event is sorted while the ring stays below target.
+     */
+    @Test
+    public void testKeepingUp() {
+        for (int i = 0; i < 100; i++) {
+            controller.update(0.1);
+        }
+        assertEquals("Fraction sorted.", 1.0, controller.getFraction(), DELTA);
+        for (int i = 0; i < 100; i++) {
+            assertTrue("Every event sorted.", controller.sample());
+        }
+    }
+
+    /**
+     * Tests that a burst filling the ring up to the target, short of close
+     * to full, which the ring alone used to absorb, is still sorted whole.
+     */
+    @Test
+    public void testBurstBelowThreshold() {
+        final int buffers = RingBuffer.NUMBER_BUFFERS;
+        final int peak = (int) Math.floor(SamplingController.TARGET_OCCUPANCY
+                * buffers);
+        assertTrue("Burst short of close to full.", peak < buffers
+                - RingBuffer.CLOSE_TO_CAPACITY);
+        for (int used = 0; used <= peak; used++) {
+            controller.update((double) used / buffers);
+            assertTrue("Event sorted at " + used + " buffers.", controller
+                    .sample());
+        }
+        for (int used = peak; used >= 0; used--) {
+            controller.update((double) used / buffers);
+            assertTrue("Event sorted at " + used + " buffers.", controller
+                    .sample());
+        }
+        assertEquals("Fraction sorted.", 1.0, controller.getFraction(), DELTA);
+    }
+
+    /**
+     * Tests that the fraction falls while the ring stays above target, and
+     * recovers once it drains.
+     */
+    @Test
+    public void testFallingBehind() {
+        double last = 1.0;
+        for (int i = 0; i < 20; i++) {
+            final double fraction = controller.update(BEHIND);
+            assertTrue("Fraction should fall.", fraction < last);
+            last = fraction;
+        }
+        for (int i = 0; i < 1000; i++) {
+            controller.update(0.0);
+        }
+        assertEquals("Fraction recovered.", 1.0, controller.getFraction(),
+                DELTA);
+    }
+
+    /**
+     * Tests that events are sorted with the probability given by the
+     * fraction.
+     */
+    @Test
+    public void testUniformSampling() {
+        for (int i = 0; i < 10; i++) {
+            controller.update(BEHIND);
+        }
+        final double fraction = controller.getFraction();
+        final int trials = 100000;
+        int sampled = 0;
+        for (int i = 0; i < trials; i++) {
+            if (controller.sample()) {
+                sampled++;
+            }
+        }
+        assertEquals("Fraction of events sampled.", fraction, (double) sampled
+                / trials, 0.01);
+    }
+}
@@ -0,0 +1,159 @@
+package test.sort;
+
+import static org.junit.Assert.assertEquals;
+import jam.sort.SequenceTracker;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the counting and reordering of buffers by sequence number.
+ * @see SequenceTracker
+ */
+public final class SequenceTrackerTest {// NOPMD
+
+    private static final int OFFSET = 4;
+
+    private transient final List<Integer> passed = new ArrayList<>();
+
+    private transient SequenceTracker tracker;
+
+    /**
+     * Creates a tracker with a window of four buffers.
+     */
+    @Before
+    public void setUp() {
+        passed.clear();
+        tracker = new SequenceTracker(OFFSET, 4, buffer -> passed.add(buffer
+                .getInt(buffer.position() + OFFSET)));
+    }
+
+    private void send(final int... sequences) {
+        for (int sequence : sequences) {
+            final ByteBuffer buffer = ByteBuffer.allocate(16);
+            buffer.putInt(OFFSET, sequence);
+            tracker.accept(buffer);
+        }
+    }
+
+    private void assertPassed(final Integer... sequences) {
+        assertEquals("Buffers passed on.", List.of(sequences), passed);
+    }
+
+    private void assertCounts(final int lost, final int duplicates,
+            final int reordered) {
+        assertEquals("Buffers lost.", lost, tracker.getLostCount());
+        assertEquals("Buffers duplicated.", duplicates, tracker
+                .getDuplicateCount());
+        assertEquals("Buffers reordered.", reordered, tracker
+                .getReorderCount());
+    }
+
+    /**
+     * Tests that buffers in order are passed straight on.
+     */
+    @Test
+    public void testInOrder() {
+        send(7, 8, 9);
+        assertPassed(7, 8, 9);
+        assertCounts(0, 0, 0);
+    }
+
+    /**
+     * Tests that swapped buffers are put back in order.
+     */
+    @Test
+    public void testReorder() {
+        send(0, 2, 1, 3);
+        assertPassed(0, 1, 2, 3);
+        assertCounts(0, 0, 1);
+    }
+
+    /**
+     * Tests that a repeated buffer is dropped.
+     */
+    @Test
+    public void testDuplicate() {
+        send(0, 1, 1, 3, 3, 2);
+        assertPassed(0, 1, 2, 3);
+        assertCounts(0, 2, 1);
+    }
+
+    /**
+     * Tests that a gap wider than the window is given up on, and that the
+     * buffer is counted as reordered instead if it arrives after all.
+     */
+    @Test
+    public void testGap() {
+        send(0, 2, 3, 4, 5);
+        assertPassed(0, 2, 3, 4, 5);
+        assertCounts(1, 0, 0);
+        send(1);
+        assertPassed(0, 2, 3, 4, 5, 1);
+        assertCounts(0, 0, 1);
+    }
+
+    /**
+     * Tests that held buffers are passed on when flushed, e.g., at the end of
+     * a run.
+     */
+    @Test
+    public void testFlush() {
+        send(0, 3);
+        assertPassed(0);
+        tracker.flush();
+        assertPassed(0, 3);
+        assertCounts(2, 0, 0);
+    }
+
+    /**
+     * Tests that a new run may start counting again.
+     */
+    @Test
+    public void testRestart() {
+        send(100, 101);
+        tracker.restart();
+        send(0, 1);
+        assertPassed(100, 101, 0, 1);
+        assertCounts(0, 0, 0);
+    }
+
+    /**
+     * Tests that a jump far ahead, e.g. after an outage, counts every buffer
+     * in between as lost, and doesn't wait for them.
+     */
+    @Test
+    public void testJumpAhead() {
+        send(0, 1, 100000, 100001);
+        assertPassed(0, 1, 100000, 100001);
+        assertCounts(100000 - 2, 0, 0);
+        send(100003, 100002);
+        assertCounts(100000 - 2, 0, 1);
+    }
+
+    /**
+     * Tests that a jump far ahead with buffers held gives up on the gaps
+     * between them, and counts them lost too.
+     */
+    @Test
+    public void testJumpAheadWhileHolding() {
+        send(0, 2, 5000);
+        assertPassed(0, 2, 5000);
+        assertCounts(1 + 5000 - 3, 0, 0);
+    }
+
+    /**
+     * Tests that a jump far back is taken as the front end counting again,
+     * not as lost or duplicated buffers.
+     */
+    @Test
+    public void testJumpBack() {
+        send(100000, 100001, 0, 1);
+        assertPassed(100000, 100001, 0, 1);
+        assertCounts(0, 0, 0);
+    }
+}
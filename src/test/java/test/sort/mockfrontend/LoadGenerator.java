@@ -0,0 +1,278 @@
+package test.sort.mockfrontend;
+
+import jam.sort.RingBuffer;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.SocketAddress;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Headless replacement for <code>MessageSender.EventGenerator</code>, which
+ * sends L002 event buffers over UDP as fast as a given rate, optionally in
+ * bursts. The first event of every buffer carries the time it was sent, in
+ * extra parameters following the real ones, so that the sort routine can
+ * measure the latency from the wire to <code>sort()</code>.
+ * @see ThroughputBenchmark
+ */
+public final class LoadGenerator {
+
+    /**
+     * Number of parameters used for the send time, 15 bits each.
+     */
+    public static final int TIMESTAMP_PARAMETERS = 4;
+
+    private static final int PARAMETER_MARKER = 0x8000;
+
+    private static final int EVENT_END = 0xffff;
+
+    private static final int BUFFER_PAD = 0xfff0;
+
+    private static final int CHUNK_BITS = 15;
+
+    private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+
+    /* distinct buffers cycled through, so the sorter can't cache anything */
+    private static final int NUM_BUFFERS = 16;
+
+    /* below this, busy-wait rather than park, parking being too coarse */
+    private static final long SPIN_NANOS = 100000L;
+
+    private transient final byte[][] buffers = new byte[NUM_BUFFERS][];
+
+    private transient final int eventSize;
+
+    private transient final int eventsPerBuffer;
+
+    private transient final long epoch;
+
+    private transient final DatagramSocket socket;
+
+    private transient final SocketAddress target;
+
+    private transient int burstLength = 1;
+
+    private transient double burstFactor = 1.0;
+
+    private transient long sent = 0;
+
+    /**
+     * Creates a generator with the most events per buffer that fit.
+     * @param target
+     *            address of Jam's data socket
+     * @param eventSize
+     *            number of parameters in each event
+     * @param epoch
+     *            <code>System.nanoTime()</code> that send times are relative
+     *            to
+     * @throws IOException
+     *             if the socket can't be created
+     */
+    public LoadGenerator(final SocketAddress target, final int eventSize,
+            final long epoch) throws IOException {
+        this(target, eventSize, maxEventsPerBuffer(eventSize), epoch);
+    }
+
+    /**
+     * Creates a generator.
+     * @param target
+     *            address of Jam's data socket
+     * @param eventSize
+     *            number of parameters in each event
+     * @param eventsPerBuffer
+     *            number of events in each buffer
+     * @param epoch
+     *            <code>System.nanoTime()</code> that send times are relative
+     *            to
+     * @throws IOException
+     *             if the socket can't be created
+     */
+    public LoadGenerator(final SocketAddress target, final int eventSize,
+            final int eventsPerBuffer, final long epoch) throws IOException {
+        super();
+        if (eventsPerBuffer < 1
+                || eventsPerBuffer > maxEventsPerBuffer(eventSize)) {
+            throw new IllegalArgumentException(eventsPerBuffer
+                    + " events of size " + eventSize
+                    + " don't fit in a buffer.");
+        }
+        this.target = target;
+        this.eventSize = eventSize;
+        this.eventsPerBuffer = eventsPerBuffer;
+        this.epoch = epoch;
+        final Random random = new Random(eventSize);
+        for (int i = 0; i < NUM_BUFFERS; i++) {
+            buffers[i] = fillBuffer(random);
+        }
+        socket = new DatagramSocket();
+    }
+
+    /**
+     * @param eventSize
+     *            number of parameters in each event
+     * @return the most events that fit in a buffer, leaving room for the
+     *         send time and the buffer end marker
+     */
+    public static int maxEventsPerBuffer(final int eventSize) {
+        final int room = RingBuffer.BUFFER_SIZE - 4 * TIMESTAMP_PARAMETERS
+                - 2;
+        return room / (4 * eventSize + 2);
+    }
+
+    private byte[] fillBuffer(final Random random) {
+        final byte[] rval = new byte[RingBuffer.BUFFER_SIZE];
+        int index = 0;
+        for (int event = 0; event < eventsPerBuffer; event++) {
+            for (int param = 0; param < eventSize; param++) {
+                index = putShort(rval, index, PARAMETER_MARKER | (param + 1));
+                index = putShort(rval, index, random.nextInt(1 << 12));
+            }
+            if (event == 0) {
+                /* values filled in just before sending */
+                for (int chunk = 0; chunk < TIMESTAMP_PARAMETERS; chunk++) {
+                    index = putShort(rval, index, PARAMETER_MARKER
+                            | (eventSize + chunk + 1));
+                    index += 2;
+                }
+            }
+            index = putShort(rval, index, EVENT_END);
+        }
+        while (index < rval.length) {
+            index = putShort(rval, index, BUFFER_PAD);
+        }
+        return rval;
+    }
+
+    private static int putShort(final byte[] buffer, final int index,
+            final int value) {
+        buffer[index] = (byte) (value >> 8);
+        buffer[index + 1] = (byte) value;
+        return index + 2;
+    }
+
+    private void stamp(final byte[] buffer) {
+        final long time = System.nanoTime() - epoch;
+        int index = 4 * eventSize + 2;
+        for (int chunk = 0; chunk < TIMESTAMP_PARAMETERS; chunk++) {
+            putShort(buffer, index, (int) (time >>> (chunk * CHUNK_BITS))
+                    & CHUNK_MASK);
+            index += 4;
+        }
+    }
+
+    /**
+     * Reconstructs the send time from an event, as received by a sort
+     * routine whose event size is that of this generator plus
+     * <code>TIMESTAMP_PARAMETERS</code>.
+     * @param event
+     *            parameters of the event
+     * @param eventSize
+     *            number of real parameters, where the send time starts
+     * @return nanoseconds since the epoch when the buffer was sent, or -1 if
+     *         the event isn't the first in its buffer
+     */
+    public static long getSendTime(final int[] event, final int eventSize) {
+        long rval = 0;
+        boolean stamped = false;
+        for (int chunk = 0; chunk < TIMESTAMP_PARAMETERS; chunk++) {
+            final int value = event[eventSize + chunk];
+            rval |= (long) value << (chunk * CHUNK_BITS);
+            stamped |= value != 0;
+        }
+        return stamped ? rval : -1L;
+    }
+
+    /**
+     * Sends in bursts: <code>length</code> buffers at <code>factor</code>
+     * times the rate, followed by a pause such that the average rate is
+     * unchanged. A length of one means evenly spaced buffers.
+     * @param length
+     *            buffers per burst
+     * @param factor
+     *            rate within a burst relative to the average
+     */
+    public void setBurst(final int length, final double factor) {
+        if (length < 1 || factor < 1.0) {
+            throw new IllegalArgumentException("Invalid burst: " + length
+                    + " buffers at " + factor + "x");
+        }
+        burstLength = length;
+        burstFactor = factor;
+    }
+
+    /**
+     * @return number of events in each buffer
+     */
+    public int getEventsPerBuffer() {
+        return eventsPerBuffer;
+    }
+
+    /**
+     * @return total buffers sent
+     */
+    public long getBuffersSent() {
+        return sent;
+    }
+
+    /**
+     * Sends buffers at the given average rate for the given time.
+     * @param rate
+     *            buffers per second
+     * @param duration
+     *            nanoseconds to send for
+     * @return number of buffers sent
+     * @throws IOException
+     *             if sending fails
+     */
+    public long send(final double rate, final long duration)
+            throws IOException {
+        final double period = 1.0e9 * burstLength / rate;
+        final double spacing = 1.0e9 / (rate * burstFactor);
+        final DatagramPacket packet = new DatagramPacket(buffers[0],
+                RingBuffer.BUFFER_SIZE, target);
+        final long start = System.nanoTime();
+        final long end = start + duration;
+        long count = 0;
+        long now = start;
+        while (now < end) {
+            final long burst = count / burstLength;
+            final long due = start
+                    + (long) (burst * period + (count - burst * burstLength)
+                            * spacing);
+            now = waitUntil(due);
+            if (now >= end) {
+                break;
+            }
+            final byte[] buffer = buffers[(int) (count % NUM_BUFFERS)];
+            stamp(buffer);
+            packet.setData(buffer);
+            socket.send(packet);
+            count++;
+        }
+        sent += count;
+        return count;
+    }
+
+    private static long waitUntil(final long due) {
+        long now = System.nanoTime();
+        while (now < due) {
+            final long remaining = due - now;
+            if (remaining > SPIN_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_NANOS);
+            } else {
+                Thread.onSpinWait();
+            }
+            now = System.nanoTime();
+        }
+        return now;
+    }
+
+    /**
+     * Closes the socket.
+     */
+    public void close() {
+        socket.close();
+    }
+}
@@ -0,0 +1,417 @@
+package test.sort.mockfrontend;
+
+import jam.data.Sorter;
+import jam.global.GoodThread;
+import jam.sort.AcquisitionMetrics;
+import jam.sort.Controller;
+import jam.sort.DiskDaemon;
+import jam.sort.NetDaemon;
+import jam.sort.RingBuffer;
+import jam.sort.RingBufferFactory;
+import jam.sort.SortDaemon;
+import jam.sort.SortException;
+import jam.sort.stream.EventIndex;
+import jam.sort.stream.L002InputStream;
+import jam.sort.stream.L002OutputStream;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Measures the highest rate at which buffers pass from the network through
+ * <code>NetDaemon</code>, the ring buffers, <code>SortDaemon</code> and
+ * <code>DiskDaemon</code> without loss, with a <code>LoadGenerator</code> on
+ * the loopback interface and no GUI. The rate is raised step by step until
+ * buffers are dropped, by the kernel or because a ring buffer was full, or
+ * until the generator can't keep up. Every step reports the buffers lost,
+ * the smallest sampling fraction reached and percentiles of the latency from
+ * sending a buffer to sorting its first event.
+ * <p>
+ * Run with <code>mvn -Pbenchmark test-compile exec:java</code>. Settings are
+ * system properties, e.g., <code>-Dbench.eventSize=16</code>:
+ * </p>
+ * <dl>
+ * <dt>bench.port</dt>
+ * <dd>UDP port to receive on (10205)</dd>
+ * <dt>bench.eventSize</dt>
+ * <dd>parameters per event (8)</dd>
+ * <dt>bench.eventsPerBuffer</dt>
+ * <dd>events per buffer (as many as fit)</dd>
+ * <dt>bench.startRate</dt>
+ * <dd>buffers per second in the first step (1000)</dd>
+ * <dt>bench.maxRate</dt>
+ * <dd>give up above this rate (1000000)</dd>
+ * <dt>bench.step</dt>
+ * <dd>factor to raise the rate by each step (1.25)</dd>
+ * <dt>bench.seconds</dt>
+ * <dd>duration of each step (2)</dd>
+ * <dt>bench.burstLength, bench.burstFactor</dt>
+ * <dd>send bursts of this many buffers at this multiple of the rate (1, 1)</dd>
+ * <dt>bench.sortWork</dt>
+ * <dd>extra arithmetic per sorted event, to mimic heavier sort routines (0)</dd>
+ * <dt>bench.storage</dt>
+ * <dd>whether to write events to a temporary file (true)</dd>
+ * <dt>bench.compress</dt>
+ * <dd>whether to compress the event file (false)</dd>
+ * <dt>bench.metricsPort</dt>
+ * <dd>serve acquisition metrics on this local port while running (none)</dd>
+ * </dl>
+ * @see LoadGenerator
+ */
+public final class ThroughputBenchmark {
+
+    /* keep a reference so the level setting isn't garbage collected */
+    private static final Logger JAM_LOGGER = Logger.getLogger("jam");
+
+    private static final long MAX_DRAIN_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    /* fraction of the requested rate the generator must achieve */
+    private static final double MIN_ACHIEVED = 0.95;
+
+    private transient final int eventSize = Integer.getInteger(
+            "bench.eventSize", 8);
+
+    private transient final int eventsPerBuffer = Integer.getInteger(
+            "bench.eventsPerBuffer", LoadGenerator
+                    .maxEventsPerBuffer(eventSize));
+
+    private transient final double startRate = getDouble("bench.startRate",
+            1000.0);
+
+    private transient final double maxRate = getDouble("bench.maxRate",
+            1.0e6);
+
+    private transient final double step = getDouble("bench.step", 1.25);
+
+    private transient final long stepNanos = (long) (1.0e9 * getDouble(
+            "bench.seconds", 2.0));
+
+    private transient final boolean storage = Boolean.parseBoolean(System
+            .getProperty("bench.storage", "true"));
+
+    private transient final long epoch = System.nanoTime();
+
+    private transient final BenchmarkSorter sorter = new BenchmarkSorter(
+            eventSize, Integer.getInteger("bench.sortWork", 0), epoch);
+
+    private transient final RingBuffer sortingRing;
+
+    private transient final RingBuffer storageRing;
+
+    private transient final NetDaemon netDaemon;
+
+    private transient final SortDaemon sortDaemon;
+
+    private transient final DiskDaemon diskDaemon;
+
+    private transient final LoadGenerator generator;
+
+    private transient final AcquisitionMetrics metrics;
+
+    private ThroughputBenchmark() throws IOException, SortException {
+        final int port = Integer.getInteger("bench.port", 10205);
+        final RingBufferFactory factory = new RingBufferFactory();
+        sortingRing = factory.create();
+        storageRing = factory.create();
+        final Controller controller = new Controller() {
+            public void atSortEnd() {
+                // no end of run in the benchmark
+            }
+
+            public void atWriteEnd() {
+                // no end of run in the benchmark
+            }
+        };
+        sortDaemon = new SortDaemon(controller, null);
+        sortDaemon.setRingBuffer(sortingRing);
+        sortDaemon.setSorter(sorter);
+        sortDaemon.setup(new L002InputStream(false), eventSize
+                + LoadGenerator.TIMESTAMP_PARAMETERS);
+        diskDaemon = new DiskDaemon(controller);
+        diskDaemon.setDaemon(true);
+        diskDaemon.setRingBuffer(storageRing);
+        diskDaemon.setupOn(new L002InputStream(false), new L002OutputStream(
+                eventSize));
+        final File eventFile = File.createTempFile("benchmark", ".evn");
+        eventFile.deleteOnExit();
+        EventIndex.getIndexFile(eventFile).deleteOnExit();
+        diskDaemon.setCompress(Boolean.getBoolean("bench.compress"));
+        diskDaemon.openEventOutputFile(eventFile);
+        netDaemon = new NetDaemon(sortingRing, storageRing, "localhost", port);
+        netDaemon.setWriter(storage);
+        generator = new LoadGenerator(new InetSocketAddress("localhost", port),
+                eventSize, eventsPerBuffer, epoch);
+        generator.setBurst(Integer.getInteger("bench.burstLength", 1),
+                getDouble("bench.burstFactor", 1.0));
+        metrics = new AcquisitionMetrics(netDaemon, sortDaemon, diskDaemon,
+                sortingRing, storageRing);
+        final Integer metricsPort = Integer.getInteger("bench.metricsPort");
+        if (metricsPort != null) {
+            metrics.startServer(metricsPort);
+        }
+    }
+
+    private static double getDouble(final String key, final double def) {
+        final String value = System.getProperty(key);
+        return value == null ? def : Double.parseDouble(value);
+    }
+
+    private void start() {
+        final Thread sortThread = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    sortDaemon.sortOnline();
+                } catch (Exception e) {// NOPMD
+                    e.printStackTrace();// NOPMD
+                }
+            }
+        }, "Benchmark Sorter");
+        sortThread.setDaemon(true);
+        sortThread.start();
+        diskDaemon.setState(GoodThread.State.RUN);
+        diskDaemon.start();
+        netDaemon.setState(GoodThread.State.RUN);
+        netDaemon.start();
+    }
+
+    private void stop() throws SortException {
+        metrics.close();
+        netDaemon.closeNet();
+        generator.close();
+        diskDaemon.closeEventOutputFile();
+    }
+
+    /**
+     * Results of sending at one rate.
+     */
+    private static final class Result {
+        transient double requested, achieved;
+        transient long sent, received, notSorted, notStored;
+        transient double minFraction;
+        transient long[] latencies;
+
+        boolean isLossless() {
+            return sent == received && notSorted == 0 && notStored == 0;
+        }
+
+        boolean isKeepingUp() {
+            return achieved >= MIN_ACHIEVED * requested;
+        }
+    }
+
+    private Result runStep(final double rate, final ExecutorService executor)
+            throws InterruptedException, ExecutionException {
+        netDaemon.resetCounters();
+        sortDaemon.resetSampling();
+        sorter.reset();
+        final int sortedBefore = sortDaemon.getBufferCount();
+        final int storedBefore = diskDaemon.getBufferCount();
+        final Result result = new Result();
+        result.requested = rate;
+        final long start = System.nanoTime();
+        final Future<Long> sending = executor.submit(() -> generator.send(
+                rate, stepNanos));
+        double minFraction = 1.0;
+        while (!sending.isDone()) {
+            minFraction = Math.min(minFraction, sortDaemon
+                    .getSamplingFraction());
+            Thread.sleep(1);
+        }
+        result.sent = sending.get();
+        result.achieved = result.sent * 1.0e9 / (System.nanoTime() - start);
+        /* wait for datagrams in flight and the rings to empty */
+        final long deadline = System.nanoTime() + MAX_DRAIN_NANOS;
+        long received = -1;
+        while (System.nanoTime() < deadline) {
+            Thread.sleep(20);
+            minFraction = Math.min(minFraction, sortDaemon
+                    .getSamplingFraction());
+            final long now = netDaemon.getPacketCount();
+            final boolean drained = sortDaemon.getBufferCount() - sortedBefore >= netDaemon
+                    .getSortedBuffers()
+                    && (!storage || diskDaemon.getBufferCount() - storedBefore >= netDaemon
+                            .getStoredBuffers());
+            if (now == received && drained) {
+                break;
+            }
+            received = now;
+        }
+        result.received = netDaemon.getPacketCount();
+        result.notSorted = result.received - netDaemon.getSortedBuffers();
+        result.notStored = storage ? result.received
+                - netDaemon.getStoredBuffers() : 0;
+        result.minFraction = minFraction;
+        result.latencies = sorter.getLatencies();
+        return result;
+    }
+
+    private static void print(final Result result) {
+        final long[] lat = result.latencies;
+        Arrays.sort(lat);
+        System.out.printf(Locale.US,// NOPMD
+                "%10.0f %10.0f %8d %8d %8d %8d %5.3f %9s %9s %9s %9s%n",
+                result.requested, result.achieved, result.sent,
+                result.sent - result.received, result.notSorted,
+                result.notStored, result.minFraction, micros(lat, 0.50),
+                micros(lat, 0.90), micros(lat, 0.99), micros(lat, 1.0));
+    }
+
+    private static String micros(final long[] sorted, final double quantile) {
+        final String rval;
+        if (sorted.length == 0) {
+            rval = "-";
+        } else {
+            final int index = Math.min(sorted.length - 1, (int) Math
+                    .ceil(quantile * sorted.length) - 1);
+            rval = String.format(Locale.US, "%.1f",
+                    sorted[Math.max(0, index)] / 1000.0);
+        }
+        return rval;
+    }
+
+    private void run() throws InterruptedException, ExecutionException {
+        System.out.printf(Locale.US,// NOPMD
+                "event size %d, %d events/buffer, burst %d x %.2f, storage %b%n",
+                eventSize, eventsPerBuffer, Integer.getInteger(
+                        "bench.burstLength", 1), getDouble(
+                        "bench.burstFactor", 1.0), storage);
+        System.out.printf("%10s %10s %8s %8s %8s %8s %5s %9s %9s %9s %9s%n",// NOPMD
+                "rate", "achieved", "sent", "kernel", "notSort", "notStor",
+                "frac", "p50(us)", "p90(us)", "p99(us)", "max(us)");
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        double best = 0.0;
+        try {
+            for (double rate = startRate; rate <= maxRate; rate *= step) {
+                final Result result = runStep(rate, executor);
+                print(result);
+                if (!result.isKeepingUp()) {
+                    System.out.println("Generator couldn't keep up.");// NOPMD
+                    break;
+                }
+                if (!result.isLossless()) {
+                    break;
+                }
+                best = result.achieved;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        System.out.printf(Locale.US,// NOPMD
+                "Max lossless rate: %.0f buffers/s, %.0f events/s%n", best,
+                best * eventsPerBuffer);
+    }
+
+    /**
+     * Runs the benchmark.
+     * @param args
+     *            ignored, settings are system properties
+     * @throws Exception
+     *             if the daemons can't be set up
+     */
+    public static void main(final String[] args) throws Exception {// NOPMD
+        /* loss is reported in the table, not by thousands of log messages */
+        JAM_LOGGER.setLevel(Level.OFF);
+        final ThroughputBenchmark benchmark = new ThroughputBenchmark();
+        benchmark.start();
+        try {
+            benchmark.run();
+        } finally {
+            benchmark.stop();
+        }
+    }
+
+    /**
+     * Sort routine which records the latency of each buffer's first event.
+     */
+    private static final class BenchmarkSorter implements Sorter {
+
+        private static final int MAX_SAMPLES = 1 << 20;
+
+        private transient final int eventSize;
+
+        private transient final int work;
+
+        private transient final long epoch;
+
+        private transient final long[] latencies = new long[MAX_SAMPLES];
+
+        private transient final int[] histogram = new int[1 << 12];
+
+        private transient int samples = 0;
+
+        /* keeps the extra work from being optimized away */
+        private transient int checksum = 0;
+
+        BenchmarkSorter(final int eventSize, final int work, final long epoch) {
+            this.eventSize = eventSize;
+            this.work = work;
+            this.epoch = epoch;
+        }
+
+        void reset() {
+            synchronized (latencies) {
+                samples = 0;
+            }
+        }
+
+        long[] getLatencies() {
+            synchronized (latencies) {
+                return Arrays.copyOf(latencies, samples);
+            }
+        }
+
+        public int getBufferSize() {
+            return RingBuffer.BUFFER_SIZE;
+        }
+
+        public int getEventSize() {
+            return eventSize + LoadGenerator.TIMESTAMP_PARAMETERS;
+        }
+
+        public void initialize() {
+            // nothing to initialize
+        }
+
+        public double monitor(final String name) {
+            return 0.0;
+        }
+
+        public void setWriteEnabled(final boolean state) {
+            // no event writing
+        }
+
+        public void sort(final int[] dataWords) {
+            final long sentAt = LoadGenerator.getSendTime(dataWords,
+                    eventSize);
+            if (sentAt >= 0) {
+                final long latency = System.nanoTime() - epoch - sentAt;
+                synchronized (latencies) {
+                    if (samples < MAX_SAMPLES) {
+                        latencies[samples] = latency;
+                        samples++;
+                    }
+                }
+            }
+            int sum = 0;
+            for (int i = 0; i < eventSize; i++) {
+                final int value = dataWords[i];
+                histogram[value & (histogram.length - 1)]++;
+                sum += value;
+            }
+            for (int i = 0; i < work; i++) {
+                sum = sum * 31 + i;
+            }
+            checksum += sum;
+        }
+    }
+}
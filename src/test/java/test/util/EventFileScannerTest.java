@@ -0,0 +1,119 @@
+package test.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import jam.sort.RingBuffer;
+import jam.sort.stream.L002Parameters;
+import jam.util.EventFileScanner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests scanning event files for scaler blocks and damaged buffers.
+ * @see EventFileScanner
+ */
+public final class EventFileScannerTest {// NOPMD
+
+    private static final int SIZE = RingBuffer.BUFFER_SIZE;
+
+    private static final int END_PAD = 0x01EEEEEE;
+
+    private static final int PAD = 0x01FFFFFF;
+
+    private static final int SCALERS = 0x01CCCCCC;
+
+    private transient File dir;
+
+    /**
+     * Creates an empty directory for the event files and results.
+     * @throws IOException
+     *             if the directory can't be created
+     */
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("scan").toFile();
+    }
+
+    /**
+     * Deletes the directory and everything in it, or leaves it for exit if
+     * mapped files can't be deleted yet.
+     */
+    @After
+    public void tearDown() {
+        for (File file : dir.listFiles()) {
+            if (!file.delete()) {
+                file.deleteOnExit();
+            }
+        }
+        if (!dir.delete()) {
+            dir.deleteOnExit();
+        }
+    }
+
+    private void writeFile(final String name, final String key,
+            final int extra, final ByteBuffer... buffers) throws IOException {
+        final ByteBuffer data = ByteBuffer.allocate(L002Parameters.HEADER_LENGTH
+                + buffers.length * SIZE + extra);
+        data.put(key.getBytes(StandardCharsets.US_ASCII));
+        data.position(L002Parameters.HEADER_LENGTH);
+        for (ByteBuffer buffer : buffers) {
+            data.put(buffer.array());
+        }
+        Files.write(new File(dir, name).toPath(), data.array());
+    }
+
+    private static ByteBuffer buffer(final int fill, final int... words) {
+        final ByteBuffer rval = ByteBuffer.allocate(SIZE);
+        for (int word : words) {
+            rval.putInt(word);
+        }
+        while (rval.hasRemaining()) {
+            rval.putInt(fill);
+        }
+        return rval;
+    }
+
+    /**
+     * Tests the reports and scaler summaries of two files scanned in
+     * parallel.
+     * @throws IOException
+     *             if the files can't be written or read
+     */
+    @Test
+    public void testScanDirectory() throws IOException {
+        writeFile("run1.evn", L002Parameters.HEADER_START, 100,
+                buffer(END_PAD), buffer(PAD, SCALERS, 2, 10, 20, 0x03000000),
+                buffer(END_PAD, SCALERS, 2, 15, 30));
+        writeFile("run2.evn", "not a header", 0, buffer(PAD));
+        final List<EventFileScanner.Report> reports = EventFileScanner
+                .scanDirectory(dir, dir, 2);
+        assertEquals("Reports.", 2, reports.size());
+        final EventFileScanner.Report first = reports.get(0);
+        assertEquals("Name.", "run1.evn", first.getName());
+        assertTrue("Header.", first.isHeaderOK());
+        assertEquals("Buffers.", 3, first.getBuffers());
+        assertEquals("Truncated.", 100, first.getTruncatedBytes());
+        assertEquals("End of run.", List.of(1, 3), first.getEndRunBuffers());
+        assertTrue("Needs fixing.", first.needsFixing());
+        assertEquals("Bad words.", 1, first.getBadWords());
+        assertEquals("Scaler blocks.", 2, first.getScalerBlocks());
+        assertEquals("Out of sequence.", 0, first.getScalersOutOfSequence());
+        assertEquals("Scaler summary.", List.of("10,20", "15,30"), Files
+                .readAllLines(new File(dir, "run1_scalers.csv").toPath()));
+        final EventFileScanner.Report second = reports.get(1);
+        assertFalse("Header.", second.isHeaderOK());
+        assertFalse("Needs fixing.", second.needsFixing());
+        assertEquals("Integrity report.", 2, Files.readAllLines(
+                new File(dir, "integrity.txt").toPath()).size());
+    }
+}
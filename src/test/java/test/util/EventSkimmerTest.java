@@ -0,0 +1,157 @@
+package test.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import jam.sort.stream.AbstractEventInputStream.EventInputStatus;
+import jam.sort.stream.L002InputStream;
+import jam.sort.stream.L002OutputStream;
+import jam.sort.stream.L002Parameters;
+import jam.util.EventSkimmer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests skimming event files in parallel.
+ * @see EventSkimmer
+ */
+public final class EventSkimmerTest {// NOPMD
+
+    private static final int SIZE = 4;
+
+    private static final int EVENTS = 1000;
+
+    private transient File dir, outDir;
+
+    /**
+     * Writes two event files to a new directory, and creates another for the
+     * skimmed files.
+     * @throws Exception
+     *             if the files can't be written
+     */
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("skim").toFile();
+        outDir = Files.createTempDirectory("skimmed").toFile();
+        for (String name : new String[] { "run1.evn", "run2.evn" }) {
+            final L002OutputStream output = new L002OutputStream(SIZE);
+            try (OutputStream out = new BufferedOutputStream(
+                    new FileOutputStream(new File(dir, name)))) {
+                out.write(header());
+                output.setOutputStream(out);
+                for (int i = 0; i < EVENTS; i++) {
+                    output.writeEvent(new int[] { i, 1, 2, i % 10 });
+                }
+                output.writeEndRun();
+            }
+        }
+    }
+
+    private static byte[] header() {
+        final byte[] rval = new byte[L002Parameters.HEADER_LENGTH];
+        final byte[] key = L002Parameters.HEADER_START
+                .getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(key, 0, rval, 0, key.length);
+        return rval;
+    }
+
+    /**
+     * Deletes the directories and everything in them.
+     */
+    @After
+    public void tearDown() {
+        for (File directory : new File[] { dir, outDir }) {
+            for (File file : directory.listFiles()) {
+                assertTrue("Deleted file.", file.delete());
+            }
+            assertTrue("Deleted directory.", directory.delete());
+        }
+    }
+
+    /**
+     * Tests that only the selected events are written, and can be read back.
+     * @throws Exception
+     *             if the skimmed files can't be read
+     */
+    @Test
+    public void testSkim() throws Exception {
+        final List<EventSkimmer.Result> results = new EventSkimmer(
+                L002InputStream.class, SIZE, event -> event[3] == 7)
+                .skimDirectory(dir, outDir, 2);
+        assertEquals("Results.", 2, results.size());
+        for (EventSkimmer.Result result : results) {
+            assertEquals("Read.", EVENTS, result.getEventsRead());
+            assertEquals("Kept.", EVENTS / 10, result.getEventsKept());
+        }
+        final L002InputStream input = new L002InputStream(false, SIZE);
+        try (InputStream in = new BufferedInputStream(new FileInputStream(
+                new File(outDir, "run1.evn")))) {
+            final byte[] header = new byte[L002Parameters.HEADER_LENGTH];
+            assertEquals("Header length.", header.length, in.read(header));
+            assertArrayEquals("Header.", header(), header);
+            input.setInputStream(in);
+            final int[] event = new int[SIZE];
+            int count = 0;
+            while (input.readEvent(event) == EventInputStatus.EVENT) {
+                assertEquals("Selected.", 7, event[3]);
+                assertEquals("First parameter.", 10 * count + 7, event[0]);
+                count++;
+            }
+            assertEquals("Events.", EVENTS / 10, count);
+        }
+    }
+
+    /**
+     * Tests selecting by ranges of named parameters.
+     */
+    @Test
+    public void testNamedRanges() {
+        final Map<String, Integer> indices = EventSkimmer
+                .parameterIndices("count, one, two, digit");
+        assertEquals("Index of last name.", Integer.valueOf(3), indices
+                .get("digit"));
+        final List<EventSkimmer.Result> results = new EventSkimmer(
+                L002InputStream.class, indices.size(), EventSkimmer.inRanges(
+                        indices, "digit:7-7 & count:0-499"))
+                .skimDirectory(dir, outDir, 2);
+        for (EventSkimmer.Result result : results) {
+            assertEquals("Kept.", EVENTS / 20, result.getEventsKept());
+        }
+    }
+
+    /**
+     * Tests that nothing is left in the output directory if a file can't be
+     * skimmed.
+     * @throws IOException
+     *             if the bad file can't be written
+     */
+    @Test
+    public void testFailureLeavesNothing() throws IOException {
+        final File bad = new File(dir, "bad.evn");
+        Files.write(bad.toPath(), new byte[L002Parameters.HEADER_LENGTH * 2]);
+        final List<EventSkimmer.Result> results = new EventSkimmer(
+                L002InputStream.class, SIZE, event -> true).skimDirectory(dir,
+                outDir, 2);
+        assertEquals("Results.", 2, results.size());
+        assertFalse("No skimmed file for bad input.", new File(outDir,
+                "bad.evn").exists());
+        assertEquals("Only the good files written.", 2,
+                outDir.listFiles().length);
+    }
+}